@@ -33,16 +33,27 @@
  */
 package fr.paris.lutece.plugins.importexport.business;
 
+import fr.paris.lutece.plugins.importexport.business.dialect.SqlDialectManager;
+import fr.paris.lutece.plugins.importexport.service.TableMetadataCacheService;
+import fr.paris.lutece.portal.service.database.AppConnectionService;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.util.AppException;
-import fr.paris.lutece.util.sql.DAOUtil;
+import fr.paris.lutece.portal.service.util.AppLogService;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -51,8 +62,13 @@ import org.apache.commons.lang3.StringUtils;
  */
 public abstract class AbstractImportExportDAO
 {
-    protected static final String SQL_QUERY_GET_COLUMNS = " SELECT DISTINCT column_name, data_type FROM information_schema.columns WHERE table_name = ? ";
-    protected static final String SQL_QUERY_GET_COLUMNS_NAME = " SELECT DISTINCT column_name FROM information_schema.columns WHERE table_name = ? ";
+    private static final String COLUMN_COLUMN_NAME = "COLUMN_NAME";
+    private static final String COLUMN_DATA_TYPE = "DATA_TYPE";
+    private static final String COLUMN_TYPE_NAME = "TYPE_NAME";
+    private static final String COLUMN_KEY_SEQ = "KEY_SEQ";
+    private static final String COLUMN_INDEX_NAME = "INDEX_NAME";
+    private static final String COLUMN_TYPE = "TYPE";
+    private static final String CONSTANT_UNDERSCORE = "_";
 
     private static final String CONSTANT_SQL_INT = "int";
     private static final String CONSTANT_SQL_LONG = "bigint";
@@ -66,11 +82,16 @@ public abstract class AbstractImportExportDAO
     private static final String CONSTANT_SQL_DATE = "date";
     private static final String CONSTANT_SQL_BYTE = "byte";
     private static final String CONSTANT_SQL_BLOB = "blob";
+    private static final String CONSTANT_SQL_NUMERIC = "numeric";
+    private static final String CONSTANT_SQL_DECIMAL = "decimal";
+    private static final String CONSTANT_SQL_BOOLEAN = "bool";
 
     private static final String ERROR_MESSAGE_COLUMN_NOT_FOUND = "importexport.import_data.errors.columnNotFound";
 
     /**
-     * Get the list of columns of a table matching a given list of names. The result list is sorted in the same order as the list of columns name
+     * Get the list of columns of a table matching a given list of names. The result list is sorted in the same order as the list of columns name. Columns
+     * of the first key of the table (its primary key, then its unique keys) whose columns are all in the list are flagged as primary key columns. If no key
+     * of the table is in the list, the first column of the list is used as the primary key, and is not flagged as a unique key.
      * 
      * @param listColumnNames
      *            The list of names of columns to consider
@@ -86,27 +107,32 @@ public abstract class AbstractImportExportDAO
      */
     protected static List<TableColumn> getTableColumns( List<String> listColumnNames, String strTableName, Plugin plugin, Locale locale ) throws AppException
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_GET_COLUMNS, plugin );
-        daoUtil.setString( 1, strTableName );
-        daoUtil.executeQuery( );
+        TableMetadata tableMetadata = TableMetadataCacheService.getInstance( ).getTableMetadata( strTableName, plugin );
         List<TableColumn> listColumns = new ArrayList<TableColumn>( listColumnNames.size( ) );
-        String strPrimaryKeyName = listColumnNames.get( 0 );
-        while ( daoUtil.next( ) )
+        List<String> listKey = null;
+        for ( List<String> listTableKey : tableMetadata.getKeys( ) )
         {
-            String strColumnName = daoUtil.getString( 1 );
-            if ( strColumnName != null )
+            if ( listColumnNames.containsAll( listTableKey ) )
             {
-                strColumnName = strColumnName.toLowerCase( );
+                listKey = listTableKey;
+                break;
             }
+        }
+        boolean bUniqueKey = listKey != null;
+        if ( listKey == null )
+        {
+            listKey = listColumnNames.subList( 0, 1 );
+        }
+        for ( Map.Entry<String, ColumnType> columnType : tableMetadata.getColumnTypes( ).entrySet( ) )
+        {
+            String strColumnName = columnType.getKey( );
             if ( listColumnNames.contains( strColumnName ) )
             {
-                String strColumnType = daoUtil.getString( 2 );
-                TableColumn tableColumn = new TableColumn( strColumnName, StringUtils.equals( strPrimaryKeyName, strColumnName ),
-                        getJavaTypeFromSqlString( strColumnType ) );
+                TableColumn tableColumn = new TableColumn( strColumnName, listKey.contains( strColumnName ), columnType.getValue( ) );
+                tableColumn.setIsUniqueKey( bUniqueKey && tableColumn.getIsPrimaryKey( ) );
                 listColumns.add( tableColumn );
             }
         }
-        daoUtil.free( );
 
         // We now sort elements of the list in the original order
         List<TableColumn> listColumnsSorted = new ArrayList<TableColumn>( listColumns.size( ) );
@@ -146,17 +172,252 @@ public abstract class AbstractImportExportDAO
      */
     public static List<String> getTableColumnsNames( String strTableName, Plugin plugin )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_GET_COLUMNS_NAME, plugin );
-        daoUtil.setString( 1, strTableName );
-        daoUtil.executeQuery( );
-        List<String> listColumnsName = new ArrayList<String>( );
-        while ( daoUtil.next( ) )
+        return new ArrayList<String>( TableMetadataCacheService.getInstance( ).getTableMetadata( strTableName, plugin ).getColumnsName( ) );
+    }
+
+    /**
+     * Read the columns and the keys of a table of the current schema from the metadata of the database. This method always queries the database: columns
+     * should be read through {@link TableMetadataCacheService} instead.
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param plugin
+     *            The plugin to use the pool of
+     * @return The metadata of the table
+     * @throws AppException
+     *             If an error occurred with the database
+     */
+    public static TableMetadata findTableMetadata( String strTableName, Plugin plugin ) throws AppException
+    {
+        Connection connection = getConnection( plugin );
+        try
+        {
+            DatabaseMetaData metaData = connection.getMetaData( );
+            String strCatalog = connection.getCatalog( );
+            String strSchema = connection.getSchema( );
+            String strTable = getMetadataTableName( metaData, strTableName );
+            // Underscores of table names are wildcards of search patterns
+            String strTablePattern = StringUtils.replace( strTable, CONSTANT_UNDERSCORE, metaData.getSearchStringEscape( ) + CONSTANT_UNDERSCORE );
+
+            List<String> listColumnsName = new ArrayList<String>( );
+            Map<String, ColumnType> mapColumnTypes = new LinkedHashMap<String, ColumnType>( );
+            ResultSet resultSet = metaData.getColumns( strCatalog, strSchema, strTablePattern, null );
+            try
+            {
+                while ( resultSet.next( ) )
+                {
+                    String strColumnName = resultSet.getString( COLUMN_COLUMN_NAME );
+                    listColumnsName.add( strColumnName );
+                    mapColumnTypes.put( strColumnName.toLowerCase( ), getJavaTypeFromSqlType( resultSet.getInt( COLUMN_DATA_TYPE ),
+                            resultSet.getString( COLUMN_TYPE_NAME ) ) );
+                }
+            }
+            finally
+            {
+                resultSet.close( );
+            }
+
+            List<List<String>> listKeys = new ArrayList<List<String>>( );
+            // The primary key is sorted by the sequence number of its columns
+            Map<Integer, String> mapPrimaryKey = new TreeMap<Integer, String>( );
+            resultSet = metaData.getPrimaryKeys( strCatalog, strSchema, strTable );
+            try
+            {
+                while ( resultSet.next( ) )
+                {
+                    mapPrimaryKey.put( resultSet.getInt( COLUMN_KEY_SEQ ), resultSet.getString( COLUMN_COLUMN_NAME ).toLowerCase( ) );
+                }
+            }
+            finally
+            {
+                resultSet.close( );
+            }
+            if ( !mapPrimaryKey.isEmpty( ) )
+            {
+                listKeys.add( new ArrayList<String>( mapPrimaryKey.values( ) ) );
+            }
+
+            Map<String, List<String>> mapUniqueKeys = new LinkedHashMap<String, List<String>>( );
+            resultSet = metaData.getIndexInfo( strCatalog, strSchema, strTable, true, true );
+            try
+            {
+                while ( resultSet.next( ) )
+                {
+                    String strIndexName = resultSet.getString( COLUMN_INDEX_NAME );
+                    String strColumnName = resultSet.getString( COLUMN_COLUMN_NAME );
+                    if ( resultSet.getShort( COLUMN_TYPE ) == DatabaseMetaData.tableIndexStatistic || strIndexName == null || strColumnName == null )
+                    {
+                        continue;
+                    }
+                    List<String> listUniqueKey = mapUniqueKeys.get( strIndexName );
+                    if ( listUniqueKey == null )
+                    {
+                        listUniqueKey = new ArrayList<String>( );
+                        mapUniqueKeys.put( strIndexName, listUniqueKey );
+                    }
+                    listUniqueKey.add( strColumnName.toLowerCase( ) );
+                }
+            }
+            finally
+            {
+                resultSet.close( );
+            }
+            for ( List<String> listUniqueKey : mapUniqueKeys.values( ) )
+            {
+                if ( !listKeys.contains( listUniqueKey ) )
+                {
+                    listKeys.add( listUniqueKey );
+                }
+            }
+
+            return new TableMetadata( listColumnsName, mapColumnTypes, listKeys );
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            freeConnection( plugin, connection );
+        }
+    }
+
+    /**
+     * Get the name of a table as it is stored in the metadata of the database, whose identifiers may be stored in upper or lower case
+     * 
+     * @param metaData
+     *            The metadata of the database
+     * @param strTableName
+     *            The name of the table
+     * @return The name of the table in the metadata
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    protected static String getMetadataTableName( DatabaseMetaData metaData, String strTableName ) throws SQLException
+    {
+        if ( metaData.storesUpperCaseIdentifiers( ) )
+        {
+            return strTableName.toUpperCase( );
+        }
+        if ( metaData.storesLowerCaseIdentifiers( ) )
+        {
+            return strTableName.toLowerCase( );
+        }
+        return strTableName;
+    }
+
+    /**
+     * Get the name of the current schema of the pool of a plugin
+     * 
+     * @param plugin
+     *            The plugin to use the pool of, or null to use the default pool
+     * @return The name of the current schema, or null if it could not be found
+     */
+    public static String findSchemaName( Plugin plugin )
+    {
+        Connection connection = getConnection( plugin );
+        try
+        {
+            return SqlDialectManager.getDialect( connection ).getSchemaName( connection );
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+        finally
+        {
+            freeConnection( plugin, connection );
+        }
+    }
+
+    /**
+     * Get a connection of the pool of a plugin
+     * 
+     * @param plugin
+     *            The plugin to use the pool of, or null to use the default pool
+     * @return The connection
+     */
+    private static Connection getConnection( Plugin plugin )
+    {
+        if ( plugin != null && plugin.getConnectionService( ) != null )
+        {
+            return plugin.getConnectionService( ).getConnection( );
+        }
+        return AppConnectionService.getConnection( );
+    }
+
+    /**
+     * Give a connection back to the pool of a plugin
+     * 
+     * @param plugin
+     *            The plugin to use the pool of, or null to use the default pool
+     * @param connection
+     *            The connection
+     */
+    private static void freeConnection( Plugin plugin, Connection connection )
+    {
+        if ( plugin != null && plugin.getConnectionService( ) != null )
+        {
+            plugin.getConnectionService( ).freeConnection( connection );
+        }
+        else
+        {
+            AppConnectionService.freeConnection( connection );
+        }
+    }
+
+    /**
+     * Get the type of a column from its JDBC type
+     * 
+     * @param nSqlType
+     *            The JDBC type of the column, as defined in {@link Types}
+     * @param strTypeName
+     *            The name of the type of the column in the database, used if the JDBC type is not known
+     * @return The column type, or null if no type was found
+     */
+    protected static ColumnType getJavaTypeFromSqlType( int nSqlType, String strTypeName )
+    {
+        switch( nSqlType )
         {
-            String strColumnName = daoUtil.getString( 1 );
-            listColumnsName.add( strColumnName );
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return ColumnType.TYPE_INT;
+            case Types.BIGINT:
+                return ColumnType.TYPE_LONG;
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                return ColumnType.TYPE_DOUBLE;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return ColumnType.TYPE_DECIMAL;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return ColumnType.TYPE_BOOLEAN;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return ColumnType.TYPE_STRING;
+            case Types.DATE:
+                return ColumnType.TYPE_DATE;
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return ColumnType.TYPE_TIMESTAMP;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return ColumnType.TYPE_BYTE;
+            default:
+                return getJavaTypeFromSqlString( strTypeName );
         }
-        daoUtil.free( );
-        return listColumnsName;
     }
 
     /**
@@ -211,6 +472,17 @@ public abstract class AbstractImportExportDAO
                                 {
                                     columnType = ColumnType.TYPE_BYTE;
                                 }
+                                else
+                                    if ( StringUtils.contains( strColumnTypeSearch, CONSTANT_SQL_NUMERIC )
+                                            || StringUtils.contains( strColumnTypeSearch, CONSTANT_SQL_DECIMAL ) )
+                                    {
+                                        columnType = ColumnType.TYPE_DECIMAL;
+                                    }
+                                    else
+                                        if ( StringUtils.contains( strColumnTypeSearch, CONSTANT_SQL_BOOLEAN ) )
+                                        {
+                                            columnType = ColumnType.TYPE_BOOLEAN;
+                                        }
 
         if ( columnType != null )
         {
@@ -44,5 +44,7 @@ public enum ColumnType
     TYPE_DOUBLE,
     TYPE_DATE,
     TYPE_TIMESTAMP,
-    TYPE_BYTE;
+    TYPE_BYTE,
+    TYPE_DECIMAL,
+    TYPE_BOOLEAN;
 }
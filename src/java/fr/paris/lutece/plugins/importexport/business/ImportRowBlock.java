@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Describes a block of rows to import, stored by columns. The names of columns are shared by every row of the block, and the block can be reused to read
+ * the next rows once its rows have been processed, so that no object is allocated per cell.
+ */
+public class ImportRowBlock
+{
+    private List<String> _listColumnsName;
+    private String [ ] [ ] _values;
+    private boolean [ ] _bValidRows;
+    private String [ ] [ ] _invalidRows;
+    private int _nRowCount;
+
+    /**
+     * Creates a new empty block of rows
+     * 
+     * @param listColumnsName
+     *            The names of the columns of rows
+     * @param nCapacity
+     *            The maximum number of rows of the block
+     */
+    public ImportRowBlock( List<String> listColumnsName, int nCapacity )
+    {
+        _listColumnsName = listColumnsName;
+        _values = new String [ listColumnsName.size( )] [ nCapacity];
+        _bValidRows = new boolean [ nCapacity];
+        _invalidRows = new String [ nCapacity] [ ];
+    }
+
+    /**
+     * Get the names of the columns of rows
+     * 
+     * @return The names of the columns
+     */
+    public List<String> getColumnsName( )
+    {
+        return _listColumnsName;
+    }
+
+    /**
+     * Get the number of columns of rows
+     * 
+     * @return The number of columns
+     */
+    public int getColumnCount( )
+    {
+        return _values.length;
+    }
+
+    /**
+     * Get the number of rows of the block
+     * 
+     * @return The number of rows
+     */
+    public int getRowCount( )
+    {
+        return _nRowCount;
+    }
+
+    /**
+     * Get the maximum number of rows of the block
+     * 
+     * @return The maximum number of rows
+     */
+    public int getCapacity( )
+    {
+        return _bValidRows.length;
+    }
+
+    /**
+     * Check if the block cannot contain any more row
+     * 
+     * @return True if the block is full, false otherwise
+     */
+    public boolean isFull( )
+    {
+        return _nRowCount == _bValidRows.length;
+    }
+
+    /**
+     * Get the value of a cell
+     * 
+     * @param nRow
+     *            The index of the row in the block
+     * @param nColumn
+     *            The index of the column
+     * @return The value of the cell
+     */
+    public String getValue( int nRow, int nColumn )
+    {
+        return _values [nColumn] [nRow];
+    }
+
+    /**
+     * Check if a row has the expected number of values
+     * 
+     * @param nRow
+     *            The index of the row in the block
+     * @return True if the row has a value for every column, false otherwise
+     */
+    public boolean isValidRow( int nRow )
+    {
+        return _bValidRows [nRow];
+    }
+
+    /**
+     * Get the values of a row as they were read from the import source
+     * 
+     * @param nRow
+     *            The index of the row in the block
+     * @return The values of the row, even if the row is not valid
+     */
+    public String [ ] getSourceValues( int nRow )
+    {
+        if ( !_bValidRows [nRow] )
+        {
+            return _invalidRows [nRow];
+        }
+        String [ ] strValues = new String [ _values.length];
+        for ( int i = 0; i < _values.length; i++ )
+        {
+            strValues [i] = _values [i] [nRow];
+        }
+        return strValues;
+    }
+
+    /**
+     * Add a row at the end of the block. If the number of values is not the number of columns of the block, the row is added without values and is marked
+     * as not valid.
+     * 
+     * @param strValues
+     *            The values of the row, in the order of columns
+     */
+    public void addRow( String [ ] strValues )
+    {
+        boolean bValid = strValues.length == _values.length;
+        for ( int i = 0; i < _values.length; i++ )
+        {
+            _values [i] [_nRowCount] = bValid ? strValues [i] : null;
+        }
+        _bValidRows [_nRowCount] = bValid;
+        // Values of rows that are not valid are only kept to be reported as rejected
+        _invalidRows [_nRowCount] = bValid ? null : strValues;
+        _nRowCount++;
+    }
+
+    /**
+     * Remove every row of the block, so that it can be reused
+     */
+    public void clear( )
+    {
+        for ( String [ ] column : _values )
+        {
+            Arrays.fill( column, 0, _nRowCount, null );
+        }
+        Arrays.fill( _invalidRows, 0, _nRowCount, null );
+        _nRowCount = 0;
+    }
+}
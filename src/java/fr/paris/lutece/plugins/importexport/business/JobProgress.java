@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business;
+
+/**
+ * Progress of a running import or export. Counters are only written by the thread that runs the job, and read by any thread, so they are volatile fields
+ * that are updated without any lock. A snapshot of the progress can be read as a JSON object with {@link #toJson()}. Any thread can also request the job to
+ * be cancelled, the job checks the request between two chunks of work.
+ */
+public class JobProgress
+{
+    /**
+     * Status of a job that has not been started yet
+     */
+    public static final String STATUS_QUEUED = "queued";
+
+    /**
+     * Status of a running job
+     */
+    public static final String STATUS_WORKING = "working";
+
+    /**
+     * Status of a job whose execution has ended
+     */
+    public static final String STATUS_FINISHED = "finished";
+
+    private static final long CONSTANT_MILLISECONDS = 1000L;
+
+    private volatile String _strStatus = STATUS_QUEUED;
+    private volatile String _strPhase;
+    private volatile long _lStartTime;
+    private volatile long _lEndTime;
+    private volatile long _lRowsProcessed;
+    private volatile long _lBytesRead;
+    private volatile long _lTotalBytes = -1;
+    private volatile boolean _bCancelRequested;
+
+    /**
+     * Mark the job as started
+     */
+    public void start( )
+    {
+        _lStartTime = System.currentTimeMillis( );
+        _strStatus = STATUS_WORKING;
+    }
+
+    /**
+     * Mark the job as finished
+     */
+    public void finish( )
+    {
+        _lEndTime = System.currentTimeMillis( );
+        _strStatus = STATUS_FINISHED;
+    }
+
+    /**
+     * Restore the status and the times of a job that is run by another node of the cluster
+     * 
+     * @param strStatus
+     *            {@link #STATUS_QUEUED}, {@link #STATUS_WORKING} or {@link #STATUS_FINISHED}
+     * @param lStartTime
+     *            The time the job started at in milliseconds, or 0 if it has not been started
+     * @param lEndTime
+     *            The time the job finished at in milliseconds, or 0 if it is not finished
+     */
+    public void restore( String strStatus, long lStartTime, long lEndTime )
+    {
+        _lStartTime = lStartTime;
+        _lEndTime = lEndTime;
+        _strStatus = strStatus;
+    }
+
+    /**
+     * Get the time the job started at
+     * 
+     * @return The time in milliseconds, or 0 if the job has not been started
+     */
+    public long getStartTime( )
+    {
+        return _lStartTime;
+    }
+
+    /**
+     * Get the time the job finished at
+     * 
+     * @return The time in milliseconds, or 0 if the job is not finished
+     */
+    public long getEndTime( )
+    {
+        return _lEndTime;
+    }
+
+    /**
+     * Request the job to be cancelled. The job stops at the end of its current chunk of work
+     */
+    public void cancel( )
+    {
+        _bCancelRequested = true;
+    }
+
+    /**
+     * Check if the job has been requested to be cancelled
+     * 
+     * @return True if the job has been requested to be cancelled, false otherwise
+     */
+    public boolean isCancelRequested( )
+    {
+        return _bCancelRequested;
+    }
+
+    /**
+     * Get the status of the job
+     * 
+     * @return {@link #STATUS_QUEUED}, {@link #STATUS_WORKING} or {@link #STATUS_FINISHED}
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Get the current phase of the job
+     * 
+     * @return The name of the current phase, or null if the job has not started any phase
+     */
+    public String getPhase( )
+    {
+        return _strPhase;
+    }
+
+    /**
+     * Set the current phase of the job
+     * 
+     * @param strPhase
+     *            The name of the phase
+     */
+    public void setPhase( String strPhase )
+    {
+        this._strPhase = strPhase;
+    }
+
+    /**
+     * Get the number of rows processed by the job
+     * 
+     * @return The number of rows
+     */
+    public long getRowsProcessed( )
+    {
+        return _lRowsProcessed;
+    }
+
+    /**
+     * Set the number of rows processed by the job
+     * 
+     * @param lRowsProcessed
+     *            The number of rows
+     */
+    public void setRowsProcessed( long lRowsProcessed )
+    {
+        this._lRowsProcessed = lRowsProcessed;
+    }
+
+    /**
+     * Get the number of bytes of the input of the job that have been read
+     * 
+     * @return The number of bytes
+     */
+    public long getBytesRead( )
+    {
+        return _lBytesRead;
+    }
+
+    /**
+     * Set the number of bytes of the input of the job that have been read
+     * 
+     * @param lBytesRead
+     *            The number of bytes
+     */
+    public void setBytesRead( long lBytesRead )
+    {
+        this._lBytesRead = lBytesRead;
+    }
+
+    /**
+     * Get the size of the input of the job
+     * 
+     * @return The number of bytes, or -1 if it is unknown
+     */
+    public long getTotalBytes( )
+    {
+        return _lTotalBytes;
+    }
+
+    /**
+     * Set the size of the input of the job
+     * 
+     * @param lTotalBytes
+     *            The number of bytes, or -1 if it is unknown
+     */
+    public void setTotalBytes( long lTotalBytes )
+    {
+        this._lTotalBytes = lTotalBytes;
+    }
+
+    /**
+     * Get the time elapsed since the job was started
+     * 
+     * @return The elapsed time in milliseconds, or 0 if the job has not been started
+     */
+    public long getElapsedTime( )
+    {
+        long lStartTime = _lStartTime;
+        if ( lStartTime == 0 )
+        {
+            return 0;
+        }
+        long lEndTime = _lEndTime;
+        return ( lEndTime == 0 ? System.currentTimeMillis( ) : lEndTime ) - lStartTime;
+    }
+
+    /**
+     * Get the average number of rows processed per second since the job was started
+     * 
+     * @return The number of rows per second
+     */
+    public long getRowsPerSecond( )
+    {
+        long lElapsedTime = getElapsedTime( );
+        return lElapsedTime == 0 ? 0 : _lRowsProcessed * CONSTANT_MILLISECONDS / lElapsedTime;
+    }
+
+    /**
+     * Get the estimated time needed to read the rest of the input of the job, based on the bytes read so far
+     * 
+     * @return The estimated time in seconds, or -1 if it can not be estimated
+     */
+    public long getEstimatedTimeRemaining( )
+    {
+        long lBytesRead = _lBytesRead;
+        long lTotalBytes = _lTotalBytes;
+        if ( lBytesRead <= 0 || lTotalBytes <= 0 || !STATUS_WORKING.equals( _strStatus ) )
+        {
+            return -1;
+        }
+        return Math.max( 0, lTotalBytes - lBytesRead ) * getElapsedTime( ) / lBytesRead / CONSTANT_MILLISECONDS;
+    }
+
+    /**
+     * Get a snapshot of the progress of the job as a JSON object
+     * 
+     * @return The JSON object
+     */
+    public String toJson( )
+    {
+        StringBuilder sbJson = new StringBuilder( );
+        sbJson.append( "{\"status\":" );
+        appendJsonString( sbJson, _strStatus );
+        sbJson.append( ",\"phase\":" );
+        appendJsonString( sbJson, _strPhase );
+        sbJson.append( ",\"rows\":" ).append( _lRowsProcessed );
+        sbJson.append( ",\"rowsPerSecond\":" ).append( getRowsPerSecond( ) );
+        sbJson.append( ",\"bytesRead\":" ).append( _lBytesRead );
+        sbJson.append( ",\"totalBytes\":" ).append( _lTotalBytes );
+        sbJson.append( ",\"elapsed\":" ).append( getElapsedTime( ) / CONSTANT_MILLISECONDS );
+        sbJson.append( ",\"eta\":" ).append( getEstimatedTimeRemaining( ) );
+        sbJson.append( ",\"cancelRequested\":" ).append( _bCancelRequested );
+        sbJson.append( '}' );
+        return sbJson.toString( );
+    }
+
+    /**
+     * Append a string value to a JSON object
+     * 
+     * @param sbJson
+     *            The JSON object
+     * @param strValue
+     *            The value, or null
+     */
+    private static void appendJsonString( StringBuilder sbJson, String strValue )
+    {
+        if ( strValue == null )
+        {
+            sbJson.append( "null" );
+            return;
+        }
+        sbJson.append( '"' );
+        for ( int i = 0; i < strValue.length( ); i++ )
+        {
+            char c = strValue.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                sbJson.append( '\\' );
+            }
+            if ( c < ' ' )
+            {
+                sbJson.append( ' ' );
+            }
+            else
+            {
+                sbJson.append( c );
+            }
+        }
+        sbJson.append( '"' );
+    }
+}
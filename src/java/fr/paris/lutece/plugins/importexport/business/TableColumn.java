@@ -40,6 +40,7 @@ public class TableColumn
 {
     private String _strColumnName;
     private boolean _bIsPrimaryKey;
+    private boolean _bIsUniqueKey;
     private ColumnType _columnType;
 
     /**
@@ -101,6 +102,28 @@ public class TableColumn
         this._bIsPrimaryKey = bIsPrimaryKey;
     }
 
+    /**
+     * Check if this column belongs to a key of the table that is backed by a primary key or a unique index. Columns used as key only because the table has
+     * no key in the imported columns are not unique keys
+     * 
+     * @return True if this column belongs to a unique key of the table, false otherwise
+     */
+    public boolean getIsUniqueKey( )
+    {
+        return _bIsUniqueKey;
+    }
+
+    /**
+     * Set whether this column belongs to a key of the table that is backed by a primary key or a unique index
+     * 
+     * @param bIsUniqueKey
+     *            True if this column belongs to a unique key of the table, false otherwise
+     */
+    public void setIsUniqueKey( boolean bIsUniqueKey )
+    {
+        this._bIsUniqueKey = bIsUniqueKey;
+    }
+
     /**
      * Get the type of this column
      * 
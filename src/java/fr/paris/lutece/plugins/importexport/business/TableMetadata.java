@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes the columns and the keys of a database table, as read from the metadata of the database. Instances are immutable so that they can be cached and
+ * shared.
+ */
+public class TableMetadata
+{
+    private final List<String> _listColumnsName;
+    private final Map<String, ColumnType> _mapColumnTypes;
+    private final List<List<String>> _listKeys;
+    private final long _lLoadTime;
+
+    /**
+     * Creates a new table metadata
+     * 
+     * @param listColumnsName
+     *            The names of the columns of the table
+     * @param mapColumnTypes
+     *            The types of the columns of the table, by lower case name of column
+     * @param listKeys
+     *            The keys of the table. Every key is the list of lower case names of its columns. The primary key comes first, followed by unique keys
+     */
+    public TableMetadata( List<String> listColumnsName, Map<String, ColumnType> mapColumnTypes, List<List<String>> listKeys )
+    {
+        _listColumnsName = Collections.unmodifiableList( listColumnsName );
+        _mapColumnTypes = Collections.unmodifiableMap( mapColumnTypes );
+        _listKeys = Collections.unmodifiableList( listKeys );
+        _lLoadTime = System.currentTimeMillis( );
+    }
+
+    /**
+     * Get the names of the columns of the table
+     * 
+     * @return The unmodifiable list of names of columns
+     */
+    public List<String> getColumnsName( )
+    {
+        return _listColumnsName;
+    }
+
+    /**
+     * Get the types of the columns of the table
+     * 
+     * @return The unmodifiable map of types, by lower case name of column. The type of a column is null if it is not supported
+     */
+    public Map<String, ColumnType> getColumnTypes( )
+    {
+        return _mapColumnTypes;
+    }
+
+    /**
+     * Get the keys of the table, that are backed by a unique index
+     * 
+     * @return The unmodifiable list of keys. Every key is the list of lower case names of its columns. The primary key comes first, followed by unique keys
+     */
+    public List<List<String>> getKeys( )
+    {
+        return _listKeys;
+    }
+
+    /**
+     * Check if the metadata is older than a given time to live
+     * 
+     * @param lTimeToLive
+     *            The time to live in milliseconds. A value lower than or equal to 0 means that the metadata never expires
+     * @return True if the metadata has expired, false otherwise
+     */
+    public boolean isExpired( long lTimeToLive )
+    {
+        return lTimeToLive > 0 && System.currentTimeMillis( ) - _lLoadTime > lTimeToLive;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.binder;
+
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.apache.commons.lang3.BooleanUtils;
+
+/**
+ * Binder of boolean columns. Values can be true/false, yes/no, on/off, or 1/0.
+ */
+public class BooleanColumnBinder extends ColumnBinder
+{
+    private static final String CONSTANT_TRUE = "1";
+    private static final String CONSTANT_FALSE = "0";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object parse( String strValue )
+    {
+        String strBoolean = strValue.trim( );
+        if ( CONSTANT_TRUE.equals( strBoolean ) )
+        {
+            return Boolean.TRUE;
+        }
+        if ( CONSTANT_FALSE.equals( strBoolean ) )
+        {
+            return Boolean.FALSE;
+        }
+        Boolean bValue = BooleanUtils.toBooleanObject( strBoolean );
+        if ( bValue == null )
+        {
+            throw new IllegalArgumentException( "Invalid boolean value : " + strValue );
+        }
+        return bValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( PreparedStatement statement, int nIndex, Object value ) throws SQLException
+    {
+        if ( value == null )
+        {
+            statement.setNull( nIndex, Types.BOOLEAN );
+        }
+        else
+        {
+            statement.setBoolean( nIndex, (Boolean) value );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( DAOUtil daoUtil, int nIndex, Object value )
+    {
+        daoUtil.setBoolean( nIndex, Boolean.TRUE.equals( value ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object read( ResultSet resultSet, int nIndex ) throws SQLException
+    {
+        boolean bValue = resultSet.getBoolean( nIndex );
+        return resultSet.wasNull( ) ? null : bValue;
+    }
+}
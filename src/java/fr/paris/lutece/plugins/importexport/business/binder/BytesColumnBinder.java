@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.binder;
+
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Binder of binary columns. Values are hexadecimal strings, that may start with the sequence "0x".
+ */
+public class BytesColumnBinder extends ColumnBinder
+{
+    private static final String CONSTANT_HEXA_START = "0x";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object parse( String strValue ) throws DecoderException
+    {
+        String strHexValue = strValue;
+        // If the blob contains the sequence "0x" that indicates that it is encoded in hex, we remove it since we do know it is hex
+        // Furthermore, the 'x' character is not a valid hex character, so we can safely remove it
+        if ( strHexValue.startsWith( CONSTANT_HEXA_START ) )
+        {
+            strHexValue = strHexValue.substring( CONSTANT_HEXA_START.length( ) );
+        }
+        return Hex.decodeHex( strHexValue.toCharArray( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( PreparedStatement statement, int nIndex, Object value ) throws SQLException
+    {
+        statement.setBytes( nIndex, (byte [ ]) value );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( DAOUtil daoUtil, int nIndex, Object value )
+    {
+        daoUtil.setBytes( nIndex, (byte [ ]) value );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object read( ResultSet resultSet, int nIndex ) throws SQLException
+    {
+        return resultSet.getBytes( nIndex );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getKeyValue( Object value )
+    {
+        return value == null ? null : Hex.encodeHexString( (byte [ ]) value );
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.binder;
+
+import fr.paris.lutece.plugins.importexport.business.ColumnType;
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+import fr.paris.lutece.plugins.importexport.business.codec.CodecRegistry;
+import fr.paris.lutece.plugins.importexport.business.codec.IValueCodec;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Converts and binds values of a column of a given type. Binders are immutable, so a single instance of each binder is shared by every DAO, except for
+ * date and timestamp columns whose binder uses the codec of the column. A DAO gets the binder of each of its columns once with
+ * {@link #getBinder(String, TableColumn)}, so that values are then bound without checking the type of their column.
+ */
+public abstract class ColumnBinder
+{
+    private static final String CONSTANT_STRING_NULL = "null";
+
+    private static final Map<ColumnType, ColumnBinder> _mapBinders = new EnumMap<ColumnType, ColumnBinder>( ColumnType.class );
+
+    static
+    {
+        _mapBinders.put( ColumnType.TYPE_STRING, new StringColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_INT, new IntColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_LONG, new LongColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_DOUBLE, new DoubleColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_DATE, new DateColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_TIMESTAMP, new TimestampColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_BYTE, new BytesColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_DECIMAL, new DecimalColumnBinder( ) );
+        _mapBinders.put( ColumnType.TYPE_BOOLEAN, new BooleanColumnBinder( ) );
+    }
+
+    /**
+     * Get the binder of a type of column
+     * 
+     * @param columnType
+     *            The type of the column, or null if the type of the column is not supported
+     * @return The binder of the type of column. Values of columns of types that are not supported are bound as strings, and converted by the database
+     */
+    public static ColumnBinder getBinder( ColumnType columnType )
+    {
+        return _mapBinders.get( columnType == null ? ColumnType.TYPE_STRING : columnType );
+    }
+
+    /**
+     * Get the binder of a column of a table. Values of date and timestamp columns are converted with the codec of the column.
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param tableColumn
+     *            The column
+     * @return The binder of the column
+     */
+    public static ColumnBinder getBinder( String strTableName, TableColumn tableColumn )
+    {
+        if ( tableColumn.getColumnType( ) == null )
+        {
+            return getBinder( tableColumn.getColumnType( ) );
+        }
+        IValueCodec codec = CodecRegistry.getCodec( strTableName, tableColumn );
+        switch( tableColumn.getColumnType( ) )
+        {
+            case TYPE_DATE:
+                return new DateColumnBinder( codec );
+            case TYPE_TIMESTAMP:
+                return new TimestampColumnBinder( codec );
+            default:
+                return getBinder( tableColumn.getColumnType( ) );
+        }
+    }
+
+    /**
+     * Convert a value read from an import source into the Java type of the column
+     * 
+     * @param strValue
+     *            The value to convert
+     * @return The converted value, or null if the value is empty
+     * @throws SQLException
+     *             If the value is not valid. The exception has no stack trace
+     */
+    public Object convert( String strValue ) throws SQLException
+    {
+        if ( isStringBlankOrNull( strValue ) )
+        {
+            return null;
+        }
+        try
+        {
+            return parse( strValue );
+        }
+        // Invalid values are reported as errors of their row, so they are not logged
+        catch( IllegalArgumentException e )
+        {
+            throw new InvalidValueException( e );
+        }
+        catch( ParseException e )
+        {
+            throw new InvalidValueException( e );
+        }
+        catch( DecoderException e )
+        {
+            throw new InvalidValueException( e );
+        }
+    }
+
+    /**
+     * Parse a value that is not empty
+     * 
+     * @param strValue
+     *            The value to parse
+     * @return The parsed value
+     * @throws ParseException
+     *             If the value is not a valid date
+     * @throws DecoderException
+     *             If the value is not a valid hexadecimal string
+     */
+    protected abstract Object parse( String strValue ) throws ParseException, DecoderException;
+
+    /**
+     * Bind a converted value as a parameter of a statement
+     * 
+     * @param statement
+     *            The statement
+     * @param nIndex
+     *            The index of the parameter
+     * @param value
+     *            The converted value, or null
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public abstract void bind( PreparedStatement statement, int nIndex, Object value ) throws SQLException;
+
+    /**
+     * Bind a converted value as a parameter of a DAOUtil
+     * 
+     * @param daoUtil
+     *            The DAOUtil
+     * @param nIndex
+     *            The index of the parameter
+     * @param value
+     *            The converted value, or null
+     */
+    public abstract void bind( DAOUtil daoUtil, int nIndex, Object value );
+
+    /**
+     * Read a value of the column from a result set
+     * 
+     * @param resultSet
+     *            The result set
+     * @param nIndex
+     *            The index of the column in the result set
+     * @return The value, or null if the value is null
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public abstract Object read( ResultSet resultSet, int nIndex ) throws SQLException;
+
+    /**
+     * Get the normalized value of a converted value, so that keys of rows read from an import source can be compared with keys read from the database
+     * 
+     * @param value
+     *            The converted value
+     * @return The normalized value, or null if the value is empty
+     */
+    public String getKeyValue( Object value )
+    {
+        return value == null ? null : value.toString( );
+    }
+
+    /**
+     * Check if a string is null, empty, blank, or equals to the string "null" (case insensitive).
+     * 
+     * @param strString
+     *            The string to check
+     * @return True if the string is blank or null, false otherwise
+     */
+    protected static boolean isStringBlankOrNull( String strString )
+    {
+        return StringUtils.isBlank( strString ) || StringUtils.equalsIgnoreCase( strString, CONSTANT_STRING_NULL );
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.binder;
+
+import fr.paris.lutece.plugins.importexport.business.codec.CodecRegistry;
+import fr.paris.lutece.plugins.importexport.business.codec.IValueCodec;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.ParseException;
+
+/**
+ * Binder of timestamp columns. Values are converted by the codec of the column.
+ */
+public class TimestampColumnBinder extends ColumnBinder
+{
+    private IValueCodec _codec;
+
+    /**
+     * Creates a new binder of timestamp columns with the default codec
+     */
+    public TimestampColumnBinder( )
+    {
+        this( CodecRegistry.getDefaultTimestampCodec( ) );
+    }
+
+    /**
+     * Creates a new binder of timestamp columns
+     * 
+     * @param codec
+     *            The codec of values of the column
+     */
+    public TimestampColumnBinder( IValueCodec codec )
+    {
+        _codec = codec;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object parse( String strValue ) throws ParseException
+    {
+        return _codec.parse( strValue );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( PreparedStatement statement, int nIndex, Object value ) throws SQLException
+    {
+        statement.setTimestamp( nIndex, (Timestamp) value );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( DAOUtil daoUtil, int nIndex, Object value )
+    {
+        daoUtil.setTimestamp( nIndex, (Timestamp) value );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object read( ResultSet resultSet, int nIndex ) throws SQLException
+    {
+        return resultSet.getTimestamp( nIndex );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getKeyValue( Object value )
+    {
+        return value == null ? null : Long.toString( ( (Timestamp) value ).getTime( ) );
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.cluster;
+
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class that represents an asynchronous import or export persisted in the database, so that it can be run and monitored by any node of a cluster. The node
+ * that claims a job holds a lease on it, which it renews while the job is running. A job whose lease expired is queued again, to be claimed by another node.
+ */
+public class ClusterJob
+{
+    /**
+     * Type of the jobs that import data
+     */
+    public static final String TYPE_IMPORT = "import";
+
+    /**
+     * Type of the jobs that export data
+     */
+    public static final String TYPE_EXPORT = "export";
+
+    private String _strIdJob;
+    private String _strJobType;
+    private int _nIdAdmin;
+    private String _strTableName;
+    private Map<String, String> _mapParameters = new LinkedHashMap<String, String>( );
+    private byte [ ] _content;
+    private String _strStatus = JobProgress.STATUS_QUEUED;
+    private String _strNodeName;
+    private Timestamp _leaseExpiration;
+    private int _nAttempts;
+    private boolean _bCancelRequested;
+    private String _strPhase;
+    private long _lRowsProcessed;
+    private long _lBytesRead;
+    private long _lTotalBytes = -1;
+    private Timestamp _dateCreation;
+    private Timestamp _dateStart;
+    private Timestamp _dateEnd;
+    private byte [ ] _result;
+
+    /**
+     * Get the id of the job
+     * 
+     * @return The id of the job
+     */
+    public String getIdJob( )
+    {
+        return _strIdJob;
+    }
+
+    /**
+     * Set the id of the job
+     * 
+     * @param strIdJob
+     *            The id of the job
+     */
+    public void setIdJob( String strIdJob )
+    {
+        this._strIdJob = strIdJob;
+    }
+
+    /**
+     * Get the type of the job
+     * 
+     * @return {@link #TYPE_IMPORT} or {@link #TYPE_EXPORT}
+     */
+    public String getJobType( )
+    {
+        return _strJobType;
+    }
+
+    /**
+     * Set the type of the job
+     * 
+     * @param strJobType
+     *            {@link #TYPE_IMPORT} or {@link #TYPE_EXPORT}
+     */
+    public void setJobType( String strJobType )
+    {
+        this._strJobType = strJobType;
+    }
+
+    /**
+     * Get the id of the admin user that started the job
+     * 
+     * @return The id of the admin user
+     */
+    public int getIdAdmin( )
+    {
+        return _nIdAdmin;
+    }
+
+    /**
+     * Set the id of the admin user that started the job
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     */
+    public void setIdAdmin( int nIdAdmin )
+    {
+        this._nIdAdmin = nIdAdmin;
+    }
+
+    /**
+     * Get the name of the table the job reads or writes
+     * 
+     * @return The name of the table
+     */
+    public String getTableName( )
+    {
+        return _strTableName;
+    }
+
+    /**
+     * Set the name of the table the job reads or writes
+     * 
+     * @param strTableName
+     *            The name of the table
+     */
+    public void setTableName( String strTableName )
+    {
+        this._strTableName = strTableName;
+    }
+
+    /**
+     * Get the parameters of the job
+     * 
+     * @return The parameters of the job, by name
+     */
+    public Map<String, String> getParameters( )
+    {
+        return _mapParameters;
+    }
+
+    /**
+     * Set the parameters of the job
+     * 
+     * @param mapParameters
+     *            The parameters of the job, by name
+     */
+    public void setParameters( Map<String, String> mapParameters )
+    {
+        this._mapParameters = mapParameters;
+    }
+
+    /**
+     * Get a parameter of the job
+     * 
+     * @param strName
+     *            The name of the parameter
+     * @return The value of the parameter, or null if the job has no such parameter
+     */
+    public String getParameter( String strName )
+    {
+        return _mapParameters.get( strName );
+    }
+
+    /**
+     * Set a parameter of the job. Null values are ignored
+     * 
+     * @param strName
+     *            The name of the parameter
+     * @param strValue
+     *            The value of the parameter
+     */
+    public void setParameter( String strName, String strValue )
+    {
+        if ( strValue != null )
+        {
+            _mapParameters.put( strName, strValue );
+        }
+    }
+
+    /**
+     * Get the content of the file to import
+     * 
+     * @return The content of the file, or null if the job has no file
+     */
+    public byte [ ] getContent( )
+    {
+        return _content;
+    }
+
+    /**
+     * Set the content of the file to import
+     * 
+     * @param content
+     *            The content of the file, or null if the job has no file
+     */
+    public void setContent( byte [ ] content )
+    {
+        this._content = content;
+    }
+
+    /**
+     * Get the status of the job
+     * 
+     * @return {@link JobProgress#STATUS_QUEUED}, {@link JobProgress#STATUS_WORKING} or {@link JobProgress#STATUS_FINISHED}
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Set the status of the job
+     * 
+     * @param strStatus
+     *            {@link JobProgress#STATUS_QUEUED}, {@link JobProgress#STATUS_WORKING} or {@link JobProgress#STATUS_FINISHED}
+     */
+    public void setStatus( String strStatus )
+    {
+        this._strStatus = strStatus;
+    }
+
+    /**
+     * Get the name of the node that claimed the job
+     * 
+     * @return The name of the node, or null if the job has not been claimed
+     */
+    public String getNodeName( )
+    {
+        return _strNodeName;
+    }
+
+    /**
+     * Set the name of the node that claimed the job
+     * 
+     * @param strNodeName
+     *            The name of the node, or null if the job has not been claimed
+     */
+    public void setNodeName( String strNodeName )
+    {
+        this._strNodeName = strNodeName;
+    }
+
+    /**
+     * Get the date the lease of the node on the job expires at, unless it is renewed
+     * 
+     * @return The date the lease expires at
+     */
+    public Timestamp getLeaseExpiration( )
+    {
+        return _leaseExpiration;
+    }
+
+    /**
+     * Set the date the lease of the node on the job expires at, unless it is renewed
+     * 
+     * @param leaseExpiration
+     *            The date the lease expires at
+     */
+    public void setLeaseExpiration( Timestamp leaseExpiration )
+    {
+        this._leaseExpiration = leaseExpiration;
+    }
+
+    /**
+     * Get the number of times the job has been claimed
+     * 
+     * @return The number of times the job has been claimed
+     */
+    public int getAttempts( )
+    {
+        return _nAttempts;
+    }
+
+    /**
+     * Set the number of times the job has been claimed
+     * 
+     * @param nAttempts
+     *            The number of times the job has been claimed
+     */
+    public void setAttempts( int nAttempts )
+    {
+        this._nAttempts = nAttempts;
+    }
+
+    /**
+     * Check if the job has been requested to be cancelled
+     * 
+     * @return True if the job has been requested to be cancelled, false otherwise
+     */
+    public boolean isCancelRequested( )
+    {
+        return _bCancelRequested;
+    }
+
+    /**
+     * Set if the job has been requested to be cancelled
+     * 
+     * @param bCancelRequested
+     *            True if the job has been requested to be cancelled, false otherwise
+     */
+    public void setCancelRequested( boolean bCancelRequested )
+    {
+        this._bCancelRequested = bCancelRequested;
+    }
+
+    /**
+     * Get the current phase of the job
+     * 
+     * @return The name of the phase
+     */
+    public String getPhase( )
+    {
+        return _strPhase;
+    }
+
+    /**
+     * Set the current phase of the job
+     * 
+     * @param strPhase
+     *            The name of the phase
+     */
+    public void setPhase( String strPhase )
+    {
+        this._strPhase = strPhase;
+    }
+
+    /**
+     * Get the number of rows processed by the job
+     * 
+     * @return The number of rows
+     */
+    public long getRowsProcessed( )
+    {
+        return _lRowsProcessed;
+    }
+
+    /**
+     * Set the number of rows processed by the job
+     * 
+     * @param lRowsProcessed
+     *            The number of rows
+     */
+    public void setRowsProcessed( long lRowsProcessed )
+    {
+        this._lRowsProcessed = lRowsProcessed;
+    }
+
+    /**
+     * Get the number of bytes of the input of the job that have been read
+     * 
+     * @return The number of bytes
+     */
+    public long getBytesRead( )
+    {
+        return _lBytesRead;
+    }
+
+    /**
+     * Set the number of bytes of the input of the job that have been read
+     * 
+     * @param lBytesRead
+     *            The number of bytes
+     */
+    public void setBytesRead( long lBytesRead )
+    {
+        this._lBytesRead = lBytesRead;
+    }
+
+    /**
+     * Get the size of the input of the job
+     * 
+     * @return The number of bytes, or -1 if it is unknown
+     */
+    public long getTotalBytes( )
+    {
+        return _lTotalBytes;
+    }
+
+    /**
+     * Set the size of the input of the job
+     * 
+     * @param lTotalBytes
+     *            The number of bytes, or -1 if it is unknown
+     */
+    public void setTotalBytes( long lTotalBytes )
+    {
+        this._lTotalBytes = lTotalBytes;
+    }
+
+    /**
+     * Get the date the job was queued
+     * 
+     * @return The date the job was queued
+     */
+    public Timestamp getDateCreation( )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Set the date the job was queued
+     * 
+     * @param dateCreation
+     *            The date the job was queued
+     */
+    public void setDateCreation( Timestamp dateCreation )
+    {
+        this._dateCreation = dateCreation;
+    }
+
+    /**
+     * Get the date the job was started
+     * 
+     * @return The date the job was started
+     */
+    public Timestamp getDateStart( )
+    {
+        return _dateStart;
+    }
+
+    /**
+     * Set the date the job was started
+     * 
+     * @param dateStart
+     *            The date the job was started
+     */
+    public void setDateStart( Timestamp dateStart )
+    {
+        this._dateStart = dateStart;
+    }
+
+    /**
+     * Get the date the job finished
+     * 
+     * @return The date the job finished
+     */
+    public Timestamp getDateEnd( )
+    {
+        return _dateEnd;
+    }
+
+    /**
+     * Set the date the job finished
+     * 
+     * @param dateEnd
+     *            The date the job finished
+     */
+    public void setDateEnd( Timestamp dateEnd )
+    {
+        this._dateEnd = dateEnd;
+    }
+
+    /**
+     * Get the result of the job
+     * 
+     * @return The result of the job, or null if the job failed or was cancelled
+     */
+    public byte [ ] getResult( )
+    {
+        return _result;
+    }
+
+    /**
+     * Set the result of the job
+     * 
+     * @param result
+     *            The result of the job, or null if the job failed or was cancelled
+     */
+    public void setResult( byte [ ] result )
+    {
+        this._result = result;
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.cluster;
+
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.service.ImportExportPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.util.sql.DAOUtil;
+import fr.paris.lutece.util.sql.Transaction;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Implementation of the IClusterJobDAO interface
+ */
+public class ClusterJobDAO implements IClusterJobDAO
+{
+    private static final String SQL_QUERY_INSERT = " INSERT INTO importexport_cluster_job( id_job, job_type, id_admin, table_name, parameters, content, "
+            + "status, attempts, cancel_requested, rows_processed, bytes_read, total_bytes, date_creation ) VALUES (?,?,?,?,?,?,?,0,0,0,0,-1,?) ";
+    private static final String SQL_QUERY_FIND_BY_ID = " SELECT id_job, job_type, id_admin, table_name, parameters, status, node_name, lease_expiration, "
+            + "attempts, cancel_requested, phase, rows_processed, bytes_read, total_bytes, date_creation, date_start, date_end "
+            + "FROM importexport_cluster_job WHERE id_job = ? ";
+    private static final String SQL_QUERY_LOAD_CONTENT = " SELECT content FROM importexport_cluster_job WHERE id_job = ? ";
+    private static final String SQL_QUERY_LOAD_RESULT = " SELECT result FROM importexport_cluster_job WHERE id_job = ? ";
+    private static final String SQL_QUERY_FIND_LAST_JOB_ID = " SELECT id_job FROM importexport_cluster_job WHERE id_admin = ? AND job_type = ? "
+            + "ORDER BY date_creation DESC ";
+    private static final String SQL_QUERY_FIND_QUEUED_JOB_IDS = " SELECT id_job FROM importexport_cluster_job WHERE status = ? ORDER BY date_creation ";
+    private static final String SQL_QUERY_CLAIM = " UPDATE importexport_cluster_job SET status = ?, node_name = ?, lease_expiration = ?, "
+            + "attempts = attempts + 1, date_start = ? WHERE id_job = ? AND status = ? ";
+    private static final String SQL_QUERY_RENEW_LEASE = " UPDATE importexport_cluster_job SET lease_expiration = ?, phase = ?, rows_processed = ?, "
+            + "bytes_read = ?, total_bytes = ? WHERE id_job = ? AND node_name = ? AND status = ? ";
+    private static final String SQL_QUERY_LOCK_LEASE = " UPDATE importexport_cluster_job SET lease_expiration = ? WHERE id_job = ? AND node_name = ? "
+            + "AND status = ? AND lease_expiration > ? ";
+    private static final String SQL_QUERY_FINISH = " UPDATE importexport_cluster_job SET status = ?, lease_expiration = NULL, phase = ?, "
+            + "rows_processed = ?, bytes_read = ?, total_bytes = ?, date_end = ?, content = NULL, result = ? "
+            + "WHERE id_job = ? AND node_name = ? AND status = ? ";
+    private static final String SQL_QUERY_REQUEST_CANCEL = " UPDATE importexport_cluster_job SET cancel_requested = 1 WHERE id_job = ? ";
+    private static final String SQL_QUERY_FINISH_QUEUED = " UPDATE importexport_cluster_job SET status = ?, date_end = ?, content = NULL "
+            + "WHERE id_job = ? AND status = ? ";
+    private static final String SQL_QUERY_REQUEUE_EXPIRED = " UPDATE importexport_cluster_job SET status = ?, node_name = NULL, lease_expiration = NULL "
+            + "WHERE status = ? AND lease_expiration < ? AND attempts < ? ";
+    private static final String SQL_QUERY_ABANDON_EXPIRED = " UPDATE importexport_cluster_job SET status = ?, lease_expiration = NULL, date_end = ?, "
+            + "content = NULL WHERE status = ? AND lease_expiration < ? ";
+    private static final String SQL_QUERY_DELETE = " DELETE FROM importexport_cluster_job WHERE id_job = ? ";
+    private static final String SQL_QUERY_DELETE_FINISHED = " DELETE FROM importexport_cluster_job WHERE id_admin = ? AND job_type = ? AND status = ? ";
+    private static final String SQL_QUERY_DELETE_FINISHED_BEFORE = " DELETE FROM importexport_cluster_job WHERE status = ? AND date_end < ? ";
+
+    private Plugin _plugin;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( ClusterJob job )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, getPlugin( ) );
+        int nIndex = 1;
+        daoUtil.setString( nIndex++, job.getIdJob( ) );
+        daoUtil.setString( nIndex++, job.getJobType( ) );
+        daoUtil.setInt( nIndex++, job.getIdAdmin( ) );
+        daoUtil.setString( nIndex++, job.getTableName( ) );
+        daoUtil.setString( nIndex++, writeParameters( job.getParameters( ) ) );
+        daoUtil.setBytes( nIndex++, job.getContent( ) );
+        daoUtil.setString( nIndex++, JobProgress.STATUS_QUEUED );
+        daoUtil.setTimestamp( nIndex, job.getDateCreation( ) );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClusterJob findById( String strIdJob )
+    {
+        ClusterJob job = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_ID, getPlugin( ) );
+        daoUtil.setString( 1, strIdJob );
+        daoUtil.executeQuery( );
+        if ( daoUtil.next( ) )
+        {
+            int nIndex = 1;
+            job = new ClusterJob( );
+            job.setIdJob( daoUtil.getString( nIndex++ ) );
+            job.setJobType( daoUtil.getString( nIndex++ ) );
+            job.setIdAdmin( daoUtil.getInt( nIndex++ ) );
+            job.setTableName( daoUtil.getString( nIndex++ ) );
+            job.setParameters( readParameters( daoUtil.getString( nIndex++ ) ) );
+            job.setStatus( daoUtil.getString( nIndex++ ) );
+            job.setNodeName( daoUtil.getString( nIndex++ ) );
+            job.setLeaseExpiration( daoUtil.getTimestamp( nIndex++ ) );
+            job.setAttempts( daoUtil.getInt( nIndex++ ) );
+            job.setCancelRequested( daoUtil.getInt( nIndex++ ) != 0 );
+            job.setPhase( daoUtil.getString( nIndex++ ) );
+            job.setRowsProcessed( daoUtil.getLong( nIndex++ ) );
+            job.setBytesRead( daoUtil.getLong( nIndex++ ) );
+            job.setTotalBytes( daoUtil.getLong( nIndex++ ) );
+            job.setDateCreation( daoUtil.getTimestamp( nIndex++ ) );
+            job.setDateStart( daoUtil.getTimestamp( nIndex++ ) );
+            job.setDateEnd( daoUtil.getTimestamp( nIndex ) );
+        }
+        daoUtil.free( );
+        return job;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] loadContent( String strIdJob )
+    {
+        return loadBytes( SQL_QUERY_LOAD_CONTENT, strIdJob );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] loadResult( String strIdJob )
+    {
+        return loadBytes( SQL_QUERY_LOAD_RESULT, strIdJob );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String findLastJobId( int nIdAdmin, String strJobType )
+    {
+        String strIdJob = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_LAST_JOB_ID, getPlugin( ) );
+        daoUtil.setInt( 1, nIdAdmin );
+        daoUtil.setString( 2, strJobType );
+        daoUtil.executeQuery( );
+        if ( daoUtil.next( ) )
+        {
+            strIdJob = daoUtil.getString( 1 );
+        }
+        daoUtil.free( );
+        return strIdJob;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findQueuedJobIds( )
+    {
+        List<String> listIds = new ArrayList<String>( );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_QUEUED_JOB_IDS, getPlugin( ) );
+        daoUtil.setString( 1, JobProgress.STATUS_QUEUED );
+        daoUtil.executeQuery( );
+        while ( daoUtil.next( ) )
+        {
+            listIds.add( daoUtil.getString( 1 ) );
+        }
+        daoUtil.free( );
+        return listIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean claim( String strIdJob, String strNodeName, Timestamp leaseExpiration, Timestamp dateStart )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, getPlugin( ) );
+        int nIndex = 1;
+        daoUtil.setString( nIndex++, JobProgress.STATUS_WORKING );
+        daoUtil.setString( nIndex++, strNodeName );
+        daoUtil.setTimestamp( nIndex++, leaseExpiration );
+        daoUtil.setTimestamp( nIndex++, dateStart );
+        daoUtil.setString( nIndex++, strIdJob );
+        daoUtil.setString( nIndex, JobProgress.STATUS_QUEUED );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+        // The update only matches a queued job, so the job is claimed by the node that updated it first
+        ClusterJob job = findById( strIdJob );
+        return job != null && JobProgress.STATUS_WORKING.equals( job.getStatus( ) ) && strNodeName.equals( job.getNodeName( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void renewLease( ClusterJob job )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RENEW_LEASE, getPlugin( ) );
+        int nIndex = 1;
+        daoUtil.setTimestamp( nIndex++, job.getLeaseExpiration( ) );
+        daoUtil.setString( nIndex++, job.getPhase( ) );
+        daoUtil.setLong( nIndex++, job.getRowsProcessed( ) );
+        daoUtil.setLong( nIndex++, job.getBytesRead( ) );
+        daoUtil.setLong( nIndex++, job.getTotalBytes( ) );
+        daoUtil.setString( nIndex++, job.getIdJob( ) );
+        daoUtil.setString( nIndex++, job.getNodeName( ) );
+        daoUtil.setString( nIndex, JobProgress.STATUS_WORKING );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean lockLease( String strIdJob, String strNodeName, Timestamp dateNow, Timestamp leaseExpiration, Transaction transaction ) throws SQLException
+    {
+        // The statement is run on the connection of the transaction rather than with a DAOUtil, since the number of updated rows is needed
+        PreparedStatement statement = transaction.getConnection( ).prepareStatement( SQL_QUERY_LOCK_LEASE );
+        try
+        {
+            int nIndex = 1;
+            statement.setTimestamp( nIndex++, leaseExpiration );
+            statement.setString( nIndex++, strIdJob );
+            statement.setString( nIndex++, strNodeName );
+            statement.setString( nIndex++, JobProgress.STATUS_WORKING );
+            statement.setTimestamp( nIndex, dateNow );
+            return statement.executeUpdate( ) == 1;
+        }
+        finally
+        {
+            statement.close( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finish( ClusterJob job )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FINISH, getPlugin( ) );
+        int nIndex = 1;
+        daoUtil.setString( nIndex++, JobProgress.STATUS_FINISHED );
+        daoUtil.setString( nIndex++, job.getPhase( ) );
+        daoUtil.setLong( nIndex++, job.getRowsProcessed( ) );
+        daoUtil.setLong( nIndex++, job.getBytesRead( ) );
+        daoUtil.setLong( nIndex++, job.getTotalBytes( ) );
+        daoUtil.setTimestamp( nIndex++, job.getDateEnd( ) );
+        daoUtil.setBytes( nIndex++, job.getResult( ) );
+        daoUtil.setString( nIndex++, job.getIdJob( ) );
+        daoUtil.setString( nIndex++, job.getNodeName( ) );
+        daoUtil.setString( nIndex, JobProgress.STATUS_WORKING );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void requestCancel( String strIdJob, Timestamp dateEnd )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_REQUEST_CANCEL, getPlugin( ) );
+        daoUtil.setString( 1, strIdJob );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+
+        daoUtil = new DAOUtil( SQL_QUERY_FINISH_QUEUED, getPlugin( ) );
+        int nIndex = 1;
+        daoUtil.setString( nIndex++, JobProgress.STATUS_FINISHED );
+        daoUtil.setTimestamp( nIndex++, dateEnd );
+        daoUtil.setString( nIndex++, strIdJob );
+        daoUtil.setString( nIndex, JobProgress.STATUS_QUEUED );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseExpiredLeases( Timestamp dateNow, int nMaxAttempts )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_REQUEUE_EXPIRED, getPlugin( ) );
+        int nIndex = 1;
+        daoUtil.setString( nIndex++, JobProgress.STATUS_QUEUED );
+        daoUtil.setString( nIndex++, JobProgress.STATUS_WORKING );
+        daoUtil.setTimestamp( nIndex++, dateNow );
+        daoUtil.setInt( nIndex, nMaxAttempts );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+
+        // The remaining expired jobs have been claimed too many times, they probably make their node crash
+        daoUtil = new DAOUtil( SQL_QUERY_ABANDON_EXPIRED, getPlugin( ) );
+        nIndex = 1;
+        daoUtil.setString( nIndex++, JobProgress.STATUS_FINISHED );
+        daoUtil.setTimestamp( nIndex++, dateNow );
+        daoUtil.setString( nIndex++, JobProgress.STATUS_WORKING );
+        daoUtil.setTimestamp( nIndex, dateNow );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( String strIdJob )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, getPlugin( ) );
+        daoUtil.setString( 1, strIdJob );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteFinishedJobs( int nIdAdmin, String strJobType )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_FINISHED, getPlugin( ) );
+        daoUtil.setInt( 1, nIdAdmin );
+        daoUtil.setString( 2, strJobType );
+        daoUtil.setString( 3, JobProgress.STATUS_FINISHED );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteFinishedJobsBefore( Timestamp dateEnd )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_FINISHED_BEFORE, getPlugin( ) );
+        daoUtil.setString( 1, JobProgress.STATUS_FINISHED );
+        daoUtil.setTimestamp( 2, dateEnd );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * Get a binary column of a job
+     * 
+     * @param strQuery
+     *            The query that selects the column
+     * @param strIdJob
+     *            The id of the job
+     * @return The value of the column, or null if the job does not exist or if the value is null
+     */
+    private byte [ ] loadBytes( String strQuery, String strIdJob )
+    {
+        byte [ ] bytes = null;
+        DAOUtil daoUtil = new DAOUtil( strQuery, getPlugin( ) );
+        daoUtil.setString( 1, strIdJob );
+        daoUtil.executeQuery( );
+        if ( daoUtil.next( ) )
+        {
+            bytes = daoUtil.getBytes( 1 );
+        }
+        daoUtil.free( );
+        return bytes;
+    }
+
+    /**
+     * Write the parameters of a job in the format of properties files
+     * 
+     * @param mapParameters
+     *            The parameters of the job
+     * @return The parameters as a string
+     */
+    private static String writeParameters( Map<String, String> mapParameters )
+    {
+        Properties properties = new Properties( );
+        properties.putAll( mapParameters );
+        StringWriter writer = new StringWriter( );
+        try
+        {
+            properties.store( writer, null );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        return writer.toString( );
+    }
+
+    /**
+     * Read the parameters of a job written in the format of properties files
+     * 
+     * @param strParameters
+     *            The parameters as a string, or null
+     * @return The parameters of the job
+     */
+    private static Map<String, String> readParameters( String strParameters )
+    {
+        Map<String, String> mapParameters = new LinkedHashMap<String, String>( );
+        if ( strParameters != null )
+        {
+            Properties properties = new Properties( );
+            try
+            {
+                properties.load( new StringReader( strParameters ) );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( e.getMessage( ), e );
+            }
+            for ( String strName : properties.stringPropertyNames( ) )
+            {
+                mapParameters.put( strName, properties.getProperty( strName ) );
+            }
+        }
+        return mapParameters;
+    }
+
+    /**
+     * Get the import export plugin
+     * 
+     * @return The import export plugin
+     */
+    private Plugin getPlugin( )
+    {
+        if ( _plugin == null )
+        {
+            _plugin = ImportExportPlugin.getPlugin( );
+        }
+        return _plugin;
+    }
+}
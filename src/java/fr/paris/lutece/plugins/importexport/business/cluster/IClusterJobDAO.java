@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.cluster;
+
+import fr.paris.lutece.util.sql.Transaction;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Interface for the DAO of cluster jobs
+ */
+public interface IClusterJobDAO
+{
+    /**
+     * Insert a new job
+     * 
+     * @param job
+     *            The job to insert, with the content of its file
+     */
+    void insert( ClusterJob job );
+
+    /**
+     * Get a job. The content and the result of the job are not loaded
+     * 
+     * @param strIdJob
+     *            The id of the job
+     * @return The job, or null if no job has the given id
+     */
+    ClusterJob findById( String strIdJob );
+
+    /**
+     * Get the content of the file of a job
+     * 
+     * @param strIdJob
+     *            The id of the job
+     * @return The content of the file, or null if the job has no file
+     */
+    byte [ ] loadContent( String strIdJob );
+
+    /**
+     * Get the result of a job
+     * 
+     * @param strIdJob
+     *            The id of the job
+     * @return The result of the job, or null if the job has no result
+     */
+    byte [ ] loadResult( String strIdJob );
+
+    /**
+     * Get the id of the last job of a given type started by an admin user
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strJobType
+     *            The type of job
+     * @return The id of the job, or null if the admin user has no job of this type
+     */
+    String findLastJobId( int nIdAdmin, String strJobType );
+
+    /**
+     * Get the ids of the queued jobs, by order of creation
+     * 
+     * @return The list of ids
+     */
+    List<String> findQueuedJobIds( );
+
+    /**
+     * Claim a queued job for a node. The job is claimed only if it is still queued, so a job can not be claimed by two nodes
+     * 
+     * @param strIdJob
+     *            The id of the job
+     * @param strNodeName
+     *            The name of the node
+     * @param leaseExpiration
+     *            The date the lease of the node on the job expires at
+     * @param dateStart
+     *            The date the job is started
+     * @return True if the job has been claimed by the node, false if it was claimed by another node or is no longer queued
+     */
+    boolean claim( String strIdJob, String strNodeName, Timestamp leaseExpiration, Timestamp dateStart );
+
+    /**
+     * Renew the lease of the node that runs a job, and save the progress of the job. Nothing is updated if the job is no longer run by this node
+     * 
+     * @param job
+     *            The job, with the name of its node, its new lease expiration date and its progress
+     */
+    void renewLease( ClusterJob job );
+
+    /**
+     * Renew the lease of a node on a job if the node still holds it, that is if the job is still run by the node and its lease has not expired. The lease is
+     * renewed in a transaction, so the job can not be claimed by another node until the transaction is committed or rolled back
+     * 
+     * @param strIdJob
+     *            The id of the job
+     * @param strNodeName
+     *            The name of the node
+     * @param dateNow
+     *            The current date
+     * @param leaseExpiration
+     *            The new lease expiration date
+     * @param transaction
+     *            The transaction to renew the lease in, opened on the pool of the plugin
+     * @return True if the lease was renewed, false if the job may have been claimed by another node
+     * @throws SQLException
+     *             If an error occurs with the database
+     */
+    boolean lockLease( String strIdJob, String strNodeName, Timestamp dateNow, Timestamp leaseExpiration, Transaction transaction ) throws SQLException;
+
+    /**
+     * Save the end of a job run by a node, with its result. The content of the file of the job is removed. Nothing is updated if the job is no longer run by
+     * this node
+     * 
+     * @param job
+     *            The job, with the name of its node, its end date, its progress and its result
+     */
+    void finish( ClusterJob job );
+
+    /**
+     * Request a job to be cancelled. A queued job is finished immediately, a running job is cancelled by its node at its next heartbeat
+     * 
+     * @param strIdJob
+     *            The id of the job
+     * @param dateEnd
+     *            The date queued jobs are finished at
+     */
+    void requestCancel( String strIdJob, Timestamp dateEnd );
+
+    /**
+     * Handle the jobs whose lease has expired, because their node stopped or crashed. Jobs that have been claimed less than the maximum number of attempts
+     * are queued again, the others are finished without result
+     * 
+     * @param dateNow
+     *            The current date
+     * @param nMaxAttempts
+     *            The maximum number of times a job can be claimed
+     */
+    void releaseExpiredLeases( Timestamp dateNow, int nMaxAttempts );
+
+    /**
+     * Remove a job
+     * 
+     * @param strIdJob
+     *            The id of the job
+     */
+    void delete( String strIdJob );
+
+    /**
+     * Remove the finished jobs of a given type started by an admin user
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strJobType
+     *            The type of job
+     */
+    void deleteFinishedJobs( int nIdAdmin, String strJobType );
+
+    /**
+     * Remove the jobs that finished before a given date
+     * 
+     * @param dateEnd
+     *            The date
+     */
+    void deleteFinishedJobsBefore( Timestamp dateEnd );
+}
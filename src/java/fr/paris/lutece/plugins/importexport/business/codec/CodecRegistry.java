@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.codec;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Registry of the codecs of columns. The pattern of a column is read from the property <i>importexport.codec.datePattern.&lt;table&gt;.&lt;column&gt;</i>
+ * (or <i>timestampPattern</i>), or from the default pattern of its type. Codecs and formatters are created once and cached until the cache of table
+ * metadata is reset.
+ */
+public final class CodecRegistry
+{
+    private static final String PROPERTY_DATE_PATTERN = "importexport.codec.datePattern";
+    private static final String PROPERTY_TIMESTAMP_PATTERN = "importexport.codec.timestampPattern";
+    private static final String PROPERTY_LEGACY_DATE_LOCALE = "importexport.codec.legacyDateLocale";
+    private static final String CONSTANT_POINT = ".";
+
+    private static final IValueCodec DEFAULT_TIMESTAMP_CODEC = new TimestampCodec( null );
+
+    private static Map<String, IValueCodec> _mapCodecs = new ConcurrentHashMap<String, IValueCodec>( );
+    private static volatile DateTimeFormatter _legacyDateFormatter;
+    private static volatile IValueCodec _defaultDateCodec;
+    private static Map<String, DateTimeFormatter> _mapFormatters = new ConcurrentHashMap<String, DateTimeFormatter>( );
+
+    /**
+     * Private constructor
+     */
+    private CodecRegistry( )
+    {
+    }
+
+    /**
+     * Get the codec of a column
+     * 
+     * @param strTableName
+     *            The name of the table of the column
+     * @param tableColumn
+     *            The column
+     * @return The codec of the column, or null if values of the column do not need a codec. Columns of types that are not supported are read and written as
+     *         strings, so they have no codec
+     */
+    public static IValueCodec getCodec( String strTableName, TableColumn tableColumn )
+    {
+        if ( tableColumn.getColumnType( ) == null )
+        {
+            return null;
+        }
+        switch( tableColumn.getColumnType( ) )
+        {
+            case TYPE_DATE:
+                return getCodec( PROPERTY_DATE_PATTERN, strTableName, tableColumn.getColumnName( ) );
+            case TYPE_TIMESTAMP:
+                return getCodec( PROPERTY_TIMESTAMP_PATTERN, strTableName, tableColumn.getColumnName( ) );
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the default codec of date columns
+     * 
+     * @return The default codec of date columns
+     */
+    public static IValueCodec getDefaultDateCodec( )
+    {
+        IValueCodec codec = _defaultDateCodec;
+        if ( codec == null )
+        {
+            codec = new DateCodec( DateTimeFormatter.ISO_LOCAL_DATE, getLegacyDateFormatter( ) );
+            _defaultDateCodec = codec;
+        }
+        return codec;
+    }
+
+    /**
+     * Get the default codec of timestamp columns
+     * 
+     * @return The default codec of timestamp columns
+     */
+    public static IValueCodec getDefaultTimestampCodec( )
+    {
+        return DEFAULT_TIMESTAMP_CODEC;
+    }
+
+    /**
+     * Remove every cached codec, so that patterns are read again from properties
+     */
+    public static void clear( )
+    {
+        _mapCodecs.clear( );
+        _legacyDateFormatter = null;
+        _defaultDateCodec = null;
+    }
+
+    /**
+     * Get the codec of a date or timestamp column
+     * 
+     * @param strPatternProperty
+     *            The property of the default pattern of the type of the column
+     * @param strTableName
+     *            The name of the table
+     * @param strColumnName
+     *            The name of the column
+     * @return The codec of the column
+     */
+    private static IValueCodec getCodec( String strPatternProperty, String strTableName, String strColumnName )
+    {
+        String strColumnProperty = strPatternProperty + CONSTANT_POINT + StringUtils.lowerCase( strTableName ) + CONSTANT_POINT
+                + StringUtils.lowerCase( strColumnName );
+        IValueCodec codec = _mapCodecs.get( strColumnProperty );
+        if ( codec == null )
+        {
+            String strPattern = AppPropertiesService.getProperty( strColumnProperty, AppPropertiesService.getProperty( strPatternProperty ) );
+            DateTimeFormatter formatter = getFormatter( strPattern );
+            if ( PROPERTY_DATE_PATTERN.equals( strPatternProperty ) )
+            {
+                codec = formatter == null ? getDefaultDateCodec( ) : new DateCodec( formatter, getLegacyDateFormatter( ) );
+            }
+            else
+            {
+                codec = formatter == null ? DEFAULT_TIMESTAMP_CODEC : new TimestampCodec( formatter );
+            }
+            _mapCodecs.put( strColumnProperty, codec );
+        }
+        return codec;
+    }
+
+    /**
+     * Get the formatter of dates exported by previous versions, which used the medium date format of the locale of the server. The locale can be set with the
+     * property <i>importexport.codec.legacyDateLocale</i> if files were exported by a server with another locale.
+     * 
+     * @return The formatter of legacy dates
+     */
+    private static DateTimeFormatter getLegacyDateFormatter( )
+    {
+        DateTimeFormatter formatter = _legacyDateFormatter;
+        if ( formatter == null )
+        {
+            String strLocale = AppPropertiesService.getProperty( PROPERTY_LEGACY_DATE_LOCALE );
+            Locale locale = StringUtils.isBlank( strLocale ) ? Locale.getDefault( Locale.Category.FORMAT ) : Locale.forLanguageTag( strLocale.trim( ) );
+            formatter = new DateTimeFormatterBuilder( ).parseCaseInsensitive( ).parseLenient( ).appendLocalized( FormatStyle.MEDIUM, null )
+                    .toFormatter( locale );
+            _legacyDateFormatter = formatter;
+        }
+        return formatter;
+    }
+
+    /**
+     * Get the formatter of a pattern
+     * 
+     * @param strPattern
+     *            The pattern
+     * @return The formatter, or null if the pattern is empty or not valid
+     */
+    private static DateTimeFormatter getFormatter( String strPattern )
+    {
+        if ( StringUtils.isBlank( strPattern ) )
+        {
+            return null;
+        }
+        DateTimeFormatter formatter = _mapFormatters.get( strPattern );
+        if ( formatter == null )
+        {
+            try
+            {
+                formatter = DateTimeFormatter.ofPattern( strPattern );
+                _mapFormatters.put( strPattern, formatter );
+            }
+            catch( IllegalArgumentException e )
+            {
+                AppLogService.error( "Invalid date pattern : " + strPattern, e );
+            }
+        }
+        return formatter;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.codec;
+
+import java.sql.Date;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Codec of date columns. Dates are formatted with a fixed pattern, so that exported files do not depend on the locale of the server. Dates that do not
+ * match the pattern are parsed with the legacy date format, so that files exported by previous versions can still be imported. The format that parsed the
+ * last value is tried first, so that a file is parsed without failing on every value whichever format it uses.
+ */
+public class DateCodec implements IValueCodec
+{
+    private final DateTimeFormatter _formatter;
+    private final DateTimeFormatter [ ] _parsers;
+    private volatile int _nLastParser;
+
+    /**
+     * Creates a new date codec
+     * 
+     * @param formatter
+     *            The formatter of dates
+     * @param legacyFormatter
+     *            The formatter of dates exported by previous versions
+     */
+    public DateCodec( DateTimeFormatter formatter, DateTimeFormatter legacyFormatter )
+    {
+        _formatter = formatter;
+        _parsers = new DateTimeFormatter [ ] {
+                formatter, legacyFormatter
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object parse( String strValue ) throws ParseException
+    {
+        int nFirstParser = _nLastParser;
+        DateTimeParseException exception = null;
+        for ( int i = 0; i < _parsers.length; i++ )
+        {
+            int nParser = ( nFirstParser + i ) % _parsers.length;
+            try
+            {
+                Date date = Date.valueOf( LocalDate.parse( strValue, _parsers [nParser] ) );
+                _nLastParser = nParser;
+                return date;
+            }
+            catch( DateTimeParseException e )
+            {
+                exception = e;
+            }
+        }
+        throw new ParseException( exception.getMessage( ), exception.getErrorIndex( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String format( Object value )
+    {
+        return ( (Date) value ).toLocalDate( ).format( _formatter );
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.codec;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Codec of timestamp columns. Timestamps are formatted as a number of milliseconds, unless a pattern is configured for the column. Numeric values are
+ * always parsed as a number of milliseconds, and values that do not match the pattern are parsed as JDBC timestamps.
+ */
+public class TimestampCodec implements IValueCodec
+{
+    private final DateTimeFormatter _formatter;
+
+    /**
+     * Creates a new timestamp codec
+     * 
+     * @param formatter
+     *            The formatter of timestamps, or null to format timestamps as a number of milliseconds
+     */
+    public TimestampCodec( DateTimeFormatter formatter )
+    {
+        _formatter = formatter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object parse( String strValue ) throws ParseException
+    {
+        // If the timestamp value is numeric
+        if ( StringUtils.isNumeric( strValue ) )
+        {
+            return new Timestamp( Long.parseLong( strValue ) );
+        }
+        if ( _formatter != null )
+        {
+            try
+            {
+                return Timestamp.valueOf( LocalDateTime.parse( strValue, _formatter ) );
+            }
+            catch( DateTimeParseException e )
+            {
+                // The value may still be a JDBC timestamp
+            }
+        }
+        // If the timestamp value is literal
+        return Timestamp.valueOf( strValue );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String format( Object value )
+    {
+        Timestamp timestamp = (Timestamp) value;
+        if ( _formatter == null )
+        {
+            return Long.toString( timestamp.getTime( ) );
+        }
+        return timestamp.toLocalDateTime( ).format( _formatter );
+    }
+}
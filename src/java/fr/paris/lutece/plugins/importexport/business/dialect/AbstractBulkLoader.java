@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.ColumnType;
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Abstract bulk loader that encodes rows in the tab separated text format shared by PostgreSQL COPY and MySQL LOAD DATA: fields are separated by tabulations,
+ * rows by line feeds, null values are written \N, and backslashes, tabulations and line breaks of values are escaped with a backslash. Rows are encoded
+ * one at a time while the driver reads them, so that a batch is never held in memory as text. Drivers are called by reflection, so that the plugin does not
+ * depend on them.
+ */
+public abstract class AbstractBulkLoader implements IBulkLoader
+{
+    private static final String CONSTANT_NULL = "\\N";
+    private static final String CONSTANT_TRUE = "1";
+    private static final String CONSTANT_FALSE = "0";
+    private static final char CONSTANT_FIELD_SEPARATOR = '\t';
+    private static final char CONSTANT_LINE_SEPARATOR = '\n';
+    private static final char CONSTANT_ESCAPE = '\\';
+    private static final String CONSTANT_COMA = ", ";
+    private static final int CONSTANT_ROW_SIZE = 128;
+
+    /**
+     * {@inheritDoc} Binary columns are not supported.
+     */
+    @Override
+    public boolean isSupported( List<TableColumn> listColumns )
+    {
+        for ( TableColumn tableColumn : listColumns )
+        {
+            if ( tableColumn.getColumnType( ) == null || tableColumn.getColumnType( ) == ColumnType.TYPE_BYTE )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get a stream of rows encoded in the text format of bulk loads, in UTF-8. Rows are encoded while the stream is read
+     * 
+     * @param listRows
+     *            The list of rows
+     * @return The stream of encoded rows
+     */
+    protected static InputStream getRowsStream( List<Object [ ]> listRows )
+    {
+        return new RowsInputStream( listRows );
+    }
+
+    /**
+     * Append a row to encoded rows
+     * 
+     * @param sbRows
+     *            The encoded rows
+     * @param values
+     *            The values of the row, as converted by their column binders
+     */
+    private static void appendRow( StringBuilder sbRows, Object [ ] values )
+    {
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                sbRows.append( CONSTANT_FIELD_SEPARATOR );
+            }
+            appendValue( sbRows, values [i] );
+        }
+        sbRows.append( CONSTANT_LINE_SEPARATOR );
+    }
+
+    /**
+     * Append a value to encoded rows. Dates and timestamps are written in the JDBC escape format, which both databases accept.
+     * 
+     * @param sbRows
+     *            The encoded rows
+     * @param value
+     *            The value, as converted by its column binder
+     */
+    private static void appendValue( StringBuilder sbRows, Object value )
+    {
+        if ( value == null )
+        {
+            sbRows.append( CONSTANT_NULL );
+        }
+        else
+            if ( value instanceof Boolean )
+            {
+                sbRows.append( ( (Boolean) value ) ? CONSTANT_TRUE : CONSTANT_FALSE );
+            }
+            else
+                if ( value instanceof BigDecimal )
+                {
+                    sbRows.append( ( (BigDecimal) value ).toPlainString( ) );
+                }
+                else
+                    if ( value instanceof String )
+                    {
+                        appendEscapedString( sbRows, (String) value );
+                    }
+                    else
+                    {
+                        sbRows.append( value.toString( ) );
+                    }
+    }
+
+    /**
+     * Append a string value to encoded rows, escaping the characters that have a meaning in the text format of bulk loads
+     * 
+     * @param sbRows
+     *            The encoded rows
+     * @param strValue
+     *            The string value
+     */
+    private static void appendEscapedString( StringBuilder sbRows, String strValue )
+    {
+        for ( int i = 0; i < strValue.length( ); i++ )
+        {
+            char c = strValue.charAt( i );
+            switch( c )
+            {
+                case '\\':
+                    sbRows.append( CONSTANT_ESCAPE ).append( CONSTANT_ESCAPE );
+                    break;
+                case '\t':
+                    sbRows.append( CONSTANT_ESCAPE ).append( 't' );
+                    break;
+                case '\n':
+                    sbRows.append( CONSTANT_ESCAPE ).append( 'n' );
+                    break;
+                case '\r':
+                    sbRows.append( CONSTANT_ESCAPE ).append( 'r' );
+                    break;
+                default:
+                    sbRows.append( c );
+            }
+        }
+    }
+
+    /**
+     * Get the coma separated list of names of columns
+     * 
+     * @param listColumns
+     *            The list of columns
+     * @return The list of names of columns
+     */
+    protected static String getColumnNames( List<TableColumn> listColumns )
+    {
+        StringBuilder sbColumnNames = new StringBuilder( );
+        for ( int i = 0; i < listColumns.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbColumnNames.append( CONSTANT_COMA );
+            }
+            sbColumnNames.append( listColumns.get( i ).getColumnName( ) );
+        }
+        return sbColumnNames.toString( );
+    }
+
+    /**
+     * Load a class of a JDBC driver
+     * 
+     * @param strClassName
+     *            The name of the class
+     * @return The class, or null if the driver is not available
+     */
+    protected static Class<?> findDriverClass( String strClassName )
+    {
+        try
+        {
+            return Class.forName( strClassName, false, Thread.currentThread( ).getContextClassLoader( ) );
+        }
+        catch( ClassNotFoundException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Get the SQL exception to throw when a driver method called by reflection failed
+     * 
+     * @param e
+     *            The exception thrown by the call
+     * @return The SQL exception
+     */
+    protected static SQLException getSQLException( Exception e )
+    {
+        Throwable cause = e instanceof InvocationTargetException ? ( (InvocationTargetException) e ).getTargetException( ) : e;
+        if ( cause instanceof SQLException )
+        {
+            return (SQLException) cause;
+        }
+        return new SQLException( cause.getMessage( ), cause );
+    }
+
+    /**
+     * Stream of rows encoded in the text format of bulk loads. Only the row being read is held in memory as text
+     */
+    private static final class RowsInputStream extends InputStream
+    {
+        private final Iterator<Object [ ]> _iterator;
+        private final StringBuilder _sbRow = new StringBuilder( CONSTANT_ROW_SIZE );
+        private byte [ ] _row = new byte [ 0];
+        private int _nPosition;
+
+        /**
+         * Creates a new stream of encoded rows
+         * 
+         * @param listRows
+         *            The list of rows
+         */
+        RowsInputStream( List<Object [ ]> listRows )
+        {
+            _iterator = listRows.iterator( );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( )
+        {
+            if ( !nextBytes( ) )
+            {
+                return -1;
+            }
+            return _row [_nPosition++] & 0xFF;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( byte [ ] buffer, int nOffset, int nLength )
+        {
+            if ( nLength == 0 )
+            {
+                return 0;
+            }
+            if ( !nextBytes( ) )
+            {
+                return -1;
+            }
+            int nRead = Math.min( nLength, _row.length - _nPosition );
+            System.arraycopy( _row, _nPosition, buffer, nOffset, nRead );
+            _nPosition += nRead;
+            return nRead;
+        }
+
+        /**
+         * Encode the next row once every byte of the current row has been read
+         * 
+         * @return True if there are bytes to read, false if every row has been read
+         */
+        private boolean nextBytes( )
+        {
+            while ( _nPosition >= _row.length )
+            {
+                if ( !_iterator.hasNext( ) )
+                {
+                    return false;
+                }
+                _sbRow.setLength( 0 );
+                appendRow( _sbRow, _iterator.next( ) );
+                _row = _sbRow.toString( ).getBytes( StandardCharsets.UTF_8 );
+                _nPosition = 0;
+            }
+            return true;
+        }
+    }
+}
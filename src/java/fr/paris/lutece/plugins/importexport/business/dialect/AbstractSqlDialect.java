@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Abstract SQL dialect that provides helpers to build SQL statements
+ */
+public abstract class AbstractSqlDialect implements ISqlDialect
+{
+    protected static final String SQL_QUERY_INSERT_INTO = "INSERT INTO ";
+    protected static final String SQL_QUERY_VALUES = " VALUES ";
+    protected static final String SQL_QUERY_EQUALS = " = ";
+    protected static final String SQL_QUERY_AND = " AND ";
+    protected static final String SQL_QUERY_CREATE_TABLE = "CREATE TABLE ";
+    protected static final String SQL_QUERY_DROP_TABLE_IF_EXISTS = "DROP TABLE IF EXISTS ";
+    protected static final String SQL_QUERY_UPDATE = "UPDATE ";
+    protected static final String SQL_QUERY_SET = " SET ";
+    protected static final String SQL_QUERY_SELECT = " SELECT ";
+    protected static final String SQL_QUERY_FROM = " FROM ";
+    protected static final String SQL_QUERY_WHERE = " WHERE ";
+    protected static final String SQL_QUERY_TRUNCATE_TABLE = "TRUNCATE TABLE ";
+    protected static final String SQL_QUERY_DROP_INDEX = "DROP INDEX ";
+    protected static final String SQL_QUERY_ANALYZE_TABLE = "ANALYZE TABLE ";
+    protected static final String SQL_QUERY_WHERE_NOT_EXISTS = " WHERE NOT EXISTS ( SELECT 1 FROM ";
+    protected static final String SQL_QUERY_COUNT_VIEW_TABLE_USAGE = "SELECT COUNT(*) FROM information_schema.VIEW_TABLE_USAGE"
+            + " WHERE UPPER( TABLE_NAME ) = UPPER( ? )";
+    protected static final String SQL_QUERY_COUNT_TRIGGERS = "SELECT COUNT(*) FROM information_schema.TRIGGERS"
+            + " WHERE UPPER( EVENT_OBJECT_TABLE ) = UPPER( ? )";
+    protected static final String SQL_QUERY_COUNT_TABLE_PRIVILEGES = "SELECT COUNT(*) FROM information_schema.TABLE_PRIVILEGES"
+            + " WHERE UPPER( TABLE_NAME ) = UPPER( ? ) AND GRANTEE <> CURRENT_USER";
+
+    protected static final String CONSTANT_COMA = ", ";
+    protected static final String CONSTANT_POINT = ".";
+    protected static final String CONSTANT_QUESTION_MARK = "?";
+    protected static final String CONSTANT_OPEN_PARENTHESIS = " ( ";
+    protected static final String CONSTANT_CLOSE_PARENTHESIS = " ) ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSchemaName( Connection connection ) throws SQLException
+    {
+        return connection.getSchema( );
+    }
+
+    /**
+     * {@inheritDoc} Staging tables are not supported by default.
+     */
+    @Override
+    public List<String> getSqlCreateStagingTable( String strTableName, String strStagingTableName )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Staging tables are not supported by default.
+     */
+    @Override
+    public List<String> getSqlSwapTables( String strTableName, String strStagingTableName, String strOldTableName )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Views are looked up in the standard information schema by default.
+     */
+    @Override
+    public boolean hasDependentViews( Connection connection, String strTableName ) throws SQLException
+    {
+        return queryNumber( connection, SQL_QUERY_COUNT_VIEW_TABLE_USAGE, strTableName ) > 0;
+    }
+
+    /**
+     * {@inheritDoc} Triggers and grants are looked up in the standard information schema by default.
+     */
+    @Override
+    public boolean hasUncopiedAttributes( Connection connection, String strTableName ) throws SQLException
+    {
+        return queryNumber( connection, SQL_QUERY_COUNT_TRIGGERS, strTableName ) > 0
+                || queryNumber( connection, SQL_QUERY_COUNT_TABLE_PRIVILEGES, strTableName ) > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlDropTable( String strTableName )
+    {
+        return SQL_QUERY_DROP_TABLE_IF_EXISTS + strTableName;
+    }
+
+    /**
+     * {@inheritDoc} Temporary tables are not supported by default.
+     */
+    @Override
+    public String getSqlCreateTempTable( String strTableName, String strTempTableName )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlDropTempTable( String strTempTableName )
+    {
+        return getSqlDropTable( strTempTableName );
+    }
+
+    /**
+     * {@inheritDoc} Set-based updates are not supported by default.
+     */
+    @Override
+    public String getSqlMergeUpdate( String strTableName, String strTempTableName, List<TableColumn> listColumns )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Update statements return the number of rows they matched by default.
+     */
+    @Override
+    public String getSqlCountMergeMatches( String strTableName, String strTempTableName, List<TableColumn> listColumns )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlMergeInsert( String strTableName, String strTempTableName, List<TableColumn> listColumns )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_INSERT_INTO ).append( strTableName ).append( CONSTANT_OPEN_PARENTHESIS );
+        appendColumnNames( sbSql, listColumns );
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS ).append( SQL_QUERY_SELECT );
+        for ( int i = 0; i < listColumns.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( CONSTANT_COMA );
+            }
+            sbSql.append( strTempTableName ).append( CONSTANT_POINT ).append( listColumns.get( i ).getColumnName( ) );
+        }
+        sbSql.append( SQL_QUERY_FROM ).append( strTempTableName ).append( SQL_QUERY_WHERE_NOT_EXISTS ).append( strTableName ).append( SQL_QUERY_WHERE );
+        appendKeyJoin( sbSql, strTableName, strTempTableName, listColumns );
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS );
+        return sbSql.toString( );
+    }
+
+    /**
+     * {@inheritDoc} No native bulk loader is available by default.
+     */
+    @Override
+    public IBulkLoader getBulkLoader( )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} DDL statements commit the current transaction by default.
+     */
+    @Override
+    public boolean isTransactionalDdl( )
+    {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc} Truncating tables is not supported by default.
+     */
+    @Override
+    public String getSqlTruncateTable( String strTableName )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Postponing checks of foreign keys is not supported by default.
+     */
+    @Override
+    public String getSqlDisableConstraints( )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Postponing checks of foreign keys is not supported by default.
+     */
+    @Override
+    public String getSqlEnableConstraints( )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isConstraintsCheckedOnEnable( )
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc} Dropping secondary indexes is not supported by default.
+     */
+    @Override
+    public Map<String, String> findSecondaryIndexes( Connection connection, String strTableName ) throws SQLException
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlDropIndex( String strTableName, String strIndexName )
+    {
+        return SQL_QUERY_DROP_INDEX + strIndexName;
+    }
+
+    /**
+     * {@inheritDoc} Refreshing statistics is not supported by default.
+     */
+    @Override
+    public String getSqlAnalyzeTable( String strTableName )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Rebuilding indexes is not supported by default.
+     */
+    @Override
+    public String getSqlReindexTable( String strTableName )
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} The number of rows is unknown by default.
+     */
+    @Override
+    public long getEstimatedRowCount( Connection connection, String strTableName ) throws SQLException
+    {
+        return -1;
+    }
+
+    /**
+     * Get the number returned by a query that has a single string parameter
+     * 
+     * @param connection
+     *            The connection
+     * @param strSql
+     *            The SQL query
+     * @param strParameter
+     *            The value of the parameter
+     * @return The number, or -1 if the query returned no row
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    protected static long queryNumber( Connection connection, String strSql, String strParameter ) throws SQLException
+    {
+        PreparedStatement statement = connection.prepareStatement( strSql );
+        try
+        {
+            statement.setString( 1, strParameter );
+            ResultSet resultSet = statement.executeQuery( );
+            if ( resultSet.next( ) )
+            {
+                long lNumber = resultSet.getLong( 1 );
+                return resultSet.wasNull( ) ? -1 : lNumber;
+            }
+            return -1;
+        }
+        finally
+        {
+            statement.close( );
+        }
+    }
+
+    /**
+     * Append the condition that joins the primary key columns of two tables to a string builder
+     * 
+     * @param sbSql
+     *            The string builder
+     * @param strTableName
+     *            The name of the first table
+     * @param strOtherTableName
+     *            The name of the second table
+     * @param listColumns
+     *            The list of columns of both tables
+     */
+    protected static void appendKeyJoin( StringBuilder sbSql, String strTableName, String strOtherTableName, List<TableColumn> listColumns )
+    {
+        boolean bIsFirst = true;
+        for ( TableColumn tableColumn : listColumns )
+        {
+            if ( tableColumn.getIsPrimaryKey( ) )
+            {
+                if ( !bIsFirst )
+                {
+                    sbSql.append( SQL_QUERY_AND );
+                }
+                bIsFirst = false;
+                sbSql.append( strTableName ).append( CONSTANT_POINT ).append( tableColumn.getColumnName( ) ).append( SQL_QUERY_EQUALS );
+                sbSql.append( strOtherTableName ).append( CONSTANT_POINT ).append( tableColumn.getColumnName( ) );
+            }
+        }
+    }
+
+    /**
+     * Append the assignments of the columns that are not primary keys to the values of another table to a string builder
+     * 
+     * @param sbSql
+     *            The string builder
+     * @param strTableName
+     *            The name of the table to prefix assigned columns with, or null if assigned columns must not be prefixed
+     * @param strOtherTableName
+     *            The name of the table values are read from
+     * @param listColumns
+     *            The list of columns of both tables
+     */
+    protected static void appendValueAssignments( StringBuilder sbSql, String strTableName, String strOtherTableName, List<TableColumn> listColumns )
+    {
+        boolean bIsFirst = true;
+        for ( TableColumn tableColumn : listColumns )
+        {
+            if ( !tableColumn.getIsPrimaryKey( ) )
+            {
+                if ( !bIsFirst )
+                {
+                    sbSql.append( CONSTANT_COMA );
+                }
+                bIsFirst = false;
+                if ( strTableName != null )
+                {
+                    sbSql.append( strTableName ).append( CONSTANT_POINT );
+                }
+                sbSql.append( tableColumn.getColumnName( ) ).append( SQL_QUERY_EQUALS );
+                sbSql.append( strOtherTableName ).append( CONSTANT_POINT ).append( tableColumn.getColumnName( ) );
+            }
+        }
+    }
+
+    /**
+     * Append the coma separated list of names of columns to a string builder
+     * 
+     * @param sbSql
+     *            The string builder
+     * @param listColumns
+     *            The list of columns
+     * @param bPrimaryKeys
+     *            True to append primary key columns, false to append other columns
+     * @param strPrefix
+     *            The prefix to add before every column name, or null if no prefix should be added
+     */
+    protected static void appendColumnNames( StringBuilder sbSql, List<TableColumn> listColumns, boolean bPrimaryKeys, String strPrefix )
+    {
+        boolean bIsFirst = true;
+        for ( TableColumn tableColumn : listColumns )
+        {
+            if ( tableColumn.getIsPrimaryKey( ) == bPrimaryKeys )
+            {
+                if ( !bIsFirst )
+                {
+                    sbSql.append( CONSTANT_COMA );
+                }
+                bIsFirst = false;
+                if ( strPrefix != null )
+                {
+                    sbSql.append( strPrefix ).append( CONSTANT_POINT );
+                }
+                sbSql.append( tableColumn.getColumnName( ) );
+            }
+        }
+    }
+
+    /**
+     * Append the coma separated list of names of every column to a string builder
+     * 
+     * @param sbSql
+     *            The string builder
+     * @param listColumns
+     *            The list of columns
+     */
+    protected static void appendColumnNames( StringBuilder sbSql, List<TableColumn> listColumns )
+    {
+        for ( int i = 0; i < listColumns.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( CONSTANT_COMA );
+            }
+            sbSql.append( listColumns.get( i ).getColumnName( ) );
+        }
+    }
+
+    /**
+     * Append a simple INSERT INTO statement to a string builder
+     * 
+     * @param sbSql
+     *            The string builder
+     * @param strTableName
+     *            The name of the table
+     * @param listColumns
+     *            The list of columns
+     */
+    protected static void appendInsert( StringBuilder sbSql, String strTableName, List<TableColumn> listColumns )
+    {
+        sbSql.append( SQL_QUERY_INSERT_INTO ).append( strTableName ).append( CONSTANT_OPEN_PARENTHESIS );
+        appendColumnNames( sbSql, listColumns );
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS ).append( SQL_QUERY_VALUES ).append( CONSTANT_OPEN_PARENTHESIS );
+        for ( int i = 0; i < listColumns.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( CONSTANT_COMA );
+            }
+            sbSql.append( CONSTANT_QUESTION_MARK );
+        }
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS );
+    }
+
+    /**
+     * Check if a list of columns has at least one primary key column and one column that is not a primary key
+     * 
+     * @param listColumns
+     *            The list of columns
+     * @return True if the list contains both primary key columns and other columns, false otherwise
+     */
+    protected static boolean hasKeyAndValueColumns( List<TableColumn> listColumns )
+    {
+        boolean bHasKey = false;
+        boolean bHasValue = false;
+        for ( TableColumn tableColumn : listColumns )
+        {
+            if ( tableColumn.getIsPrimaryKey( ) )
+            {
+                bHasKey = true;
+            }
+            else
+            {
+                bHasValue = true;
+            }
+        }
+        return bHasKey && bHasValue;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * SQL dialect of H2
+ */
+public class H2Dialect extends AbstractSqlDialect
+{
+    private static final String PRODUCT_NAME_H2 = "H2";
+
+    private static final String SQL_QUERY_MERGE_INTO = "MERGE INTO ";
+    private static final String SQL_QUERY_KEY = " KEY ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValidDialect( String strDatabaseProductName )
+    {
+        return StringUtils.equalsIgnoreCase( strDatabaseProductName, PRODUCT_NAME_H2 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlUpsert( String strTableName, List<TableColumn> listColumns )
+    {
+        if ( !hasKeyAndValueColumns( listColumns ) )
+        {
+            return null;
+        }
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_MERGE_INTO );
+        sbSql.append( strTableName ).append( CONSTANT_OPEN_PARENTHESIS );
+        appendColumnNames( sbSql, listColumns );
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS ).append( SQL_QUERY_KEY ).append( CONSTANT_OPEN_PARENTHESIS );
+        appendColumnNames( sbSql, listColumns, true, null );
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS ).append( SQL_QUERY_VALUES ).append( CONSTANT_OPEN_PARENTHESIS );
+        for ( int i = 0; i < listColumns.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( CONSTANT_COMA );
+            }
+            sbSql.append( CONSTANT_QUESTION_MARK );
+        }
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS );
+        return sbSql.toString( );
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Interface for native bulk loaders. Bulk loaders send rows to the database with the native bulk load protocol of the database engine, which is much faster
+ * than batches of INSERT statements.
+ */
+public interface IBulkLoader
+{
+    /**
+     * Check if this bulk loader can load rows with the given columns
+     * 
+     * @param listColumns
+     *            The list of columns
+     * @return True if the rows can be bulk loaded, false otherwise
+     */
+    boolean isSupported( List<TableColumn> listColumns );
+
+    /**
+     * Load rows into a table. The transaction of the connection is NOT committed by this method.
+     * 
+     * @param connection
+     *            The connection to load rows with
+     * @param strTableName
+     *            The name of the table
+     * @param listColumns
+     *            The list of columns of the rows
+     * @param listRows
+     *            The list of rows to load. Values of every row are the values converted by the column binders, in the order of the list of columns
+     * @return The number of rows loaded into the table. Some databases skip invalid rows instead of failing, so this number may be lower than the number of
+     *         rows
+     * @throws SQLException
+     *             If the rows could not be loaded, or if the database altered some of their values
+     */
+    int load( Connection connection, String strTableName, List<TableColumn> listColumns, List<Object [ ]> listRows ) throws SQLException;
+}
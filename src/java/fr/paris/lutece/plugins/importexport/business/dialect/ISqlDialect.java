@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface for SQL dialects. Dialects generate the SQL statements that depend on the database engine.
+ */
+public interface ISqlDialect
+{
+    /**
+     * Check if this dialect can be used with a given database
+     * 
+     * @param strDatabaseProductName
+     *            The name of the database product, as returned by the JDBC driver
+     * @return True if this dialect can be used with the database, false otherwise
+     */
+    boolean isValidDialect( String strDatabaseProductName );
+
+    /**
+     * Get the SQL statement to insert a row, or to update it if a row with the same primary key already exists. Parameters of the statement are the values
+     * of the columns, in the order of the given list of columns.
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param listColumns
+     *            The list of columns of the row. Primary key columns must be flagged as such
+     * @return The SQL statement, or null if this dialect does not support native upserts for the given columns
+     */
+    String getSqlUpsert( String strTableName, List<TableColumn> listColumns );
+
+    /**
+     * Get the name of the current schema of a connection, as stored in the table_schema column of information_schema views
+     * 
+     * @param connection
+     *            The connection
+     * @return The name of the current schema, or null if it is unknown
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    String getSchemaName( Connection connection ) throws SQLException;
+
+    /**
+     * Get the SQL statements to create an empty staging table with the same structure as an existing table
+     * 
+     * @param strTableName
+     *            The name of the existing table
+     * @param strStagingTableName
+     *            The name of the staging table to create
+     * @return The list of SQL statements, or null if this dialect does not support staging tables
+     */
+    List<String> getSqlCreateStagingTable( String strTableName, String strStagingTableName );
+
+    /**
+     * Get the SQL statements to replace a table by its staging table. Once every statement has been executed and committed, the staging table is published
+     * under the name of the table, and the previous content of the table is kept under the old table name.
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param strStagingTableName
+     *            The name of the staging table to publish
+     * @param strOldTableName
+     *            The name to give to the previous table
+     * @return The list of SQL statements, or null if this dialect does not support staging tables
+     */
+    List<String> getSqlSwapTables( String strTableName, String strStagingTableName, String strOldTableName );
+
+    /**
+     * Check if views depend on a table. Views that reference a table by its identifier rather than by its name would follow the table when it is renamed.
+     * 
+     * @param connection
+     *            The connection
+     * @param strTableName
+     *            The name of the table
+     * @return True if views depend on the table, false otherwise
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    boolean hasDependentViews( Connection connection, String strTableName ) throws SQLException;
+
+    /**
+     * Check if a table has attributes that its staging table would not get, such as grants, triggers, an owner other than the current user or comments.
+     * These attributes would be lost once the staging table replaces the table.
+     * 
+     * @param connection
+     *            The connection
+     * @param strTableName
+     *            The name of the table
+     * @return True if the table has attributes that are not copied to its staging table, false otherwise
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    boolean hasUncopiedAttributes( Connection connection, String strTableName ) throws SQLException;
+
+    /**
+     * Get the SQL statement to drop a table if it exists
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @return The SQL statement
+     */
+    String getSqlDropTable( String strTableName );
+
+    /**
+     * Get the SQL statement to create an empty temporary table with the same columns and keys as an existing table. Temporary tables are only visible to the
+     * connection that created them, and their creation must not commit the current transaction.
+     * 
+     * @param strTableName
+     *            The name of the existing table
+     * @param strTempTableName
+     *            The name of the temporary table to create
+     * @return The SQL statement, or null if this dialect does not support temporary tables
+     */
+    String getSqlCreateTempTable( String strTableName, String strTempTableName );
+
+    /**
+     * Get the SQL statement to drop a temporary table if it exists, without committing the current transaction
+     * 
+     * @param strTempTableName
+     *            The name of the temporary table
+     * @return The SQL statement
+     */
+    String getSqlDropTempTable( String strTempTableName );
+
+    /**
+     * Get the SQL statement to update the rows of a table with the rows of a temporary table that have the same primary key. The statement returns the number
+     * of updated rows.
+     * 
+     * @param strTableName
+     *            The name of the table to update
+     * @param strTempTableName
+     *            The name of the temporary table
+     * @param listColumns
+     *            The list of columns of both tables. Primary key columns must be flagged as such
+     * @return The SQL statement, or null if this dialect does not support set-based updates for the given columns
+     */
+    String getSqlMergeUpdate( String strTableName, String strTempTableName, List<TableColumn> listColumns );
+
+    /**
+     * Get the SQL query that counts the rows of a temporary table that have the same primary key as a row of a table, for databases whose statement of
+     * {@link #getSqlMergeUpdate(String, String, List)} does not count the rows it matched but left unchanged.
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param strTempTableName
+     *            The name of the temporary table
+     * @param listColumns
+     *            The list of columns of both tables. Primary key columns must be flagged as such
+     * @return The SQL query, or null if the update statement returns the number of rows it matched
+     */
+    String getSqlCountMergeMatches( String strTableName, String strTempTableName, List<TableColumn> listColumns );
+
+    /**
+     * Get the SQL statement to insert into a table the rows of a temporary table whose primary key does not exist in the table. The statement returns the
+     * number of inserted rows.
+     * 
+     * @param strTableName
+     *            The name of the table to insert rows in
+     * @param strTempTableName
+     *            The name of the temporary table
+     * @param listColumns
+     *            The list of columns of both tables. Primary key columns must be flagged as such
+     * @return The SQL statement
+     */
+    String getSqlMergeInsert( String strTableName, String strTempTableName, List<TableColumn> listColumns );
+
+    /**
+     * Get the native bulk loader of the database
+     * 
+     * @return The bulk loader, or null if this dialect has no native bulk loader
+     */
+    IBulkLoader getBulkLoader( );
+
+    /**
+     * Check if DDL statements such as TRUNCATE or DROP INDEX are executed within the current transaction, so that they are undone by a rollback. Databases
+     * whose DDL statements are not transactional commit the current transaction before executing them.
+     * 
+     * @return True if DDL statements are transactional, false otherwise
+     */
+    boolean isTransactionalDdl( );
+
+    /**
+     * Get the SQL statement to remove every row of a table faster than with a DELETE statement
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @return The SQL statement, or null if this dialect does not support it
+     */
+    String getSqlTruncateTable( String strTableName );
+
+    /**
+     * Get the SQL statement that postpones the checks of foreign keys of the current connection
+     * 
+     * @return The SQL statement, or null if this dialect does not support it
+     */
+    String getSqlDisableConstraints( );
+
+    /**
+     * Get the SQL statement that restores the checks of foreign keys postponed by the statement of {@link #getSqlDisableConstraints()}
+     * 
+     * @return The SQL statement, or null if this dialect does not support it
+     */
+    String getSqlEnableConstraints( );
+
+    /**
+     * Check if the statement of {@link #getSqlEnableConstraints()} checks the rows written while checks were postponed
+     * 
+     * @return True if postponed rows are checked, false if they must be validated by a query
+     */
+    boolean isConstraintsCheckedOnEnable( );
+
+    /**
+     * Find the secondary indexes of a table that can be dropped during an import and created again afterwards. Primary keys, unique indexes and indexes
+     * needed by constraints are never returned.
+     * 
+     * @param connection
+     *            The connection
+     * @param strTableName
+     *            The name of the table
+     * @return The map of SQL statements that create the indexes, by name of index, or null if this dialect does not support it
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    Map<String, String> findSecondaryIndexes( Connection connection, String strTableName ) throws SQLException;
+
+    /**
+     * Get the SQL statement to drop an index
+     * 
+     * @param strTableName
+     *            The name of the table of the index
+     * @param strIndexName
+     *            The name of the index
+     * @return The SQL statement
+     */
+    String getSqlDropIndex( String strTableName, String strIndexName );
+
+    /**
+     * Get the SQL statement that refreshes the statistics the query planner of the database keeps about a table
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @return The SQL statement, or null if this dialect does not support it
+     */
+    String getSqlAnalyzeTable( String strTableName );
+
+    /**
+     * Get the SQL statement that rebuilds the indexes of a table
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @return The SQL statement, or null if this dialect does not support it
+     */
+    String getSqlReindexTable( String strTableName );
+
+    /**
+     * Get the number of rows of a table estimated by the statistics of the database, without counting them
+     * 
+     * @param connection
+     *            The connection
+     * @param strTableName
+     *            The name of the table
+     * @return The estimated number of rows, or -1 if it is unknown
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    long getEstimatedRowCount( Connection connection, String strTableName ) throws SQLException;
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Bulk loader of MySQL and MariaDB, that streams rows to the LOAD DATA LOCAL INFILE command through the local infile input stream of the JDBC driver. The
+ * allowLoadLocalInfile property must be enabled on the connections of the pool.
+ */
+public class MySqlBulkLoader extends AbstractBulkLoader
+{
+    // Statement classes of MySQL Connector/J 8, MySQL Connector/J 5 and MariaDB Connector/J 2
+    private static final String [ ] CLASSES_STATEMENT = {
+            "com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement", "org.mariadb.jdbc.MariaDbStatement"
+    };
+    private static final String METHOD_SET_LOCAL_INFILE_INPUT_STREAM = "setLocalInfileInputStream";
+
+    private static final String SQL_QUERY_LOAD_DATA = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE ";
+    private static final String SQL_QUERY_FORMAT = " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' ( ";
+    private static final String CONSTANT_CLOSE_PARENTHESIS = " )";
+
+    /**
+     * {@inheritDoc} LOCAL loads turn data errors into warnings: rows with duplicate keys are skipped, and invalid values are truncated or converted. A load
+     * that raised any warning therefore fails, so that its rows are written again by batches that report errors row by row.
+     */
+    @Override
+    public int load( Connection connection, String strTableName, List<TableColumn> listColumns, List<Object [ ]> listRows ) throws SQLException
+    {
+        String strSql = SQL_QUERY_LOAD_DATA + strTableName + SQL_QUERY_FORMAT + getColumnNames( listColumns ) + CONSTANT_CLOSE_PARENTHESIS;
+        Statement statement = connection.createStatement( );
+        try
+        {
+            setLocalInfileInputStream( statement, getRowsStream( listRows ) );
+            int nLoadedRows = statement.executeUpdate( strSql );
+            SQLWarning warning = statement.getWarnings( );
+            if ( warning != null )
+            {
+                throw new SQLException( "Rows were loaded with warnings : " + warning.getMessage( ), warning.getSQLState( ), warning );
+            }
+            return nLoadedRows;
+        }
+        finally
+        {
+            statement.close( );
+        }
+    }
+
+    /**
+     * Set the stream that the driver sends to the server instead of a local file
+     * 
+     * @param statement
+     *            The statement that executes the LOAD DATA LOCAL INFILE command
+     * @param inputStream
+     *            The stream of encoded rows
+     * @throws SQLException
+     *             If no supported driver is available
+     */
+    private static void setLocalInfileInputStream( Statement statement, InputStream inputStream ) throws SQLException
+    {
+        for ( String strClassName : CLASSES_STATEMENT )
+        {
+            Class<?> classStatement = findDriverClass( strClassName );
+            if ( classStatement != null && statement.isWrapperFor( classStatement ) )
+            {
+                try
+                {
+                    classStatement.getMethod( METHOD_SET_LOCAL_INFILE_INPUT_STREAM, InputStream.class ).invoke( statement.unwrap( classStatement ),
+                            inputStream );
+                    return;
+                }
+                catch( ReflectiveOperationException e )
+                {
+                    throw getSQLException( e );
+                }
+            }
+        }
+        throw new SQLException( "No MySQL JDBC driver supporting local infile streams is available" );
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * SQL dialect of MySQL and MariaDB
+ */
+public class MySqlDialect extends AbstractSqlDialect
+{
+    private static final String PRODUCT_NAME_MYSQL = "MySQL";
+    private static final String PRODUCT_NAME_MARIADB = "MariaDB";
+
+    private static final String SQL_QUERY_ON_DUPLICATE_KEY_UPDATE = " ON DUPLICATE KEY UPDATE ";
+    private static final String SQL_FUNCTION_VALUES = "VALUES( ";
+    private static final String SQL_QUERY_LIKE = " LIKE ";
+    private static final String SQL_QUERY_RENAME_TABLE = "RENAME TABLE ";
+    private static final String SQL_QUERY_TO = " TO ";
+    private static final String SQL_QUERY_CREATE_TEMPORARY_TABLE = "CREATE TEMPORARY TABLE ";
+    private static final String SQL_QUERY_DROP_TEMPORARY_TABLE_IF_EXISTS = "DROP TEMPORARY TABLE IF EXISTS ";
+    private static final String SQL_QUERY_JOIN = " JOIN ";
+    private static final String SQL_QUERY_SELECT_COUNT = "SELECT COUNT(*) FROM ";
+    private static final String SQL_QUERY_ON = " ON ";
+    private static final String SQL_QUERY_SET_FOREIGN_KEY_CHECKS = "SET FOREIGN_KEY_CHECKS = ";
+    private static final String SQL_QUERY_SELECT_SECONDARY_INDEXES = "SELECT INDEX_NAME, COLUMN_NAME, SUB_PART, COLLATION, INDEX_TYPE"
+            + " FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE( ) AND TABLE_NAME = ? AND NON_UNIQUE = 1 ORDER BY INDEX_NAME, SEQ_IN_INDEX";
+    private static final String SQL_QUERY_SELECT_FOREIGN_KEY_COLUMNS = "SELECT COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE"
+            + " WHERE TABLE_SCHEMA = DATABASE( ) AND TABLE_NAME = ? AND REFERENCED_TABLE_NAME IS NOT NULL AND ORDINAL_POSITION = 1";
+    private static final String SQL_QUERY_CREATE = "CREATE ";
+    private static final String SQL_QUERY_INDEX = "INDEX ";
+    private static final String SQL_QUERY_DESC = " DESC";
+    private static final String INDEX_TYPE_BTREE = "BTREE";
+    private static final String INDEX_TYPE_HASH = "HASH";
+    private static final String COLLATION_DESC = "D";
+    private static final String SQL_QUERY_COUNT_TRIGGERS = "SELECT COUNT(*) FROM information_schema.TRIGGERS"
+            + " WHERE EVENT_OBJECT_SCHEMA = DATABASE( ) AND EVENT_OBJECT_TABLE = ?";
+    private static final String SQL_QUERY_OPTIMIZE_TABLE = "OPTIMIZE TABLE ";
+    private static final String SQL_QUERY_SELECT_TABLE_ROWS = "SELECT TABLE_ROWS FROM information_schema.TABLES"
+            + " WHERE TABLE_SCHEMA = DATABASE( ) AND TABLE_NAME = ?";
+    private static final String CONSTANT_ENABLED = "1";
+    private static final String CONSTANT_DISABLED = "0";
+
+    private final IBulkLoader _bulkLoader = new MySqlBulkLoader( );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValidDialect( String strDatabaseProductName )
+    {
+        return StringUtils.containsIgnoreCase( strDatabaseProductName, PRODUCT_NAME_MYSQL )
+                || StringUtils.containsIgnoreCase( strDatabaseProductName, PRODUCT_NAME_MARIADB );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlUpsert( String strTableName, List<TableColumn> listColumns )
+    {
+        if ( !hasKeyAndValueColumns( listColumns ) )
+        {
+            return null;
+        }
+        StringBuilder sbSql = new StringBuilder( );
+        appendInsert( sbSql, strTableName, listColumns );
+        sbSql.append( SQL_QUERY_ON_DUPLICATE_KEY_UPDATE );
+        boolean bIsFirst = true;
+        for ( TableColumn tableColumn : listColumns )
+        {
+            if ( !tableColumn.getIsPrimaryKey( ) )
+            {
+                if ( !bIsFirst )
+                {
+                    sbSql.append( CONSTANT_COMA );
+                }
+                bIsFirst = false;
+                sbSql.append( tableColumn.getColumnName( ) ).append( SQL_QUERY_EQUALS ).append( SQL_FUNCTION_VALUES );
+                sbSql.append( tableColumn.getColumnName( ) ).append( CONSTANT_CLOSE_PARENTHESIS );
+            }
+        }
+        return sbSql.toString( );
+    }
+
+    /**
+     * {@inheritDoc} MySQL schemas are the catalogs of JDBC connections.
+     */
+    @Override
+    public String getSchemaName( Connection connection ) throws SQLException
+    {
+        return connection.getCatalog( );
+    }
+
+    /**
+     * {@inheritDoc} The staging table gets the columns and the indexes of the table, but not its foreign keys.
+     */
+    @Override
+    public List<String> getSqlCreateStagingTable( String strTableName, String strStagingTableName )
+    {
+        return Collections.singletonList( SQL_QUERY_CREATE_TABLE + strStagingTableName + SQL_QUERY_LIKE + strTableName );
+    }
+
+    /**
+     * {@inheritDoc} MySQL views reference tables by name, so they read the published table once the tables are swapped.
+     */
+    @Override
+    public boolean hasDependentViews( Connection connection, String strTableName ) throws SQLException
+    {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc} MySQL grants tables by name and copies the comment of the table with LIKE, so only triggers, which follow the renamed table, would be lost.
+     */
+    @Override
+    public boolean hasUncopiedAttributes( Connection connection, String strTableName ) throws SQLException
+    {
+        return queryNumber( connection, SQL_QUERY_COUNT_TRIGGERS, strTableName ) > 0;
+    }
+
+    /**
+     * {@inheritDoc} Both tables are renamed by a single statement, so that the swap is atomic.
+     */
+    @Override
+    public List<String> getSqlSwapTables( String strTableName, String strStagingTableName, String strOldTableName )
+    {
+        return Collections.singletonList( SQL_QUERY_RENAME_TABLE + strTableName + SQL_QUERY_TO + strOldTableName + CONSTANT_COMA + strStagingTableName
+                + SQL_QUERY_TO + strTableName );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlCreateTempTable( String strTableName, String strTempTableName )
+    {
+        return SQL_QUERY_CREATE_TEMPORARY_TABLE + strTempTableName + SQL_QUERY_LIKE + strTableName;
+    }
+
+    /**
+     * {@inheritDoc} Unlike DROP TABLE, DROP TEMPORARY TABLE does not commit the current transaction.
+     */
+    @Override
+    public String getSqlDropTempTable( String strTempTableName )
+    {
+        return SQL_QUERY_DROP_TEMPORARY_TABLE_IF_EXISTS + strTempTableName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlMergeUpdate( String strTableName, String strTempTableName, List<TableColumn> listColumns )
+    {
+        if ( !hasKeyAndValueColumns( listColumns ) )
+        {
+            return null;
+        }
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_UPDATE ).append( strTableName ).append( SQL_QUERY_JOIN ).append( strTempTableName );
+        sbSql.append( SQL_QUERY_ON );
+        appendKeyJoin( sbSql, strTableName, strTempTableName, listColumns );
+        sbSql.append( SQL_QUERY_SET );
+        appendValueAssignments( sbSql, strTableName, strTempTableName, listColumns );
+        return sbSql.toString( );
+    }
+
+    /**
+     * {@inheritDoc} MySQL only counts the rows whose values were changed by an update, unless the connection reports found rows.
+     */
+    @Override
+    public String getSqlCountMergeMatches( String strTableName, String strTempTableName, List<TableColumn> listColumns )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_COUNT ).append( strTempTableName ).append( SQL_QUERY_JOIN ).append( strTableName );
+        sbSql.append( SQL_QUERY_ON );
+        appendKeyJoin( sbSql, strTableName, strTempTableName, listColumns );
+        return sbSql.toString( );
+    }
+
+    /**
+     * {@inheritDoc} MySQL commits the current transaction before truncating a table, so a truncated table cannot be restored by a rollback. Tables are
+     * therefore only truncated by databases whose DDL statements are transactional.
+     */
+    @Override
+    public String getSqlTruncateTable( String strTableName )
+    {
+        return SQL_QUERY_TRUNCATE_TABLE + strTableName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlDisableConstraints( )
+    {
+        return SQL_QUERY_SET_FOREIGN_KEY_CHECKS + CONSTANT_DISABLED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlEnableConstraints( )
+    {
+        return SQL_QUERY_SET_FOREIGN_KEY_CHECKS + CONSTANT_ENABLED;
+    }
+
+    /**
+     * {@inheritDoc} MySQL does not check rows written while FOREIGN_KEY_CHECKS was disabled.
+     */
+    @Override
+    public boolean isConstraintsCheckedOnEnable( )
+    {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc} Indexes whose first column is the first column of a foreign key are kept, since MySQL needs them to check the foreign key. Functional
+     * indexes are kept too.
+     */
+    @Override
+    public Map<String, String> findSecondaryIndexes( Connection connection, String strTableName ) throws SQLException
+    {
+        Set<String> setForeignKeyColumns = new HashSet<String>( );
+        PreparedStatement statement = connection.prepareStatement( SQL_QUERY_SELECT_FOREIGN_KEY_COLUMNS );
+        try
+        {
+            statement.setString( 1, strTableName );
+            ResultSet resultSet = statement.executeQuery( );
+            while ( resultSet.next( ) )
+            {
+                setForeignKeyColumns.add( resultSet.getString( 1 ).toLowerCase( ) );
+            }
+        }
+        finally
+        {
+            statement.close( );
+        }
+
+        Map<String, StringBuilder> mapColumns = new LinkedHashMap<String, StringBuilder>( );
+        Map<String, String> mapIndexTypes = new LinkedHashMap<String, String>( );
+        Set<String> setKeptIndexes = new HashSet<String>( );
+        statement = connection.prepareStatement( SQL_QUERY_SELECT_SECONDARY_INDEXES );
+        try
+        {
+            statement.setString( 1, strTableName );
+            ResultSet resultSet = statement.executeQuery( );
+            while ( resultSet.next( ) )
+            {
+                String strIndexName = resultSet.getString( 1 );
+                String strColumnName = resultSet.getString( 2 );
+                StringBuilder sbColumns = mapColumns.get( strIndexName );
+                if ( sbColumns == null )
+                {
+                    sbColumns = new StringBuilder( );
+                    mapColumns.put( strIndexName, sbColumns );
+                    mapIndexTypes.put( strIndexName, resultSet.getString( 5 ) );
+                    if ( strColumnName != null && setForeignKeyColumns.contains( strColumnName.toLowerCase( ) ) )
+                    {
+                        setKeptIndexes.add( strIndexName );
+                    }
+                }
+                else
+                {
+                    sbColumns.append( CONSTANT_COMA );
+                }
+                if ( strColumnName == null )
+                {
+                    setKeptIndexes.add( strIndexName );
+                    continue;
+                }
+                sbColumns.append( strColumnName );
+                int nSubPart = resultSet.getInt( 3 );
+                if ( !resultSet.wasNull( ) )
+                {
+                    sbColumns.append( CONSTANT_OPEN_PARENTHESIS ).append( nSubPart ).append( CONSTANT_CLOSE_PARENTHESIS );
+                }
+                if ( COLLATION_DESC.equals( resultSet.getString( 4 ) ) )
+                {
+                    sbColumns.append( SQL_QUERY_DESC );
+                }
+            }
+        }
+        finally
+        {
+            statement.close( );
+        }
+
+        Map<String, String> mapIndexes = new LinkedHashMap<String, String>( );
+        for ( Map.Entry<String, StringBuilder> entry : mapColumns.entrySet( ) )
+        {
+            if ( !setKeptIndexes.contains( entry.getKey( ) ) )
+            {
+                StringBuilder sbSql = new StringBuilder( SQL_QUERY_CREATE );
+                String strIndexType = mapIndexTypes.get( entry.getKey( ) );
+                // FULLTEXT and SPATIAL indexes are created with their own keyword
+                if ( strIndexType != null && !INDEX_TYPE_BTREE.equals( strIndexType ) && !INDEX_TYPE_HASH.equals( strIndexType ) )
+                {
+                    sbSql.append( strIndexType ).append( ' ' );
+                }
+                sbSql.append( SQL_QUERY_INDEX ).append( entry.getKey( ) ).append( SQL_QUERY_ON ).append( strTableName ).append( CONSTANT_OPEN_PARENTHESIS );
+                sbSql.append( entry.getValue( ) ).append( CONSTANT_CLOSE_PARENTHESIS );
+                mapIndexes.put( entry.getKey( ), sbSql.toString( ) );
+            }
+        }
+        return mapIndexes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlDropIndex( String strTableName, String strIndexName )
+    {
+        return SQL_QUERY_DROP_INDEX + strIndexName + SQL_QUERY_ON + strTableName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlAnalyzeTable( String strTableName )
+    {
+        return SQL_QUERY_ANALYZE_TABLE + strTableName;
+    }
+
+    /**
+     * {@inheritDoc} InnoDB rebuilds the table and its indexes when it is optimized.
+     */
+    @Override
+    public String getSqlReindexTable( String strTableName )
+    {
+        return SQL_QUERY_OPTIMIZE_TABLE + strTableName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEstimatedRowCount( Connection connection, String strTableName ) throws SQLException
+    {
+        return queryNumber( connection, SQL_QUERY_SELECT_TABLE_ROWS, strTableName );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IBulkLoader getBulkLoader( )
+    {
+        return _bulkLoader;
+    }
+}
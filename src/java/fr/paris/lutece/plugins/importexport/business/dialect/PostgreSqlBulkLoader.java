@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Bulk loader of PostgreSQL, that streams rows to the COPY ... FROM STDIN command through the CopyManager of the PostgreSQL JDBC driver
+ */
+public class PostgreSqlBulkLoader extends AbstractBulkLoader
+{
+    private static final String CLASS_PG_CONNECTION = "org.postgresql.PGConnection";
+    private static final String METHOD_GET_COPY_API = "getCopyAPI";
+    private static final String METHOD_COPY_IN = "copyIn";
+
+    private static final String SQL_QUERY_COPY = "COPY ";
+    private static final String SQL_QUERY_FROM_STDIN = " ) FROM STDIN";
+    private static final String CONSTANT_OPEN_PARENTHESIS = " ( ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int load( Connection connection, String strTableName, List<TableColumn> listColumns, List<Object [ ]> listRows ) throws SQLException
+    {
+        Class<?> classPGConnection = findDriverClass( CLASS_PG_CONNECTION );
+        if ( classPGConnection == null || !connection.isWrapperFor( classPGConnection ) )
+        {
+            throw new SQLException( "The PostgreSQL JDBC driver is not available" );
+        }
+        String strSql = SQL_QUERY_COPY + strTableName + CONSTANT_OPEN_PARENTHESIS + getColumnNames( listColumns ) + SQL_QUERY_FROM_STDIN;
+        try
+        {
+            Object pgConnection = connection.unwrap( classPGConnection );
+            Object copyManager = classPGConnection.getMethod( METHOD_GET_COPY_API ).invoke( pgConnection );
+            // The driver sends the encoded rows as they are, since the client encoding of its connections is UTF-8
+            Object nLoadedRows = copyManager.getClass( ).getMethod( METHOD_COPY_IN, String.class, InputStream.class ).invoke( copyManager, strSql,
+                    getRowsStream( listRows ) );
+            return ( (Number) nLoadedRows ).intValue( );
+        }
+        catch( ReflectiveOperationException e )
+        {
+            throw getSQLException( e );
+        }
+    }
+}
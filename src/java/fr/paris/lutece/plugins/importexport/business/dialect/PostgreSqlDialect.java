@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * SQL dialect of PostgreSQL
+ */
+public class PostgreSqlDialect extends AbstractSqlDialect
+{
+    private static final String PRODUCT_NAME_POSTGRESQL = "PostgreSQL";
+
+    private static final String SQL_QUERY_ON_CONFLICT = " ON CONFLICT ";
+    private static final String SQL_QUERY_DO_UPDATE_SET = " DO UPDATE SET ";
+    private static final String SQL_TABLE_EXCLUDED = "EXCLUDED.";
+    private static final String SQL_QUERY_LIKE = " ( LIKE ";
+    private static final String SQL_QUERY_INCLUDING_ALL = " INCLUDING ALL ) ";
+    private static final String SQL_QUERY_ALTER_TABLE = "ALTER TABLE ";
+    private static final String SQL_QUERY_RENAME_TO = " RENAME TO ";
+    private static final String SQL_QUERY_CREATE_TEMPORARY_TABLE = "CREATE TEMPORARY TABLE ";
+    private static final String SQL_QUERY_INCLUDING_KEYS = " INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES ) ";
+    private static final String SQL_QUERY_DEFER_CONSTRAINTS = "SET CONSTRAINTS ALL DEFERRED";
+    private static final String SQL_QUERY_CHECK_CONSTRAINTS = "SET CONSTRAINTS ALL IMMEDIATE";
+    private static final String SQL_QUERY_SELECT_SECONDARY_INDEXES = "SELECT i.relname, pg_get_indexdef( i.oid ) FROM pg_index x"
+            + " JOIN pg_class i ON i.oid = x.indexrelid WHERE x.indrelid = CAST( ? AS regclass )"
+            + " AND NOT x.indisunique AND NOT x.indisprimary AND NOT x.indisexclusion ORDER BY i.relname";
+    private static final String SQL_QUERY_COUNT_DEPENDENT_VIEWS = "SELECT COUNT(*) FROM pg_depend d JOIN pg_rewrite r ON r.oid = d.objid"
+            + " WHERE d.classid = CAST( 'pg_rewrite' AS regclass ) AND d.refobjid = CAST( ? AS regclass ) AND r.ev_class <> d.refobjid";
+    private static final String SQL_QUERY_COUNT_UNCOPIED_ATTRIBUTES = "SELECT ( SELECT COUNT(*) FROM pg_trigger t WHERE t.tgrelid = c.oid"
+            + " AND NOT t.tgisinternal ) + ( SELECT COUNT(*) FROM pg_policy p WHERE p.polrelid = c.oid ) + CASE WHEN c.relacl IS NULL"
+            + " AND pg_get_userbyid( c.relowner ) = current_user AND obj_description( c.oid, 'pg_class' ) IS NULL THEN 0 ELSE 1 END"
+            + " FROM pg_class c WHERE c.oid = CAST( ? AS regclass )";
+    private static final String SQL_QUERY_ANALYZE = "ANALYZE ";
+    private static final String SQL_QUERY_REINDEX_TABLE = "REINDEX TABLE ";
+    private static final String SQL_QUERY_SELECT_RELTUPLES = "SELECT CAST( reltuples AS bigint ) FROM pg_class WHERE oid = CAST( ? AS regclass )";
+    private static final String SQL_QUERY_CREATE_INDEX = "CREATE INDEX ";
+    private static final String SQL_QUERY_CREATE_INDEX_IF_NOT_EXISTS = "CREATE INDEX IF NOT EXISTS ";
+    private static final String CONSTANT_QUOTE = "\"";
+    private static final String CONSTANT_DOUBLE_QUOTE = "\"\"";
+    // Serial columns of the staging table share the sequences of the table, which must not be dropped with the old table
+    private static final String SQL_QUERY_TRANSFER_SEQUENCES = "DO $$ DECLARE r record; BEGIN"
+            + " FOR r IN SELECT s.relname AS seq_name, a.attname AS column_name FROM pg_depend d"
+            + " JOIN pg_class s ON s.oid = d.objid AND s.relkind = 'S' JOIN pg_class t ON t.oid = d.refobjid"
+            + " JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = d.refobjsubid"
+            + " WHERE d.deptype = 'a' AND t.oid = '%1$s'::regclass"
+            + " LOOP EXECUTE format( 'ALTER SEQUENCE %%I OWNED BY %2$s.%%I', r.seq_name, r.column_name ); END LOOP; END $$";
+
+    private final IBulkLoader _bulkLoader = new PostgreSqlBulkLoader( );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValidDialect( String strDatabaseProductName )
+    {
+        return StringUtils.containsIgnoreCase( strDatabaseProductName, PRODUCT_NAME_POSTGRESQL );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlUpsert( String strTableName, List<TableColumn> listColumns )
+    {
+        if ( !hasKeyAndValueColumns( listColumns ) )
+        {
+            return null;
+        }
+        StringBuilder sbSql = new StringBuilder( );
+        appendInsert( sbSql, strTableName, listColumns );
+        sbSql.append( SQL_QUERY_ON_CONFLICT ).append( CONSTANT_OPEN_PARENTHESIS );
+        appendColumnNames( sbSql, listColumns, true, null );
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS ).append( SQL_QUERY_DO_UPDATE_SET );
+        boolean bIsFirst = true;
+        for ( TableColumn tableColumn : listColumns )
+        {
+            if ( !tableColumn.getIsPrimaryKey( ) )
+            {
+                if ( !bIsFirst )
+                {
+                    sbSql.append( CONSTANT_COMA );
+                }
+                bIsFirst = false;
+                sbSql.append( tableColumn.getColumnName( ) ).append( SQL_QUERY_EQUALS ).append( SQL_TABLE_EXCLUDED ).append( tableColumn.getColumnName( ) );
+            }
+        }
+        return sbSql.toString( );
+    }
+
+    /**
+     * {@inheritDoc} The staging table gets the columns, defaults, constraints and indexes of the table, but not its foreign keys.
+     */
+    @Override
+    public List<String> getSqlCreateStagingTable( String strTableName, String strStagingTableName )
+    {
+        return Collections.singletonList( SQL_QUERY_CREATE_TABLE + strStagingTableName + SQL_QUERY_LIKE + strTableName + SQL_QUERY_INCLUDING_ALL );
+    }
+
+    /**
+     * {@inheritDoc} Views and materialized views reference tables by identifier, so they are found from the dependencies of the rules that define them.
+     */
+    @Override
+    public boolean hasDependentViews( Connection connection, String strTableName ) throws SQLException
+    {
+        return queryNumber( connection, SQL_QUERY_COUNT_DEPENDENT_VIEWS, strTableName ) > 0;
+    }
+
+    /**
+     * {@inheritDoc} The staging table is created with LIKE, which copies the comments of columns but neither the grants, the triggers, the row security
+     * policies, the owner nor the comment of the table.
+     */
+    @Override
+    public boolean hasUncopiedAttributes( Connection connection, String strTableName ) throws SQLException
+    {
+        return queryNumber( connection, SQL_QUERY_COUNT_UNCOPIED_ATTRIBUTES, strTableName ) != 0;
+    }
+
+    /**
+     * {@inheritDoc} PostgreSQL DDL statements are transactional, so the tables are swapped atomically when the transaction is committed. Sequences owned by
+     * the table are given to the staging table so that they outlive the old table.
+     */
+    @Override
+    public List<String> getSqlSwapTables( String strTableName, String strStagingTableName, String strOldTableName )
+    {
+        List<String> listSql = new ArrayList<String>( );
+        listSql.add( String.format( SQL_QUERY_TRANSFER_SEQUENCES, strTableName, strStagingTableName ) );
+        listSql.add( SQL_QUERY_ALTER_TABLE + strTableName + SQL_QUERY_RENAME_TO + strOldTableName );
+        listSql.add( SQL_QUERY_ALTER_TABLE + strStagingTableName + SQL_QUERY_RENAME_TO + strTableName );
+        return listSql;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlCreateTempTable( String strTableName, String strTempTableName )
+    {
+        return SQL_QUERY_CREATE_TEMPORARY_TABLE + strTempTableName + SQL_QUERY_LIKE + strTableName + SQL_QUERY_INCLUDING_KEYS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlMergeUpdate( String strTableName, String strTempTableName, List<TableColumn> listColumns )
+    {
+        if ( !hasKeyAndValueColumns( listColumns ) )
+        {
+            return null;
+        }
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_UPDATE ).append( strTableName ).append( SQL_QUERY_SET );
+        appendValueAssignments( sbSql, null, strTempTableName, listColumns );
+        sbSql.append( SQL_QUERY_FROM ).append( strTempTableName ).append( SQL_QUERY_WHERE );
+        appendKeyJoin( sbSql, strTableName, strTempTableName, listColumns );
+        return sbSql.toString( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isTransactionalDdl( )
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc} PostgreSQL truncates tables within the current transaction, but fails if the table is referenced by a foreign key.
+     */
+    @Override
+    public String getSqlTruncateTable( String strTableName )
+    {
+        return SQL_QUERY_TRUNCATE_TABLE + strTableName;
+    }
+
+    /**
+     * {@inheritDoc} Only deferrable foreign keys are postponed until the end of the transaction.
+     */
+    @Override
+    public String getSqlDisableConstraints( )
+    {
+        return SQL_QUERY_DEFER_CONSTRAINTS;
+    }
+
+    /**
+     * {@inheritDoc} Postponed checks are run when this statement is executed.
+     */
+    @Override
+    public String getSqlEnableConstraints( )
+    {
+        return SQL_QUERY_CHECK_CONSTRAINTS;
+    }
+
+    /**
+     * {@inheritDoc} Indexes are created again with their exact definition, including expressions and predicates.
+     */
+    @Override
+    public Map<String, String> findSecondaryIndexes( Connection connection, String strTableName ) throws SQLException
+    {
+        Map<String, String> mapIndexes = new LinkedHashMap<String, String>( );
+        PreparedStatement statement = connection.prepareStatement( SQL_QUERY_SELECT_SECONDARY_INDEXES );
+        try
+        {
+            statement.setString( 1, strTableName );
+            ResultSet resultSet = statement.executeQuery( );
+            while ( resultSet.next( ) )
+            {
+                // Indexes are restored by a rollback of the transaction that dropped them, so they may already exist when they are created again
+                mapIndexes.put( resultSet.getString( 1 ),
+                        StringUtils.replaceOnce( resultSet.getString( 2 ), SQL_QUERY_CREATE_INDEX, SQL_QUERY_CREATE_INDEX_IF_NOT_EXISTS ) );
+            }
+        }
+        finally
+        {
+            statement.close( );
+        }
+        return mapIndexes;
+    }
+
+    /**
+     * {@inheritDoc} The name of the index is quoted, since it is read from the catalog of the database.
+     */
+    @Override
+    public String getSqlDropIndex( String strTableName, String strIndexName )
+    {
+        return SQL_QUERY_DROP_INDEX + CONSTANT_QUOTE + strIndexName.replace( CONSTANT_QUOTE, CONSTANT_DOUBLE_QUOTE ) + CONSTANT_QUOTE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlAnalyzeTable( String strTableName )
+    {
+        return SQL_QUERY_ANALYZE + strTableName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSqlReindexTable( String strTableName )
+    {
+        return SQL_QUERY_REINDEX_TABLE + strTableName;
+    }
+
+    /**
+     * {@inheritDoc} Tables that were never analyzed have a negative or zero estimate, which is considered unknown.
+     */
+    @Override
+    public long getEstimatedRowCount( Connection connection, String strTableName ) throws SQLException
+    {
+        long lRowCount = queryNumber( connection, SQL_QUERY_SELECT_RELTUPLES, strTableName );
+        return lRowCount > 0 ? lRowCount : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IBulkLoader getBulkLoader( )
+    {
+        return _bulkLoader;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manager of SQL dialects
+ */
+public final class SqlDialectManager
+{
+    private static final ISqlDialect DEFAULT_DIALECT = new GenericSqlDialect( );
+
+    private static List<ISqlDialect> _listDialects = new ArrayList<ISqlDialect>( );
+
+    static
+    {
+        _listDialects.add( new MySqlDialect( ) );
+        _listDialects.add( new PostgreSqlDialect( ) );
+        _listDialects.add( new H2Dialect( ) );
+        _listDialects.add( new HsqlDbDialect( ) );
+    }
+
+    /**
+     * Private constructor
+     */
+    private SqlDialectManager( )
+    {
+    }
+
+    /**
+     * Register a SQL dialect. Dialects registered last are checked first
+     * 
+     * @param sqlDialect
+     *            The SQL dialect to register
+     */
+    public static void registerDialect( ISqlDialect sqlDialect )
+    {
+        _listDialects.add( 0, sqlDialect );
+    }
+
+    /**
+     * Get the SQL dialect of the database of a connection
+     * 
+     * @param connection
+     *            The connection
+     * @return The SQL dialect of the database, or a generic dialect if no dialect matches the database
+     */
+    public static ISqlDialect getDialect( Connection connection )
+    {
+        try
+        {
+            String strDatabaseProductName = connection.getMetaData( ).getDatabaseProductName( );
+            for ( ISqlDialect sqlDialect : _listDialects )
+            {
+                if ( sqlDialect.isValidDialect( strDatabaseProductName ) )
+                {
+                    return sqlDialect;
+                }
+            }
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        return DEFAULT_DIALECT;
+    }
+}
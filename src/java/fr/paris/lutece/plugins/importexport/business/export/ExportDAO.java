@@ -37,6 +37,8 @@ import fr.paris.lutece.plugins.importexport.business.AbstractImportExportDAO;
 import fr.paris.lutece.plugins.importexport.business.ColumnType;
 import fr.paris.lutece.plugins.importexport.business.ImportExportElement;
 import fr.paris.lutece.plugins.importexport.business.TableColumn;
+import fr.paris.lutece.plugins.importexport.business.codec.CodecRegistry;
+import fr.paris.lutece.plugins.importexport.business.codec.IValueCodec;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
@@ -44,7 +46,6 @@ import fr.paris.lutece.util.sql.DAOUtil;
 
 import java.sql.Date;
 import java.sql.Timestamp;
-import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -80,6 +81,12 @@ public class ExportDAO extends AbstractImportExportDAO
         DAOUtil daoUtil = new DAOUtil( getSqlSelect( strTableName, listColumns ), plugin );
         try
         {
+            // The codec of every column is resolved once for the whole export
+            IValueCodec [ ] codecs = new IValueCodec [ listTableColumns.size( )];
+            for ( int i = 0; i < codecs.length; i++ )
+            {
+                codecs [i] = CodecRegistry.getCodec( strTableName, listTableColumns.get( i ) );
+            }
             daoUtil.executeQuery( );
             while ( daoUtil.next( ) )
             {
@@ -87,7 +94,7 @@ public class ExportDAO extends AbstractImportExportDAO
                 List<ImportExportElement> listElements = new ArrayList<ImportExportElement>( listTableColumns.size( ) );
                 for ( TableColumn tableColumn : listTableColumns )
                 {
-                    String strValue = getElementValue( daoUtil, tableColumn.getColumnType( ), nIndex++ );
+                    String strValue = getElementValue( daoUtil, tableColumn.getColumnType( ), codecs [nIndex - 1], nIndex++ );
                     ImportExportElement element = new ImportExportElement( );
                     element.setColumnName( tableColumn.getColumnName( ) );
                     element.setValue( strValue );
@@ -144,14 +151,21 @@ public class ExportDAO extends AbstractImportExportDAO
      * @param daoUtil
      *            The daoUtil to get the value from
      * @param columnType
-     *            The column type of the element to get
+     *            The column type of the element to get, or null if the type of the column is not supported
+     * @param codec
+     *            The codec of the column, or null if the column does not need a codec
      * @param nIndex
      *            The index of the element in the DAO.
      * @return The string representation of the element, or an empty string if the value could not be retrieved
      */
-    private String getElementValue( DAOUtil daoUtil, ColumnType columnType, int nIndex )
+    private String getElementValue( DAOUtil daoUtil, ColumnType columnType, IValueCodec codec, int nIndex )
     {
         String strResult = StringUtils.EMPTY;
+        // Values of columns of types that are not supported are exported as the strings returned by the driver
+        if ( columnType == null )
+        {
+            return StringUtils.defaultString( daoUtil.getString( nIndex ) );
+        }
         switch( columnType )
         {
             case TYPE_INT:
@@ -169,14 +183,14 @@ public class ExportDAO extends AbstractImportExportDAO
                 Timestamp timestamp = daoUtil.getTimestamp( nIndex );
                 if ( timestamp != null )
                 {
-                    strResult = Long.toString( timestamp.getTime( ) );
+                    strResult = codec.format( timestamp );
                 }
                 break;
             case TYPE_DATE:
                 Date date = daoUtil.getDate( nIndex );
                 if ( date != null )
                 {
-                    strResult = DateFormat.getDateInstance( ).format( date );
+                    strResult = codec.format( date );
                 }
                 break;
             case TYPE_BYTE:
@@ -190,6 +204,12 @@ public class ExportDAO extends AbstractImportExportDAO
                 double dValue = daoUtil.getDouble( nIndex );
                 strResult = Double.toString( dValue );
                 break;
+            case TYPE_DECIMAL:
+                strResult = StringUtils.defaultString( daoUtil.getString( nIndex ) );
+                break;
+            case TYPE_BOOLEAN:
+                strResult = Boolean.toString( daoUtil.getBoolean( nIndex ) );
+                break;
             default:
                 AppLogService.error( "Error : unknown column type !" );
         }
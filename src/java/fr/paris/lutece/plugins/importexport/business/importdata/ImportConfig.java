@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.importdata;
+
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.Locale;
+
+/**
+ * Class that represents the configuration of an import job
+ */
+public class ImportConfig
+{
+    private String _strTableName;
+    private String _strFingerprint;
+    private boolean _bUpdateExistingRows;
+    private boolean _bStopOnErrors;
+    private boolean _bEmptyTable;
+    private Plugin _plugin;
+    private Locale _locale;
+    private int _nParallelism = 1;
+    private JobProgress _progress = new JobProgress( );
+    private String _strIdClusterJob;
+
+    /**
+     * Get the name of the table of the database to import data in
+     * 
+     * @return The name of the table
+     */
+    public String getTableName( )
+    {
+        return _strTableName;
+    }
+
+    /**
+     * Set the name of the table of the database to import data in
+     * 
+     * @param strTableName
+     *            The name of the table
+     */
+    public void setTableName( String strTableName )
+    {
+        this._strTableName = strTableName;
+    }
+
+    /**
+     * Get the fingerprint of the imported file
+     * 
+     * @return The fingerprint of the imported file, or null if the import must not be resumed after an interruption
+     */
+    public String getFingerprint( )
+    {
+        return _strFingerprint;
+    }
+
+    /**
+     * Set the fingerprint of the imported file
+     * 
+     * @param strFingerprint
+     *            The fingerprint of the imported file, or null if the import must not be resumed after an interruption
+     */
+    public void setFingerprint( String strFingerprint )
+    {
+        this._strFingerprint = strFingerprint;
+    }
+
+    /**
+     * Check if existing rows should be updated
+     * 
+     * @return True to update existing rows, false to ignore them
+     */
+    public boolean getUpdateExistingRows( )
+    {
+        return _bUpdateExistingRows;
+    }
+
+    /**
+     * Set whether existing rows should be updated
+     * 
+     * @param bUpdateExistingRows
+     *            True to update existing rows, false to ignore them
+     */
+    public void setUpdateExistingRows( boolean bUpdateExistingRows )
+    {
+        this._bUpdateExistingRows = bUpdateExistingRows;
+    }
+
+    /**
+     * Check if the import should stop when an error occurs
+     * 
+     * @return True to stop when an error occurred, false to skip the item and continue
+     */
+    public boolean getStopOnErrors( )
+    {
+        return _bStopOnErrors;
+    }
+
+    /**
+     * Set whether the import should stop when an error occurs
+     * 
+     * @param bStopOnErrors
+     *            True to stop when an error occurred, false to skip the item and continue
+     */
+    public void setStopOnErrors( boolean bStopOnErrors )
+    {
+        this._bStopOnErrors = bStopOnErrors;
+    }
+
+    /**
+     * Check if the table should be emptied before importing data
+     * 
+     * @return True to empty the table before importing data, false otherwise
+     */
+    public boolean getEmptyTable( )
+    {
+        return _bEmptyTable;
+    }
+
+    /**
+     * Set whether the table should be emptied before importing data
+     * 
+     * @param bEmptyTable
+     *            True to empty the table before importing data, false otherwise
+     */
+    public void setEmptyTable( boolean bEmptyTable )
+    {
+        this._bEmptyTable = bEmptyTable;
+    }
+
+    /**
+     * Get the plugin associated with the pool of the table
+     * 
+     * @return The plugin
+     */
+    public Plugin getPlugin( )
+    {
+        return _plugin;
+    }
+
+    /**
+     * Set the plugin associated with the pool of the table
+     * 
+     * @param plugin
+     *            The plugin
+     */
+    public void setPlugin( Plugin plugin )
+    {
+        this._plugin = plugin;
+    }
+
+    /**
+     * Get the locale to display messages in
+     * 
+     * @return The locale
+     */
+    public Locale getLocale( )
+    {
+        return _locale;
+    }
+
+    /**
+     * Set the locale to display messages in
+     * 
+     * @param locale
+     *            The locale
+     */
+    public void setLocale( Locale locale )
+    {
+        this._locale = locale;
+    }
+
+    /**
+     * Get the number of workers that write rows into the database in parallel
+     * 
+     * @return The number of workers
+     */
+    public int getParallelism( )
+    {
+        return _nParallelism;
+    }
+
+    /**
+     * Set the number of workers that write rows into the database in parallel. Rows are partitioned between workers by their primary key
+     * 
+     * @param nParallelism
+     *            The number of workers
+     */
+    public void setParallelism( int nParallelism )
+    {
+        this._nParallelism = nParallelism;
+    }
+
+    /**
+     * Get the progress of the import, that is updated while the import is running
+     * 
+     * @return The progress of the import
+     */
+    public JobProgress getProgress( )
+    {
+        return _progress;
+    }
+
+    /**
+     * Set the progress of the import
+     * 
+     * @param progress
+     *            The progress of the import
+     */
+    public void setProgress( JobProgress progress )
+    {
+        this._progress = progress;
+    }
+
+    /**
+     * Get the id of the cluster job that runs the import
+     * 
+     * @return The id of the cluster job, or null if the import is not run by a cluster job
+     */
+    public String getIdClusterJob( )
+    {
+        return _strIdClusterJob;
+    }
+
+    /**
+     * Set the id of the cluster job that runs the import. The lease of the node on the job is checked before each commit of the import
+     * 
+     * @param strIdClusterJob
+     *            The id of the cluster job
+     */
+    public void setIdClusterJob( String strIdClusterJob )
+    {
+        this._strIdClusterJob = strIdClusterJob;
+    }
+}
@@ -34,28 +34,41 @@
 package fr.paris.lutece.plugins.importexport.business.importdata;
 
 import fr.paris.lutece.plugins.importexport.business.AbstractImportExportDAO;
-import fr.paris.lutece.plugins.importexport.business.ColumnType;
 import fr.paris.lutece.plugins.importexport.business.ImportExportElement;
+import fr.paris.lutece.plugins.importexport.business.ImportRowBlock;
 import fr.paris.lutece.plugins.importexport.business.TableColumn;
+import fr.paris.lutece.plugins.importexport.business.binder.ColumnBinder;
+import fr.paris.lutece.plugins.importexport.business.binder.InvalidValueException;
+import fr.paris.lutece.plugins.importexport.business.binder.StringColumnBinder;
+import fr.paris.lutece.plugins.importexport.business.dialect.IBulkLoader;
+import fr.paris.lutece.plugins.importexport.business.dialect.ISqlDialect;
+import fr.paris.lutece.plugins.importexport.business.dialect.SqlDialectManager;
+import fr.paris.lutece.plugins.importexport.service.TableMetadataCacheService;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.sql.DAOUtil;
 import fr.paris.lutece.util.sql.Transaction;
 
-import java.sql.Date;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.sql.Types;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.util.Iterator;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
-import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -74,28 +87,79 @@ public class ImportDataDAO extends AbstractImportExportDAO
     private static final String SQL_QUERY_WHERE = " WHERE ";
     private static final String SQL_QUERY_AND = " AND ";
     private static final String SQL_QUERY_DELETE_FROM = " DELETE FROM ";
+    private static final String SQL_QUERY_IN = " IN ";
+    private static final String SQL_QUERY_UNION_ALL = " UNION ALL ";
+    private static final String SQL_QUERY_SELECT_COUNT = " SELECT COUNT(*) FROM ";
+    private static final String SQL_QUERY_NOT_EXISTS = " NOT EXISTS ( SELECT 1 FROM ";
+    private static final String SQL_QUERY_IS_NOT_NULL = " IS NOT NULL ";
+    private static final String SQL_QUERY_EQUALS_COLUMN = " = ";
+    private static final String SQL_ALIAS_CHILD = " c ";
+    private static final String SQL_ALIAS_PARENT = " p ";
+    private static final String ALIAS_CHILD = "c.";
+    private static final String ALIAS_PARENT = "p.";
 
     private static final String CONSTANT_QUESTION_MARK = "?";
     private static final String CONSTANT_COMA = ",";
     private static final String CONSTANT_OPEN_PARENTHESIS = " ( ";
     private static final String CONSTANT_CLOSE_PARENTHESIS = " ) ";
     private static final String CONSTANT_SEMICOLON = ";";
-    private static final String CONSTANT_STRING_NULL = "null";
-    private static final String CONSTANT_HEXA_START = "0x";
 
     private static final String ERROR_EMPTY_TABLE_NAME = "importexport.import_data.errors.emptyTableName";
     private static final String ERROR_EMPTY_COLUMN_LIST = "importexport.import_data.errors.emptyColumnList";
     private static final String ERROR_MESSAGE_TRANSACTION_CLOSED = "importexport.import_data.errors.transactionClosed";
     private static final String ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE = "importexport.import_data.errors.emptyColumnList";
+    private static final String ERROR_MESSAGE_BATCH_ABORTED = "importexport.import_data.errors.batchAborted";
+
+    private static final String PROPERTY_BATCH_SIZE = "importexport.importdata.batchSize";
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final String PROPERTY_LOOKUP_SIZE = "importexport.importdata.lookupSize";
+    private static final int DEFAULT_LOOKUP_SIZE = 500;
+    private static final String SUFFIX_STAGING_TABLE = "_imp_stg";
+    private static final String SUFFIX_OLD_TABLE = "_imp_old";
+    private static final String SUFFIX_TEMP_TABLE = "_imp_tmp";
+
+    private static final String PROPERTY_NATIVE_UPSERT = "importexport.importdata.nativeUpsert";
+    private static final String PROPERTY_BULK_LOAD = "importexport.importdata.bulkLoad";
+    private static final String PROPERTY_BATCH_BISECTION = "importexport.importdata.batchBisection";
+    private static final String PROPERTY_REJECT_FILE = "importexport.importdata.rejectFile";
+
+    private static final int BATCH_INSERT = 0;
+    private static final int BATCH_UPDATE = 1;
+    private static final int BATCH_UPSERT = 2;
 
     private String _strSqlInsert;
     private String _strSqlUpdate;
+    private String _strSqlUpsert;
     private String _sqlCheckElement;
     private List<TableColumn> _listTableColumns;
     private String _strTableName;
+    private String _strWriteTableName;
     private Transaction _transaction;
     private Plugin _plugin;
     private Locale _locale;
+    private String _strErrorWrongRow;
+    private boolean _bKeepSourceValues;
+    private ISqlDialect _sqlDialect;
+    private ColumnBinder [ ] _binders;
+    private IBulkLoader _bulkLoader;
+    private volatile List<String> _listCheckedColumnsName;
+    private int _nBatchSize;
+    private int _nLookupSize;
+    private Map<String, PreparedStatement> _mapStatements = new HashMap<String, PreparedStatement>( );
+    private List<Integer> _listPendingInserts = new ArrayList<Integer>( );
+    private List<Integer> _listPendingUpdates = new ArrayList<Integer>( );
+    private List<Integer> _listPendingUpserts = new ArrayList<Integer>( );
+    private List<Boolean> _listPendingUpsertsExisting = new ArrayList<Boolean>( );
+    private List<Object [ ]> _listPendingInsertValues = new ArrayList<Object [ ]>( );
+    private List<Object [ ]> _listPendingUpdateValues = new ArrayList<Object [ ]>( );
+    private List<Object [ ]> _listPendingUpsertValues = new ArrayList<Object [ ]>( );
+    private int _nCreatedElements;
+    private int _nUpdatedElements;
+    private int _nMergedCreatedElements;
+    private int _nMergedUpdatedElements;
+    private boolean _bConstraintsDeferred;
+    private boolean _bTableReplaced;
+    private Boolean _bSavepointsSupported;
 
     /**
      * Creates a new DAO to import elements. When the DAO is created, a database connection is opened. Therefore, either methods {@link #commitTransaction} or
@@ -125,79 +189,330 @@ public class ImportDataDAO extends AbstractImportExportDAO
 
         // We create the list of columns of the required table
         this._strTableName = strTableName;
+        this._strWriteTableName = strTableName;
         this._plugin = plugin;
         this._locale = locale;
+        // Errors of rows are reported with a message localized once, since dirty import sources may have millions of invalid rows
+        this._strErrorWrongRow = I18nService.getLocalizedString( ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE, locale );
         this._listTableColumns = getTableColumns( listTableColumns, strTableName, plugin, locale );
+        // The binder of every column is resolved once, so that values are converted and bound without checking the type of their column
+        this._binders = new ColumnBinder [ _listTableColumns.size( )];
+        for ( int i = 0; i < _binders.length; i++ )
+        {
+            _binders [i] = ColumnBinder.getBinder( strTableName, _listTableColumns.get( i ) );
+        }
+        // Source values of rows are only kept to write rejected rows into the reject file of the import
+        this._bKeepSourceValues = AppPropertiesService.getPropertyBoolean( PROPERTY_REJECT_FILE, true );
+        this._nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+        this._nLookupSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_LOOKUP_SIZE, DEFAULT_LOOKUP_SIZE ) );
         _transaction = new Transaction( );
         if ( _transaction.getStatus( ) != Transaction.OPENED )
         {
             throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_TRANSACTION_CLOSED, _locale ) );
         }
+        _sqlDialect = SqlDialectManager.getDialect( _transaction.getConnection( ) );
+        if ( _sqlDialect != null && AppPropertiesService.getPropertyBoolean( PROPERTY_BULK_LOAD, false ) )
+        {
+            IBulkLoader bulkLoader = _sqlDialect.getBulkLoader( );
+            if ( bulkLoader != null && bulkLoader.isSupported( _listTableColumns ) )
+            {
+                _bulkLoader = bulkLoader;
+            }
+        }
     }
 
     /**
-     * Insert an element to the database. The transaction is NOT committed by this method.
+     * Convert the elements of a row read from the import source into the Java types of the columns of this DAO. This method does not use the transaction of
+     * this DAO, and can therefore be called by any thread.
      * 
      * @param listElements
-     *            The list of elements to add in the statement. The number of elements and the name of columns must be the same as the columns associated with
-     *            this DAO. <br />
+     *            The list of elements of the row. The number of elements and the name of columns must be the same as the columns associated with this DAO.
+     *            <br />
      *            Their order must also be the same.
-     * @throws AppException
-     *             If an error occurred during the insertion
-     * @throws SQLException
-     *             If an error occurred with the database
+     * @param nItemNumber
+     *            The number of the item in the import source
+     * @return The converted row. If the elements are not valid, the row has no values and its error is set
      */
-    public void insertElement( List<ImportExportElement> listElements ) throws AppException, SQLException
+    public ImportRow convertRow( List<ImportExportElement> listElements, int nItemNumber )
     {
-        if ( _transaction == null || _transaction.getStatus( ) != Transaction.OPENED )
+        ImportRow row = new ImportRow( nItemNumber );
+        if ( _bKeepSourceValues && listElements != null )
         {
-            throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_TRANSACTION_CLOSED, _locale ) );
+            String [ ] strSourceValues = new String [ listElements.size( )];
+            for ( int i = 0; i < strSourceValues.length; i++ )
+            {
+                strSourceValues [i] = listElements.get( i ).getValue( );
+            }
+            row.setSourceValues( strSourceValues );
         }
         if ( listElements == null || listElements.size( ) != _listTableColumns.size( ) )
         {
-            AppException appException = new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE, _locale ) );
-            int nElemNumber = 0;
-            if ( listElements != null )
+            if ( AppLogService.isDebugEnabled( ) )
             {
-                nElemNumber = listElements.size( );
+                int nElemNumber = listElements == null ? 0 : listElements.size( );
+                AppLogService.debug( _strErrorWrongRow + " expected " + _listTableColumns.size( ) + " elements, found " + nElemNumber );
             }
-            AppLogService.info( appException.getMessage( ) + " expected " + _listTableColumns.size( ) + " elements, found " + nElemNumber );
-            throw appException;
+            row.setError( _strErrorWrongRow );
+            return row;
         }
-        _transaction.prepareStatement( getSqlInsert( ) );
-        int nIndex = 1;
-        Iterator<TableColumn> columnIterator = _listTableColumns.iterator( );
-        for ( ImportExportElement element : listElements )
+        try
         {
-            TableColumn tableColumn = columnIterator.next( );
-            // If the two lists are not synchronized, we throw an exception to skip this item
-            if ( !StringUtils.equalsIgnoreCase( tableColumn.getColumnName( ), element.getColumnName( ) ) )
+            Object [ ] values = new Object [ _listTableColumns.size( )];
+            for ( int i = 0; i < values.length; i++ )
             {
-                throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE, _locale ) );
+                TableColumn tableColumn = _listTableColumns.get( i );
+                ImportExportElement element = listElements.get( i );
+                // If the two lists are not synchronized, we skip this item
+                if ( !StringUtils.equalsIgnoreCase( tableColumn.getColumnName( ), element.getColumnName( ) ) )
+                {
+                    row.setError( _strErrorWrongRow );
+                    return row;
+                }
+                values [i] = _binders [i].convert( element.getValue( ) );
             }
-            addSqlParameter( nIndex++, element.getValue( ), tableColumn.getColumnType( ) );
+            setRowValues( row, values );
         }
-        _transaction.executeStatement( );
+        catch( SQLException e )
+        {
+            row.setError( e.getMessage( ) );
+        }
+        return row;
     }
 
     /**
-     * Update an element of the database. The transaction is NOT committed by this method.
+     * Convert every row of a block read from the import source into the Java types of the columns of this DAO. Values are read directly from the columns
+     * of the block, and the names of columns are only checked once for the whole block. This method does not use the transaction of this DAO, and can
+     * therefore be called by any thread.
      * 
-     * @param listElements
-     *            The list of elements to add in the statement. The number of elements and the name of columns must be the same as the columns associated with
-     *            this DAO. <br />
-     *            Their order must also be the same.
+     * @param block
+     *            The block of rows. The names of columns must be the same as the columns associated with this DAO, in the same order.
+     * @param nLastItemNumber
+     *            The number of the item that was read from the import source before the first row of the block
+     * @return The list of converted rows. Rows that are not valid have no values and their error is set
+     */
+    public List<ImportRow> convertRows( ImportRowBlock block, int nLastItemNumber )
+    {
+        List<ImportRow> listRows = new ArrayList<ImportRow>( block.getRowCount( ) );
+        String strBlockError = null;
+        List<String> listColumnsName = block.getColumnsName( );
+        // Blocks of a same import source share their header, so it is only checked once
+        if ( listColumnsName != _listCheckedColumnsName )
+        {
+            if ( listColumnsName.size( ) != _listTableColumns.size( ) )
+            {
+                strBlockError = _strErrorWrongRow;
+            }
+            for ( int i = 0; i < _listTableColumns.size( ) && strBlockError == null; i++ )
+            {
+                if ( !StringUtils.equalsIgnoreCase( _listTableColumns.get( i ).getColumnName( ), listColumnsName.get( i ) ) )
+                {
+                    strBlockError = _strErrorWrongRow;
+                }
+            }
+            if ( strBlockError == null )
+            {
+                _listCheckedColumnsName = listColumnsName;
+            }
+        }
+        for ( int nRow = 0; nRow < block.getRowCount( ); nRow++ )
+        {
+            ImportRow row = new ImportRow( nLastItemNumber + nRow + 1 );
+            listRows.add( row );
+            if ( _bKeepSourceValues )
+            {
+                row.setSourceValues( block.getSourceValues( nRow ) );
+            }
+            if ( strBlockError != null || !block.isValidRow( nRow ) )
+            {
+                row.setError( strBlockError != null ? strBlockError : _strErrorWrongRow );
+                continue;
+            }
+            try
+            {
+                Object [ ] values = new Object [ _listTableColumns.size( )];
+                for ( int i = 0; i < values.length; i++ )
+                {
+                    values [i] = _binders [i].convert( block.getValue( nRow, i ) );
+                }
+                setRowValues( row, values );
+            }
+            catch( SQLException e )
+            {
+                row.setError( e.getMessage( ) );
+            }
+        }
+        return listRows;
+    }
+
+    /**
+     * Set the converted values of a row, and compute its key
+     * 
+     * @param row
+     *            The row
+     * @param values
+     *            The converted values of the row, in the order of the columns of this DAO
+     */
+    private void setRowValues( ImportRow row, Object [ ] values )
+    {
+        List<String> listKey = new ArrayList<String>( 1 );
+        for ( int i = 0; i < values.length && listKey != null; i++ )
+        {
+            TableColumn tableColumn = _listTableColumns.get( i );
+            if ( tableColumn.getIsPrimaryKey( ) )
+            {
+                String strKeyValue = _binders [i].getKeyValue( values [i] );
+                if ( strKeyValue == null )
+                {
+                    listKey = null;
+                }
+                else
+                {
+                    listKey.add( strKeyValue );
+                }
+            }
+        }
+        row.setValues( values );
+        row.setKey( listKey );
+    }
+
+    /**
+     * Add a row to the batch of rows to insert into the database. The batch is only sent to the database by {@link #flushBatch()}, and the transaction is NOT
+     * committed by this method.
+     * 
+     * @param row
+     *            The row to insert, as converted by {@link #convertRow(List, int)}
      * @throws AppException
-     *             If an error occurred during the update
+     *             If the row is not valid, or if the transaction is closed
      * @throws SQLException
      *             If an error occurred with the database
      */
-    public void updateElement( List<ImportExportElement> listElements ) throws AppException, SQLException
+    public void insertRow( ImportRow row ) throws AppException, SQLException
     {
-        if ( _transaction == null || _transaction.getStatus( ) != Transaction.OPENED )
+        checkRow( row );
+        // Values are only bound to the statement when the batch is flushed, so that failed batches can be sent again
+        _listPendingInsertValues.add( row.getValues( ) );
+        _listPendingInserts.add( row.getItemNumber( ) );
+    }
+
+    /**
+     * Add a row to the batch of rows to insert into the database, or to update if a row with the same primary key already exists. The row is written with a
+     * single native statement of the SQL dialect of the database, so this method must only be called if {@link #isUpsertSupported()} returns true. The batch
+     * is only sent to the database by {@link #flushBatch()}, and the transaction is NOT committed by this method.
+     * 
+     * @param row
+     *            The row to write, as converted by {@link #convertRow(List, int)}
+     * @param bExisting
+     *            True if the row was found in the database before being written, false otherwise. This is only used to count created and updated elements
+     * @throws AppException
+     *             If the row is not valid, or if the transaction is closed
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void upsertRow( ImportRow row, boolean bExisting ) throws AppException, SQLException
+    {
+        checkRow( row );
+        _listPendingUpsertValues.add( row.getValues( ) );
+        _listPendingUpserts.add( row.getItemNumber( ) );
+        _listPendingUpsertsExisting.add( bExisting );
+    }
+
+    /**
+     * Check if rows can be written with a native upsert statement. Native upserts must be enabled, the SQL dialect of the database must support them, the
+     * table must have both primary key columns and other columns, and the key of the rows must be backed by a primary key or a unique index of the table,
+     * since native upserts only detect existing rows through the conflicts of a unique index. Rows written into a temporary table always use native upserts
+     * when the database supports them, so that rows whose keys are only equal for the collation of the database are merged into a single row of the
+     * temporary table, with the values of the last one.
+     * 
+     * @return True if {@link #upsertRow(ImportRow, boolean)} can be used, false otherwise
+     */
+    public boolean isUpsertSupported( )
+    {
+        boolean bTempTable = getTempTableName( ).equals( _strWriteTableName );
+        return ( bTempTable || AppPropertiesService.getPropertyBoolean( PROPERTY_NATIVE_UPSERT, true ) ) && hasUniqueKey( ) && getSqlUpsert( ) != null;
+    }
+
+    /**
+     * Check if the key of the rows of this DAO is backed by a primary key or a unique index of the table
+     * 
+     * @return True if every key column belongs to a unique key of the table, false otherwise
+     */
+    private boolean hasUniqueKey( )
+    {
+        for ( TableColumn tableColumn : _listTableColumns )
         {
-            throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_TRANSACTION_CLOSED, _locale ) );
+            if ( tableColumn.getIsPrimaryKey( ) && !tableColumn.getIsUniqueKey( ) )
+            {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Add a row to the batch of rows to update in the database. The batch is only sent to the database by {@link #flushBatch()}, and the transaction is NOT
+     * committed by this method.
+     * 
+     * @param row
+     *            The row to update, as converted by {@link #convertRow(List, int)}
+     * @throws AppException
+     *             If the row is not valid, or if the transaction is closed
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void updateRow( ImportRow row ) throws AppException, SQLException
+    {
+        checkRow( row );
+        _listPendingUpdateValues.add( row.getValues( ) );
+        _listPendingUpdates.add( row.getItemNumber( ) );
+    }
+
+    /**
+     * Add an element to the batch of rows to insert into the database. The batch is only sent to the database by {@link #flushBatch()}, and the transaction
+     * is NOT committed by this method.
+     * 
+     * @param listElements
+     *            The list of elements of the row to insert
+     * @param nItemNumber
+     *            The number of the item in the import source
+     * @throws AppException
+     *             If the elements are not valid, or if the transaction is closed
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void insertElement( List<ImportExportElement> listElements, int nItemNumber ) throws AppException, SQLException
+    {
+        insertRow( convertRow( listElements, nItemNumber ) );
+    }
+
+    /**
+     * Add an element to the batch of rows to update in the database. The batch is only sent to the database by {@link #flushBatch()}, and the transaction is
+     * NOT committed by this method.
+     * 
+     * @param listElements
+     *            The list of elements of the row to update
+     * @param nItemNumber
+     *            The number of the item in the import source
+     * @throws AppException
+     *             If the elements are not valid, or if the transaction is closed
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void updateElement( List<ImportExportElement> listElements, int nItemNumber ) throws AppException, SQLException
+    {
+        updateRow( convertRow( listElements, nItemNumber ) );
+    }
+
+    /**
+     * Check if a row already exists in the database
+     * 
+     * @param listElements
+     *            The list of elements to check the existence of
+     * @return True if the element exists, false otherwise
+     * @throws SQLException
+     *             If an error occur while checking the existence of the element
+     */
+    public boolean checkElementExists( List<ImportExportElement> listElements ) throws SQLException
+    {
         if ( listElements == null || listElements.size( ) != _listTableColumns.size( ) )
         {
             AppException appException = new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE, _locale ) );
@@ -206,99 +521,1170 @@ public class ImportDataDAO extends AbstractImportExportDAO
             {
                 nElemNumber = listElements.size( );
             }
-            AppLogService.info( appException.getMessage( ) + " expected " + _listTableColumns.size( ) + " elements, found " + nElemNumber );
+            AppLogService.debug( appException.getMessage( ) + " expected " + _listTableColumns.size( ) + " elements, found " + nElemNumber );
             throw appException;
         }
-        _transaction.prepareStatement( getSqlUpdate( ) );
-        int nIndex = 1;
-        Iterator<TableColumn> columnIterator = _listTableColumns.iterator( );
-        for ( ImportExportElement element : listElements )
+        DAOUtil daoUtil = new DAOUtil( getSqlCheckElementExists( ), _plugin );
+        boolean bResult = false;
+        try
         {
-            TableColumn tableColumn = columnIterator.next( );
-            // We skip primary keys that must be added at the end
-            if ( !tableColumn.getIsPrimaryKey( ) )
+            int nIndex = 1;
+            for ( int i = 0; i < _listTableColumns.size( ); i++ )
             {
-                // If the two lists are not synchronized, we throw an exception to skip this item
-                if ( !StringUtils.equalsIgnoreCase( tableColumn.getColumnName( ), element.getColumnName( ) ) )
+                if ( _listTableColumns.get( i ).getIsPrimaryKey( ) )
+                {
+                    _binders [i].bind( daoUtil, nIndex++, _binders [i].convert( listElements.get( i ).getValue( ) ) );
+                }
+            }
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                bResult = true;
+            }
+        }
+        // Invalid values are errors of the row, so they are not logged with a stack trace
+        catch( InvalidValueException e )
+        {
+            AppLogService.debug( "Existence of a row of table " + _strTableName + " could not be checked : " + e.getMessage( ) );
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+
+        return bResult;
+    }
+
+    /**
+     * Get the keys of a list of rows that already exist in the database. Keys are looked up with a single query for the whole list of rows, through the
+     * connection of the transaction of this DAO. Pending batches must therefore be {@link #flushBatch() flushed} before calling this method to take into
+     * account rows previously written by the import. Character keys are compared by the database, since the collation of their columns may ignore case or
+     * trailing spaces.
+     * 
+     * @param listRows
+     *            The list of rows to check the existence of. Rows that could not be converted or that have no key are ignored
+     * @return The set of keys of rows that exist in the database, as returned by {@link ImportRow#getKey()}
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public Set<List<String>> findExistingKeys( List<ImportRow> listRows ) throws SQLException
+    {
+        Set<List<String>> setExistingKeys = new HashSet<List<String>>( );
+        // We only look up distinct and valid keys
+        Map<List<String>, ImportRow> mapKeys = new LinkedHashMap<List<String>, ImportRow>( );
+        for ( ImportRow row : listRows )
+        {
+            if ( row.getError( ) == null && row.getKey( ) != null && !mapKeys.containsKey( row.getKey( ) ) )
+            {
+                mapKeys.put( row.getKey( ), row );
+            }
+        }
+        if ( mapKeys.isEmpty( ) )
+        {
+            return setExistingKeys;
+        }
+
+        List<TableColumn> listKeyColumns = getKeyColumns( );
+        List<ImportRow> listKeyRows = new ArrayList<ImportRow>( mapKeys.values( ) );
+        // Keys read from the database may not be equal to the keys they matched, so rows with character keys are found by their position in the query
+        boolean bCollatedKey = isCollatedKey( );
+        String strSql = bCollatedKey ? getSqlFindExistingPositions( listKeyColumns, listKeyRows.size( ) )
+                : getSqlFindExistingKeys( listKeyColumns, listKeyRows.size( ) );
+        PreparedStatement statement = _transaction.getConnection( ).prepareStatement( strSql );
+        try
+        {
+            int nIndex = 1;
+            for ( ImportRow row : listKeyRows )
+            {
+                for ( int i = 0; i < _listTableColumns.size( ); i++ )
+                {
+                    TableColumn tableColumn = _listTableColumns.get( i );
+                    if ( tableColumn.getIsPrimaryKey( ) )
+                    {
+                        _binders [i].bind( statement, nIndex++, row.getValues( ) [i] );
+                    }
+                }
+            }
+            ResultSet resultSet = statement.executeQuery( );
+            while ( resultSet.next( ) )
+            {
+                if ( bCollatedKey )
+                {
+                    setExistingKeys.add( listKeyRows.get( resultSet.getInt( 1 ) ).getKey( ) );
+                }
+                else
                 {
-                    throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE, _locale ) );
+                    List<String> listKey = new ArrayList<String>( listKeyColumns.size( ) );
+                    for ( int i = 0; i < listKeyColumns.size( ); i++ )
+                    {
+                        ColumnBinder binder = ColumnBinder.getBinder( listKeyColumns.get( i ).getColumnType( ) );
+                        listKey.add( binder.getKeyValue( binder.read( resultSet, i + 1 ) ) );
+                    }
+                    setExistingKeys.add( listKey );
                 }
-                addSqlParameter( nIndex++, element.getValue( ), tableColumn.getColumnType( ) );
             }
+            resultSet.close( );
+        }
+        finally
+        {
+            statement.close( );
+        }
+
+        return setExistingKeys;
+    }
+
+    /**
+     * Get the maximum number of rows whose existence is checked with a single query
+     * 
+     * @return The number of rows to check at once
+     */
+    public int getLookupSize( )
+    {
+        return _nLookupSize;
+    }
+
+    /**
+     * Remove every data from the table.
+     * 
+     * @throws SQLException
+     *             If an error occurs
+     */
+    public void emptyTable( ) throws SQLException
+    {
+        _transaction.prepareStatement( SQL_QUERY_DELETE_FROM + _strWriteTableName );
+        _transaction.executeStatement( );
+    }
+
+    /**
+     * Remove every data from the table with a TRUNCATE statement when the database supports it within the current transaction, so that the table is
+     * restored if the import is rolled back. The statement is executed within a savepoint, so that the transaction can still be used if the table cannot be
+     * truncated, for instance because it is referenced by a foreign key.
+     * 
+     * @return True if the table was truncated, false if it must be emptied by {@link #emptyTable()}
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public boolean truncateTable( ) throws SQLException
+    {
+        String strSql = _sqlDialect == null || !_sqlDialect.isTransactionalDdl( ) ? null : _sqlDialect.getSqlTruncateTable( _strWriteTableName );
+        if ( strSql == null )
+        {
+            return false;
+        }
+        Connection connection = _transaction.getConnection( );
+        Savepoint savepoint = connection.setSavepoint( );
+        try
+        {
+            executeStatement( strSql );
+        }
+        catch( SQLException e )
+        {
+            AppLogService.info( "Table " + _strWriteTableName + " could not be truncated : " + e.getMessage( ) );
+            connection.rollback( savepoint );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Postpone the checks of foreign keys of the rows written by this DAO, when the database supports it. Checks stay postponed after chunks are committed,
+     * until {@link #restoreConstraints()} is called.
+     * 
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void deferConstraints( ) throws SQLException
+    {
+        String strSql = _sqlDialect == null ? null : _sqlDialect.getSqlDisableConstraints( );
+        if ( strSql != null )
+        {
+            executeStatement( strSql );
+            _bConstraintsDeferred = true;
+        }
+    }
+
+    /**
+     * Restore the checks of foreign keys postponed by {@link #deferConstraints()}. Depending on the database, rows written while checks were postponed are
+     * checked by this method, or must be checked by {@link #findForeignKeyViolations()} once the import is committed.
+     * 
+     * @throws SQLException
+     *             If an error occurred with the database, or if a postponed check failed
+     */
+    public void restoreConstraints( ) throws SQLException
+    {
+        if ( _bConstraintsDeferred )
+        {
+            _bConstraintsDeferred = false;
+            executeStatement( _sqlDialect.getSqlEnableConstraints( ) );
+        }
+    }
+
+    /**
+     * Restore the checks of foreign keys before the transaction is closed, without failing if they cannot be restored
+     */
+    private void restoreConstraintsQuietly( )
+    {
+        try
+        {
+            restoreConstraints( );
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Check if foreign keys of rows written while checks were postponed must be validated by {@link #findForeignKeyViolations()}
+     * 
+     * @return True if foreign keys must be validated, false otherwise
+     */
+    public boolean isForeignKeyValidationNeeded( )
+    {
+        return _sqlDialect != null && _sqlDialect.getSqlDisableConstraints( ) != null && !_sqlDialect.isConstraintsCheckedOnEnable( );
+    }
+
+    /**
+     * Count the rows of the table whose foreign keys reference missing rows. This method uses a transaction of its own, so that it can be called once the
+     * import is committed.
+     * 
+     * @return The map of numbers of invalid rows, by name of foreign key. Foreign keys without invalid rows are not included
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public Map<String, Integer> findForeignKeyViolations( ) throws SQLException
+    {
+        Map<String, Integer> mapViolations = new LinkedHashMap<String, Integer>( );
+        Transaction transaction = new Transaction( );
+        try
+        {
+            Connection connection = transaction.getConnection( );
+            Map<String, StringBuilder> mapSqlChecks = new LinkedHashMap<String, StringBuilder>( );
+            Map<String, StringBuilder> mapSqlJoins = new LinkedHashMap<String, StringBuilder>( );
+            DatabaseMetaData metaData = connection.getMetaData( );
+            String strTable = getMetadataTableName( metaData, _strTableName );
+            ResultSet resultSet = metaData.getImportedKeys( connection.getCatalog( ), connection.getSchema( ), strTable );
+            try
+            {
+                while ( resultSet.next( ) )
+                {
+                    String strForeignKeyName = resultSet.getString( "FK_NAME" );
+                    String strColumnName = resultSet.getString( "FKCOLUMN_NAME" );
+                    StringBuilder sbCheck = mapSqlChecks.get( strForeignKeyName );
+                    StringBuilder sbJoin = mapSqlJoins.get( strForeignKeyName );
+                    if ( sbCheck == null )
+                    {
+                        sbCheck = new StringBuilder( SQL_QUERY_SELECT_COUNT ).append( _strTableName ).append( SQL_ALIAS_CHILD ).append( SQL_QUERY_WHERE );
+                        sbJoin = new StringBuilder( SQL_QUERY_NOT_EXISTS ).append( resultSet.getString( "PKTABLE_NAME" ) ).append( SQL_ALIAS_PARENT )
+                                .append( SQL_QUERY_WHERE );
+                        mapSqlChecks.put( strForeignKeyName, sbCheck );
+                        mapSqlJoins.put( strForeignKeyName, sbJoin );
+                    }
+                    else
+                    {
+                        sbJoin.append( SQL_QUERY_AND );
+                    }
+                    // Rows with a null foreign key column do not reference any row
+                    sbCheck.append( ALIAS_CHILD ).append( strColumnName ).append( SQL_QUERY_IS_NOT_NULL ).append( SQL_QUERY_AND );
+                    sbJoin.append( ALIAS_PARENT ).append( resultSet.getString( "PKCOLUMN_NAME" ) ).append( SQL_QUERY_EQUALS_COLUMN ).append( ALIAS_CHILD )
+                            .append( strColumnName );
+                }
+            }
+            finally
+            {
+                resultSet.close( );
+            }
+            for ( Map.Entry<String, StringBuilder> entry : mapSqlChecks.entrySet( ) )
+            {
+                String strSql = entry.getValue( ).append( mapSqlJoins.get( entry.getKey( ) ) ).append( CONSTANT_CLOSE_PARENTHESIS ).toString( );
+                PreparedStatement statement = connection.prepareStatement( strSql );
+                try
+                {
+                    ResultSet resultSetCount = statement.executeQuery( );
+                    if ( resultSetCount.next( ) && resultSetCount.getInt( 1 ) > 0 )
+                    {
+                        mapViolations.put( entry.getKey( ), resultSetCount.getInt( 1 ) );
+                    }
+                }
+                finally
+                {
+                    statement.close( );
+                }
+            }
+            transaction.commit( );
+        }
+        catch( SQLException e )
+        {
+            transaction.rollback( e );
+            throw e;
+        }
+        return mapViolations;
+    }
+
+    /**
+     * Drop the secondary indexes of the table rows are written into, when the database supports it. Primary keys and unique indexes are kept, since they are
+     * needed to find existing rows. Databases whose DDL statements are not transactional commit the current transaction before dropping an index, so indexes
+     * must not be dropped once rows were removed by the transaction (see {@link #isTransactionalDdl()}).
+     * 
+     * @return The map of SQL statements that create the dropped indexes again, by name of index
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public Map<String, String> dropSecondaryIndexes( ) throws SQLException
+    {
+        Map<String, String> mapIndexes = _sqlDialect == null ? null : _sqlDialect.findSecondaryIndexes( _transaction.getConnection( ), _strWriteTableName );
+        if ( mapIndexes == null )
+        {
+            return new LinkedHashMap<String, String>( );
+        }
+        for ( String strIndexName : mapIndexes.keySet( ) )
+        {
+            executeStatement( _sqlDialect.getSqlDropIndex( _strWriteTableName, strIndexName ) );
+        }
+        return mapIndexes;
+    }
+
+    /**
+     * Create again indexes dropped by {@link #dropSecondaryIndexes()}. Every index is created with a transaction of its own, so that an index that cannot be
+     * created does not prevent the other ones from being created.
+     * 
+     * @param mapIndexes
+     *            The map of SQL statements that create the indexes, by name of index
+     * @return The list of names of indexes that could not be created
+     */
+    public List<String> rebuildIndexes( Map<String, String> mapIndexes )
+    {
+        List<String> listFailedIndexes = new ArrayList<String>( );
+        for ( Map.Entry<String, String> entry : mapIndexes.entrySet( ) )
+        {
+            Transaction transaction = new Transaction( );
+            try
+            {
+                transaction.prepareStatement( entry.getValue( ) );
+                transaction.executeStatement( );
+                transaction.commit( );
+            }
+            catch( SQLException e )
+            {
+                AppLogService.error( "Index " + entry.getKey( ) + " of table " + _strTableName + " could not be created : " + entry.getValue( ), e );
+                transaction.rollback( e );
+                listFailedIndexes.add( entry.getKey( ) );
+            }
+        }
+        if ( !mapIndexes.isEmpty( ) )
+        {
+            invalidateTableMetadata( );
+        }
+        return listFailedIndexes;
+    }
+
+    /**
+     * Check if the database of this DAO can refresh the statistics of the table
+     * 
+     * @return True if statistics can be refreshed, false otherwise
+     */
+    public boolean isAnalyzeSupported( )
+    {
+        return _sqlDialect != null && _sqlDialect.getSqlAnalyzeTable( _strTableName ) != null;
+    }
+
+    /**
+     * Get the number of rows of the table estimated by the statistics of the database. This method uses a transaction of its own, so that it can be called
+     * once the import is committed.
+     * 
+     * @return The estimated number of rows, or -1 if it is unknown
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public long getEstimatedRowCount( ) throws SQLException
+    {
+        Transaction transaction = new Transaction( );
+        try
+        {
+            long lRowCount = _sqlDialect.getEstimatedRowCount( transaction.getConnection( ), _strTableName );
+            transaction.commit( );
+            return lRowCount;
+        }
+        catch( SQLException e )
+        {
+            transaction.rollback( e );
+            throw e;
+        }
+    }
+
+    /**
+     * Refresh the statistics the query planner of the database keeps about the table, and rebuild its indexes first if required and supported. This method
+     * uses a transaction of its own, so that it can be called once the import is committed.
+     * 
+     * @param bReindex
+     *            True to rebuild the indexes of the table before refreshing statistics, false otherwise
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void analyzeTable( boolean bReindex ) throws SQLException
+    {
+        List<String> listSql = new ArrayList<String>( );
+        if ( bReindex && _sqlDialect.getSqlReindexTable( _strTableName ) != null )
+        {
+            listSql.add( _sqlDialect.getSqlReindexTable( _strTableName ) );
+        }
+        listSql.add( _sqlDialect.getSqlAnalyzeTable( _strTableName ) );
+        Transaction transaction = new Transaction( );
+        try
+        {
+            for ( String strSql : listSql )
+            {
+                // Some databases return the result of maintenance statements as a result set
+                Statement statement = transaction.getConnection( ).createStatement( );
+                try
+                {
+                    statement.execute( strSql );
+                }
+                finally
+                {
+                    statement.close( );
+                }
+            }
+            transaction.commit( );
+        }
+        catch( SQLException e )
+        {
+            transaction.rollback( e );
+            throw e;
+        }
+    }
+
+    /**
+     * Check if the table of this DAO can be loaded into a staging table that is published once the import is complete. The database must support staging
+     * tables, and the table must neither have foreign keys nor views, since staging tables do not get the foreign keys of the table, and foreign keys and
+     * views that reference the table would follow the replaced table. The table must not have grants, triggers or other attributes that its staging table
+     * would not get either, so that they are not lost when the staging table is published.
+     * 
+     * @return True if staging tables are supported, false otherwise
+     */
+    public boolean isStagingTableSupported( )
+    {
+        if ( _sqlDialect == null || _sqlDialect.getSqlCreateStagingTable( _strTableName, getStagingTableName( ) ) == null
+                || _sqlDialect.getSqlSwapTables( _strTableName, getStagingTableName( ), getOldTableName( ) ) == null )
+        {
+            return false;
+        }
+        try
+        {
+            if ( hasForeignKeys( ) || _sqlDialect.hasDependentViews( _transaction.getConnection( ), _strTableName ) )
+            {
+                AppLogService.info( "Table " + _strTableName + " has foreign keys or views, it is not loaded into a staging table" );
+                return false;
+            }
+            if ( _sqlDialect.hasUncopiedAttributes( _transaction.getConnection( ), _strTableName ) )
+            {
+                AppLogService.info( "Table " + _strTableName + " has grants, triggers or comments, it is not loaded into a staging table" );
+                return false;
+            }
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if the table of this DAO references other tables or is referenced by other tables with foreign keys
+     * 
+     * @return True if the table has foreign keys or is referenced by foreign keys, false otherwise
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private boolean hasForeignKeys( ) throws SQLException
+    {
+        Connection connection = _transaction.getConnection( );
+        DatabaseMetaData metaData = connection.getMetaData( );
+        String strTable = getMetadataTableName( metaData, _strTableName );
+        ResultSet resultSet = metaData.getImportedKeys( connection.getCatalog( ), connection.getSchema( ), strTable );
+        try
+        {
+            if ( resultSet.next( ) )
+            {
+                return true;
+            }
+        }
+        finally
+        {
+            resultSet.close( );
+        }
+        resultSet = metaData.getExportedKeys( connection.getCatalog( ), connection.getSchema( ), strTable );
+        try
+        {
+            return resultSet.next( );
+        }
+        finally
+        {
+            resultSet.close( );
+        }
+    }
+
+    /**
+     * Create an empty staging table with the same structure as the table of this DAO. A staging table left by a previous import that did not complete is
+     * dropped first. The transaction is NOT committed by this method, but some databases commit DDL statements implicitly.
+     * 
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void createStagingTable( ) throws SQLException
+    {
+        executeStatement( _sqlDialect.getSqlDropTable( getStagingTableName( ) ) );
+        for ( String strSql : _sqlDialect.getSqlCreateStagingTable( _strTableName, getStagingTableName( ) ) )
+        {
+            executeStatement( strSql );
+        }
+    }
+
+    /**
+     * Write rows into the staging table instead of the table of this DAO. The staging table must have been created by {@link #createStagingTable()}, and
+     * nothing must be pending when this method is called.
+     */
+    public void useStagingTable( )
+    {
+        setWriteTableName( getStagingTableName( ) );
+    }
+
+    /**
+     * Replace the table of this DAO by the staging table, and drop the previous content of the table. Every other DAO writing into the staging table must
+     * have been committed first. The swap is atomic, and is visible to other connections once the transaction is committed. The cached metadata of the
+     * table are invalidated by the swap and by the commit, since they describe the replaced table.
+     * 
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void publishStagingTable( ) throws SQLException
+    {
+        closeStatements( );
+        executeStatement( _sqlDialect.getSqlDropTable( getOldTableName( ) ) );
+        for ( String strSql : _sqlDialect.getSqlSwapTables( _strTableName, getStagingTableName( ), getOldTableName( ) ) )
+        {
+            executeStatement( strSql );
+        }
+        executeStatement( _sqlDialect.getSqlDropTable( getOldTableName( ) ) );
+        setWriteTableName( _strTableName );
+        _bTableReplaced = true;
+        // Some databases commit the swap implicitly, so that it is already visible to other connections
+        invalidateTableMetadata( );
+    }
+
+    /**
+     * Drop the staging table of this DAO. This method uses a transaction of its own, so that it can be called after the transaction of this DAO has been
+     * rolled back.
+     */
+    public void dropStagingTable( )
+    {
+        Transaction transaction = new Transaction( );
+        try
+        {
+            transaction.prepareStatement( _sqlDialect.getSqlDropTable( getStagingTableName( ) ) );
+            transaction.executeStatement( );
+            transaction.commit( );
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            transaction.rollback( e );
+        }
+    }
+
+    /**
+     * Check if DDL statements of the database of this DAO, such as TRUNCATE or DROP INDEX, are undone by a rollback of the transaction
+     * 
+     * @return True if DDL statements are transactional, false otherwise
+     */
+    public boolean isTransactionalDdl( )
+    {
+        return _sqlDialect != null && _sqlDialect.isTransactionalDdl( );
+    }
+
+    /**
+     * Check if the database of this DAO supports writing rows into a temporary table that is then merged into the table with set-based statements. The key
+     * of the rows must be backed by a primary key or a unique index of the table, which the temporary table gets too: rows of the import source with the same
+     * key are then written as a single row of the temporary table, so that the set-based statements match every row of the table with at most one row.
+     * Tables without such a key are written row by row, where the last row with a given key wins.
+     * 
+     * @return True if set-based merges are supported, false otherwise
+     */
+    public boolean isMergeSupported( )
+    {
+        return _sqlDialect != null && hasUniqueKey( ) && _sqlDialect.getSqlCreateTempTable( _strTableName, getTempTableName( ) ) != null
+                && _sqlDialect.getSqlMergeUpdate( _strTableName, getTempTableName( ), _listTableColumns ) != null;
+    }
+
+    /**
+     * Create an empty temporary table with the same columns and keys as the table of this DAO, and write the following rows into it. The temporary table is
+     * only visible to the transaction of this DAO, and must be merged by {@link #mergeTempTable()} before the transaction is committed.
+     * 
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void createTempTable( ) throws SQLException
+    {
+        // A temporary table may be left on a pooled connection by an import that was rolled back
+        executeStatement( _sqlDialect.getSqlDropTempTable( getTempTableName( ) ) );
+        executeStatement( _sqlDialect.getSqlCreateTempTable( _strTableName, getTempTableName( ) ) );
+        setWriteTableName( getTempTableName( ) );
+    }
+
+    /**
+     * Merge the rows of the temporary table into the table of this DAO with a set-based update of existing rows followed by a set-based insert of new rows,
+     * then drop the temporary table. Created and updated elements are counted from the results of both statements, or from a count of the matched rows if
+     * the update does not count rows it left unchanged. Pending batches must be {@link #flushBatch() flushed} before calling this method, and the
+     * transaction is NOT committed.
+     * 
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void mergeTempTable( ) throws SQLException
+    {
+        closeStatements( );
+        int nUpdatedElements = executeUpdate( _sqlDialect.getSqlMergeUpdate( _strTableName, getTempTableName( ), _listTableColumns ) );
+        // Matched rows must be counted before the rows of the temporary table are inserted into the table
+        String strSqlCountMatches = _sqlDialect.getSqlCountMergeMatches( _strTableName, getTempTableName( ), _listTableColumns );
+        if ( strSqlCountMatches != null )
+        {
+            nUpdatedElements = executeCount( strSqlCountMatches );
+        }
+        _nMergedUpdatedElements += nUpdatedElements;
+        _nMergedCreatedElements += executeUpdate( _sqlDialect.getSqlMergeInsert( _strTableName, getTempTableName( ), _listTableColumns ) );
+        executeStatement( _sqlDialect.getSqlDropTempTable( getTempTableName( ) ) );
+        // Rows written into the temporary table are not counted
+        _nCreatedElements = _nMergedCreatedElements;
+        _nUpdatedElements = _nMergedUpdatedElements;
+        setWriteTableName( _strTableName );
+    }
+
+    /**
+     * Remove the cached metadata of the table of this DAO, once its structure or its indexes have been modified by the import
+     */
+    private void invalidateTableMetadata( )
+    {
+        TableMetadataCacheService.getInstance( ).invalidate( _strTableName, _plugin );
+    }
+
+    /**
+     * Get the name of the staging table of this DAO
+     * 
+     * @return The name of the staging table
+     */
+    private String getStagingTableName( )
+    {
+        return _strTableName + SUFFIX_STAGING_TABLE;
+    }
+
+    /**
+     * Get the name given to the previous content of the table of this DAO while a staging table is published
+     * 
+     * @return The name of the old table
+     */
+    private String getOldTableName( )
+    {
+        return _strTableName + SUFFIX_OLD_TABLE;
+    }
+
+    /**
+     * Get the name of the temporary table of this DAO
+     * 
+     * @return The name of the temporary table
+     */
+    private String getTempTableName( )
+    {
+        return _strTableName + SUFFIX_TEMP_TABLE;
+    }
+
+    /**
+     * Set the name of the table rows are written into, and discard the SQL statements built for the previous one
+     * 
+     * @param strWriteTableName
+     *            The name of the table
+     */
+    private void setWriteTableName( String strWriteTableName )
+    {
+        _strWriteTableName = strWriteTableName;
+        _strSqlInsert = null;
+        _strSqlUpdate = null;
+        _strSqlUpsert = null;
+        _sqlCheckElement = null;
+    }
+
+    /**
+     * Execute a SQL statement that has no parameter with the transaction of this DAO, and get the number of rows it modified
+     * 
+     * @param strSql
+     *            The SQL statement
+     * @return The number of modified rows
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private int executeUpdate( String strSql ) throws SQLException
+    {
+        PreparedStatement statement = _transaction.getConnection( ).prepareStatement( strSql );
+        try
+        {
+            return statement.executeUpdate( );
+        }
+        finally
+        {
+            statement.close( );
+        }
+    }
+
+    /**
+     * Execute a SQL query that has no parameter and returns a single number with the transaction of this DAO
+     * 
+     * @param strSql
+     *            The SQL query
+     * @return The number returned by the query
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private int executeCount( String strSql ) throws SQLException
+    {
+        PreparedStatement statement = _transaction.getConnection( ).prepareStatement( strSql );
+        try
+        {
+            ResultSet resultSet = statement.executeQuery( );
+            return resultSet.next( ) ? resultSet.getInt( 1 ) : 0;
+        }
+        finally
+        {
+            statement.close( );
+        }
+    }
+
+    /**
+     * Execute a SQL statement that has no parameter with the transaction of this DAO
+     * 
+     * @param strSql
+     *            The SQL statement
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private void executeStatement( String strSql ) throws SQLException
+    {
+        _transaction.prepareStatement( strSql );
+        _transaction.executeStatement( );
+    }
+
+    /**
+     * Send pending batches of rows to the database. Inserted rows are sent before updated ones, so that a row inserted and then updated by the same import is
+     * processed in the right order. The transaction is NOT committed by this method.
+     * 
+     * @return The list of error messages of rows that could not be written. The list is empty if every row was successfully written
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public List<ImportMessage> flushBatch( ) throws SQLException
+    {
+        List<ImportMessage> listErrors = new ArrayList<ImportMessage>( );
+        if ( !_listPendingInserts.isEmpty( ) && ( _bulkLoader == null || !bulkLoadPendingInserts( ) ) )
+        {
+            boolean [ ] bWrittenRows = writeBatch( getSqlInsert( ), BATCH_INSERT, _listPendingInserts, _listPendingInsertValues, false, listErrors );
+            _nCreatedElements += countWrittenRows( bWrittenRows );
+        }
+        if ( !_listPendingUpdates.isEmpty( ) )
+        {
+            boolean [ ] bWrittenRows = writeBatch( getSqlUpdate( ), BATCH_UPDATE, _listPendingUpdates, _listPendingUpdateValues, false, listErrors );
+            _nUpdatedElements += countWrittenRows( bWrittenRows );
+        }
+        if ( !_listPendingUpserts.isEmpty( ) )
+        {
+            // Upserts of unchanged rows may report no updated row, so every executed row is successful
+            boolean [ ] bWrittenRows = writeBatch( getSqlUpsert( ), BATCH_UPSERT, _listPendingUpserts, _listPendingUpsertValues, true, listErrors );
+            for ( int i = 0; i < bWrittenRows.length; i++ )
+            {
+                if ( bWrittenRows [i] )
+                {
+                    if ( _listPendingUpsertsExisting.get( i ) )
+                    {
+                        _nUpdatedElements++;
+                    }
+                    else
+                    {
+                        _nCreatedElements++;
+                    }
+                }
+            }
+            _listPendingUpsertsExisting.clear( );
+        }
+        return listErrors;
+    }
+
+    /**
+     * Get the number of rows that have been added to batches and not yet sent to the database
+     * 
+     * @return The number of pending rows
+     */
+    public int getPendingRows( )
+    {
+        return _listPendingInserts.size( ) + _listPendingUpdates.size( ) + _listPendingUpserts.size( );
+    }
+
+    /**
+     * Get the maximum number of rows to send to the database in a single batch
+     * 
+     * @return The size of batches
+     */
+    public int getBatchSize( )
+    {
+        return _nBatchSize;
+    }
+
+    /**
+     * Get the number of rows successfully inserted by flushed batches
+     * 
+     * @return The number of created elements
+     */
+    public int getCreatedElements( )
+    {
+        return _nCreatedElements;
+    }
+
+    /**
+     * Get the number of rows successfully updated by flushed batches
+     * 
+     * @return The number of updated elements
+     */
+    public int getUpdatedElements( )
+    {
+        return _nUpdatedElements;
+    }
+
+    /**
+     * Send a batch of pending rows to the database. If batch bisection is enabled, the batch is executed within a savepoint: if it fails, the savepoint is
+     * rolled back and each half of the batch is sent again, recursively, until the rows that could not be written are isolated. Other rows of the batch are
+     * still written, and the transaction remains usable even on databases that abort transactions on the first error.
+     * 
+     * @param strSql
+     *            The SQL statement of the batch
+     * @param nBatchType
+     *            The type of the batch, that defines the order of the parameters of the statement
+     * @param listItemNumbers
+     *            The item numbers of the rows of the batch. This list is cleared by this method
+     * @param listValues
+     *            The converted values of the rows of the batch. This list is cleared by this method
+     * @param bExecutedIsWritten
+     *            True to consider every executed row as written, even if no row was affected, false to only consider rows that affected at least one row
+     * @param listErrors
+     *            The list to add error messages of rows that could not be written into
+     * @return For every row of the batch, true if it was successfully written, false otherwise
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private boolean [ ] writeBatch( String strSql, int nBatchType, List<Integer> listItemNumbers, List<Object [ ]> listValues, boolean bExecutedIsWritten,
+            List<ImportMessage> listErrors ) throws SQLException
+    {
+        PreparedStatement statement = getStatement( strSql );
+        boolean [ ] bWrittenRows;
+        if ( isBatchBisectionEnabled( ) )
+        {
+            bWrittenRows = new boolean [ listItemNumbers.size( )];
+            executeBisectedBatch( statement, nBatchType, listItemNumbers, listValues, 0, bWrittenRows.length, bExecutedIsWritten, bWrittenRows, listErrors );
+        }
+        else
+        {
+            for ( Object [ ] values : listValues )
+            {
+                addBatchParameters( statement, nBatchType, values );
+                statement.addBatch( );
+            }
+            bWrittenRows = executeBatch( statement, listItemNumbers, bExecutedIsWritten, listErrors );
+        }
+        listItemNumbers.clear( );
+        listValues.clear( );
+        return bWrittenRows;
+    }
+
+    /**
+     * Execute a range of rows of a batch within a savepoint. If the execution fails, the savepoint is rolled back, and both halves of the range are executed
+     * again separately. A failed range of a single row is reported as an error.
+     * 
+     * @param statement
+     *            The statement to execute the batch of
+     * @param nBatchType
+     *            The type of the batch, that defines the order of the parameters of the statement
+     * @param listItemNumbers
+     *            The item numbers of the rows of the batch
+     * @param listValues
+     *            The converted values of the rows of the batch
+     * @param nFrom
+     *            The index of the first row of the range, inclusive
+     * @param nTo
+     *            The index of the last row of the range, exclusive
+     * @param bExecutedIsWritten
+     *            True to consider every executed row as written, even if no row was affected, false to only consider rows that affected at least one row
+     * @param bWrittenRows
+     *            The array to flag written rows of the batch in
+     * @param listErrors
+     *            The list to add error messages of rows that could not be written into
+     * @throws SQLException
+     *             If an error occurred with the database, or if the savepoint could not be rolled back
+     */
+    private void executeBisectedBatch( PreparedStatement statement, int nBatchType, List<Integer> listItemNumbers, List<Object [ ]> listValues, int nFrom,
+            int nTo, boolean bExecutedIsWritten, boolean [ ] bWrittenRows, List<ImportMessage> listErrors ) throws SQLException
+    {
+        Connection connection = _transaction.getConnection( );
+        Savepoint savepoint = connection.setSavepoint( );
+        int [ ] nUpdateCounts;
+        try
+        {
+            for ( int i = nFrom; i < nTo; i++ )
+            {
+                addBatchParameters( statement, nBatchType, listValues.get( i ) );
+                statement.addBatch( );
+            }
+            nUpdateCounts = statement.executeBatch( );
+        }
+        catch( SQLException e )
+        {
+            statement.clearBatch( );
+            connection.rollback( savepoint );
+            if ( nTo - nFrom == 1 )
+            {
+                String strMessage = getBatchErrorMessage( e );
+                AppLogService.debug( "Row " + listItemNumbers.get( nFrom ) + " of table " + _strWriteTableName + " could not be written : " + strMessage );
+                listErrors.add( new ImportMessage( strMessage, ImportMessage.STATUS_ERROR, listItemNumbers.get( nFrom ) ) );
+            }
+            else
+            {
+                int nMiddle = ( nFrom + nTo ) >>> 1;
+                executeBisectedBatch( statement, nBatchType, listItemNumbers, listValues, nFrom, nMiddle, bExecutedIsWritten, bWrittenRows, listErrors );
+                executeBisectedBatch( statement, nBatchType, listItemNumbers, listValues, nMiddle, nTo, bExecutedIsWritten, bWrittenRows, listErrors );
+            }
+            return;
+        }
+        connection.releaseSavepoint( savepoint );
+        for ( int i = nFrom; i < nTo; i++ )
+        {
+            int nUpdateCount = ( i - nFrom < nUpdateCounts.length ) ? nUpdateCounts [i - nFrom] : Statement.SUCCESS_NO_INFO;
+            bWrittenRows [i] = bExecutedIsWritten || nUpdateCount > 0 || nUpdateCount == Statement.SUCCESS_NO_INFO;
+        }
+    }
+
+    /**
+     * Check if failed batches are bisected to isolate the rows that could not be written. Bisection must be enabled, and the database must support savepoints.
+     * 
+     * @return True if failed batches are bisected, false if every row of a batch after the first error is rejected
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private boolean isBatchBisectionEnabled( ) throws SQLException
+    {
+        if ( _bSavepointsSupported == null )
+        {
+            _bSavepointsSupported = _transaction.getConnection( ).getMetaData( ).supportsSavepoints( );
+        }
+        return _bSavepointsSupported && AppPropertiesService.getPropertyBoolean( PROPERTY_BATCH_BISECTION, true );
+    }
+
+    /**
+     * Get the message of an error raised by the execution of a batch. Some drivers only give the cause of a batch failure in the next exception of the chain.
+     * 
+     * @param e
+     *            The error
+     * @return The message of the error
+     */
+    private static String getBatchErrorMessage( SQLException e )
+    {
+        if ( e instanceof BatchUpdateException && e.getNextException( ) != null )
+        {
+            return e.getNextException( ).getMessage( );
+        }
+        return e.getMessage( );
+    }
+
+    /**
+     * Execute the batch of a statement and check the result of every row
+     * 
+     * @param statement
+     *            The statement to execute the batch of
+     * @param listItemNumbers
+     *            The item numbers of the rows of the batch. This list is cleared by this method
+     * @param bExecutedIsWritten
+     *            True to consider every executed row as written, even if no row was affected, false to only consider rows that affected at least one row
+     * @param listErrors
+     *            The list to add error messages of rows that could not be written into
+     * @return For every row of the batch, true if it was successfully written, false otherwise
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private boolean [ ] executeBatch( PreparedStatement statement, List<Integer> listItemNumbers, boolean bExecutedIsWritten, List<ImportMessage> listErrors )
+            throws SQLException
+    {
+        int [ ] nUpdateCounts;
+        String strErrorMessage = null;
+        try
+        {
+            nUpdateCounts = statement.executeBatch( );
+        }
+        catch( BatchUpdateException e )
+        {
+            // Errors of rows are reported in the result of the import, so they are not logged with a stack trace
+            AppLogService.debug( "Batch of table " + _strWriteTableName + " could not be fully written : " + e.getMessage( ) );
+            statement.clearBatch( );
+            nUpdateCounts = e.getUpdateCounts( );
+            strErrorMessage = e.getMessage( );
         }
-        // We now add primary keys
-        columnIterator = _listTableColumns.iterator( );
-        for ( ImportExportElement element : listElements )
+        boolean [ ] bWrittenRows = new boolean [ listItemNumbers.size( )];
+        boolean bFirstError = true;
+        for ( int i = 0; i < listItemNumbers.size( ); i++ )
         {
-            TableColumn tableColumn = columnIterator.next( );
-            if ( tableColumn.getIsPrimaryKey( ) )
+            // Drivers that stop on the first error return fewer counts than the number of rows of the batch
+            if ( nUpdateCounts == null || i >= nUpdateCounts.length || nUpdateCounts [i] == Statement.EXECUTE_FAILED )
             {
-                if ( !StringUtils.equalsIgnoreCase( tableColumn.getColumnName( ), element.getColumnName( ) ) )
-                {
-                    throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE, _locale ) );
-                }
-                addSqlParameter( nIndex++, element.getValue( ), tableColumn.getColumnType( ) );
+                String strMessage = bFirstError ? strErrorMessage : I18nService.getLocalizedString( ERROR_MESSAGE_BATCH_ABORTED, _locale );
+                listErrors.add( new ImportMessage( strMessage, ImportMessage.STATUS_ERROR, listItemNumbers.get( i ) ) );
+                bFirstError = false;
+            }
+            else
+            {
+                bWrittenRows [i] = bExecutedIsWritten || nUpdateCounts [i] > 0 || nUpdateCounts [i] == Statement.SUCCESS_NO_INFO;
             }
         }
-        _transaction.executeStatement( );
+        listItemNumbers.clear( );
+        return bWrittenRows;
     }
 
     /**
-     * Check if a row already exists in the database
+     * Send the pending rows to insert with the native bulk loader of the database. The bulk load is done within a savepoint: if it fails, or if the database
+     * skipped or altered some rows, the savepoint is rolled back and the rows are left pending for the batch of the insert statement, which isolates and
+     * reports errors row by row.
      * 
-     * @param listElements
-     *            The list of elements to check the existence of
-     * @return True if the element exists, false otherwise
+     * @return True if every pending row was loaded, false if the rows must be sent with the batch of the insert statement
      * @throws SQLException
-     *             If an error occur while checking the existence of the element
+     *             If an error occurred with the database
      */
-    public boolean checkElementExists( List<ImportExportElement> listElements ) throws SQLException
+    private boolean bulkLoadPendingInserts( ) throws SQLException
     {
-        if ( listElements == null || listElements.size( ) != _listTableColumns.size( ) )
+        Connection connection = _transaction.getConnection( );
+        Savepoint savepoint = connection.setSavepoint( );
+        try
         {
-            AppException appException = new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_WRONG_LIST_ELEMENTS_SIZE, _locale ) );
-            int nElemNumber = 0;
-            if ( listElements != null )
+            int nLoadedRows = _bulkLoader.load( connection, _strWriteTableName, _listTableColumns, _listPendingInsertValues );
+            if ( nLoadedRows == _listPendingInsertValues.size( ) )
             {
-                nElemNumber = listElements.size( );
+                connection.releaseSavepoint( savepoint );
+                _nCreatedElements += nLoadedRows;
+                _listPendingInsertValues.clear( );
+                _listPendingInserts.clear( );
+                return true;
             }
-            AppLogService.info( appException.getMessage( ) + " expected " + _listTableColumns.size( ) + " elements, found " + nElemNumber );
-            throw appException;
+            connection.rollback( savepoint );
         }
-        DAOUtil daoUtil = new DAOUtil( getSqlCheckElementExists( ), _plugin );
-        boolean bResult = false;
-        try
+        catch( SQLException e )
         {
-            String strPrimaryKey = listElements.get( 0 ).getValue( );
-            addSqlParameter( 1, strPrimaryKey, _listTableColumns.get( 0 ).getColumnType( ), daoUtil );
-            daoUtil.executeQuery( );
-            if ( daoUtil.next( ) )
+            AppLogService.debug( "Bulk load of table " + _strWriteTableName + " failed : " + e.getMessage( ) );
+            connection.rollback( savepoint );
+        }
+        return false;
+    }
+
+    /**
+     * Count the number of written rows of a batch
+     * 
+     * @param bWrittenRows
+     *            The result of the batch, as returned by {@link #writeBatch(String, int, List, List, boolean, List)}
+     * @return The number of written rows
+     */
+    private static int countWrittenRows( boolean [ ] bWrittenRows )
+    {
+        int nWrittenRows = 0;
+        for ( boolean bWritten : bWrittenRows )
+        {
+            if ( bWritten )
             {
-                bResult = true;
+                nWrittenRows++;
             }
         }
-        catch( SQLException e )
+        return nWrittenRows;
+    }
+
+    /**
+     * Get the prepared statement of a given SQL query. Statements are prepared once for the whole transaction, and are then reused.
+     * 
+     * @param strSql
+     *            The SQL query
+     * @return The prepared statement
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private PreparedStatement getStatement( String strSql ) throws SQLException
+    {
+        PreparedStatement statement = _mapStatements.get( strSql );
+        if ( statement == null )
         {
-            AppLogService.error( e.getMessage( ), e );
+            statement = _transaction.getConnection( ).prepareStatement( strSql );
+            _mapStatements.put( strSql, statement );
         }
-        finally
+        return statement;
+    }
+
+    /**
+     * Close every statement prepared for the current transaction, and discard pending batches
+     */
+    private void closeStatements( )
+    {
+        for ( PreparedStatement statement : _mapStatements.values( ) )
         {
-            daoUtil.free( );
+            try
+            {
+                statement.close( );
+            }
+            catch( SQLException e )
+            {
+                AppLogService.error( e.getMessage( ), e );
+            }
         }
-
-        return bResult;
+        _mapStatements.clear( );
+        _listPendingInserts.clear( );
+        _listPendingUpdates.clear( );
+        _listPendingUpserts.clear( );
+        _listPendingUpsertsExisting.clear( );
+        _listPendingInsertValues.clear( );
+        _listPendingUpdateValues.clear( );
+        _listPendingUpsertValues.clear( );
     }
 
     /**
-     * Remove every data from the table.
-     * 
+     * Commit the rows written so far, and open a new transaction to write the following rows. Pending batches must be {@link #flushBatch() flushed} before
+     * calling this method, otherwise they are discarded.
+     *
+     * @throws AppException
+     *             If the transaction is closed, or if the new transaction could not be opened
      * @throws SQLException
-     *             If an error occurs
+     *             If postponed checks of foreign keys failed
      */
-    public void emptyTable( ) throws SQLException
+    public void commitChunk( ) throws AppException, SQLException
     {
-        _transaction.prepareStatement( SQL_QUERY_DELETE_FROM + _strTableName );
-        _transaction.executeStatement( );
+        if ( _transaction == null || _transaction.getStatus( ) != Transaction.OPENED )
+        {
+            throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_TRANSACTION_CLOSED, _locale ) );
+        }
+        closeStatements( );
+        // Postponed checks are transaction or connection settings, that must not outlive the committed transaction
+        boolean bConstraintsDeferred = _bConstraintsDeferred;
+        restoreConstraints( );
+        _transaction.commit( );
+        _transaction = new Transaction( );
+        if ( _transaction.getStatus( ) != Transaction.OPENED )
+        {
+            _transaction = null;
+            throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_TRANSACTION_CLOSED, _locale ) );
+        }
+        if ( bConstraintsDeferred )
+        {
+            deferConstraints( );
+        }
     }
 
     /**
@@ -308,8 +1694,16 @@ public class ImportDataDAO extends AbstractImportExportDAO
     {
         if ( _transaction != null )
         {
+            closeStatements( );
+            restoreConstraintsQuietly( );
             _transaction.commit( );
             _transaction = null;
+            // Metadata read by other connections before the commit still describe the replaced table
+            if ( _bTableReplaced )
+            {
+                _bTableReplaced = false;
+                invalidateTableMetadata( );
+            }
         }
         else
         {
@@ -325,6 +1719,8 @@ public class ImportDataDAO extends AbstractImportExportDAO
     {
         if ( _transaction != null )
         {
+            closeStatements( );
+            restoreConstraintsQuietly( );
             _transaction.rollback( );
             _transaction = null;
         }
@@ -336,264 +1732,100 @@ public class ImportDataDAO extends AbstractImportExportDAO
     }
 
     /**
-     * Add a parameter to the current statement of the transaction according to its type.
+     * Check that a row can be written by the transaction of this DAO
      * 
-     * @param nIndex
-     *            The index of the parameter to add
-     * @param strElementValue
-     *            The value of the parameter
-     * @param columnType
-     *            The type of the column
+     * @param row
+     *            The row to check
      * @throws AppException
-     *             if the value of the parameter is not valid
+     *             If the transaction is closed, or if the row could not be converted
+     */
+    private void checkRow( ImportRow row ) throws AppException
+    {
+        if ( _transaction == null || _transaction.getStatus( ) != Transaction.OPENED )
+        {
+            throw new AppException( I18nService.getLocalizedString( ERROR_MESSAGE_TRANSACTION_CLOSED, _locale ) );
+        }
+        if ( row.getError( ) != null )
+        {
+            throw new AppException( row.getError( ) );
+        }
+    }
+
+    /**
+     * Set the parameters of the statement of a batch with the values of a row
+     * 
+     * @param statement
+     *            The statement to set the parameters of
+     * @param nBatchType
+     *            The type of the batch
+     * @param values
+     *            The converted values of the row
      * @throws SQLException
      *             If an error occurred with the database
      */
-    private void addSqlParameter( int nIndex, String strElementValue, ColumnType columnType ) throws SQLException, AppException
+    private void addBatchParameters( PreparedStatement statement, int nBatchType, Object [ ] values ) throws SQLException
     {
-        try
+        if ( nBatchType == BATCH_UPDATE )
         {
-            switch( columnType )
-            {
-                case TYPE_INT:
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        _transaction.getStatement( ).setNull( nIndex, Types.INTEGER );
-                    }
-                    else
-                    {
-                        _transaction.getStatement( ).setInt( nIndex, Integer.parseInt( strElementValue ) );
-                    }
-                    break;
-                case TYPE_LONG:
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        _transaction.getStatement( ).setNull( nIndex, Types.BIGINT );
-                    }
-                    else
-                    {
-                        _transaction.getStatement( ).setLong( nIndex, Long.parseLong( strElementValue ) );
-                    }
-                    break;
-                case TYPE_DOUBLE:
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        _transaction.getStatement( ).setNull( nIndex, Types.DOUBLE );
-                    }
-                    else
-                    {
-                        _transaction.getStatement( ).setDouble( nIndex, Double.parseDouble( strElementValue ) );
-                    }
-                    break;
-                case TYPE_STRING:
-                    _transaction.getStatement( ).setString( nIndex, strElementValue );
-                    break;
-                case TYPE_TIMESTAMP:
-                    Timestamp timestamp;
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        timestamp = null;
-                    }
-                    else
-                    {
-                        // If the timestamp value is numeric
-                        if ( StringUtils.isNumeric( strElementValue ) )
-                        {
-                            timestamp = new Timestamp( Long.parseLong( strElementValue ) );
-                        }
-                        else
-                        {
-                            // If the timestamp value is literal
-                            try
-                            {
-                                timestamp = Timestamp.valueOf( strElementValue );
-                            }
-                            catch( IllegalArgumentException e )
-                            {
-                                throw new SQLException( e );
-                            }
-                        }
-                    }
-                    _transaction.getStatement( ).setTimestamp( nIndex, timestamp );
-                    break;
-                case TYPE_DATE:
-                    Date date;
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        date = null;
-                    }
-                    else
-                    {
-                        try
-                        {
-                            date = new Date( DateFormat.getDateInstance( ).parse( strElementValue ).getTime( ) );
-                        }
-                        catch( ParseException e )
-                        {
-                            throw new SQLException( e );
-                        }
-                    }
-                    _transaction.getStatement( ).setDate( nIndex, date );
-                    break;
-                case TYPE_BYTE:
-                    byte [ ] blobItem;
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        blobItem = null;
-                    }
-                    else
-                    {
-                        String strValue = strElementValue;
-                        // If the blob contains the sequence "0x" that indicates that it is encoded in hex, we remove it since we do know it is hex
-                        // Furthermore, the 'x' character is not a valid hex character, so we can safely remove it
-                        if ( strValue.startsWith( CONSTANT_HEXA_START ) )
-                        {
-                            strValue = strValue.substring( CONSTANT_HEXA_START.length( ) );
-                        }
-                        try
-                        {
-                            blobItem = Hex.decodeHex( strValue.toCharArray( ) );
-                        }
-                        catch( DecoderException e )
-                        {
-                            throw new SQLException( e );
-                        }
-                    }
-                    _transaction.getStatement( ).setBytes( nIndex, blobItem );
-                    break;
-                default:
-                    AppLogService.error( "Unknown column type : " + columnType );
-            }
+            addUpdateParameters( statement, values );
         }
-        catch( SQLException e )
+        else
         {
-            AppLogService.error( e.getMessage( ), e );
-            throw e;
+            addColumnParameters( statement, values );
         }
     }
 
     /**
-     * Add a parameter to a DAOUtil according to its type.
+     * Set the parameters of the update statement with the values of a row. Values of columns that are not primary keys are set first, followed by values of
+     * primary keys used in the WHERE clause.
      * 
-     * @param nIndex
-     *            The index of the parameter to add
-     * @param strElementValue
-     *            The value of the parameter
-     * @param columnType
-     *            The type of the column
-     * @param daoUtil
-     *            The DAOUtil to add the parameter to
-     * @throws AppException
-     *             if the value of the parameter is not valid
+     * @param statement
+     *            The statement to set the parameters of
+     * @param values
+     *            The converted values of the row
      * @throws SQLException
      *             If an error occurred with the database
      */
-    private void addSqlParameter( int nIndex, String strElementValue, ColumnType columnType, DAOUtil daoUtil ) throws AppException, SQLException
+    private void addUpdateParameters( PreparedStatement statement, Object [ ] values ) throws SQLException
     {
-        try
+        statement.clearParameters( );
+        int nIndex = 1;
+        // We skip primary keys that must be added at the end
+        for ( int i = 0; i < values.length; i++ )
         {
-            switch( columnType )
+            TableColumn tableColumn = _listTableColumns.get( i );
+            if ( !tableColumn.getIsPrimaryKey( ) )
             {
-                case TYPE_INT:
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        daoUtil.setIntNull( nIndex );
-                    }
-                    else
-                    {
-                        daoUtil.setInt( nIndex, Integer.parseInt( strElementValue ) );
-                    }
-                    break;
-                case TYPE_LONG:
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        daoUtil.setLongNull( nIndex );
-                    }
-                    else
-                    {
-                        daoUtil.setLong( nIndex, Long.parseLong( strElementValue ) );
-                    }
-                    break;
-                case TYPE_DOUBLE:
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        daoUtil.setDoubleNull( nIndex );
-                    }
-                    else
-                    {
-                        daoUtil.setDouble( nIndex, Double.parseDouble( strElementValue ) );
-                    }
-                    break;
-                case TYPE_STRING:
-                    daoUtil.setString( nIndex, strElementValue );
-                    break;
-                case TYPE_TIMESTAMP:
-                    Timestamp timestamp;
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        timestamp = null;
-                    }
-                    else
-                    {
-                        // If the timestamp value is numeric
-                        if ( StringUtils.isNumeric( strElementValue ) )
-                        {
-                            timestamp = new Timestamp( Long.parseLong( strElementValue ) );
-                        }
-                        else
-                        {
-                            // If the timestamp value is literal
-                            try
-                            {
-                                timestamp = Timestamp.valueOf( strElementValue );
-                            }
-                            catch( IllegalArgumentException e )
-                            {
-                                throw new AppException( );
-                            }
-                        }
-                    }
-                    daoUtil.setTimestamp( nIndex, timestamp );
-                    break;
-                case TYPE_DATE:
-                    Date date;
-                    if ( isStringBlankOrNull( strElementValue ) )
-                    {
-                        date = null;
-                    }
-                    else
-                    {
-                        try
-                        {
-                            date = new Date( DateFormat.getDateInstance( ).parse( strElementValue ).getTime( ) );
-                        }
-                        catch( ParseException e )
-                        {
-                            throw new SQLException( e );
-                        }
-                    }
-                    daoUtil.setDate( nIndex, date );
-                    break;
-                case TYPE_BYTE:
-                    byte [ ] blobItem;
-                    try
-                    {
-                        blobItem = Hex.decodeHex( strElementValue.toCharArray( ) );
-                    }
-                    catch( DecoderException e )
-                    {
-                        throw new SQLException( e );
-                    }
-                    daoUtil.setBytes( nIndex, blobItem );
-                    break;
-                default:
-                    AppLogService.error( "Unknown column type : " + columnType );
+                _binders [i].bind( statement, nIndex++, values [i] );
             }
         }
-        catch( SQLException e )
+        // We now add primary keys
+        for ( int i = 0; i < values.length; i++ )
         {
-            AppLogService.error( e.getMessage( ), e );
-            throw e;
+            TableColumn tableColumn = _listTableColumns.get( i );
+            if ( tableColumn.getIsPrimaryKey( ) )
+            {
+                _binders [i].bind( statement, nIndex++, values [i] );
+            }
+        }
+    }
+
+    /**
+     * Set the parameters of a statement with the values of every column of a row, in the order of the columns of this DAO
+     * 
+     * @param statement
+     *            The statement to set the parameters of
+     * @param values
+     *            The converted values of the row
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private void addColumnParameters( PreparedStatement statement, Object [ ] values ) throws SQLException
+    {
+        statement.clearParameters( );
+        for ( int i = 0; i < values.length; i++ )
+        {
+            _binders [i].bind( statement, i + 1, values [i] );
         }
     }
 
@@ -610,7 +1842,7 @@ public class ImportDataDAO extends AbstractImportExportDAO
         }
         int nListSize = _listTableColumns.size( );
         StringBuilder sbSql = new StringBuilder( SQL_QUERY_INSERT_INTO );
-        sbSql.append( _strTableName );
+        sbSql.append( _strWriteTableName );
         sbSql.append( CONSTANT_OPEN_PARENTHESIS );
         sbSql.append( _listTableColumns.get( 0 ).getColumnName( ) );
         for ( int i = 1; i < nListSize; i++ )
@@ -646,7 +1878,7 @@ public class ImportDataDAO extends AbstractImportExportDAO
             return _strSqlUpdate;
         }
         StringBuilder sbSql = new StringBuilder( SQL_QUERY_UPDATE );
-        sbSql.append( _strTableName );
+        sbSql.append( _strWriteTableName );
         sbSql.append( SQL_QUERY_UPDATE_SET );
 
         boolean bIsFirstColumn = true;
@@ -689,6 +1921,20 @@ public class ImportDataDAO extends AbstractImportExportDAO
         return _strSqlUpdate;
     }
 
+    /**
+     * Get the SQL script to insert or update an element of this DAO with a single statement
+     * 
+     * @return The SQL script, or null if the SQL dialect of the database does not support native upserts for the columns of this DAO
+     */
+    private String getSqlUpsert( )
+    {
+        if ( _strSqlUpsert == null && _sqlDialect != null )
+        {
+            _strSqlUpsert = _sqlDialect.getSqlUpsert( _strWriteTableName, _listTableColumns );
+        }
+        return _strSqlUpsert;
+    }
+
     /**
      * Get the SQL query to check if an item already exist in the table of the database
      * 
@@ -700,27 +1946,157 @@ public class ImportDataDAO extends AbstractImportExportDAO
         {
             return _sqlCheckElement;
         }
+        List<TableColumn> listKeyColumns = getKeyColumns( );
         StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT );
-        sbSql.append( _listTableColumns.get( 0 ).getColumnName( ) );
+        sbSql.append( listKeyColumns.get( 0 ).getColumnName( ) );
         sbSql.append( SQL_QUERY_FROM );
-        sbSql.append( _strTableName );
+        sbSql.append( _strWriteTableName );
         sbSql.append( SQL_QUERY_WHERE );
-        sbSql.append( _listTableColumns.get( 0 ).getColumnName( ) );
-        sbSql.append( SQL_QUERY_EQUALS );
+        boolean bIsFirst = true;
+        for ( TableColumn tableColumn : listKeyColumns )
+        {
+            if ( !bIsFirst )
+            {
+                sbSql.append( SQL_QUERY_AND );
+            }
+            bIsFirst = false;
+            sbSql.append( tableColumn.getColumnName( ) );
+            sbSql.append( SQL_QUERY_EQUALS );
+        }
         _sqlCheckElement = sbSql.toString( );
         return _sqlCheckElement;
     }
 
     /**
-     * Check if a string is null, empty, blank or equals to the 'null' string.
+     * Get the SQL query to find which keys of a list of keys already exist in the table of the database. Tables with a single primary key column use a simple
+     * IN clause, while tables with a composite primary key use a row value IN clause.
+     * 
+     * @param listKeyColumns
+     *            The list of primary key columns
+     * @param nKeys
+     *            The number of keys to look up
+     * @return The SQL query to execute
+     */
+    private String getSqlFindExistingKeys( List<TableColumn> listKeyColumns, int nKeys )
+    {
+        StringBuilder sbKeyColumns = new StringBuilder( );
+        StringBuilder sbKeyParameters = new StringBuilder( );
+        for ( int i = 0; i < listKeyColumns.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbKeyColumns.append( CONSTANT_COMA );
+                sbKeyParameters.append( CONSTANT_COMA );
+            }
+            sbKeyColumns.append( listKeyColumns.get( i ).getColumnName( ) );
+            sbKeyParameters.append( CONSTANT_QUESTION_MARK );
+        }
+        boolean bCompositeKey = listKeyColumns.size( ) > 1;
+
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT );
+        sbSql.append( sbKeyColumns );
+        sbSql.append( SQL_QUERY_FROM );
+        sbSql.append( _strWriteTableName );
+        sbSql.append( SQL_QUERY_WHERE );
+        if ( bCompositeKey )
+        {
+            sbSql.append( CONSTANT_OPEN_PARENTHESIS ).append( sbKeyColumns ).append( CONSTANT_CLOSE_PARENTHESIS );
+        }
+        else
+        {
+            sbSql.append( sbKeyColumns );
+        }
+        sbSql.append( SQL_QUERY_IN );
+        sbSql.append( CONSTANT_OPEN_PARENTHESIS );
+        for ( int i = 0; i < nKeys; i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( CONSTANT_COMA );
+            }
+            if ( bCompositeKey )
+            {
+                sbSql.append( CONSTANT_OPEN_PARENTHESIS ).append( sbKeyParameters ).append( CONSTANT_CLOSE_PARENTHESIS );
+            }
+            else
+            {
+                sbSql.append( CONSTANT_QUESTION_MARK );
+            }
+        }
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS );
+        return sbSql.toString( );
+    }
+
+    /**
+     * Get the SQL query to find which keys of a list of keys already exist in the table of the database, as the positions of the keys in the list. Every key
+     * is looked up by its own branch of a UNION ALL query, so that keys are compared by the database but are still found with a single query.
      * 
-     * @param strString
-     *            The string to check
-     * @return True if the string null, empty, blank or equals to the 'null' string, false otherwise
+     * @param listKeyColumns
+     *            The list of primary key columns
+     * @param nKeys
+     *            The number of keys to look up
+     * @return The SQL query to execute
+     */
+    private String getSqlFindExistingPositions( List<TableColumn> listKeyColumns, int nKeys )
+    {
+        StringBuilder sbCondition = new StringBuilder( SQL_QUERY_FROM );
+        sbCondition.append( _strWriteTableName );
+        sbCondition.append( SQL_QUERY_WHERE );
+        for ( int i = 0; i < listKeyColumns.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbCondition.append( SQL_QUERY_AND );
+            }
+            sbCondition.append( listKeyColumns.get( i ).getColumnName( ) );
+            sbCondition.append( SQL_QUERY_EQUALS );
+        }
+
+        StringBuilder sbSql = new StringBuilder( );
+        for ( int i = 0; i < nKeys; i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( SQL_QUERY_UNION_ALL );
+            }
+            sbSql.append( SQL_QUERY_SELECT ).append( i ).append( sbCondition );
+        }
+        return sbSql.toString( );
+    }
+
+    /**
+     * Check if the primary key of the table of this DAO has character columns, whose values are compared according to the collation of the database
+     * 
+     * @return True if a primary key column is a character column, false otherwise
      */
-    private boolean isStringBlankOrNull( String strString )
+    private boolean isCollatedKey( )
     {
-        return StringUtils.isBlank( strString ) || StringUtils.equalsIgnoreCase( strString, CONSTANT_STRING_NULL );
+        for ( int i = 0; i < _listTableColumns.size( ); i++ )
+        {
+            if ( _listTableColumns.get( i ).getIsPrimaryKey( ) && _binders [i] instanceof StringColumnBinder )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the list of primary key columns of this DAO
+     * 
+     * @return The list of primary key columns
+     */
+    private List<TableColumn> getKeyColumns( )
+    {
+        List<TableColumn> listKeyColumns = new ArrayList<TableColumn>( 1 );
+        for ( TableColumn tableColumn : _listTableColumns )
+        {
+            if ( tableColumn.getIsPrimaryKey( ) )
+            {
+                listKeyColumns.add( tableColumn );
+            }
+        }
+        return listKeyColumns;
     }
 
     /**
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.importdata;
+
+import java.sql.Timestamp;
+
+/**
+ * Class that represents the journal of an import processed by chunks. The journal records the last row of the import source that has been committed, so
+ * that an interrupted import can be resumed from this row.
+ */
+public class ImportJournal
+{
+    private String _strFingerprint;
+    private String _strTableName;
+    private int _nLastRowNumber;
+    private long _lLastRowOffset = -1;
+    private Timestamp _dateUpdate;
+
+    /**
+     * Get the fingerprint of the imported file
+     * 
+     * @return The fingerprint of the imported file
+     */
+    public String getFingerprint( )
+    {
+        return _strFingerprint;
+    }
+
+    /**
+     * Set the fingerprint of the imported file
+     * 
+     * @param strFingerprint
+     *            The fingerprint of the imported file
+     */
+    public void setFingerprint( String strFingerprint )
+    {
+        this._strFingerprint = strFingerprint;
+    }
+
+    /**
+     * Get the name of the table of the database data are imported in
+     * 
+     * @return The name of the table
+     */
+    public String getTableName( )
+    {
+        return _strTableName;
+    }
+
+    /**
+     * Set the name of the table of the database data are imported in
+     * 
+     * @param strTableName
+     *            The name of the table
+     */
+    public void setTableName( String strTableName )
+    {
+        this._strTableName = strTableName;
+    }
+
+    /**
+     * Get the number of the last row of the import source that has been committed
+     * 
+     * @return The number of the last committed row
+     */
+    public int getLastRowNumber( )
+    {
+        return _nLastRowNumber;
+    }
+
+    /**
+     * Set the number of the last row of the import source that has been committed
+     * 
+     * @param nLastRowNumber
+     *            The number of the last committed row
+     */
+    public void setLastRowNumber( int nLastRowNumber )
+    {
+        this._nLastRowNumber = nLastRowNumber;
+    }
+
+    /**
+     * Get the byte offset in the import source of the end of the last row that has been committed
+     * 
+     * @return The byte offset of the end of the last committed row, or -1 if the import source cannot be read from an offset
+     */
+    public long getLastRowOffset( )
+    {
+        return _lLastRowOffset;
+    }
+
+    /**
+     * Set the byte offset in the import source of the end of the last row that has been committed
+     * 
+     * @param lLastRowOffset
+     *            The byte offset of the end of the last committed row, or -1 if the import source cannot be read from an offset
+     */
+    public void setLastRowOffset( long lLastRowOffset )
+    {
+        this._lLastRowOffset = lLastRowOffset;
+    }
+
+    /**
+     * Get the date of the last update of this journal
+     * 
+     * @return The date of the last update
+     */
+    public Timestamp getDateUpdate( )
+    {
+        return _dateUpdate;
+    }
+
+    /**
+     * Set the date of the last update of this journal
+     * 
+     * @param dateUpdate
+     *            The date of the last update
+     */
+    public void setDateUpdate( Timestamp dateUpdate )
+    {
+        this._dateUpdate = dateUpdate;
+    }
+}
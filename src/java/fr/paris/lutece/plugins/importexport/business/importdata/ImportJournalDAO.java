@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.importdata;
+
+import fr.paris.lutece.plugins.importexport.service.ImportExportPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the IImportJournalDAO interface
+ */
+public class ImportJournalDAO implements IImportJournalDAO
+{
+    private static final String SQL_QUERY_FIND_BY_FINGERPRINT = " SELECT fingerprint, table_name, last_row_number, last_row_offset, date_update FROM importexport_import_journal WHERE fingerprint = ? AND table_name = ? ";
+    private static final String SQL_QUERY_INSERT = " INSERT INTO importexport_import_journal( fingerprint, table_name, last_row_number, last_row_offset, date_update ) VALUES (?,?,?,?,?) ";
+    private static final String SQL_QUERY_UPDATE = " UPDATE importexport_import_journal SET last_row_number = ?, last_row_offset = ?, date_update = ? WHERE fingerprint = ? AND table_name = ? ";
+    private static final String SQL_QUERY_DELETE = " DELETE FROM importexport_import_journal WHERE fingerprint = ? AND table_name = ? ";
+
+    // A lock rather than a synchronized method, so that virtual threads waiting for the database do not pin their carrier thread
+    private final ReentrantLock _lockSave = new ReentrantLock( );
+    private Plugin _plugin;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ImportJournal findByFingerprint( String strFingerprint, String strTableName )
+    {
+        ImportJournal result = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_FINGERPRINT, getPlugin( ) );
+        daoUtil.setString( 1, strFingerprint );
+        daoUtil.setString( 2, strTableName );
+        daoUtil.executeQuery( );
+        if ( daoUtil.next( ) )
+        {
+            int nIndex = 1;
+            result = new ImportJournal( );
+            result.setFingerprint( daoUtil.getString( nIndex++ ) );
+            result.setTableName( daoUtil.getString( nIndex++ ) );
+            result.setLastRowNumber( daoUtil.getInt( nIndex++ ) );
+            result.setLastRowOffset( daoUtil.getLong( nIndex++ ) );
+            result.setDateUpdate( daoUtil.getTimestamp( nIndex ) );
+        }
+        daoUtil.free( );
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save( ImportJournal journal )
+    {
+        _lockSave.lock( );
+        try
+        {
+            if ( findByFingerprint( journal.getFingerprint( ), journal.getTableName( ) ) == null )
+            {
+                DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, getPlugin( ) );
+                int nIndex = 1;
+                daoUtil.setString( nIndex++, journal.getFingerprint( ) );
+                daoUtil.setString( nIndex++, journal.getTableName( ) );
+                daoUtil.setInt( nIndex++, journal.getLastRowNumber( ) );
+                daoUtil.setLong( nIndex++, journal.getLastRowOffset( ) );
+                daoUtil.setTimestamp( nIndex, journal.getDateUpdate( ) );
+                daoUtil.executeUpdate( );
+                daoUtil.free( );
+            }
+            else
+            {
+                DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, getPlugin( ) );
+                int nIndex = 1;
+                daoUtil.setInt( nIndex++, journal.getLastRowNumber( ) );
+                daoUtil.setLong( nIndex++, journal.getLastRowOffset( ) );
+                daoUtil.setTimestamp( nIndex++, journal.getDateUpdate( ) );
+                daoUtil.setString( nIndex++, journal.getFingerprint( ) );
+                daoUtil.setString( nIndex, journal.getTableName( ) );
+                daoUtil.executeUpdate( );
+                daoUtil.free( );
+            }
+        }
+        finally
+        {
+            _lockSave.unlock( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( String strFingerprint, String strTableName )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, getPlugin( ) );
+        daoUtil.setString( 1, strFingerprint );
+        daoUtil.setString( 2, strTableName );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * Get the import export plugin
+     * 
+     * @return The import export plugin
+     */
+    private Plugin getPlugin( )
+    {
+        if ( _plugin == null )
+        {
+            _plugin = ImportExportPlugin.getPlugin( );
+        }
+        return _plugin;
+    }
+}
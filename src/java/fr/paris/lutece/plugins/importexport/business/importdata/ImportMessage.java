@@ -33,11 +33,18 @@
  */
 package fr.paris.lutece.plugins.importexport.business.importdata;
 
+import java.io.Serializable;
+
 /**
  * Describe a message of imported elements
  */
-public class ImportMessage
+public class ImportMessage implements Serializable
 {
+    /**
+     * Generated serial version UID
+     */
+    private static final long serialVersionUID = 7880257544706065133L;
+
     /**
      * Status that indicates that the item was skipped
      */
@@ -54,6 +61,7 @@ public class ImportMessage
     private String _strMessage;
     private int _nStatus;
     private int _nItemNumber;
+    private String [ ] _strSourceValues;
 
     /**
      * Creates a new import message
@@ -144,6 +152,28 @@ public class ImportMessage
         this._nItemNumber = nItemNumber;
     }
 
+    /**
+     * Get the values of the rejected item as they were read from the import source
+     * 
+     * @return The source values, or null if the message is not about a rejected item
+     */
+    public String [ ] getSourceValues( )
+    {
+        return _strSourceValues;
+    }
+
+    /**
+     * Set the values of the rejected item as they were read from the import source. They are only kept until the item is written into the reject file of
+     * the import
+     * 
+     * @param strSourceValues
+     *            The source values
+     */
+    public void setSourceValues( String [ ] strSourceValues )
+    {
+        this._strSourceValues = strSourceValues;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.importdata;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes the import messages that have the same status and the same text, with their number and the numbers of some of their items
+ */
+public class ImportMessageSummary implements Serializable
+{
+    /**
+     * Generated serial version UID
+     */
+    private static final long serialVersionUID = 241470350837555242L;
+
+    private String _strMessage;
+    private int _nStatus;
+    private int _nCount;
+    private List<Integer> _listSampleItemNumbers = new ArrayList<Integer>( );
+
+    /**
+     * Creates a new summary
+     * 
+     * @param strMessage
+     *            The text of the messages
+     * @param nStatus
+     *            The status of the messages
+     */
+    public ImportMessageSummary( String strMessage, int nStatus )
+    {
+        this._strMessage = strMessage;
+        this._nStatus = nStatus;
+    }
+
+    /**
+     * Summarize a list of messages. Messages with the same status and the same text are grouped in a single summary, in the order of their first occurrence.
+     * 
+     * @param listMessages
+     *            The list of messages
+     * @param nMaxSamples
+     *            The maximum number of item numbers kept by each summary
+     * @return The list of summaries
+     */
+    public static List<ImportMessageSummary> summarize( List<ImportMessage> listMessages, int nMaxSamples )
+    {
+        Map<String, ImportMessageSummary> mapSummaries = new LinkedHashMap<String, ImportMessageSummary>( );
+        if ( listMessages != null )
+        {
+            for ( ImportMessage message : listMessages )
+            {
+                String strKey = message.getStatus( ) + ":" + message.getMessage( );
+                ImportMessageSummary summary = mapSummaries.get( strKey );
+                if ( summary == null )
+                {
+                    summary = new ImportMessageSummary( message.getMessage( ), message.getStatus( ) );
+                    mapSummaries.put( strKey, summary );
+                }
+                summary.addItemNumber( message.getItemNumber( ), nMaxSamples );
+            }
+        }
+        return new ArrayList<ImportMessageSummary>( mapSummaries.values( ) );
+    }
+
+    /**
+     * Count a message of this summary
+     * 
+     * @param nItemNumber
+     *            The number of the item of the message
+     * @param nMaxSamples
+     *            The maximum number of item numbers kept by this summary
+     */
+    public void addItemNumber( int nItemNumber, int nMaxSamples )
+    {
+        _nCount++;
+        if ( _listSampleItemNumbers.size( ) < nMaxSamples )
+        {
+            _listSampleItemNumbers.add( nItemNumber );
+        }
+    }
+
+    /**
+     * Get the text of the messages
+     * 
+     * @return The text of the messages
+     */
+    public String getMessage( )
+    {
+        return _strMessage;
+    }
+
+    /**
+     * Get the status of the messages
+     * 
+     * @return The status of the messages, as defined by {@link ImportMessage}
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Get the number of messages
+     * 
+     * @return The number of messages
+     */
+    public int getCount( )
+    {
+        return _nCount;
+    }
+
+    /**
+     * Get the numbers of the first items of the messages
+     * 
+     * @return The list of item numbers
+     */
+    public List<Integer> getSampleItemNumbers( )
+    {
+        return _listSampleItemNumbers;
+    }
+}
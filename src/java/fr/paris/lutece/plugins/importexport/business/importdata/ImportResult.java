@@ -33,17 +33,54 @@
  */
 package fr.paris.lutece.plugins.importexport.business.importdata;
 
+import java.io.File;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Describes the result of an import
  */
-public class ImportResult
+public class ImportResult implements Serializable
 {
+    /**
+     * Generated serial version UID
+     */
+    private static final long serialVersionUID = 7188037641773423094L;
+
+    /**
+     * Phase that prepares the table before rows are written
+     */
+    public static final String PHASE_PREPARE = "prepare";
+
+    /**
+     * Phase that reads, converts and writes rows
+     */
+    public static final String PHASE_LOAD = "load";
+
+    /**
+     * Phase that commits written rows
+     */
+    public static final String PHASE_COMMIT = "commit";
+
+    /**
+     * Phase that creates again indexes dropped during the import, and validates foreign keys
+     */
+    public static final String PHASE_REBUILD = "rebuild";
+
+    /**
+     * Phase that refreshes the statistics of the table once the import is committed
+     */
+    public static final String PHASE_ANALYZE = "analyze";
+
     private int _nCreatedElements;
     private int _nUpdatedElements;
     private int _nIgnoredElements;
     private List<ImportMessage> _listImportMessage;
+    private List<ImportMessageSummary> _listMessageSummaries;
+    private File _rejectFile;
+    private Map<String, Long> _mapPhaseDurations = new LinkedHashMap<String, Long>( );
 
     /**
      * Default constructor
@@ -157,4 +194,67 @@ public class ImportResult
         this._listImportMessage = listImportMessage;
     }
 
+    /**
+     * Get the summaries of the import messages, where identical messages are grouped
+     * 
+     * @return The list of summaries, or null if messages were not summarized
+     */
+    public List<ImportMessageSummary> getListMessageSummaries( )
+    {
+        return _listMessageSummaries;
+    }
+
+    /**
+     * Set the summaries of the import messages
+     * 
+     * @param listMessageSummaries
+     *            The list of summaries
+     */
+    public void setListMessageSummaries( List<ImportMessageSummary> listMessageSummaries )
+    {
+        this._listMessageSummaries = listMessageSummaries;
+    }
+
+    /**
+     * Get the reject file of the import, that contains every rejected row followed by the reason of its rejection
+     * 
+     * @return The reject file, or null if no row was rejected
+     */
+    public File getRejectFile( )
+    {
+        return _rejectFile;
+    }
+
+    /**
+     * Set the reject file of the import
+     * 
+     * @param rejectFile
+     *            The reject file
+     */
+    public void setRejectFile( File rejectFile )
+    {
+        this._rejectFile = rejectFile;
+    }
+
+    /**
+     * Get the durations of the phases of the import
+     * 
+     * @return The map of durations in milliseconds, by name of phase. Phases that were not run are not included
+     */
+    public Map<String, Long> getPhaseDurations( )
+    {
+        return _mapPhaseDurations;
+    }
+
+    /**
+     * Set the durations of the phases of the import
+     * 
+     * @param mapPhaseDurations
+     *            The map of durations in milliseconds, by name of phase
+     */
+    public void setPhaseDurations( Map<String, Long> mapPhaseDurations )
+    {
+        this._mapPhaseDurations = mapPhaseDurations;
+    }
+
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.importdata;
+
+import java.util.List;
+
+/**
+ * Class that represents a row of an import whose values have been converted into the Java types of the columns of the table. Rows are created by
+ * {@link ImportDataDAO#convertRow(List, int)}.
+ */
+public class ImportRow
+{
+    private int _nItemNumber;
+    private Object [ ] _values;
+    private List<String> _listKey;
+    private String _strError;
+    private String [ ] _strSourceValues;
+    private long _lSourceOffset = -1;
+
+    /**
+     * Creates a new row
+     * 
+     * @param nItemNumber
+     *            The number of the item in the import source
+     */
+    public ImportRow( int nItemNumber )
+    {
+        _nItemNumber = nItemNumber;
+    }
+
+    /**
+     * Get the number of the item in the import source
+     * 
+     * @return The number of the item
+     */
+    public int getItemNumber( )
+    {
+        return _nItemNumber;
+    }
+
+    /**
+     * Get the converted values of the row, in the order of the columns of the table
+     * 
+     * @return The converted values, or null if the row could not be converted
+     */
+    public Object [ ] getValues( )
+    {
+        return _values;
+    }
+
+    /**
+     * Set the converted values of the row, in the order of the columns of the table
+     * 
+     * @param values
+     *            The converted values
+     */
+    public void setValues( Object [ ] values )
+    {
+        this._values = values;
+    }
+
+    /**
+     * Get the key of the row. The key contains the normalized values of the primary key columns of the row
+     * 
+     * @return The key of the row, or null if one of its primary key values is empty
+     */
+    public List<String> getKey( )
+    {
+        return _listKey;
+    }
+
+    /**
+     * Set the key of the row
+     * 
+     * @param listKey
+     *            The key of the row
+     */
+    public void setKey( List<String> listKey )
+    {
+        this._listKey = listKey;
+    }
+
+    /**
+     * Get the error that prevented the row from being converted
+     * 
+     * @return The error message, or null if the row was successfully converted
+     */
+    public String getError( )
+    {
+        return _strError;
+    }
+
+    /**
+     * Set the error that prevented the row from being converted
+     * 
+     * @param strError
+     *            The error message
+     */
+    public void setError( String strError )
+    {
+        this._strError = strError;
+    }
+
+    /**
+     * Get the values of the row as they were read from the import source
+     * 
+     * @return The source values, or null if they are unknown
+     */
+    public String [ ] getSourceValues( )
+    {
+        return _strSourceValues;
+    }
+
+    /**
+     * Set the values of the row as they were read from the import source, so that the row can be written into the reject file of the import if it is not
+     * imported
+     * 
+     * @param strSourceValues
+     *            The source values
+     */
+    public void setSourceValues( String [ ] strSourceValues )
+    {
+        this._strSourceValues = strSourceValues;
+    }
+
+    /**
+     * Get the byte offset in the import source of the end of this row. The offset is only known for the last row of a chunk read from a resumable import
+     * source.
+     * 
+     * @return The byte offset of the end of this row, or -1 if it is unknown
+     */
+    public long getSourceOffset( )
+    {
+        return _lSourceOffset;
+    }
+
+    /**
+     * Set the byte offset in the import source of the end of this row
+     * 
+     * @param lSourceOffset
+     *            The byte offset of the end of this row, or -1 if it is unknown
+     */
+    public void setSourceOffset( long lSourceOffset )
+    {
+        this._lSourceOffset = lSourceOffset;
+    }
+}
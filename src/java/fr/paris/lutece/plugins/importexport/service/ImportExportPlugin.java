@@ -65,5 +65,7 @@ public class ImportExportPlugin extends PluginDefaultImplementation
         // We register the CSV import source factory to the import manager
         CSVImportSourceFactory csvImportSourceFactory = new CSVImportSourceFactory( );
         ImportManager.registerImportSourceFactory( csvImportSourceFactory );
+        // The columns of importable and exportable tables are cached before the first import or export
+        TableMetadataCacheService.getInstance( ).preloadTables( this );
     }
 }
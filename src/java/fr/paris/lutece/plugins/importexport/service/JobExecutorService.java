@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Executor of the imports and exports of the plugin. Jobs are run by a fixed number of workers. Jobs of the same table are serialized: a job waits in the
+ * queue of its table until the previous job of the table is finished, and is only then handed to a worker, so that workers never wait for each other while
+ * jobs of other tables are queued. Jobs of different tables run in parallel. Queued jobs are started by order of priority, and then by order of submission,
+ * so that interactive jobs are never delayed by queued daemon jobs. On JDK 21 and later, jobs can run on virtual threads: the number of concurrent jobs is
+ * then bounded by the number of database connections they may use rather than by the number of workers.
+ */
+public final class JobExecutorService
+{
+    /**
+     * Priority of jobs started by admin users
+     */
+    public static final int PRIORITY_INTERACTIVE = 0;
+
+    /**
+     * Priority of jobs started by daemons
+     */
+    public static final int PRIORITY_DAEMON = 1;
+
+    private static final String PROPERTY_WORKERS = "importexport.executor.workers";
+    private static final String PROPERTY_VIRTUAL_THREADS = "importexport.executor.virtualThreads";
+    private static final String PROPERTY_VIRTUAL_WORKERS = "importexport.executor.virtualWorkers";
+    private static final String PROPERTY_MAX_CONNECTIONS = "importexport.executor.maxConnections";
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_VIRTUAL_WORKERS = 256;
+    private static final int DEFAULT_VIRTUAL_MAX_CONNECTIONS = 10;
+    private static final String CONSTANT_THREAD_NAME = "importexport-job-";
+    private static final String CONSTANT_THREAD_BUILDER_CLASS = "java.lang.Thread$Builder";
+    private static final String CONSTANT_METHOD_OF_VIRTUAL = "ofVirtual";
+    private static final String CONSTANT_METHOD_NAME = "name";
+    private static final String CONSTANT_METHOD_FACTORY = "factory";
+
+    private static JobExecutorService _singleton = new JobExecutorService( );
+
+    private final boolean _bVirtualThreads;
+    private final ThreadPoolExecutor _executor;
+    private final Map<String, PriorityQueue<PrioritizedJob<?>>> _mapTableQueues = new HashMap<String, PriorityQueue<PrioritizedJob<?>>>( );
+    private final Semaphore _connectionPermits;
+    private final int _nMaxConnections;
+    private final AtomicLong _lSequence = new AtomicLong( );
+    private final AtomicLong _lStartedJobs = new AtomicLong( );
+    private final AtomicLong _lTotalWaitTime = new AtomicLong( );
+    private final AtomicLong _lMaxWaitTime = new AtomicLong( );
+
+    /**
+     * Private constructor
+     */
+    private JobExecutorService( )
+    {
+        _bVirtualThreads = AppPropertiesService.getPropertyBoolean( PROPERTY_VIRTUAL_THREADS, false )
+                && createVirtualThreadFactory( CONSTANT_THREAD_NAME ) != null;
+        int nWorkers;
+        int nMaxConnections = AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONNECTIONS, 0 );
+        if ( _bVirtualThreads )
+        {
+            // Virtual threads are cheap, so concurrent jobs are only bounded by the connections of the pool
+            nWorkers = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_VIRTUAL_WORKERS, DEFAULT_VIRTUAL_WORKERS ) );
+            if ( nMaxConnections <= 0 )
+            {
+                nMaxConnections = DEFAULT_VIRTUAL_MAX_CONNECTIONS;
+            }
+            AppLogService.info( "Import and export jobs run on virtual threads, with at most " + nMaxConnections + " database connections" );
+        }
+        else
+        {
+            nWorkers = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_WORKERS, DEFAULT_WORKERS ) );
+        }
+        _nMaxConnections = nMaxConnections;
+        _connectionPermits = nMaxConnections > 0 ? new Semaphore( nMaxConnections, true ) : null;
+        _executor = new ThreadPoolExecutor( nWorkers, nWorkers, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>( ),
+                createThreadFactory( CONSTANT_THREAD_NAME ) );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static JobExecutorService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Submit a job that uses a single database connection
+     * 
+     * @param job
+     *            The job
+     * @param strTableName
+     *            The name of the table the job reads or writes
+     * @param nPriority
+     *            The priority of the job, {@link #PRIORITY_INTERACTIVE} or {@link #PRIORITY_DAEMON}
+     * @return The future of the job
+     */
+    public Future<Object> submit( Runnable job, String strTableName, int nPriority )
+    {
+        return submit( Executors.callable( job ), strTableName, nPriority, 1 );
+    }
+
+    /**
+     * Submit a job
+     * 
+     * @param job
+     *            The job
+     * @param strTableName
+     *            The name of the table the job reads or writes
+     * @param nPriority
+     *            The priority of the job, {@link #PRIORITY_INTERACTIVE} or {@link #PRIORITY_DAEMON}
+     * @param nConnections
+     *            The number of database connections the job uses at the same time
+     * @return The future of the job
+     */
+    public Future<Object> submit( Runnable job, String strTableName, int nPriority, int nConnections )
+    {
+        return submit( Executors.callable( job ), strTableName, nPriority, nConnections );
+    }
+
+    /**
+     * Submit a job
+     * 
+     * @param <T>
+     *            The type of the result of the job
+     * @param job
+     *            The job
+     * @param strTableName
+     *            The name of the table the job reads or writes
+     * @param nPriority
+     *            The priority of the job, {@link #PRIORITY_INTERACTIVE} or {@link #PRIORITY_DAEMON}
+     * @param nConnections
+     *            The number of database connections the job uses at the same time
+     * @return The future of the job
+     */
+    public <T> Future<T> submit( Callable<T> job, String strTableName, int nPriority, int nConnections )
+    {
+        PrioritizedJob<T> prioritizedJob = new PrioritizedJob<T>( job, strTableName, nPriority, nConnections, _lSequence.incrementAndGet( ) );
+        boolean bTableFree;
+        synchronized( _mapTableQueues )
+        {
+            PriorityQueue<PrioritizedJob<?>> queueTable = _mapTableQueues.get( prioritizedJob._strTableKey );
+            bTableFree = queueTable == null;
+            if ( bTableFree )
+            {
+                // The queue of a table exists as long as a job of the table is handed to a worker
+                _mapTableQueues.put( prioritizedJob._strTableKey, new PriorityQueue<PrioritizedJob<?>>( ) );
+            }
+            else
+            {
+                queueTable.add( prioritizedJob );
+            }
+        }
+        if ( bTableFree )
+        {
+            _executor.execute( prioritizedJob );
+        }
+        return prioritizedJob;
+    }
+
+    /**
+     * Submit a job and wait for its result
+     * 
+     * @param <T>
+     *            The type of the result of the job
+     * @param job
+     *            The job
+     * @param strTableName
+     *            The name of the table the job reads or writes
+     * @param nPriority
+     *            The priority of the job, {@link #PRIORITY_INTERACTIVE} or {@link #PRIORITY_DAEMON}
+     * @param nConnections
+     *            The number of database connections the job uses at the same time
+     * @return The result of the job
+     * @throws AppException
+     *             If the job failed, or if the current thread was interrupted while waiting
+     */
+    public <T> T invoke( Callable<T> job, String strTableName, int nPriority, int nConnections ) throws AppException
+    {
+        Future<T> future = submit( job, strTableName, nPriority, nConnections );
+        try
+        {
+            return future.get( );
+        }
+        catch( InterruptedException e )
+        {
+            future.cancel( false );
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( e.getMessage( ), e );
+        }
+        catch( ExecutionException e )
+        {
+            throw new AppException( e.getCause( ).getMessage( ), e );
+        }
+    }
+
+    /**
+     * Check if jobs run on virtual threads
+     * 
+     * @return True if jobs run on virtual threads, false if they run on platform threads
+     */
+    public boolean isVirtualThreads( )
+    {
+        return _bVirtualThreads;
+    }
+
+    /**
+     * Create a factory of threads for the work of a job. Threads are virtual threads if jobs run on virtual threads, or daemon platform threads otherwise
+     * 
+     * @param strNamePrefix
+     *            The prefix of the names of the threads
+     * @return The factory of threads
+     */
+    public ThreadFactory createThreadFactory( final String strNamePrefix )
+    {
+        if ( _bVirtualThreads )
+        {
+            return createVirtualThreadFactory( strNamePrefix );
+        }
+        return new ThreadFactory( )
+        {
+            private final AtomicInteger _nThreadNumber = new AtomicInteger( );
+
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, strNamePrefix + _nThreadNumber.incrementAndGet( ) );
+                // Workers must not prevent the server from stopping
+                thread.setDaemon( true );
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Get the number of database connections that jobs can use at the same time
+     * 
+     * @return The number of connections, or 0 if it is not bounded
+     */
+    public int getMaxConnections( )
+    {
+        return _nMaxConnections;
+    }
+
+    /**
+     * Get the number of database connections that jobs can still take before they wait
+     * 
+     * @return The number of available connections, or -1 if it is not bounded
+     */
+    public int getAvailableConnections( )
+    {
+        return _connectionPermits == null ? -1 : _connectionPermits.availablePermits( );
+    }
+
+    /**
+     * Check if a job of a table is running, or waiting for a worker
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @return True if a job of the table was handed to a worker and is not finished, false otherwise
+     */
+    public boolean isTableBusy( String strTableName )
+    {
+        synchronized( _mapTableQueues )
+        {
+            return _mapTableQueues.containsKey( getTableKey( strTableName ) );
+        }
+    }
+
+    /**
+     * Get the number of jobs waiting for a worker, or for the previous job of their table
+     * 
+     * @return The number of queued jobs
+     */
+    public int getQueueDepth( )
+    {
+        int nQueueDepth = _executor.getQueue( ).size( );
+        synchronized( _mapTableQueues )
+        {
+            for ( PriorityQueue<PrioritizedJob<?>> queueTable : _mapTableQueues.values( ) )
+            {
+                nQueueDepth += queueTable.size( );
+            }
+        }
+        return nQueueDepth;
+    }
+
+    /**
+     * Get the number of workers that are running a job, or waiting for the database connections of its job
+     * 
+     * @return The number of active workers
+     */
+    public int getActiveWorkers( )
+    {
+        return _executor.getActiveCount( );
+    }
+
+    /**
+     * Get the number of jobs that have been started
+     * 
+     * @return The number of started jobs
+     */
+    public long getStartedJobs( )
+    {
+        return _lStartedJobs.get( );
+    }
+
+    /**
+     * Get the average time jobs waited between their submission and their start, including the time waited for the previous jobs of their table and for
+     * database connections
+     * 
+     * @return The average wait time in milliseconds
+     */
+    public long getAverageWaitTime( )
+    {
+        long lStartedJobs = _lStartedJobs.get( );
+        return lStartedJobs == 0 ? 0 : _lTotalWaitTime.get( ) / lStartedJobs;
+    }
+
+    /**
+     * Get the longest time a job waited between its submission and its start
+     * 
+     * @return The maximum wait time in milliseconds
+     */
+    public long getMaxWaitTime( )
+    {
+        return _lMaxWaitTime.get( );
+    }
+
+    /**
+     * Get the key of the queue of a table. Table names are not case sensitive
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @return The key of the queue of the table
+     */
+    private static String getTableKey( String strTableName )
+    {
+        return StringUtils.defaultString( strTableName ).toLowerCase( Locale.ROOT );
+    }
+
+    /**
+     * Hand the next queued job of a table to a worker once the previous job of the table is finished, or remove the queue of the table if no job of the
+     * table is queued
+     * 
+     * @param strTableKey
+     *            The key of the queue of the table
+     */
+    private void dispatchNextJob( String strTableKey )
+    {
+        PrioritizedJob<?> nextJob;
+        synchronized( _mapTableQueues )
+        {
+            PriorityQueue<PrioritizedJob<?>> queueTable = _mapTableQueues.get( strTableKey );
+            nextJob = queueTable == null ? null : queueTable.poll( );
+            if ( nextJob == null )
+            {
+                _mapTableQueues.remove( strTableKey );
+            }
+        }
+        // Jobs cancelled while they were queued are handed to a worker too, and return at once so that the following job is dispatched
+        if ( nextJob != null )
+        {
+            _executor.execute( nextJob );
+        }
+    }
+
+    /**
+     * Create a factory of virtual threads. The API of virtual threads is called by reflection, since it does not exist before JDK 21
+     * 
+     * @param strNamePrefix
+     *            The prefix of the names of the threads
+     * @return The factory of virtual threads, or null if virtual threads are not supported by the JVM
+     */
+    private static ThreadFactory createVirtualThreadFactory( String strNamePrefix )
+    {
+        try
+        {
+            Class<?> builderClass = Class.forName( CONSTANT_THREAD_BUILDER_CLASS );
+            Object builder = Thread.class.getMethod( CONSTANT_METHOD_OF_VIRTUAL ).invoke( null );
+            builder = builderClass.getMethod( CONSTANT_METHOD_NAME, String.class, long.class ).invoke( builder, strNamePrefix, 1L );
+            return (ThreadFactory) builderClass.getMethod( CONSTANT_METHOD_FACTORY ).invoke( builder );
+        }
+        catch( ReflectiveOperationException e )
+        {
+            AppLogService.info( "Virtual threads are not supported by this JVM, import and export jobs run on platform threads" );
+            return null;
+        }
+    }
+
+    /**
+     * Record the time a job waited before it started
+     * 
+     * @param lWaitTime
+     *            The wait time in milliseconds
+     */
+    private void recordWaitTime( long lWaitTime )
+    {
+        _lStartedJobs.incrementAndGet( );
+        _lTotalWaitTime.addAndGet( lWaitTime );
+        long lMaxWaitTime = _lMaxWaitTime.get( );
+        while ( lWaitTime > lMaxWaitTime && !_lMaxWaitTime.compareAndSet( lMaxWaitTime, lWaitTime ) )
+        {
+            lMaxWaitTime = _lMaxWaitTime.get( );
+        }
+    }
+
+    /**
+     * A job with its priority and its table. Jobs are ordered by priority, and then by order of submission
+     * 
+     * @param <T>
+     *            The type of the result of the job
+     */
+    private final class PrioritizedJob<T> extends FutureTask<T> implements Comparable<PrioritizedJob<?>>
+    {
+        private final String _strTableName;
+        private final String _strTableKey;
+        private final int _nPriority;
+        private final int _nConnections;
+        private final long _lSequence;
+        private final long _lSubmitTime = System.currentTimeMillis( );
+
+        /**
+         * Creates a new prioritized job
+         * 
+         * @param job
+         *            The job
+         * @param strTableName
+         *            The name of the table the job reads or writes
+         * @param nPriority
+         *            The priority of the job
+         * @param nConnections
+         *            The number of database connections the job uses at the same time
+         * @param lSequence
+         *            The number of the job in the order of submission
+         */
+        PrioritizedJob( Callable<T> job, String strTableName, int nPriority, int nConnections, long lSequence )
+        {
+            super( job );
+            _strTableName = strTableName;
+            _strTableKey = getTableKey( strTableName );
+            _nPriority = nPriority;
+            // A job never waits for more connections than the executor allows
+            _nConnections = _nMaxConnections > 0 ? Math.max( 1, Math.min( nConnections, _nMaxConnections ) ) : nConnections;
+            _lSequence = lSequence;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            try
+            {
+                if ( isCancelled( ) )
+                {
+                    return;
+                }
+                // Semaphores park virtual threads without pinning their carrier thread
+                if ( _connectionPermits != null )
+                {
+                    _connectionPermits.acquireUninterruptibly( _nConnections );
+                }
+                try
+                {
+                    long lWaitTime = System.currentTimeMillis( ) - _lSubmitTime;
+                    recordWaitTime( lWaitTime );
+                    AppLogService.debug( "Job of table " + _strTableName + " started after " + lWaitTime + " ms, " + getQueueDepth( ) + " job(s) queued" );
+                    super.run( );
+                }
+                finally
+                {
+                    if ( _connectionPermits != null )
+                    {
+                        _connectionPermits.release( _nConnections );
+                    }
+                }
+            }
+            finally
+            {
+                // Jobs of the same table are serialized, so that they never wait for the row locks of each other
+                dispatchNextJob( _strTableKey );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo( PrioritizedJob<?> job )
+        {
+            if ( _nPriority != job._nPriority )
+            {
+                return Integer.compare( _nPriority, job._nPriority );
+            }
+            return Long.compare( _lSequence, job._lSequence );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals( Object object )
+        {
+            return this == object;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode( )
+        {
+            return Long.hashCode( _lSequence );
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service;
+
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the asynchronous jobs started by admin users. Jobs are identified by a job id, and an admin user can have several jobs. Finished jobs are kept
+ * until their result is read, but are evicted once they are older than a time to live, or when too many finished jobs are registered. Running jobs are
+ * never evicted.
+ * 
+ * @param <J>
+ *            The type of jobs
+ */
+public class JobRegistry<J extends IAsynchronousJob>
+{
+    private static final String PROPERTY_RESULT_TIME_TO_LIVE = "importexport.jobs.resultTimeToLive";
+    private static final String PROPERTY_MAX_FINISHED_JOBS = "importexport.jobs.maxFinishedJobs";
+    private static final int DEFAULT_RESULT_TIME_TO_LIVE = 3600;
+    private static final int DEFAULT_MAX_FINISHED_JOBS = 100;
+    private static final long CONSTANT_MILLISECONDS = 1000L;
+
+    private final ConcurrentMap<String, RegisteredJob<J>> _mapJobs = new ConcurrentHashMap<String, RegisteredJob<J>>( );
+    private final AtomicLong _lSequence = new AtomicLong( );
+
+    /**
+     * Register a job. Expired finished jobs are evicted first
+     * 
+     * @param nAdminId
+     *            The id of the admin user that started the job
+     * @param job
+     *            The job
+     * @return The id of the job
+     */
+    public String register( int nAdminId, J job )
+    {
+        evict( );
+        String strJobId = UUID.randomUUID( ).toString( );
+        _mapJobs.put( strJobId, new RegisteredJob<J>( nAdminId, job, _lSequence.incrementAndGet( ) ) );
+        return strJobId;
+    }
+
+    /**
+     * Get a job of an admin user
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the job
+     * @return The job, or null if no job with this id was started by the admin user
+     */
+    public J getJob( int nAdminId, String strJobId )
+    {
+        if ( strJobId == null )
+        {
+            return null;
+        }
+        RegisteredJob<J> registeredJob = _mapJobs.get( strJobId );
+        return registeredJob != null && registeredJob.getAdminId( ) == nAdminId ? registeredJob.getJob( ) : null;
+    }
+
+    /**
+     * Get the id of the last job started by an admin user
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @return The id of the job, or null if the admin user has no job
+     */
+    public String getLastJobId( int nAdminId )
+    {
+        String strLastJobId = null;
+        long lLastSequence = 0;
+        for ( Map.Entry<String, RegisteredJob<J>> entry : _mapJobs.entrySet( ) )
+        {
+            RegisteredJob<J> registeredJob = entry.getValue( );
+            if ( registeredJob.getAdminId( ) == nAdminId && registeredJob.getSequence( ) > lLastSequence )
+            {
+                strLastJobId = entry.getKey( );
+                lLastSequence = registeredJob.getSequence( );
+            }
+        }
+        return strLastJobId;
+    }
+
+    /**
+     * Check if an admin user has a job that is not finished
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @return True if the admin user has a job that is not finished, false otherwise
+     */
+    public boolean hasRunningJob( int nAdminId )
+    {
+        for ( RegisteredJob<J> registeredJob : _mapJobs.values( ) )
+        {
+            if ( registeredJob.getAdminId( ) == nAdminId && !isFinished( registeredJob.getJob( ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove a job of an admin user, once its result has been read
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the job
+     * @return The removed job, or null if no job with this id was started by the admin user
+     */
+    public J remove( int nAdminId, String strJobId )
+    {
+        if ( strJobId == null )
+        {
+            return null;
+        }
+        RegisteredJob<J> registeredJob = _mapJobs.get( strJobId );
+        if ( registeredJob != null && registeredJob.getAdminId( ) == nAdminId && _mapJobs.remove( strJobId, registeredJob ) )
+        {
+            return registeredJob.getJob( );
+        }
+        return null;
+    }
+
+    /**
+     * Remove and discard the finished jobs of an admin user whose result has not been read
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     */
+    public void removeFinishedJobs( int nAdminId )
+    {
+        for ( Map.Entry<String, RegisteredJob<J>> entry : _mapJobs.entrySet( ) )
+        {
+            RegisteredJob<J> registeredJob = entry.getValue( );
+            if ( registeredJob.getAdminId( ) == nAdminId && isFinished( registeredJob.getJob( ) ) )
+            {
+                discard( entry.getKey( ), registeredJob );
+            }
+        }
+    }
+
+    /**
+     * Get the number of registered jobs
+     * 
+     * @return The number of registered jobs
+     */
+    public int size( )
+    {
+        return _mapJobs.size( );
+    }
+
+    /**
+     * Evict the finished jobs that are older than the time to live of results, and the oldest finished jobs if too many finished jobs are registered
+     */
+    public void evict( )
+    {
+        long lTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_RESULT_TIME_TO_LIVE, DEFAULT_RESULT_TIME_TO_LIVE ) * CONSTANT_MILLISECONDS;
+        int nMaxFinishedJobs = AppPropertiesService.getPropertyInt( PROPERTY_MAX_FINISHED_JOBS, DEFAULT_MAX_FINISHED_JOBS );
+        long lNow = System.currentTimeMillis( );
+        List<Map.Entry<String, RegisteredJob<J>>> listFinishedJobs = new ArrayList<Map.Entry<String, RegisteredJob<J>>>( );
+        for ( Map.Entry<String, RegisteredJob<J>> entry : _mapJobs.entrySet( ) )
+        {
+            J job = entry.getValue( ).getJob( );
+            if ( isFinished( job ) )
+            {
+                if ( lNow - job.getProgress( ).getEndTime( ) > lTimeToLive )
+                {
+                    discard( entry.getKey( ), entry.getValue( ) );
+                }
+                else
+                {
+                    listFinishedJobs.add( entry );
+                }
+            }
+        }
+        if ( listFinishedJobs.size( ) > nMaxFinishedJobs )
+        {
+            // The jobs that finished first are evicted first
+            Collections.sort( listFinishedJobs, new Comparator<Map.Entry<String, RegisteredJob<J>>>( )
+            {
+                @Override
+                public int compare( Map.Entry<String, RegisteredJob<J>> entry1, Map.Entry<String, RegisteredJob<J>> entry2 )
+                {
+                    return Long.compare( entry1.getValue( ).getJob( ).getProgress( ).getEndTime( ), entry2.getValue( ).getJob( ).getProgress( ).getEndTime( ) );
+                }
+            } );
+            for ( Map.Entry<String, RegisteredJob<J>> entry : listFinishedJobs.subList( 0, listFinishedJobs.size( ) - nMaxFinishedJobs ) )
+            {
+                discard( entry.getKey( ), entry.getValue( ) );
+            }
+        }
+    }
+
+    /**
+     * Remove a job from the registry and discard it, unless it has already been removed by another thread
+     * 
+     * @param strJobId
+     *            The id of the job
+     * @param registeredJob
+     *            The registered job
+     */
+    private void discard( String strJobId, RegisteredJob<J> registeredJob )
+    {
+        if ( _mapJobs.remove( strJobId, registeredJob ) )
+        {
+            registeredJob.getJob( ).discard( );
+        }
+    }
+
+    /**
+     * Check if a job is finished
+     * 
+     * @param job
+     *            The job
+     * @return True if the job is finished, false otherwise
+     */
+    private static boolean isFinished( IAsynchronousJob job )
+    {
+        return JobProgress.STATUS_FINISHED.equals( job.getProgress( ).getStatus( ) );
+    }
+
+    /**
+     * A job, with the id of the admin user that started it
+     * 
+     * @param <T>
+     *            The type of job
+     */
+    private static final class RegisteredJob<T>
+    {
+        private final int _nAdminId;
+        private final T _job;
+        private final long _lSequence;
+
+        /**
+         * Creates a new registered job
+         * 
+         * @param nAdminId
+         *            The id of the admin user that started the job
+         * @param job
+         *            The job
+         * @param lSequence
+         *            The number of the job in the order of registration
+         */
+        RegisteredJob( int nAdminId, T job, long lSequence )
+        {
+            _nAdminId = nAdminId;
+            _job = job;
+            _lSequence = lSequence;
+        }
+
+        /**
+         * Get the id of the admin user that started the job
+         * 
+         * @return The id of the admin user
+         */
+        int getAdminId( )
+        {
+            return _nAdminId;
+        }
+
+        /**
+         * Get the job
+         * 
+         * @return The job
+         */
+        T getJob( )
+        {
+            return _job;
+        }
+
+        /**
+         * Get the number of the job in the order of registration
+         * 
+         * @return The number of the job
+         */
+        long getSequence( )
+        {
+            return _lSequence;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service;
+
+import fr.paris.lutece.plugins.importexport.business.AbstractImportExportDAO;
+import fr.paris.lutece.plugins.importexport.business.TableMetadata;
+import fr.paris.lutece.plugins.importexport.business.codec.CodecRegistry;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Cache of the columns and keys of database tables. Columns are cached by pool, schema and table, and are read from the metadata of the current schema
+ * of each pool. Cached columns expire after a configurable time to live, and can be invalidated explicitly or from the cache management page.
+ */
+public final class TableMetadataCacheService extends AbstractCacheableService
+{
+    private static final String SERVICE_NAME = "ImportExport Table Metadata Cache Service";
+
+    private static final String PROPERTY_TIME_TO_LIVE = "importexport.tableMetadataCache.timeToLive";
+    private static final String PROPERTY_IMPORTABLE_TABLES = "importexport.database.importableTableNames";
+    private static final String PROPERTY_EXPORTABLE_TABLES = "importexport.database.exportableTableNames";
+    private static final long DEFAULT_TIME_TO_LIVE = 3600;
+
+    private static final String CONSTANT_DEFAULT_POOL = "default";
+    private static final String CONSTANT_KEY_SEPARATOR = ":";
+    private static final String CONSTANT_SEMICOLON = ";";
+
+    private static TableMetadataCacheService _singleton = new TableMetadataCacheService( );
+
+    private Map<String, String> _mapSchemaNames = new ConcurrentHashMap<String, String>( );
+
+    /**
+     * Private constructor
+     */
+    private TableMetadataCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static TableMetadataCacheService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Get the columns of a table of the current schema of the pool of a plugin. Columns are read from the database if they are not cached yet, or if
+     * cached columns have expired.
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param plugin
+     *            The plugin to use the pool of
+     * @return The metadata of the table
+     */
+    public TableMetadata getTableMetadata( String strTableName, Plugin plugin )
+    {
+        String strSchemaName = getSchemaName( plugin );
+        String strKey = getKey( strTableName, strSchemaName, plugin );
+        TableMetadata tableMetadata = (TableMetadata) getFromCache( strKey );
+        if ( tableMetadata == null || tableMetadata.isExpired( AppPropertiesService.getPropertyLong( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L ) )
+        {
+            tableMetadata = AbstractImportExportDAO.findTableMetadata( strTableName, plugin );
+            putInCache( strKey, tableMetadata );
+        }
+        return tableMetadata;
+    }
+
+    /**
+     * Remove the cached columns of a table, for example after its structure has been modified
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param plugin
+     *            The plugin to use the pool of
+     */
+    public void invalidate( String strTableName, Plugin plugin )
+    {
+        removeKey( getKey( strTableName, getSchemaName( plugin ), plugin ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetCache( )
+    {
+        super.resetCache( );
+        _mapSchemaNames.clear( );
+        // Codecs of columns are reset with the columns, so that their patterns are read again
+        CodecRegistry.clear( );
+    }
+
+    /**
+     * Read the columns of the importable and exportable tables, so that they are cached before the first import or export
+     * 
+     * @param plugin
+     *            The plugin to use the pool of
+     */
+    public void preloadTables( Plugin plugin )
+    {
+        for ( String strProperty : new String [ ] {
+                PROPERTY_IMPORTABLE_TABLES, PROPERTY_EXPORTABLE_TABLES
+        } )
+        {
+            String strTableNames = AppPropertiesService.getProperty( strProperty );
+            if ( StringUtils.isBlank( strTableNames ) )
+            {
+                continue;
+            }
+            for ( String strTableName : strTableNames.split( CONSTANT_SEMICOLON ) )
+            {
+                try
+                {
+                    getTableMetadata( strTableName, plugin );
+                }
+                catch( AppException e )
+                {
+                    AppLogService.error( e.getMessage( ), e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the name of the current schema of the pool of a plugin. Schemas are only looked up once per pool.
+     * 
+     * @param plugin
+     *            The plugin to use the pool of
+     * @return The name of the current schema, or null if it is unknown
+     */
+    private String getSchemaName( Plugin plugin )
+    {
+        String strPoolName = getPoolName( plugin );
+        String strSchemaName = _mapSchemaNames.get( strPoolName );
+        if ( strSchemaName == null )
+        {
+            strSchemaName = StringUtils.defaultString( AbstractImportExportDAO.findSchemaName( plugin ) );
+            _mapSchemaNames.put( strPoolName, strSchemaName );
+        }
+        return StringUtils.isEmpty( strSchemaName ) ? null : strSchemaName;
+    }
+
+    /**
+     * Get the key of the columns of a table in the cache
+     * 
+     * @param strTableName
+     *            The name of the table
+     * @param strSchemaName
+     *            The name of the schema
+     * @param plugin
+     *            The plugin to use the pool of
+     * @return The key
+     */
+    private static String getKey( String strTableName, String strSchemaName, Plugin plugin )
+    {
+        return getPoolName( plugin ) + CONSTANT_KEY_SEPARATOR + StringUtils.defaultString( strSchemaName ) + CONSTANT_KEY_SEPARATOR + strTableName;
+    }
+
+    /**
+     * Get the name of the pool of a plugin
+     * 
+     * @param plugin
+     *            The plugin
+     * @return The name of the pool of the plugin
+     */
+    private static String getPoolName( Plugin plugin )
+    {
+        if ( plugin == null || plugin.getConnectionService( ) == null )
+        {
+            return CONSTANT_DEFAULT_POOL;
+        }
+        return plugin.getConnectionService( ).getPoolName( );
+    }
+}
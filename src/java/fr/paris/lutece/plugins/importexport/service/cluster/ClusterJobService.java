@@ -0,0 +1,576 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.cluster;
+
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.business.cluster.ClusterJob;
+import fr.paris.lutece.plugins.importexport.business.cluster.IClusterJobDAO;
+import fr.paris.lutece.plugins.importexport.service.ImportExportPlugin;
+import fr.paris.lutece.plugins.importexport.service.JobExecutorService;
+import fr.paris.lutece.plugins.importexport.service.export.ClusterExportJob;
+import fr.paris.lutece.plugins.importexport.service.importdata.ClusterImportJob;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.Transaction;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Queue of the asynchronous imports and exports of a cluster of nodes. Jobs are persisted in the database, so that any node can claim a queued job, and
+ * report the progress or the result of a job run by another node. A node holds a lease on the jobs it claimed, and renews it at every heartbeat while the
+ * jobs are running. The jobs of a node that stopped or crashed are queued again once their lease has expired. Heartbeats are run by the
+ * {@link fr.paris.lutece.plugins.importexport.service.cluster.daemon.ClusterJobDaemon}, so the lease duration must be several times longer than the interval
+ * of the daemon, and longer than the difference between the clocks of the nodes.
+ */
+public final class ClusterJobService
+{
+    public static final String BEAN_NAME_CLUSTER_JOB_DAO = "importexport.clusterJobDAO";
+
+    private static final String PROPERTY_ENABLED = "importexport.cluster.enabled";
+    private static final String PROPERTY_NODE_NAME = "importexport.cluster.nodeName";
+    private static final String PROPERTY_LEASE_DURATION = "importexport.cluster.leaseDuration";
+    private static final String PROPERTY_MAX_ATTEMPTS = "importexport.cluster.maxAttempts";
+    private static final String PROPERTY_MAX_RUNNING_JOBS = "importexport.cluster.maxRunningJobs";
+    private static final String PROPERTY_RESULT_TIME_TO_LIVE = "importexport.jobs.resultTimeToLive";
+    private static final int DEFAULT_LEASE_DURATION = 60;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final int DEFAULT_MAX_RUNNING_JOBS = 2;
+    private static final int DEFAULT_RESULT_TIME_TO_LIVE = 3600;
+    private static final long CONSTANT_MILLISECONDS = 1000L;
+
+    private static ClusterJobService _singleton = new ClusterJobService( );
+
+    private final boolean _bEnabled;
+    private final String _strNodeName;
+    private final ConcurrentMap<String, IClusterJob> _mapRunningJobs = new ConcurrentHashMap<String, IClusterJob>( );
+    private final ReentrantLock _lockClaim = new ReentrantLock( );
+    private IClusterJobDAO _clusterJobDAO;
+
+    /**
+     * Private constructor
+     */
+    private ClusterJobService( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+        // The default name of the node is made of the id of the process and of the name of the host
+        String strNodeName = AppPropertiesService.getProperty( PROPERTY_NODE_NAME );
+        _strNodeName = StringUtils.isNotBlank( strNodeName ) ? strNodeName : ManagementFactory.getRuntimeMXBean( ).getName( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static ClusterJobService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Check if asynchronous imports and exports are run by the nodes of a cluster
+     * 
+     * @return True if asynchronous jobs are persisted in the queue of cluster jobs, false if they are run by the node that started them
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Get the name of this node
+     * 
+     * @return The name of this node
+     */
+    public String getNodeName( )
+    {
+        return _strNodeName;
+    }
+
+    /**
+     * Queue a new job. The job is claimed immediately if this node can run more jobs, or by the next heartbeat of any node otherwise
+     * 
+     * @param job
+     *            The job, with its type, the id of its admin user, its table, its parameters and the content of its file
+     * @return The id of the job
+     */
+    public String queue( ClusterJob job )
+    {
+        job.setIdJob( UUID.randomUUID( ).toString( ) );
+        job.setStatus( JobProgress.STATUS_QUEUED );
+        job.setDateCreation( now( ) );
+        getClusterJobDAO( ).insert( job );
+        claimJobs( );
+        return job.getIdJob( );
+    }
+
+    /**
+     * Get a job of an admin user
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strIdJob
+     *            The id of the job
+     * @param strJobType
+     *            The type of the job
+     * @return The job, without its content and its result, or null if the admin user has no job of this type with this id
+     */
+    public ClusterJob getJob( int nIdAdmin, String strIdJob, String strJobType )
+    {
+        if ( strIdJob == null )
+        {
+            return null;
+        }
+        ClusterJob job = getClusterJobDAO( ).findById( strIdJob );
+        return job != null && job.getIdAdmin( ) == nIdAdmin && StringUtils.equals( job.getJobType( ), strJobType ) ? job : null;
+    }
+
+    /**
+     * Get the id of the last job of a given type started by an admin user
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strJobType
+     *            The type of the job
+     * @return The id of the job, or null if the admin user has no job of this type
+     */
+    public String getLastJobId( int nIdAdmin, String strJobType )
+    {
+        return getClusterJobDAO( ).findLastJobId( nIdAdmin, strJobType );
+    }
+
+    /**
+     * Check if a job of an admin user is queued or running
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strIdJob
+     *            The id of the job
+     * @param strJobType
+     *            The type of the job
+     * @return True if the job is queued or running, false otherwise
+     */
+    public boolean isJobInProcess( int nIdAdmin, String strIdJob, String strJobType )
+    {
+        ClusterJob job = getJob( nIdAdmin, strIdJob, strJobType );
+        return job != null && !JobProgress.STATUS_FINISHED.equals( job.getStatus( ) );
+    }
+
+    /**
+     * Request a job of an admin user to be cancelled. A queued job is finished immediately. A running job is cancelled at once if it is run by this node,
+     * or at the next heartbeat of the node that runs it otherwise
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strIdJob
+     *            The id of the job
+     * @param strJobType
+     *            The type of the job
+     * @return True if the job was queued or running and has been requested to be cancelled, false otherwise
+     */
+    public boolean cancel( int nIdAdmin, String strIdJob, String strJobType )
+    {
+        if ( !isJobInProcess( nIdAdmin, strIdJob, strJobType ) )
+        {
+            return false;
+        }
+        getClusterJobDAO( ).requestCancel( strIdJob, now( ) );
+        IClusterJob runningJob = _mapRunningJobs.get( strIdJob );
+        if ( runningJob != null )
+        {
+            runningJob.getProgress( ).cancel( );
+        }
+        return true;
+    }
+
+    /**
+     * Get the progress of a job of an admin user. The progress of a job run by another node is the one saved at its last heartbeat
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strIdJob
+     *            The id of the job
+     * @param strJobType
+     *            The type of the job
+     * @return The progress of the job, or null if the admin user has no job of this type with this id
+     */
+    public JobProgress getProgress( int nIdAdmin, String strIdJob, String strJobType )
+    {
+        ClusterJob job = getJob( nIdAdmin, strIdJob, strJobType );
+        if ( job == null )
+        {
+            return null;
+        }
+        // The progress of a job run by this node is more recent than the one saved at its last heartbeat
+        IClusterJob runningJob = _mapRunningJobs.get( strIdJob );
+        if ( runningJob != null && JobProgress.STATUS_WORKING.equals( job.getStatus( ) ) )
+        {
+            return runningJob.getProgress( );
+        }
+        JobProgress progress = new JobProgress( );
+        progress.setPhase( job.getPhase( ) );
+        progress.setRowsProcessed( job.getRowsProcessed( ) );
+        progress.setBytesRead( job.getBytesRead( ) );
+        progress.setTotalBytes( job.getTotalBytes( ) );
+        progress.restore( job.getStatus( ), getTime( job.getDateStart( ) ), getTime( job.getDateEnd( ) ) );
+        if ( job.isCancelRequested( ) )
+        {
+            progress.cancel( );
+        }
+        return progress;
+    }
+
+    /**
+     * Remove a finished job of an admin user, once its result has been read
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strIdJob
+     *            The id of the job
+     * @param strJobType
+     *            The type of the job
+     * @return The job with its result, or null if the admin user has no finished job of this type with this id
+     */
+    public ClusterJob removeFinishedJob( int nIdAdmin, String strIdJob, String strJobType )
+    {
+        ClusterJob job = getJob( nIdAdmin, strIdJob, strJobType );
+        if ( job == null || !JobProgress.STATUS_FINISHED.equals( job.getStatus( ) ) )
+        {
+            return null;
+        }
+        job.setResult( getClusterJobDAO( ).loadResult( strIdJob ) );
+        getClusterJobDAO( ).delete( strIdJob );
+        return job;
+    }
+
+    /**
+     * Remove the finished jobs of a given type of an admin user whose result has not been read
+     * 
+     * @param nIdAdmin
+     *            The id of the admin user
+     * @param strJobType
+     *            The type of the job
+     */
+    public void discardFinishedJobs( int nIdAdmin, String strJobType )
+    {
+        getClusterJobDAO( ).deleteFinishedJobs( nIdAdmin, strJobType );
+    }
+
+    /**
+     * Renew the lease of this node on a job it runs, and keep the job locked until the returned transaction is committed. Jobs must lock their lease before
+     * they commit their work and commit the transaction once their work is committed, since a job whose lease expired may already be run by another node, and
+     * a lease that is only checked may expire before the work is committed
+     * 
+     * @param strIdJob
+     *            The id of the job
+     * @return The transaction that locks the job, or null if this node does not hold the lease on the job anymore
+     */
+    public Transaction lockLease( String strIdJob )
+    {
+        Transaction transaction = new Transaction( ImportExportPlugin.getPlugin( ) );
+        try
+        {
+            if ( getClusterJobDAO( ).lockLease( strIdJob, _strNodeName, now( ), getLeaseExpiration( ), transaction ) )
+            {
+                return transaction;
+            }
+            transaction.rollback( );
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            transaction.rollback( e );
+        }
+        return null;
+    }
+
+    /**
+     * Run a heartbeat of this node. The leases of the jobs run by this node are renewed and their progress is saved, the jobs whose lease expired are queued
+     * again, queued jobs are claimed if this node can run more jobs, and old results that have not been read are removed
+     * 
+     * @return The logs of the heartbeat
+     */
+    public String heartbeat( )
+    {
+        int nRenewedLeases = renewLeases( );
+        getClusterJobDAO( ).releaseExpiredLeases( now( ), AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS ) );
+        int nClaimedJobs = claimJobs( );
+        long lTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_RESULT_TIME_TO_LIVE, DEFAULT_RESULT_TIME_TO_LIVE ) * CONSTANT_MILLISECONDS;
+        getClusterJobDAO( ).deleteFinishedJobsBefore( new Timestamp( System.currentTimeMillis( ) - lTimeToLive ) );
+        return "Node " + _strNodeName + " : " + nRenewedLeases + " lease(s) renewed, " + nClaimedJobs + " job(s) claimed";
+    }
+
+    /**
+     * Renew the leases of the jobs run by this node, save their progress and forward cancel requests to them. A job whose lease has been lost, because this
+     * node could not renew it in time, is cancelled since it may have been claimed by another node
+     * 
+     * @return The number of renewed leases
+     */
+    private int renewLeases( )
+    {
+        int nRenewedLeases = 0;
+        for ( Map.Entry<String, IClusterJob> entry : _mapRunningJobs.entrySet( ) )
+        {
+            IClusterJob job = entry.getValue( );
+            ClusterJob clusterJob = getClusterJobDAO( ).findById( entry.getKey( ) );
+            if ( clusterJob == null || !JobProgress.STATUS_WORKING.equals( clusterJob.getStatus( ) ) || !_strNodeName.equals( clusterJob.getNodeName( ) ) )
+            {
+                AppLogService.info( "Node " + _strNodeName + " lost the lease on job " + entry.getKey( ) + ", the job is cancelled" );
+                job.getProgress( ).cancel( );
+                continue;
+            }
+            if ( clusterJob.isCancelRequested( ) )
+            {
+                job.getProgress( ).cancel( );
+            }
+            copyProgress( job.getProgress( ), clusterJob );
+            clusterJob.setLeaseExpiration( getLeaseExpiration( ) );
+            getClusterJobDAO( ).renewLease( clusterJob );
+            nRenewedLeases++;
+        }
+        return nRenewedLeases;
+    }
+
+    /**
+     * Claim queued jobs, by order of creation, until this node runs its maximum number of jobs
+     * 
+     * @return The number of claimed jobs
+     */
+    private int claimJobs( )
+    {
+        int nClaimedJobs = 0;
+        // Jobs are claimed by one thread of this node at a time, so that a job is never started twice by this node
+        _lockClaim.lock( );
+        try
+        {
+            int nMaxRunningJobs = AppPropertiesService.getPropertyInt( PROPERTY_MAX_RUNNING_JOBS, DEFAULT_MAX_RUNNING_JOBS );
+            if ( _mapRunningJobs.size( ) >= nMaxRunningJobs )
+            {
+                return 0;
+            }
+            for ( String strIdJob : getClusterJobDAO( ).findQueuedJobIds( ) )
+            {
+                if ( !_mapRunningJobs.containsKey( strIdJob ) && getClusterJobDAO( ).claim( strIdJob, _strNodeName, getLeaseExpiration( ), now( ) ) )
+                {
+                    start( strIdJob );
+                    nClaimedJobs++;
+                    if ( _mapRunningJobs.size( ) >= nMaxRunningJobs )
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            _lockClaim.unlock( );
+        }
+        return nClaimedJobs;
+    }
+
+    /**
+     * Start a job claimed by this node. The job is run by the executor of the plugin, with the same priority as the jobs started by admin users on this node
+     * 
+     * @param strIdJob
+     *            The id of the job
+     */
+    private void start( String strIdJob )
+    {
+        final ClusterJob clusterJob = getClusterJobDAO( ).findById( strIdJob );
+        clusterJob.setContent( getClusterJobDAO( ).loadContent( strIdJob ) );
+        final IClusterJob job;
+        try
+        {
+            job = createJob( clusterJob );
+        }
+        catch( AppException e )
+        {
+            // A job that can not be created will never be run by any node
+            AppLogService.error( e.getMessage( ), e );
+            clusterJob.setNodeName( _strNodeName );
+            clusterJob.setDateEnd( now( ) );
+            getClusterJobDAO( ).finish( clusterJob );
+            return;
+        }
+        // The content of the file is no longer needed once the job has been created
+        clusterJob.setContent( null );
+        _mapRunningJobs.put( strIdJob, job );
+        JobExecutorService.getInstance( ).submit( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                try
+                {
+                    job.run( );
+                }
+                finally
+                {
+                    finish( clusterJob, job );
+                }
+            }
+        }, clusterJob.getTableName( ), JobExecutorService.PRIORITY_INTERACTIVE, job.getConnections( ) );
+    }
+
+    /**
+     * Save the end of a job run by this node, with its result
+     * 
+     * @param clusterJob
+     *            The job
+     * @param job
+     *            The job that has been run
+     */
+    private void finish( ClusterJob clusterJob, IClusterJob job )
+    {
+        try
+        {
+            clusterJob.setResult( job.getResult( ) );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        try
+        {
+            copyProgress( job.getProgress( ), clusterJob );
+            clusterJob.setNodeName( _strNodeName );
+            clusterJob.setDateEnd( now( ) );
+            getClusterJobDAO( ).finish( clusterJob );
+        }
+        finally
+        {
+            // The result is in the database, local resources of the job can be released
+            clusterJob.setResult( null );
+            job.discard( );
+            _mapRunningJobs.remove( clusterJob.getIdJob( ) );
+        }
+    }
+
+    /**
+     * Create the job that runs a cluster job on this node
+     * 
+     * @param clusterJob
+     *            The cluster job, with the content of its file
+     * @return The job
+     * @throws AppException
+     *             If the job can not be created
+     */
+    private static IClusterJob createJob( ClusterJob clusterJob ) throws AppException
+    {
+        if ( ClusterJob.TYPE_IMPORT.equals( clusterJob.getJobType( ) ) )
+        {
+            return new ClusterImportJob( clusterJob );
+        }
+        else
+            if ( ClusterJob.TYPE_EXPORT.equals( clusterJob.getJobType( ) ) )
+            {
+                return new ClusterExportJob( clusterJob );
+            }
+        throw new AppException( "Unknown type of cluster job : " + clusterJob.getJobType( ), null );
+    }
+
+    /**
+     * Copy the progress of a job into the cluster job that is saved in the database
+     * 
+     * @param progress
+     *            The progress of the job
+     * @param clusterJob
+     *            The cluster job
+     */
+    private static void copyProgress( JobProgress progress, ClusterJob clusterJob )
+    {
+        clusterJob.setPhase( progress.getPhase( ) );
+        clusterJob.setRowsProcessed( progress.getRowsProcessed( ) );
+        clusterJob.setBytesRead( progress.getBytesRead( ) );
+        clusterJob.setTotalBytes( progress.getTotalBytes( ) );
+    }
+
+    /**
+     * Get the expiration date of a lease taken or renewed now
+     * 
+     * @return The expiration date
+     */
+    private static Timestamp getLeaseExpiration( )
+    {
+        long lLeaseDuration = AppPropertiesService.getPropertyInt( PROPERTY_LEASE_DURATION, DEFAULT_LEASE_DURATION ) * CONSTANT_MILLISECONDS;
+        return new Timestamp( System.currentTimeMillis( ) + lLeaseDuration );
+    }
+
+    /**
+     * Get the current date
+     * 
+     * @return The current date
+     */
+    private static Timestamp now( )
+    {
+        return new Timestamp( System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Get the time of a date
+     * 
+     * @param date
+     *            The date, or null
+     * @return The time in milliseconds, or 0 if the date is null
+     */
+    private static long getTime( Timestamp date )
+    {
+        return date == null ? 0 : date.getTime( );
+    }
+
+    /**
+     * Get the DAO of cluster jobs
+     * 
+     * @return The DAO of cluster jobs
+     */
+    private IClusterJobDAO getClusterJobDAO( )
+    {
+        if ( _clusterJobDAO == null )
+        {
+            _clusterJobDAO = SpringContextService.getBean( BEAN_NAME_CLUSTER_JOB_DAO );
+        }
+        return _clusterJobDAO;
+    }
+}
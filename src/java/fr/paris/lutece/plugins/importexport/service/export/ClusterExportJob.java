@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.export;
+
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.business.cluster.ClusterJob;
+import fr.paris.lutece.plugins.importexport.service.cluster.IClusterJob;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Export claimed from the queue of cluster jobs. The content of the exported file is stored with the job, and is written into the webapp of the node that
+ * reads the result, so that it can be downloaded from this node.
+ */
+public class ClusterExportJob implements IClusterJob
+{
+    private static final String PARAMETER_COLUMNS = "columns";
+    private static final String PARAMETER_XSL_STYLESHEET_ID = "xslStylesheetId";
+    private static final String PARAMETER_PLUGIN = "plugin";
+
+    private static final String CONSTANT_SEMICOLON = ";";
+
+    private final RunnableExportService _exportService;
+
+    /**
+     * Creates the export of a cluster job
+     * 
+     * @param clusterJob
+     *            The cluster job
+     */
+    public ClusterExportJob( ClusterJob clusterJob )
+    {
+        List<String> listColumns = new ArrayList<String>( );
+        for ( String strColumn : StringUtils.split( StringUtils.defaultString( clusterJob.getParameter( PARAMETER_COLUMNS ) ), CONSTANT_SEMICOLON ) )
+        {
+            listColumns.add( strColumn );
+        }
+        String strXslStylesheetId = clusterJob.getParameter( PARAMETER_XSL_STYLESHEET_ID );
+        int nXslStylesheetId = StringUtils.isNumeric( strXslStylesheetId ) ? Integer.parseInt( strXslStylesheetId ) : 0;
+        String strPluginName = clusterJob.getParameter( PARAMETER_PLUGIN );
+        Plugin plugin = strPluginName == null ? null : PluginService.getPlugin( strPluginName );
+        _exportService = new RunnableExportService( clusterJob.getTableName( ), listColumns, nXslStylesheetId, plugin,
+                Integer.toString( clusterJob.getIdAdmin( ) ) );
+    }
+
+    /**
+     * Creates a cluster job to export a table
+     * 
+     * @param strTableName
+     *            The name of the database table to export
+     * @param listColumns
+     *            The list of columns to export
+     * @param nXSLStylesheetId
+     *            The id of the XSL export style sheet to use to format data retrieved from the database
+     * @param plugin
+     *            The plugin to get the pool of
+     * @param nIdAdmin
+     *            The id of the admin user that started the export
+     * @return The cluster job
+     */
+    public static ClusterJob createClusterJob( String strTableName, List<String> listColumns, int nXSLStylesheetId, Plugin plugin, int nIdAdmin )
+    {
+        ClusterJob clusterJob = new ClusterJob( );
+        clusterJob.setJobType( ClusterJob.TYPE_EXPORT );
+        clusterJob.setIdAdmin( nIdAdmin );
+        clusterJob.setTableName( strTableName );
+        clusterJob.setParameter( PARAMETER_COLUMNS, StringUtils.join( listColumns, CONSTANT_SEMICOLON ) );
+        clusterJob.setParameter( PARAMETER_XSL_STYLESHEET_ID, Integer.toString( nXSLStylesheetId ) );
+        clusterJob.setParameter( PARAMETER_PLUGIN, plugin == null ? null : plugin.getName( ) );
+        return clusterJob;
+    }
+
+    /**
+     * Write the content of the exported file stored with the job into the webapp of this node
+     * 
+     * @param result
+     *            The content of the exported file
+     * @return The URL of the file relative from the root of the webapp, or null if the file could not be written
+     */
+    public String saveResult( byte [ ] result )
+    {
+        File file = new File( _exportService.getExportedFileName( ) );
+        try
+        {
+            File containingFolder = file.getParentFile( );
+            if ( !containingFolder.exists( ) )
+            {
+                containingFolder.mkdirs( );
+            }
+            Files.write( file.toPath( ), result );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+        return _exportService.getExportedFileRelativeUrl( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        _exportService.run( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobProgress getProgress( )
+    {
+        return _exportService.getProgress( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getConnections( )
+    {
+        return 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] getResult( )
+    {
+        if ( !_exportService.isFileWritten( ) )
+        {
+            return null;
+        }
+        try
+        {
+            return Files.readAllBytes( new File( _exportService.getExportedFileName( ) ).toPath( ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void discard( )
+    {
+        // The exported file is stored with the job, and is written again by the node that reads the result
+        File file = new File( _exportService.getExportedFileName( ) );
+        if ( file.exists( ) && !file.delete( ) )
+        {
+            AppLogService.info( "Exported file " + file.getPath( ) + " could not be deleted" );
+        }
+    }
+}
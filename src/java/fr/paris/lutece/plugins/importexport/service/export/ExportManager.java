@@ -34,10 +34,14 @@
 package fr.paris.lutece.plugins.importexport.service.export;
 
 import fr.paris.lutece.plugins.importexport.business.ImportExportElement;
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.business.cluster.ClusterJob;
 import fr.paris.lutece.plugins.importexport.business.export.ExportDAO;
 import fr.paris.lutece.plugins.importexport.business.export.RowExportData;
+import fr.paris.lutece.plugins.importexport.service.JobExecutorService;
+import fr.paris.lutece.plugins.importexport.service.JobRegistry;
+import fr.paris.lutece.plugins.importexport.service.cluster.ClusterJobService;
 import fr.paris.lutece.portal.business.user.AdminUser;
-import fr.paris.lutece.portal.service.daemon.ThreadLauncherDaemon;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
@@ -57,6 +61,21 @@ import java.util.Map;
  */
 public final class ExportManager
 {
+    /**
+     * Phase that reads rows from the database
+     */
+    public static final String PHASE_QUERY = "query";
+
+    /**
+     * Phase that formats rows with the XSL stylesheet of the export
+     */
+    public static final String PHASE_FORMAT = "format";
+
+    /**
+     * Phase that writes the formatted export into its file
+     */
+    public static final String PHASE_WRITE = "write";
+
     public static final String BEAN_NAME_AUTOMATIC_EXPORT_CONFIG_DAO = "importexport.automaticExportConfigDAO";
 
     private static final String XML_TAG_EXPORT = "export";
@@ -68,7 +87,7 @@ public final class ExportManager
     private static final String CONSTANT_SEMICOLON = ";";
 
     private static ExportDAO _exportDAO = new ExportDAO( );
-    private static Map<Integer, RunnableExportService> _mapRunningImports = new HashMap<Integer, RunnableExportService>( );
+    private static final JobRegistry<RunnableExportService> _exportJobRegistry = new JobRegistry<RunnableExportService>( );
 
     /**
      * Private constructor
@@ -91,6 +110,26 @@ public final class ExportManager
      * @return The string containing the formatted values of the table of the database
      */
     public static String doProcessExport( String strTableName, List<String> listColumns, int nXSLStylesheetId, Plugin plugin )
+    {
+        return doProcessExport( strTableName, listColumns, nXSLStylesheetId, plugin, new JobProgress( ) );
+    }
+
+    /**
+     * Do process the export of a table of the database, and publish its progress
+     * 
+     * @param strTableName
+     *            The name of the database table to export
+     * @param listColumns
+     *            The list of columns to export
+     * @param nXSLStylesheetId
+     *            The id of the XSL export style sheet to use to format data retrieved from the database
+     * @param plugin
+     *            The plugin to get the pool of
+     * @param progress
+     *            The progress of the export. The export stops as soon as possible once it is requested to be cancelled
+     * @return The string containing the formatted values of the table of the database, or null if the export was cancelled
+     */
+    public static String doProcessExport( String strTableName, List<String> listColumns, int nXSLStylesheetId, Plugin plugin, JobProgress progress )
     {
         String strSeparator = AppPropertiesService.getProperty( PROPERTY_EXPORT_COLUMN_NAME_SEPARATOR, CONSTANT_SEMICOLON );
         StringBuffer sbXml = new StringBuffer( XmlUtil.getXmlHeader( ) );
@@ -113,10 +152,22 @@ public final class ExportManager
         mapAttributes.put( XML_PARAMETER_COLUMNS, sbColumns.toString( ) );
         XmlUtil.beginElement( sbXml, XML_TAG_EXPORT, mapAttributes );
 
+        if ( progress.isCancelRequested( ) )
+        {
+            return null;
+        }
+        progress.setPhase( PHASE_QUERY );
         List<RowExportData> listRowData = _exportDAO.getDataFromTable( strTableName, listColumns, plugin );
 
+        progress.setPhase( PHASE_FORMAT );
+        long lRowsProcessed = 0;
         for ( RowExportData rowExportData : listRowData )
         {
+            if ( progress.isCancelRequested( ) )
+            {
+                return null;
+            }
+            progress.setRowsProcessed( ++lRowsProcessed );
             XmlUtil.beginElement( sbXml, XML_TAG_ROW );
             for ( ImportExportElement element : rowExportData.getListExportElements( ) )
             {
@@ -125,11 +176,16 @@ public final class ExportManager
             XmlUtil.endElement( sbXml, XML_TAG_ROW );
         }
         XmlUtil.endElement( sbXml, XML_TAG_EXPORT );
+        if ( progress.isCancelRequested( ) )
+        {
+            return null;
+        }
         return XslExportService.exportXMLWithXSL( nXSLStylesheetId, sbXml.toString( ) );
     }
 
     /**
-     * Register an import to be generated asynchronously
+     * Register an import to be generated asynchronously. An admin user can have several exports processing at the same time, each of them is identified by its
+     * job id.
      * 
      * @param strTableName
      *            The name of the database table to export
@@ -141,13 +197,21 @@ public final class ExportManager
      *            The plugin to get the pool of
      * @param admin
      *            The admin user that started the export, or null if it has been started by a daemon
+     * @return The id of the export job
      */
-    public static void registerAsynchronousExport( String strTableName, List<String> listColumns, int nXSLStylesheetId, Plugin plugin, AdminUser admin )
+    public static String registerAsynchronousExport( String strTableName, List<String> listColumns, int nXSLStylesheetId, Plugin plugin, AdminUser admin )
     {
+        // In cluster mode, the export is run and monitored by any node
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).queue(
+                    ClusterExportJob.createClusterJob( strTableName, listColumns, nXSLStylesheetId, plugin, admin.getUserId( ) ) );
+        }
         RunnableExportService exportService = new RunnableExportService( strTableName, listColumns, nXSLStylesheetId, plugin,
                 Integer.toString( admin.getUserId( ) ) );
-        _mapRunningImports.put( admin.getUserId( ), exportService );
-        ThreadLauncherDaemon.addItemToQueue( exportService, strTableName, plugin );
+        String strJobId = _exportJobRegistry.register( admin.getUserId( ), exportService );
+        JobExecutorService.getInstance( ).submit( exportService, strTableName, JobExecutorService.PRIORITY_INTERACTIVE );
+        return strJobId;
     }
 
     /**
@@ -159,34 +223,114 @@ public final class ExportManager
      */
     public static boolean hasExportInProcess( int nAdminId )
     {
-        if ( nAdminId > 0 )
+        return nAdminId > 0 && _exportJobRegistry.hasRunningJob( nAdminId );
+    }
+
+    /**
+     * Check if an export of an admin user is processing
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the export job
+     * @return True if the export is processing, false otherwise
+     */
+    public static boolean isExportInProcess( int nAdminId, String strJobId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
         {
-            RunnableExportService runnableImportService = _mapRunningImports.get( nAdminId );
-            if ( runnableImportService != null )
-            {
-                return runnableImportService.getServiceStatus( ) != RunnableExportService.STATUS_FINISHED;
-            }
+            return ClusterJobService.getInstance( ).isJobInProcess( nAdminId, strJobId, ClusterJob.TYPE_EXPORT );
+        }
+        RunnableExportService exportService = _exportJobRegistry.getJob( nAdminId, strJobId );
+        return exportService != null && exportService.getServiceStatus( ) != RunnableExportService.STATUS_FINISHED;
+    }
+
+    /**
+     * Get the id of the last export started by an admin user
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @return The id of the export job, or null if the admin user has no export
+     */
+    public static String getLastExportJobId( int nAdminId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).getLastJobId( nAdminId, ClusterJob.TYPE_EXPORT );
+        }
+        return _exportJobRegistry.getLastJobId( nAdminId );
+    }
+
+    /**
+     * Request an export of an admin user to be cancelled. The export stops before formatting its next row, and its file is not written.
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the export job
+     * @return True if the export was processing and has been requested to be cancelled, false otherwise
+     */
+    public static boolean cancelAsynchronousExport( int nAdminId, String strJobId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).cancel( nAdminId, strJobId, ClusterJob.TYPE_EXPORT );
+        }
+        RunnableExportService exportService = _exportJobRegistry.getJob( nAdminId, strJobId );
+        if ( exportService != null && exportService.getServiceStatus( ) != RunnableExportService.STATUS_FINISHED )
+        {
+            exportService.getProgress( ).cancel( );
+            return true;
         }
         return false;
     }
 
     /**
-     * Get the result of an export
+     * Get the progress of an export of an admin user
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the export job
+     * @return The progress of the export, or null if the admin user has no export with this id
+     */
+    public static JobProgress getAsynchronousExportProgress( int nAdminId, String strJobId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).getProgress( nAdminId, strJobId, ClusterJob.TYPE_EXPORT );
+        }
+        RunnableExportService exportService = _exportJobRegistry.getJob( nAdminId, strJobId );
+        if ( exportService != null )
+        {
+            return exportService.getProgress( );
+        }
+        return null;
+    }
+
+    /**
+     * Get the result of an export. The export is then removed from the list of current exports
      * 
      * @param admin
      *            The admin user that started the export
-     * @return The URL of the generated file relative from the root of the webapp, or null if no export was found
+     * @param strJobId
+     *            The id of the export job
+     * @return The URL of the generated file relative from the root of the webapp, or null if no export was found or if its file was not written
      */
-    public static String getExportResult( AdminUser admin )
+    public static String getExportResult( AdminUser admin, String strJobId )
     {
-        RunnableExportService exportService = _mapRunningImports.get( admin.getUserId( ) );
-        if ( exportService != null )
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
         {
-            if ( exportService.getServiceStatus( ) == RunnableExportService.STATUS_FINISHED )
-            {
-                _mapRunningImports.remove( admin.getUserId( ) );
-                return exportService.getExportedFileRelativeUrl( );
-            }
+            // The exported file may have been written by another node, so it is written again into the webapp of this node
+            ClusterJob clusterJob = ClusterJobService.getInstance( ).removeFinishedJob( admin.getUserId( ), strJobId, ClusterJob.TYPE_EXPORT );
+            return clusterJob == null || clusterJob.getResult( ) == null ? null : new ClusterExportJob( clusterJob ).saveResult( clusterJob.getResult( ) );
+        }
+        RunnableExportService exportService = _exportJobRegistry.getJob( admin.getUserId( ), strJobId );
+        if ( exportService != null && exportService.getServiceStatus( ) == RunnableExportService.STATUS_FINISHED
+                && _exportJobRegistry.remove( admin.getUserId( ), strJobId ) != null )
+        {
+            // A cancelled export has no file to download
+            return exportService.isFileWritten( ) ? exportService.getExportedFileRelativeUrl( ) : null;
         }
         return null;
     }
@@ -209,6 +353,30 @@ public final class ExportManager
      */
     public static boolean doProcessExportIntoFile( String strOutputFilePath, String strTableName, List<String> listColumns, int nXSLStylesheetId,
             Plugin plugin )
+    {
+        return doProcessExportIntoFile( strOutputFilePath, strTableName, listColumns, nXSLStylesheetId, plugin, new JobProgress( ) );
+    }
+
+    /**
+     * Do process an export into a file of the file system, and publish its progress. If the file can not be written into, then the export is not processed.
+     * 
+     * @param strOutputFilePath
+     *            The path of the file to save the export into
+     * @param strTableName
+     *            The name of the database table to export
+     * @param listColumns
+     *            The list of columns to export
+     * @param nXSLStylesheetId
+     *            The id of the XSL export style sheet to use to format data retrieved from the database
+     * @param plugin
+     *            The plugin to get the pool of
+     * @param progress
+     *            The progress of the export
+     * @return True if the export succeeded and the file was written, false otherwise
+     * @see #doProcessExport(String, List, int, Plugin, JobProgress)
+     */
+    public static boolean doProcessExportIntoFile( String strOutputFilePath, String strTableName, List<String> listColumns, int nXSLStylesheetId,
+            Plugin plugin, JobProgress progress )
     {
         FileWriter fileWriter = null;
         BufferedWriter bufferedWriter = null;
@@ -237,7 +405,15 @@ public final class ExportManager
 
             if ( file.createNewFile( ) && file.canWrite( ) )
             {
-                String strExport = doProcessExport( strTableName, listColumns, nXSLStylesheetId, plugin );
+                String strExport = doProcessExport( strTableName, listColumns, nXSLStylesheetId, plugin, progress );
+                // The empty file of a cancelled export is removed, so that it is never downloaded
+                if ( strExport == null )
+                {
+                    AppLogService.info( "Export of table " + strTableName + " cancelled" );
+                    file.delete( );
+                    return false;
+                }
+                progress.setPhase( PHASE_WRITE );
                 fileWriter = new FileWriter( file );
                 bufferedWriter = new BufferedWriter( fileWriter );
                 bufferedWriter.write( strExport );
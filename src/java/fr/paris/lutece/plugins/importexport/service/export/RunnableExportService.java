@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.importexport.service.export;
 
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.service.IAsynchronousJob;
 import fr.paris.lutece.portal.business.xsl.XslExport;
 import fr.paris.lutece.portal.business.xsl.XslExportHome;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -44,7 +46,7 @@ import java.util.List;
 /**
  * RunnableExportService
  */
-public class RunnableExportService implements Runnable
+public class RunnableExportService implements IAsynchronousJob
 {
 
     public static final int STATUS_QUEUED = 0;
@@ -55,13 +57,15 @@ public class RunnableExportService implements Runnable
     private static final String CONSTANT_SLASH = "/";
     private static final String CONSTANT_POINT = ".";
 
-    private int _nStatus = STATUS_QUEUED;
+    private volatile int _nStatus = STATUS_QUEUED;
     private String _strTableName;
     private List<String> _listColumns;
     private int _nXSLStylesheetId;
     private Plugin _plugin;
     private String _strExportKey;
     private String _strFileExtention;
+    private final JobProgress _progress = new JobProgress( );
+    private volatile boolean _bFileWritten;
 
     /**
      * Creates a new export to run in a dedicated thread
@@ -95,9 +99,11 @@ public class RunnableExportService implements Runnable
     public void run( )
     {
         _nStatus = STATUS_WORKING;
+        _progress.start( );
         try
         {
-            ExportManager.doProcessExportIntoFile( getExportedFileName( ), _strTableName, _listColumns, _nXSLStylesheetId, _plugin );
+            _bFileWritten = ExportManager.doProcessExportIntoFile( getExportedFileName( ), _strTableName, _listColumns, _nXSLStylesheetId, _plugin,
+                    _progress );
         }
         catch( Exception e )
         {
@@ -105,6 +111,7 @@ public class RunnableExportService implements Runnable
         }
         finally
         {
+            _progress.finish( );
             _nStatus = STATUS_FINISHED;
         }
     }
@@ -120,6 +127,34 @@ public class RunnableExportService implements Runnable
         return _nStatus;
     }
 
+    /**
+     * Check if the file of this export has been written. The file of an export that failed or was cancelled is not written
+     * 
+     * @return True if the file has been written, false otherwise
+     */
+    public boolean isFileWritten( )
+    {
+        return _bFileWritten;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobProgress getProgress( )
+    {
+        return _progress;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void discard( )
+    {
+        // The exported file is kept, since it is replaced by the next export of the same table with the same key
+    }
+
     /**
      * Get the name of the file generated by this export service
      * 
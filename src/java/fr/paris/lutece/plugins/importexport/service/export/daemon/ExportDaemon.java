@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.importexport.service.export.daemon;
 
 import fr.paris.lutece.plugins.importexport.business.export.AutomaticExportConfig;
 import fr.paris.lutece.plugins.importexport.business.export.IAutomaticExportConfigDAO;
+import fr.paris.lutece.plugins.importexport.service.JobExecutorService;
 import fr.paris.lutece.plugins.importexport.service.export.ExportManager;
 import fr.paris.lutece.portal.service.daemon.Daemon;
 import fr.paris.lutece.portal.service.datastore.DatastoreService;
@@ -42,8 +43,11 @@ import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -96,19 +100,34 @@ public class ExportDaemon extends Daemon
     private void doExportData( )
     {
         List<AutomaticExportConfig> listConfig = getAutomaticExportConfigDAO( ).findAll( true );
-        String strExportFolder = AppPropertiesService.getProperty( PROPERTY_EXPORT_FOLDER );
-        if ( strExportFolder != null && !strExportFolder.endsWith( CONSTANT_SLASH ) )
+        String strFolder = AppPropertiesService.getProperty( PROPERTY_EXPORT_FOLDER );
+        if ( strFolder != null && !strFolder.endsWith( CONSTANT_SLASH ) )
         {
-            strExportFolder = strExportFolder + CONSTANT_SLASH;
+            strFolder = strFolder + CONSTANT_SLASH;
+        }
+        final String strExportFolder = strFolder;
+        // Every export is submitted before waiting for any of them, so that exports of different tables run in parallel
+        List<Future<Boolean>> listExports = new ArrayList<Future<Boolean>>( );
+        for ( final AutomaticExportConfig config : listConfig )
+        {
+            // Exports of the daemon run in the executor of the plugin, after the imports and exports started by admin users
+            listExports.add( JobExecutorService.getInstance( ).submit( new Callable<Boolean>( )
+            {
+                @Override
+                public Boolean call( )
+                {
+                    return ExportManager.doProcessExportIntoFile( strExportFolder + config.getOutputFileName( ), config.getTableName( ),
+                            config.getListColumns( ), config.getXslStylesheetId( ), config.getPlugin( ) );
+                }
+            }, config.getTableName( ), JobExecutorService.PRIORITY_DAEMON, 1 ) );
         }
         int nExportSuccess = 0;
-        for ( AutomaticExportConfig config : listConfig )
+        for ( int i = 0; i < listExports.size( ); i++ )
         {
+            AutomaticExportConfig config = listConfig.get( i );
             try
             {
-                boolean bRes = ExportManager.doProcessExportIntoFile( strExportFolder + config.getOutputFileName( ), config.getTableName( ),
-                        config.getListColumns( ), config.getXslStylesheetId( ), config.getPlugin( ) );
-                if ( bRes )
+                if ( listExports.get( i ).get( ) )
                 {
                     nExportSuccess++;
                 }
@@ -118,6 +137,12 @@ public class ExportDaemon extends Daemon
                             .error( "The file '" + config.getOutputFileName( ) + "' was NOT filled with data of the table '" + config.getTableName( ) + "'" );
                 }
             }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                AppLogService.error( e.getMessage( ), e );
+                break;
+            }
             catch( Exception e )
             {
                 AppLogService.error( e.getMessage( ), e );
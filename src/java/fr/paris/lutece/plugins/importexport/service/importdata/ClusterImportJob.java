@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.importdata;
+
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.business.cluster.ClusterJob;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportConfig;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessage;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessageSummary;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportResult;
+import fr.paris.lutece.plugins.importexport.service.cluster.IClusterJob;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Import claimed from the queue of cluster jobs. The uploaded file is stored with the job, and is written into a temporary file by the node that claims the
+ * job. The result of the import is stored with the job as a serialized {@link ImportResult}, followed by the content of its reject file.
+ */
+public class ClusterImportJob implements IClusterJob
+{
+    private static final String PARAMETER_FILE_NAME = "fileName";
+    private static final String PARAMETER_FINGERPRINT = "fingerprint";
+    private static final String PARAMETER_UPDATE_EXISTING_ROWS = "updateExistingRows";
+    private static final String PARAMETER_STOP_ON_ERRORS = "stopOnErrors";
+    private static final String PARAMETER_EMPTY_TABLE = "emptyTable";
+    private static final String PARAMETER_PLUGIN = "plugin";
+    private static final String PARAMETER_LOCALE = "locale";
+    private static final String PARAMETER_PARALLELISM = "parallelism";
+
+    private static final String CONSTANT_TEMP_FILE_PREFIX = "import_cluster_";
+    private static final String CONSTANT_REJECT_FILE_PREFIX = "import_reject_";
+    private static final String CONSTANT_REJECT_FILE_SUFFIX = ".csv";
+    private static final String CONSTANT_POINT = ".";
+    // Superclasses of serialized classes are resolved too, so Number and HashMap are needed to read Long, Integer and LinkedHashMap values
+    private static final Set<String> CONSTANT_RESULT_CLASSES = new HashSet<String>( Arrays.asList( ImportResult.class.getName( ),
+            ImportMessage.class.getName( ), ImportMessageSummary.class.getName( ), ArrayList.class.getName( ), HashMap.class.getName( ),
+            LinkedHashMap.class.getName( ), Number.class.getName( ), Long.class.getName( ), Integer.class.getName( ), String.class.getName( ),
+            String [ ].class.getName( ), byte [ ].class.getName( ) ) );
+
+    private final File _file;
+    private final IImportSource _importSource;
+    private final ImportConfig _config;
+    private final RunnableImportService _runnableImportService;
+
+    /**
+     * Creates the import of a cluster job
+     * 
+     * @param clusterJob
+     *            The cluster job, with the content of its file
+     * @throws AppException
+     *             If the file can not be written, or if it is not a valid import source
+     */
+    public ClusterImportJob( ClusterJob clusterJob ) throws AppException
+    {
+        String strExtension = FilenameUtils.getExtension( clusterJob.getParameter( PARAMETER_FILE_NAME ) );
+        try
+        {
+            _file = File.createTempFile( CONSTANT_TEMP_FILE_PREFIX, CONSTANT_POINT + strExtension );
+            _file.deleteOnExit( );
+            Files.write( _file.toPath( ), clusterJob.getContent( ) == null ? new byte [ 0] : clusterJob.getContent( ) );
+        }
+        catch( IOException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        _importSource = ImportManager.getImportSource( _file );
+        if ( _importSource == null )
+        {
+            deleteFile( _file );
+            throw new AppException( "The file of import job " + clusterJob.getIdJob( ) + " is not a valid import source", null );
+        }
+        _config = new ImportConfig( );
+        _config.setTableName( clusterJob.getTableName( ) );
+        _config.setFingerprint( clusterJob.getParameter( PARAMETER_FINGERPRINT ) );
+        _config.setUpdateExistingRows( Boolean.parseBoolean( clusterJob.getParameter( PARAMETER_UPDATE_EXISTING_ROWS ) ) );
+        _config.setStopOnErrors( Boolean.parseBoolean( clusterJob.getParameter( PARAMETER_STOP_ON_ERRORS ) ) );
+        _config.setEmptyTable( Boolean.parseBoolean( clusterJob.getParameter( PARAMETER_EMPTY_TABLE ) ) );
+        String strPluginName = clusterJob.getParameter( PARAMETER_PLUGIN );
+        _config.setPlugin( strPluginName == null ? null : PluginService.getPlugin( strPluginName ) );
+        String strLocale = clusterJob.getParameter( PARAMETER_LOCALE );
+        _config.setLocale( strLocale == null ? Locale.getDefault( ) : Locale.forLanguageTag( strLocale ) );
+        String strParallelism = clusterJob.getParameter( PARAMETER_PARALLELISM );
+        _config.setParallelism( strParallelism == null ? 1 : Integer.parseInt( strParallelism ) );
+        _config.setIdClusterJob( clusterJob.getIdJob( ) );
+        _runnableImportService = new RunnableImportService( _importSource, _config );
+    }
+
+    /**
+     * Creates a cluster job to import an uploaded file
+     * 
+     * @param fileItem
+     *            The uploaded file
+     * @param config
+     *            The configuration of the import
+     * @param nIdAdmin
+     *            The id of the admin user that started the import
+     * @return The cluster job, with the content of the file
+     */
+    public static ClusterJob createClusterJob( FileItem fileItem, ImportConfig config, int nIdAdmin )
+    {
+        ClusterJob clusterJob = new ClusterJob( );
+        clusterJob.setJobType( ClusterJob.TYPE_IMPORT );
+        clusterJob.setIdAdmin( nIdAdmin );
+        clusterJob.setTableName( config.getTableName( ) );
+        clusterJob.setParameter( PARAMETER_FILE_NAME, FilenameUtils.getName( fileItem.getName( ) ) );
+        clusterJob.setParameter( PARAMETER_FINGERPRINT, config.getFingerprint( ) );
+        clusterJob.setParameter( PARAMETER_UPDATE_EXISTING_ROWS, Boolean.toString( config.getUpdateExistingRows( ) ) );
+        clusterJob.setParameter( PARAMETER_STOP_ON_ERRORS, Boolean.toString( config.getStopOnErrors( ) ) );
+        clusterJob.setParameter( PARAMETER_EMPTY_TABLE, Boolean.toString( config.getEmptyTable( ) ) );
+        Plugin plugin = config.getPlugin( );
+        clusterJob.setParameter( PARAMETER_PLUGIN, plugin == null ? null : plugin.getName( ) );
+        Locale locale = config.getLocale( );
+        clusterJob.setParameter( PARAMETER_LOCALE, locale == null ? null : locale.toLanguageTag( ) );
+        clusterJob.setParameter( PARAMETER_PARALLELISM, Integer.toString( config.getParallelism( ) ) );
+        clusterJob.setContent( fileItem.get( ) );
+        return clusterJob;
+    }
+
+    /**
+     * Read the result of an import stored with its cluster job. The reject file of the import is written into a temporary file of this node
+     * 
+     * @param result
+     *            The stored result
+     * @return The result of the import, or null if the import has no result
+     */
+    public static ImportResult readResult( byte [ ] result )
+    {
+        if ( result == null )
+        {
+            return null;
+        }
+        ObjectInputStream inputStream = null;
+        try
+        {
+            inputStream = new ObjectInputStream( new ByteArrayInputStream( result ) )
+            {
+                @Override
+                protected Class<?> resolveClass( ObjectStreamClass objectStreamClass ) throws IOException, ClassNotFoundException
+                {
+                    // Only the classes of import results can be read from the database
+                    if ( CONSTANT_RESULT_CLASSES.contains( objectStreamClass.getName( ) ) )
+                    {
+                        return super.resolveClass( objectStreamClass );
+                    }
+                    throw new InvalidClassException( objectStreamClass.getName( ), "Unexpected class in the result of an import" );
+                }
+            };
+            ImportResult importResult = (ImportResult) inputStream.readObject( );
+            byte [ ] rejectFileContent = (byte [ ]) inputStream.readObject( );
+            if ( rejectFileContent != null )
+            {
+                File rejectFile = File.createTempFile( CONSTANT_REJECT_FILE_PREFIX, CONSTANT_REJECT_FILE_SUFFIX );
+                rejectFile.deleteOnExit( );
+                Files.write( rejectFile.toPath( ), rejectFileContent );
+                importResult.setRejectFile( rejectFile );
+            }
+            return importResult;
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+        catch( ClassNotFoundException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+        finally
+        {
+            IOUtils.closeQuietly( inputStream );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        try
+        {
+            _runnableImportService.run( );
+        }
+        finally
+        {
+            _importSource.close( );
+            deleteFile( _file );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobProgress getProgress( )
+    {
+        return _runnableImportService.getProgress( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getConnections( )
+    {
+        return ImportManager.getParallelism( _config );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] getResult( )
+    {
+        ImportResult importResult = _runnableImportService.getImportResult( );
+        if ( importResult == null )
+        {
+            return null;
+        }
+        // The reject file is a file of this node, so its content is stored instead of its path
+        File rejectFile = importResult.getRejectFile( );
+        // Collections are copied into the only classes that can be read from the database
+        List<ImportMessage> listMessages = importResult.getListImportMessage( ) == null ? null
+                : new ArrayList<ImportMessage>( importResult.getListImportMessage( ) );
+        ImportResult storedResult = new ImportResult( importResult.getCreatedElements( ), importResult.getUpdatedElements( ),
+                importResult.getIgnoredElements( ), listMessages );
+        if ( importResult.getListMessageSummaries( ) != null )
+        {
+            storedResult.setListMessageSummaries( new ArrayList<ImportMessageSummary>( importResult.getListMessageSummaries( ) ) );
+        }
+        if ( importResult.getPhaseDurations( ) != null )
+        {
+            storedResult.setPhaseDurations( new LinkedHashMap<String, Long>( importResult.getPhaseDurations( ) ) );
+        }
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream( );
+        try
+        {
+            byte [ ] rejectFileContent = rejectFile != null && rejectFile.isFile( ) ? Files.readAllBytes( rejectFile.toPath( ) ) : null;
+            ObjectOutputStream outputStream = new ObjectOutputStream( byteArrayOutputStream );
+            outputStream.writeObject( storedResult );
+            outputStream.writeObject( rejectFileContent );
+            outputStream.close( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+        return byteArrayOutputStream.toByteArray( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void discard( )
+    {
+        _runnableImportService.discard( );
+    }
+
+    /**
+     * Delete a temporary file
+     * 
+     * @param file
+     *            The file to delete
+     */
+    private static void deleteFile( File file )
+    {
+        if ( file.exists( ) && !file.delete( ) )
+        {
+            AppLogService.info( "Temporary file " + file.getPath( ) + " could not be deleted" );
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.importdata;
+
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessage;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessageSummary;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import au.com.bytecode.opencsv.CSVParser;
+import au.com.bytecode.opencsv.CSVWriter;
+
+/**
+ * Collects the messages of an import with a bounded memory footprint. Only the first messages are kept in memory, identical messages are counted in a
+ * bounded number of summaries, and every rejected row is written with the reason of its rejection into a CSV reject file, that has the columns of the
+ * import source followed by a reason column. Messages must be added by a single thread.
+ */
+public class ImportErrorSink
+{
+    private static final String PROPERTY_MAX_MESSAGES = "importexport.importdata.maxMessages";
+    private static final int DEFAULT_MAX_MESSAGES = 1000;
+    private static final String PROPERTY_MESSAGE_SAMPLES = "importexport.importdata.messageSamples";
+    private static final int DEFAULT_MESSAGE_SAMPLES = 10;
+    private static final String PROPERTY_REJECT_FILE = "importexport.importdata.rejectFile";
+    private static final String PROPERTY_CSV_SEPARATOR = "importexport.importdata.csv.separator";
+    private static final String PROPERTY_CSV_QUOTE = "importexport.importdata.csv.quote";
+    private static final String MESSAGE_OTHER_MESSAGES = "importexport.import_data.messages.otherMessages";
+
+    private static final String CONSTANT_REJECT_FILE_PREFIX = "import_reject_";
+    private static final String CONSTANT_REJECT_FILE_SUFFIX = ".csv";
+    private static final String CONSTANT_COLUMN_REASON = "reason";
+    private static final String CONSTANT_KEY_SEPARATOR = ":";
+
+    private List<String> _listColumnsName;
+    private Locale _locale;
+    private int _nMaxMessages;
+    private int _nMaxSamples;
+    private boolean _bRejectFile;
+    private boolean _bClosed;
+    private List<ImportMessage> _listMessages = new ArrayList<ImportMessage>( );
+    private List<ImportMessageSummary> _listSummaries = new ArrayList<ImportMessageSummary>( );
+    private Map<String, ImportMessageSummary> _mapSummaries = new HashMap<String, ImportMessageSummary>( );
+    private ImportMessageSummary _otherMessagesSummary;
+    private File _rejectFile;
+    private CSVWriter _csvWriter;
+
+    /**
+     * Creates a new error sink
+     * 
+     * @param listColumnsName
+     *            The names of the columns of the import source
+     * @param locale
+     *            The locale to display messages in
+     */
+    public ImportErrorSink( List<String> listColumnsName, Locale locale )
+    {
+        _listColumnsName = listColumnsName;
+        _locale = locale;
+        _nMaxMessages = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_MESSAGES, DEFAULT_MAX_MESSAGES ) );
+        _nMaxSamples = AppPropertiesService.getPropertyInt( PROPERTY_MESSAGE_SAMPLES, DEFAULT_MESSAGE_SAMPLES );
+        _bRejectFile = AppPropertiesService.getPropertyBoolean( PROPERTY_REJECT_FILE, true );
+    }
+
+    /**
+     * Add a message of the import. If the message has the source values of a rejected row, the row is written into the reject file and its source values
+     * are released.
+     * 
+     * @param message
+     *            The message
+     */
+    public void add( ImportMessage message )
+    {
+        summarize( message );
+        String [ ] strSourceValues = message.getSourceValues( );
+        if ( strSourceValues != null )
+        {
+            message.setSourceValues( null );
+            writeRejectedRow( strSourceValues, message.getMessage( ) );
+        }
+        if ( _listMessages.size( ) < _nMaxMessages )
+        {
+            _listMessages.add( message );
+        }
+    }
+
+    /**
+     * Add messages of the import
+     * 
+     * @param listMessages
+     *            The list of messages
+     */
+    public void addAll( List<ImportMessage> listMessages )
+    {
+        for ( ImportMessage message : listMessages )
+        {
+            add( message );
+        }
+    }
+
+    /**
+     * Get the first messages of the import
+     * 
+     * @return The list of messages kept in memory
+     */
+    public List<ImportMessage> getMessages( )
+    {
+        return _listMessages;
+    }
+
+    /**
+     * Get the summaries of every message of the import. Once the maximum number of summaries is reached, messages that do not match an existing summary are
+     * counted in a last summary of other messages.
+     * 
+     * @return The list of summaries
+     */
+    public List<ImportMessageSummary> getSummaries( )
+    {
+        return _listSummaries;
+    }
+
+    /**
+     * Close the reject file of the import
+     * 
+     * @return The reject file, or null if no row was rejected
+     */
+    public File close( )
+    {
+        _bClosed = true;
+        if ( _csvWriter != null )
+        {
+            try
+            {
+                _csvWriter.close( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( e.getMessage( ), e );
+            }
+            _csvWriter = null;
+        }
+        return _rejectFile;
+    }
+
+    /**
+     * Count a message in the summary of identical messages
+     * 
+     * @param message
+     *            The message
+     */
+    private void summarize( ImportMessage message )
+    {
+        String strKey = message.getStatus( ) + CONSTANT_KEY_SEPARATOR + message.getMessage( );
+        ImportMessageSummary summary = _mapSummaries.get( strKey );
+        if ( summary == null )
+        {
+            // Messages that contain values of rows may all be different, so the number of summaries is bounded too
+            if ( _mapSummaries.size( ) < _nMaxMessages )
+            {
+                summary = new ImportMessageSummary( message.getMessage( ), message.getStatus( ) );
+                _mapSummaries.put( strKey, summary );
+                _listSummaries.add( summary );
+            }
+            else
+            {
+                if ( _otherMessagesSummary == null )
+                {
+                    _otherMessagesSummary = new ImportMessageSummary( I18nService.getLocalizedString( MESSAGE_OTHER_MESSAGES, _locale ),
+                            ImportMessage.STATUS_ERROR );
+                    _listSummaries.add( _otherMessagesSummary );
+                }
+                summary = _otherMessagesSummary;
+            }
+        }
+        summary.addItemNumber( message.getItemNumber( ), _nMaxSamples );
+    }
+
+    /**
+     * Write a rejected row into the reject file, that is created when the first row is rejected
+     * 
+     * @param strSourceValues
+     *            The values of the row as they were read from the import source
+     * @param strReason
+     *            The reason of the rejection
+     */
+    private void writeRejectedRow( String [ ] strSourceValues, String strReason )
+    {
+        if ( !_bRejectFile || _bClosed )
+        {
+            return;
+        }
+        try
+        {
+            if ( _csvWriter == null )
+            {
+                _rejectFile = File.createTempFile( CONSTANT_REJECT_FILE_PREFIX, CONSTANT_REJECT_FILE_SUFFIX );
+                _rejectFile.deleteOnExit( );
+                String strSeparator = AppPropertiesService.getProperty( PROPERTY_CSV_SEPARATOR );
+                String strQuote = AppPropertiesService.getProperty( PROPERTY_CSV_QUOTE );
+                char cSeparator = StringUtils.isNotEmpty( strSeparator ) ? strSeparator.charAt( 0 ) : CSVParser.DEFAULT_SEPARATOR;
+                char cQuoteChar = StringUtils.isNotEmpty( strQuote ) ? strQuote.charAt( 0 ) : CSVParser.DEFAULT_QUOTE_CHARACTER;
+                _csvWriter = new CSVWriter( new OutputStreamWriter( new FileOutputStream( _rejectFile ), StandardCharsets.UTF_8 ), cSeparator, cQuoteChar );
+                List<String> listHeader = new ArrayList<String>( _listColumnsName );
+                listHeader.add( CONSTANT_COLUMN_REASON );
+                _csvWriter.writeNext( listHeader.toArray( new String [ listHeader.size( )] ) );
+            }
+            String [ ] strLine = Arrays.copyOf( strSourceValues, strSourceValues.length + 1 );
+            strLine [strSourceValues.length] = strReason;
+            _csvWriter.writeNext( strLine );
+        }
+        catch( IOException e )
+        {
+            // The import goes on without reject file
+            AppLogService.error( e.getMessage( ), e );
+            _bRejectFile = false;
+        }
+    }
+}
@@ -33,26 +33,54 @@
  */
 package fr.paris.lutece.plugins.importexport.service.importdata;
 
-import fr.paris.lutece.plugins.importexport.business.ImportExportElement;
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.business.cluster.ClusterJob;
+import fr.paris.lutece.plugins.importexport.business.importdata.IImportJournalDAO;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportConfig;
 import fr.paris.lutece.plugins.importexport.business.importdata.ImportDataDAO;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportJournal;
 import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessage;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessageSummary;
 import fr.paris.lutece.plugins.importexport.business.importdata.ImportResult;
-import fr.paris.lutece.plugins.importexport.service.ImportExportPlugin;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportRow;
+import fr.paris.lutece.plugins.importexport.service.JobExecutorService;
+import fr.paris.lutece.plugins.importexport.service.JobRegistry;
+import fr.paris.lutece.plugins.importexport.service.cluster.ClusterJobService;
 import fr.paris.lutece.portal.business.user.AdminUser;
-import fr.paris.lutece.portal.service.daemon.ThreadLauncherDaemon;
+import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.Transaction;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -62,9 +90,40 @@ public final class ImportManager
 {
     private static List<IImportSourceFactory> _listImportSourceFactories = new ArrayList<IImportSourceFactory>( );
 
+    /**
+     * Name of the bean of the DAO of import journals
+     */
+    public static final String BEAN_NAME_IMPORT_JOURNAL_DAO = "importexport.importJournalDAO";
+
+    private static final String PROPERTY_COMMIT_SIZE = "importexport.importdata.commitSize";
+    private static final String PROPERTY_MAX_PARALLELISM = "importexport.importdata.maxParallelism";
+    private static final String PROPERTY_STAGING_TABLE = "importexport.importdata.stagingTable";
+    private static final String PROPERTY_SET_BASED_MERGE = "importexport.importdata.setBasedMerge";
+    private static final String PROPERTY_BULK_MODE = "importexport.importdata.bulkMode";
+    private static final String PROPERTY_ANALYZE_MIN_ROWS = "importexport.importdata.analyze.minRows";
+    private static final String PROPERTY_ANALYZE_MIN_TABLE_PERCENT = "importexport.importdata.analyze.minTablePercent";
+    private static final String PROPERTY_ANALYZE_REINDEX = "importexport.importdata.analyze.reindex";
+    private static final int DEFAULT_ANALYZE_MIN_ROWS = 100000;
+    private static final int DEFAULT_ANALYZE_MIN_TABLE_PERCENT = 20;
+    private static final String PROPERTY_MESSAGE_SAMPLES = "importexport.importdata.messageSamples";
+    private static final int DEFAULT_MESSAGE_SAMPLES = 10;
+    private static final String MESSAGE_IMPORT_RESUMED = "importexport.import_data.messages.importResumed";
+    private static final String PROPERTY_COMMIT_ON_CANCEL = "importexport.importdata.commitOnCancel";
+    private static final String MESSAGE_IMPORT_CANCELLED = "importexport.import_data.messages.importCancelled";
+    private static final String MESSAGE_IMPORT_CANCELLED_COMMITTED = "importexport.import_data.messages.importCancelledCommitted";
+    private static final String MESSAGE_TABLE_ANALYZED = "importexport.import_data.messages.tableAnalyzed";
+    private static final String ERROR_MESSAGE_INDEX_NOT_REBUILT = "importexport.import_data.errors.indexNotRebuilt";
+    private static final String ERROR_MESSAGE_FOREIGN_KEY_VIOLATION = "importexport.import_data.errors.foreignKeyViolation";
+    private static final String ERROR_MESSAGE_LEASE_LOST = "importexport.import_data.errors.leaseLost";
+
     private static final String CONSTANT_POINT = ".";
+    private static final String CONSTANT_WORKER_THREAD_NAME = "importexport-writer-";
+    private static final String CONSTANT_FINGERPRINT_ALGORITHM = "SHA-256";
 
-    private static Map<Integer, RunnableImportService> _mapWorkingRunnableImportServices = new HashMap<Integer, RunnableImportService>( );
+    private static IImportJournalDAO _importJournalDAO;
+
+    private static Set<ImportPipeline> _setRunningPipelines = Collections.newSetFromMap( new ConcurrentHashMap<ImportPipeline, Boolean>( ) );
+    private static final JobRegistry<RunnableImportService> _importJobRegistry = new JobRegistry<RunnableImportService>( );
 
     /**
      * Private constructor
@@ -170,101 +229,907 @@ public final class ImportManager
     public static ImportResult doProcessImport( IImportSource importSource, String strTableName, boolean bUpdateExistingRows, boolean bStopOnErrors,
             boolean bEmptyTable, Plugin plugin, Locale locale )
     {
-        List<ImportExportElement> listElements;
-        int nCreatedElements = 0;
-        int nUpdatedElements = 0;
-        int nIgnoredElements = 0;
+        return doProcessImport( importSource, createImportConfig( strTableName, bUpdateExistingRows, bStopOnErrors, bEmptyTable, plugin, locale ) );
+    }
+
+    /**
+     * Do process the import of data from an import source to a given table in the database. Rows are written by one or several workers, each of them using
+     * its own transaction. Rows are partitioned between workers by their primary key, so that two workers never write the same row. If the import is
+     * processed by chunks, every chunk is committed separately and recorded in the journal of the import, so that an interrupted import of the same file is
+     * resumed after the last committed chunk. Rows are read and converted by an {@link ImportPipeline} while previous chunks are written. An import that
+     * empties the table without a staging table is written by a single worker, so that the removed rows are restored if the import is rolled back.
+     * 
+     * @param importSource
+     *            The import source to get data from
+     * @param config
+     *            The configuration of the import
+     * @return The result of the import
+     */
+    public static ImportResult doProcessImport( IImportSource importSource, ImportConfig config )
+    {
         int nItemNumber = 0;
-        ImportDataDAO importElementDAO = null;
+        int nParallelism = getParallelism( config );
+        List<ImportDataDAO> listImportElementDAO = new ArrayList<ImportDataDAO>( nParallelism );
         try
         {
-            importElementDAO = new ImportDataDAO( importSource.getColumnsName( ), strTableName, plugin, locale );
+            for ( int i = 0; i < nParallelism; i++ )
+            {
+                listImportElementDAO.add( new ImportDataDAO( importSource.getColumnsName( ), config.getTableName( ), config.getPlugin( ), config.getLocale( ) ) );
+            }
         }
         catch( AppException e )
         {
             AppLogService.info( e.getMessage( ) );
+            rollbackTransactions( listImportElementDAO );
+            return createErrorImportResult( e );
+        }
+        // The transactions of the DAO that were already created must be released whatever the error
+        catch( RuntimeException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            rollbackTransactions( listImportElementDAO );
             return createErrorImportResult( e );
         }
 
-        List<ImportMessage> listErrors = new ArrayList<ImportMessage>( );
+        // Messages are kept in memory up to a maximum number, and rejected rows are written into a reject file
+        ImportErrorSink errorSink = new ImportErrorSink( importSource.getColumnsName( ), config.getLocale( ) );
+        List<ImportWorker> listWorkers = new ArrayList<ImportWorker>( nParallelism );
+        int nCommitSize = AppPropertiesService.getPropertyInt( PROPERTY_COMMIT_SIZE, 0 );
+        String strFingerprint = config.getFingerprint( );
+        String strTableName = config.getTableName( );
+        boolean bChunkedCommits = StringUtils.isNotEmpty( strFingerprint ) && nCommitSize > 0;
+        int nResumedRows = 0;
+        boolean bStaging = false;
+        // The staging table of an import that can be resumed is kept when the import fails, since it holds the committed chunks
+        boolean bDropStagingTable = false;
+        boolean bMerge = false;
+        // Bulk mode postpones the maintenance of indexes and foreign keys until every row is written
+        boolean bBulkMode = AppPropertiesService.getPropertyBoolean( PROPERTY_BULK_MODE, false );
+        Map<String, String> mapDroppedIndexes = null;
+        Map<String, Long> mapPhaseDurations = new LinkedHashMap<String, Long>( );
+        long lPhaseStart = System.currentTimeMillis( );
+        boolean bCommitted = false;
+        boolean bCancelled = false;
+        // Rolled back imports skip the commit, and get their result once indexes are created again so that it holds every message
+        boolean bRolledBack = false;
+        ExecutorService executor = null;
+        ImportPipeline pipeline = null;
+        Transaction leaseTransaction = null;
+        JobProgress progress = config.getProgress( );
+        // An import cancelled before it started must not touch the table
+        if ( progress.isCancelRequested( ) )
+        {
+            rollbackTransactions( listImportElementDAO );
+            errorSink.add( new ImportMessage( I18nService.getLocalizedString( MESSAGE_IMPORT_CANCELLED, new Object [ ] {
+                nItemNumber
+            }, config.getLocale( ) ), ImportMessage.STATUS_ERROR, nItemNumber ) );
+            return createImportResult( listWorkers, nItemNumber, errorSink, mapPhaseDurations );
+        }
+        progress.setPhase( ImportResult.PHASE_PREPARE );
+        if ( importSource instanceof IMeasurableImportSource )
+        {
+            progress.setTotalBytes( ( (IMeasurableImportSource) importSource ).getTotalBytes( ) );
+        }
         try
         {
-            if ( bEmptyTable )
+            if ( bChunkedCommits )
             {
-                try
+                ImportJournal journal = getImportJournalDAO( ).findByFingerprint( strFingerprint, strTableName );
+                if ( journal != null )
                 {
-                    importElementDAO.emptyTable( );
+                    // Rows committed by a previous execution of this import are skipped, without parsing them if the import source can seek their end
+                    nResumedRows = skipRows( importSource, journal );
+                    nItemNumber = nResumedRows;
+                    errorSink.add( new ImportMessage( I18nService.getLocalizedString( MESSAGE_IMPORT_RESUMED, new Object [ ] {
+                        nResumedRows
+                    }, config.getLocale( ) ), ImportMessage.STATUS_OK, nResumedRows ) );
                 }
-                catch( AppException e )
+            }
+            // The table must not be emptied again when the import is resumed
+            boolean bTableEmptied = config.getEmptyTable( ) && nResumedRows == 0;
+            int nCommittedRows = nResumedRows;
+            long lRowOffset = -1;
+            ImportDataDAO keyDAO = listImportElementDAO.get( 0 );
+            if ( bBulkMode )
+            {
+                for ( ImportDataDAO importElementDAO : listImportElementDAO )
                 {
-                    AppLogService.error( e.getMessage( ), e );
+                    importElementDAO.deferConstraints( );
                 }
-                catch( SQLException e )
+            }
+            // Updates of existing tables may be written into temporary tables that are merged into the table with set-based statements
+            bMerge = !config.getEmptyTable( ) && config.getUpdateExistingRows( ) && AppPropertiesService.getPropertyBoolean( PROPERTY_SET_BASED_MERGE, false )
+                    && keyDAO.isMergeSupported( );
+            if ( bMerge )
+            {
+                for ( ImportDataDAO importElementDAO : listImportElementDAO )
                 {
-                    AppLogService.error( e.getMessage( ), e );
+                    importElementDAO.createTempTable( );
                 }
             }
-            // While there is values in the import source
-            while ( ( listElements = importSource.getNextValues( ) ) != null )
+            // Full reloads may be written into a staging table that replaces the table once every row is written
+            bStaging = config.getEmptyTable( ) && AppPropertiesService.getPropertyBoolean( PROPERTY_STAGING_TABLE, false )
+                    && keyDAO.isStagingTableSupported( );
+            bDropStagingTable = bStaging && !bChunkedCommits;
+            // Rows removed from the table are only restored on rollback if they are removed by the transaction that writes every row
+            if ( bTableEmptied && !bStaging && nParallelism > 1 )
+            {
+                List<ImportDataDAO> listUnusedDAO = listImportElementDAO.subList( 1, nParallelism );
+                rollbackTransactions( listUnusedDAO );
+                listUnusedDAO.clear( );
+                nParallelism = 1;
+            }
+            if ( bStaging )
             {
-                nItemNumber++;
-                try
+                // A resumed import keeps writing into the staging table of its previous execution
+                if ( bTableEmptied )
+                {
+                    keyDAO.createStagingTable( );
+                    keyDAO.commitChunk( );
+                }
+                for ( ImportDataDAO importElementDAO : listImportElementDAO )
+                {
+                    importElementDAO.useStagingTable( );
+                }
+            }
+            else
+                if ( bTableEmptied )
                 {
-                    // If we didn't emptied the table, and the row already exists
-                    if ( !bEmptyTable && importElementDAO.checkElementExists( listElements ) )
+                    try
                     {
-                        // If we must update existing rows
-                        if ( bUpdateExistingRows )
+                        if ( !bBulkMode || !keyDAO.truncateTable( ) )
                         {
-                            importElementDAO.updateElement( listElements );
-                            nUpdatedElements++;
+                            keyDAO.emptyTable( );
                         }
-                        else
+                    }
+                    catch( AppException e )
+                    {
+                        AppLogService.error( e.getMessage( ), e );
+                    }
+                    catch( SQLException e )
+                    {
+                        AppLogService.error( e.getMessage( ), e );
+                    }
+                }
+            // Indexes of staging and temporary tables are not dropped, since they do not outlive the import. Indexes are kept when the table was emptied
+            // by the transaction and the database commits the transaction before dropping an index, so that the removed rows can still be restored
+            if ( bBulkMode && !bStaging && !bMerge && ( !bTableEmptied || keyDAO.isTransactionalDdl( ) ) )
+            {
+                mapDroppedIndexes = keyDAO.dropSecondaryIndexes( );
+                // Dropping an index locks the table until the transaction is committed
+                if ( nParallelism > 1 && !mapDroppedIndexes.isEmpty( ) )
+                {
+                    keyDAO.commitChunk( );
+                }
+            }
+            for ( ImportDataDAO importElementDAO : listImportElementDAO )
+            {
+                listWorkers.add( new ImportWorker( importElementDAO, config.getUpdateExistingRows( ), config.getStopOnErrors( ), bTableEmptied ) );
+            }
+            if ( nParallelism > 1 )
+            {
+                // Workers are blocked on the database most of the time, so they run on virtual threads if the jobs do
+                executor = Executors.newFixedThreadPool( nParallelism, JobExecutorService.getInstance( ).createThreadFactory( CONSTANT_WORKER_THREAD_NAME ) );
+            }
+            lPhaseStart = recordPhaseDuration( mapPhaseDurations, ImportResult.PHASE_PREPARE, lPhaseStart );
+            progress.setPhase( ImportResult.PHASE_LOAD );
+            pipeline = new ImportPipeline( importSource, keyDAO, strTableName, keyDAO.getLookupSize( ) * nParallelism, nResumedRows );
+            _setRunningPipelines.add( pipeline );
+            pipeline.start( );
+            // While there is values in the import source, we write them by chunks
+            for ( List<ImportRow> listRows = pipeline.take( ); !listRows.isEmpty( ); listRows = pipeline.take( ) )
+            {
+                // Cancellation is checked between chunks, so that the rows of a chunk are either all written or all ignored
+                if ( progress.isCancelRequested( ) )
+                {
+                    bCancelled = true;
+                    break;
+                }
+                for ( ImportRow row : listRows )
+                {
+                    // Rows with the same key are always written by the same worker
+                    int nWorker = row.getKey( ) == null ? 0 : ( row.getKey( ).hashCode( ) & Integer.MAX_VALUE ) % nParallelism;
+                    listWorkers.get( nWorker ).addRow( row );
+                }
+                nItemNumber = listRows.get( listRows.size( ) - 1 ).getItemNumber( );
+                lRowOffset = listRows.get( listRows.size( ) - 1 ).getSourceOffset( );
+                updateProgress( progress, importSource, nItemNumber );
+                if ( !runWorkers( listWorkers, executor, errorSink ) )
+                {
+                    rollbackTransactions( listImportElementDAO );
+                    dropStagingTable( listImportElementDAO, bDropStagingTable );
+                    nItemNumber = getStopItemNumber( listWorkers );
+                    bRolledBack = true;
+                    break;
+                }
+                if ( bChunkedCommits && nItemNumber - nCommittedRows >= nCommitSize )
+                {
+                    leaseTransaction = lockLease( config );
+                    if ( isLeaseLost( config, leaseTransaction ) )
+                    {
+                        abortLostLease( listImportElementDAO, bDropStagingTable, errorSink, nItemNumber, config.getLocale( ) );
+                        bRolledBack = true;
+                        break;
+                    }
+                    for ( ImportDataDAO importElementDAO : listImportElementDAO )
+                    {
+                        // Temporary tables do not outlive the connection of the committed transaction
+                        if ( bMerge )
                         {
-                            nIgnoredElements++;
+                            importElementDAO.mergeTempTable( );
+                        }
+                        importElementDAO.commitChunk( );
+                        if ( bMerge )
+                        {
+                            importElementDAO.createTempTable( );
                         }
                     }
-                    else
+                    commitLease( leaseTransaction );
+                    nCommittedRows = nItemNumber;
+                    saveImportJournal( strFingerprint, strTableName, nCommittedRows, lRowOffset );
+                }
+            }
+            lPhaseStart = recordPhaseDuration( mapPhaseDurations, ImportResult.PHASE_LOAD, lPhaseStart );
+            if ( bCancelled )
+            {
+                // A partially filled staging table must never replace the table, so its rows are always rolled back
+                boolean bCommitOnCancel = !bStaging && AppPropertiesService.getPropertyBoolean( PROPERTY_COMMIT_ON_CANCEL, false );
+                String strCancelMessage = bCommitOnCancel ? MESSAGE_IMPORT_CANCELLED_COMMITTED : MESSAGE_IMPORT_CANCELLED;
+                errorSink.add( new ImportMessage( I18nService.getLocalizedString( strCancelMessage, new Object [ ] {
+                    nItemNumber
+                }, config.getLocale( ) ), ImportMessage.STATUS_ERROR, nItemNumber ) );
+                if ( !bCommitOnCancel )
+                {
+                    // Chunks that were already committed are kept, and recorded in the journal so that the import can be resumed
+                    rollbackTransactions( listImportElementDAO );
+                    dropStagingTable( listImportElementDAO, bDropStagingTable );
+                    bRolledBack = true;
+                }
+            }
+            if ( !bRolledBack )
+            {
+                leaseTransaction = lockLease( config );
+            }
+            if ( !bRolledBack && isLeaseLost( config, leaseTransaction ) )
+            {
+                abortLostLease( listImportElementDAO, bDropStagingTable, errorSink, nItemNumber, config.getLocale( ) );
+                bRolledBack = true;
+            }
+            if ( !bRolledBack )
+            {
+                progress.setPhase( ImportResult.PHASE_COMMIT );
+                // The staging table is published by the first DAO once the rows written by the other ones are committed
+                // Each temporary table is merged right before its transaction is committed, so that merges of different DAO do not wait for each other
+                for ( ImportDataDAO importElementDAO : listImportElementDAO.subList( 1, listImportElementDAO.size( ) ) )
+                {
+                    if ( bMerge )
                     {
-                        // If it doesn't exist, we insert a new one
-                        importElementDAO.insertElement( listElements );
-                        nCreatedElements++;
+                        importElementDAO.mergeTempTable( );
                     }
-
+                    importElementDAO.restoreConstraints( );
+                    importElementDAO.commitTransaction( );
                 }
-                catch( AppException e )
+                if ( bStaging )
                 {
-                    ImportMessage importMessage = new ImportMessage( e.getMessage( ), ImportMessage.STATUS_ERROR, nItemNumber );
-                    listErrors.add( importMessage );
-                    nIgnoredElements++;
-                    if ( bStopOnErrors )
+                    keyDAO.publishStagingTable( );
+                }
+                else
+                    if ( bMerge )
                     {
-                        importElementDAO.rollbackTransaction( );
-                        return new ImportResult( nCreatedElements, nUpdatedElements, nIgnoredElements, listErrors );
+                        keyDAO.mergeTempTable( );
                     }
-                }
-                catch( SQLException e )
+                keyDAO.restoreConstraints( );
+                keyDAO.commitTransaction( );
+                commitLease( leaseTransaction );
+                bCommitted = true;
+                if ( bChunkedCommits )
                 {
-                    ImportMessage importMessage = new ImportMessage( e.getMessage( ), ImportMessage.STATUS_ERROR, nItemNumber );
-                    listErrors.add( importMessage );
-                    nIgnoredElements++;
-                    if ( bStopOnErrors )
+                    // A cancelled import can be resumed after its last committed row
+                    if ( bCancelled )
+                    {
+                        saveImportJournal( strFingerprint, strTableName, nItemNumber, lRowOffset );
+                    }
+                    else
                     {
-                        importElementDAO.rollbackTransaction( );
-                        return new ImportResult( nCreatedElements, nUpdatedElements, nIgnoredElements, listErrors );
+                        getImportJournalDAO( ).delete( strFingerprint, strTableName );
                     }
                 }
+                lPhaseStart = recordPhaseDuration( mapPhaseDurations, ImportResult.PHASE_COMMIT, lPhaseStart );
             }
-            importElementDAO.commitTransaction( );
         }
         catch( Exception e )
         {
             AppLogService.error( e.getMessage( ), e );
-            importElementDAO.rollbackTransaction( );
+            rollbackTransactions( listImportElementDAO );
+            dropStagingTable( listImportElementDAO, bDropStagingTable );
             ImportMessage importMessage = new ImportMessage( e.getMessage( ), ImportMessage.STATUS_ERROR, nItemNumber );
-            listErrors.add( importMessage );
+            errorSink.add( importMessage );
+        }
+        finally
+        {
+            // The lease is released if the import failed while committing
+            if ( leaseTransaction != null && leaseTransaction.getStatus( ) == Transaction.OPENED )
+            {
+                leaseTransaction.rollback( );
+            }
+            // The pipeline must not read the import source anymore once it is closed by the caller
+            if ( pipeline != null )
+            {
+                pipeline.stop( );
+                _setRunningPipelines.remove( pipeline );
+                AppLogService.debug( "Import pipeline of table " + strTableName + " : reader blocked during " + pipeline.getReaderBlockedTime( )
+                        + " ms, writer starved during " + pipeline.getWriterStarvedTime( ) + " ms" );
+            }
+            if ( executor != null )
+            {
+                executor.shutdownNow( );
+            }
+            // Indexes are created again even if the import failed, since they may have been dropped by a committed transaction
+            if ( bBulkMode )
+            {
+                long lRebuildStart = System.currentTimeMillis( );
+                progress.setPhase( ImportResult.PHASE_REBUILD );
+                rebuildTable( listImportElementDAO.get( 0 ), mapDroppedIndexes, errorSink, nItemNumber, config.getLocale( ) );
+                recordPhaseDuration( mapPhaseDurations, ImportResult.PHASE_REBUILD, lRebuildStart );
+            }
+            // Statistics are refreshed once indexes are created again, so that statistics of indexes are refreshed too
+            long lAnalyzeStart = System.currentTimeMillis( );
+            progress.setPhase( ImportResult.PHASE_ANALYZE );
+            if ( bCommitted && analyzeTable( listImportElementDAO.get( 0 ), listWorkers, errorSink, nItemNumber, config.getLocale( ) ) )
+            {
+                recordPhaseDuration( mapPhaseDurations, ImportResult.PHASE_ANALYZE, lAnalyzeStart );
+            }
+            AppLogService.debug( "Import of table " + strTableName + " : phase durations " + mapPhaseDurations );
+        }
+        return createImportResult( listWorkers, nItemNumber - nResumedRows, errorSink, mapPhaseDurations );
+    }
+
+    /**
+     * Get the number of workers of an import, which is also the number of database connections it uses. Imports that empty the table without a staging
+     * table have a single worker.
+     * 
+     * @param config
+     *            The configuration of the import
+     * @return The number of workers
+     */
+    public static int getParallelism( ImportConfig config )
+    {
+        if ( config.getEmptyTable( ) && !AppPropertiesService.getPropertyBoolean( PROPERTY_STAGING_TABLE, false ) )
+        {
+            return 1;
+        }
+        return Math.max( 1, Math.min( config.getParallelism( ), AppPropertiesService.getPropertyInt( PROPERTY_MAX_PARALLELISM, 4 ) ) );
+    }
+
+    /**
+     * Get the pipelines of imports that are currently running, to monitor the depth of their queues
+     * 
+     * @return The unmodifiable collection of running pipelines
+     */
+    public static Collection<ImportPipeline> getRunningPipelines( )
+    {
+        return Collections.unmodifiableCollection( _setRunningPipelines );
+    }
+
+    /**
+     * Publish the progress of an import once a chunk of rows has been read
+     * 
+     * @param progress
+     *            The progress of the import
+     * @param importSource
+     *            The import source
+     * @param nItemNumber
+     *            The number of the last item read from the import source
+     */
+    private static void updateProgress( JobProgress progress, IImportSource importSource, int nItemNumber )
+    {
+        progress.setRowsProcessed( nItemNumber );
+        if ( importSource instanceof IMeasurableImportSource )
+        {
+            progress.setBytesRead( ( (IMeasurableImportSource) importSource ).getBytesRead( ) );
+        }
+    }
+
+    /**
+     * Run every worker of an import on its current chunk of rows, and wait for all of them to complete
+     * 
+     * @param listWorkers
+     *            The list of workers
+     * @param executor
+     *            The executor to run workers with, or null to run the single worker in the current thread
+     * @param errorSink
+     *            The sink to add errors of workers into
+     * @return True if the import can continue, false if a worker stopped because of an error
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private static boolean runWorkers( List<ImportWorker> listWorkers, ExecutorService executor, ImportErrorSink errorSink ) throws SQLException
+    {
+        boolean bContinue = true;
+        try
+        {
+            if ( executor == null )
+            {
+                bContinue = listWorkers.get( 0 ).call( );
+            }
+            else
+            {
+                for ( Future<Boolean> future : executor.invokeAll( listWorkers ) )
+                {
+                    bContinue = future.get( ) && bContinue;
+                }
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( e.getMessage( ), e );
+        }
+        catch( ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof SQLException )
+            {
+                throw (SQLException) e.getCause( );
+            }
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            List<ImportMessage> listWorkersErrors = new ArrayList<ImportMessage>( );
+            for ( ImportWorker worker : listWorkers )
+            {
+                worker.drainErrors( listWorkersErrors );
+            }
+            // Errors of different workers are sorted by item number
+            Collections.sort( listWorkersErrors, new Comparator<ImportMessage>( )
+            {
+                @Override
+                public int compare( ImportMessage message1, ImportMessage message2 )
+                {
+                    return Integer.compare( message1.getItemNumber( ), message2.getItemNumber( ) );
+                }
+            } );
+            errorSink.addAll( listWorkersErrors );
+        }
+        return bContinue;
+    }
+
+    /**
+     * Get the number of the first item a worker stopped at
+     * 
+     * @param listWorkers
+     *            The list of workers
+     * @return The number of the first item a worker stopped at
+     */
+    private static int getStopItemNumber( List<ImportWorker> listWorkers )
+    {
+        int nStopItemNumber = Integer.MAX_VALUE;
+        for ( ImportWorker worker : listWorkers )
+        {
+            if ( worker.getStopItemNumber( ) > 0 )
+            {
+                nStopItemNumber = Math.min( nStopItemNumber, worker.getStopItemNumber( ) );
+            }
+        }
+        return nStopItemNumber;
+    }
+
+    /**
+     * Roll back the transactions of a list of import DAO
+     * 
+     * @param listImportElementDAO
+     *            The list of import DAO
+     */
+    private static void rollbackTransactions( List<ImportDataDAO> listImportElementDAO )
+    {
+        for ( ImportDataDAO importElementDAO : listImportElementDAO )
+        {
+            importElementDAO.rollbackTransaction( );
+        }
+    }
+
+    /**
+     * Record the duration of a phase of an import
+     * 
+     * @param mapPhaseDurations
+     *            The map of durations of phases, by name of phase
+     * @param strPhase
+     *            The name of the phase
+     * @param lPhaseStart
+     *            The time the phase started at, in milliseconds
+     * @return The time the phase ended at, which is the start of the next phase
+     */
+    private static long recordPhaseDuration( Map<String, Long> mapPhaseDurations, String strPhase, long lPhaseStart )
+    {
+        long lPhaseEnd = System.currentTimeMillis( );
+        mapPhaseDurations.put( strPhase, lPhaseEnd - lPhaseStart );
+        return lPhaseEnd;
+    }
+
+    /**
+     * Create again the indexes dropped by an import in bulk mode, and validate the foreign keys whose checks were postponed if the database did not check
+     * them. Failures are reported as errors of the import, since rows are already committed.
+     * 
+     * @param keyDAO
+     *            The DAO that dropped the indexes
+     * @param mapDroppedIndexes
+     *            The map of SQL statements that create the dropped indexes, by name of index, or null if no index was dropped
+     * @param errorSink
+     *            The sink of messages of the import of the import
+     * @param nItemNumber
+     *            The number of the last imported item
+     * @param locale
+     *            The locale to display errors in
+     */
+    private static void rebuildTable( ImportDataDAO keyDAO, Map<String, String> mapDroppedIndexes, ImportErrorSink errorSink, int nItemNumber,
+            Locale locale )
+    {
+        if ( mapDroppedIndexes != null )
+        {
+            for ( String strIndexName : keyDAO.rebuildIndexes( mapDroppedIndexes ) )
+            {
+                errorSink.add( new ImportMessage( I18nService.getLocalizedString( ERROR_MESSAGE_INDEX_NOT_REBUILT, new Object [ ] {
+                    strIndexName
+                }, locale ), ImportMessage.STATUS_ERROR, nItemNumber ) );
+            }
+        }
+        if ( keyDAO.isForeignKeyValidationNeeded( ) )
+        {
+            try
+            {
+                for ( Map.Entry<String, Integer> entry : keyDAO.findForeignKeyViolations( ).entrySet( ) )
+                {
+                    errorSink.add( new ImportMessage( I18nService.getLocalizedString( ERROR_MESSAGE_FOREIGN_KEY_VIOLATION, new Object [ ] {
+                        entry.getValue( ), entry.getKey( )
+                    }, locale ), ImportMessage.STATUS_ERROR, nItemNumber ) );
+                }
+            }
+            catch( SQLException e )
+            {
+                AppLogService.error( e.getMessage( ), e );
+                errorSink.add( new ImportMessage( e.getMessage( ), ImportMessage.STATUS_ERROR, nItemNumber ) );
+            }
+        }
+    }
+
+    /**
+     * Refresh the statistics of the table of an import that wrote many rows, so that the query planner of the database does not use stale statistics until
+     * the database refreshes them by itself. Statistics are refreshed if the number of written rows reaches a minimum number of rows, or a minimum percentage
+     * of the rows of the table.
+     * 
+     * @param keyDAO
+     *            The DAO of the table
+     * @param listWorkers
+     *            The list of workers of the import
+     * @param errorSink
+     *            The sink of messages of the import
+     * @param nItemNumber
+     *            The number of the last imported item
+     * @param locale
+     *            The locale to display messages in
+     * @return True if the statistics were refreshed, false otherwise
+     */
+    private static boolean analyzeTable( ImportDataDAO keyDAO, List<ImportWorker> listWorkers, ImportErrorSink errorSink, int nItemNumber,
+            Locale locale )
+    {
+        long lWrittenRows = 0;
+        for ( ImportWorker worker : listWorkers )
+        {
+            lWrittenRows += worker.getImportDataDAO( ).getCreatedElements( ) + worker.getImportDataDAO( ).getUpdatedElements( );
+        }
+        if ( lWrittenRows == 0 || !keyDAO.isAnalyzeSupported( ) )
+        {
+            return false;
+        }
+        int nMinRows = AppPropertiesService.getPropertyInt( PROPERTY_ANALYZE_MIN_ROWS, DEFAULT_ANALYZE_MIN_ROWS );
+        int nMinTablePercent = AppPropertiesService.getPropertyInt( PROPERTY_ANALYZE_MIN_TABLE_PERCENT, DEFAULT_ANALYZE_MIN_TABLE_PERCENT );
+        try
+        {
+            boolean bAnalyze = nMinRows > 0 && lWrittenRows >= nMinRows;
+            if ( !bAnalyze && nMinTablePercent > 0 )
+            {
+                long lRowCount = keyDAO.getEstimatedRowCount( );
+                bAnalyze = lRowCount > 0 && lWrittenRows * 100 >= lRowCount * nMinTablePercent;
+            }
+            if ( !bAnalyze )
+            {
+                return false;
+            }
+            long lStart = System.currentTimeMillis( );
+            keyDAO.analyzeTable( AppPropertiesService.getPropertyBoolean( PROPERTY_ANALYZE_REINDEX, false ) );
+            String strMessage = I18nService.getLocalizedString( MESSAGE_TABLE_ANALYZED, new Object [ ] {
+                lWrittenRows, System.currentTimeMillis( ) - lStart
+            }, locale );
+            AppLogService.info( strMessage );
+            errorSink.add( new ImportMessage( strMessage, ImportMessage.STATUS_OK, nItemNumber ) );
+        }
+        catch( SQLException e )
+        {
+            // Rows are already committed, so the import is not failed by stale statistics
+            AppLogService.error( e.getMessage( ), e );
+            errorSink.add( new ImportMessage( e.getMessage( ), ImportMessage.STATUS_SKIPPED, nItemNumber ) );
+        }
+        return true;
+    }
+
+    /**
+     * Lock the lease of the node on the cluster job that runs an import. The lease is renewed in the database before each commit and stays locked until the
+     * commit is done, since the cancellation of a job whose lease expired is only noticed between chunks, while another node may already write the same rows
+     * 
+     * @param config
+     *            The configuration of the import
+     * @return The transaction that locks the lease, to commit once the rows are committed, or null if the import is not run by a cluster job or if the node
+     *         lost the lease
+     */
+    private static Transaction lockLease( ImportConfig config )
+    {
+        return config.getIdClusterJob( ) == null ? null : ClusterJobService.getInstance( ).lockLease( config.getIdClusterJob( ) );
+    }
+
+    /**
+     * Check if the node lost the lease on the cluster job that runs an import
+     * 
+     * @param config
+     *            The configuration of the import
+     * @param leaseTransaction
+     *            The transaction returned by {@link #lockLease(ImportConfig)}
+     * @return True if the import is run by a cluster job whose lease could not be locked, false otherwise
+     */
+    private static boolean isLeaseLost( ImportConfig config, Transaction leaseTransaction )
+    {
+        return config.getIdClusterJob( ) != null && leaseTransaction == null;
+    }
+
+    /**
+     * Release the lease on the cluster job of an import once its rows are committed
+     * 
+     * @param leaseTransaction
+     *            The transaction that locks the lease, or null if the import is not run by a cluster job
+     */
+    private static void commitLease( Transaction leaseTransaction )
+    {
+        if ( leaseTransaction != null )
+        {
+            leaseTransaction.commit( );
         }
-        return new ImportResult( nCreatedElements, nUpdatedElements, nIgnoredElements, listErrors );
+    }
+
+    /**
+     * Roll back an import whose node lost the lease on its cluster job
+     * 
+     * @param listImportElementDAO
+     *            The list of DAO of the import
+     * @param bDropStagingTable
+     *            True if the staging table must be dropped, false otherwise
+     * @param errorSink
+     *            The sink of the messages of the import
+     * @param nItemNumber
+     *            The number of the last read item
+     * @param locale
+     *            The locale of the messages
+     */
+    private static void abortLostLease( List<ImportDataDAO> listImportElementDAO, boolean bDropStagingTable, ImportErrorSink errorSink, int nItemNumber,
+            Locale locale )
+    {
+        AppLogService.error( "The lease on the cluster job of the import was lost after row " + nItemNumber + ", the import is rolled back" );
+        rollbackTransactions( listImportElementDAO );
+        dropStagingTable( listImportElementDAO, bDropStagingTable );
+        errorSink.add( new ImportMessage( I18nService.getLocalizedString( ERROR_MESSAGE_LEASE_LOST, new Object [ ] {
+            nItemNumber
+        }, locale ), ImportMessage.STATUS_ERROR, nItemNumber ) );
+    }
+
+    /**
+     * Drop the staging table of an import that failed. The staging table of an import that can be resumed is kept, so that the rows it already committed are
+     * not lost.
+     * 
+     * @param listImportElementDAO
+     *            The list of DAO of the import
+     * @param bDrop
+     *            True if the staging table must be dropped, false otherwise
+     */
+    private static void dropStagingTable( List<ImportDataDAO> listImportElementDAO, boolean bDrop )
+    {
+        if ( bDrop )
+        {
+            listImportElementDAO.get( 0 ).dropStagingTable( );
+        }
+    }
+
+    /**
+     * Skip the rows of an import source that were committed by a previous execution of an import. The import source seeks the end of the last committed row
+     * if it can, otherwise the rows are read one by one.
+     * 
+     * @param importSource
+     *            The import source to skip rows of
+     * @param journal
+     *            The journal of the import
+     * @return The number of skipped rows, which is lower than the number of committed rows if the import source has no more values
+     */
+    private static int skipRows( IImportSource importSource, ImportJournal journal )
+    {
+        if ( importSource instanceof IResumableImportSource && journal.getLastRowOffset( ) >= 0
+                && ( (IResumableImportSource) importSource ).skipTo( journal.getLastRowOffset( ) ) )
+        {
+            return journal.getLastRowNumber( );
+        }
+        int nRows = journal.getLastRowNumber( );
+        int nSkippedRows = 0;
+        while ( nSkippedRows < nRows && importSource.getNextValues( ) != null )
+        {
+            nSkippedRows++;
+        }
+        return nSkippedRows;
+    }
+
+    /**
+     * Save the journal of an import processed by chunks
+     * 
+     * @param strFingerprint
+     *            The fingerprint of the imported file
+     * @param strTableName
+     *            The name of the table data are imported in
+     * @param nLastRowNumber
+     *            The number of the last committed row
+     * @param lLastRowOffset
+     *            The byte offset of the end of the last committed row in the import source, or -1 if it is unknown
+     */
+    private static void saveImportJournal( String strFingerprint, String strTableName, int nLastRowNumber, long lLastRowOffset )
+    {
+        ImportJournal journal = new ImportJournal( );
+        journal.setFingerprint( strFingerprint );
+        journal.setTableName( strTableName );
+        journal.setLastRowNumber( nLastRowNumber );
+        journal.setLastRowOffset( lLastRowOffset );
+        journal.setDateUpdate( new Timestamp( System.currentTimeMillis( ) ) );
+        getImportJournalDAO( ).save( journal );
+    }
+
+    /**
+     * Check if an import processed by chunks has been interrupted, and should be resumed
+     * 
+     * @param strFingerprint
+     *            The fingerprint of the imported file
+     * @param strTableName
+     *            The name of the table data are imported in
+     * @return True if some chunks of the import have been committed but the import has not completed, false otherwise
+     */
+    public static boolean isImportInterrupted( String strFingerprint, String strTableName )
+    {
+        return StringUtils.isNotEmpty( strFingerprint ) && getImportJournalDAO( ).findByFingerprint( strFingerprint, strTableName ) != null;
+    }
+
+    /**
+     * Get the fingerprint of a file. The fingerprint is computed from the size and the whole content of the file, since an import is resumed from the byte
+     * offset of its last committed row and any change of the file would move this offset.
+     * 
+     * @param file
+     *            The file
+     * @return The fingerprint of the file, or null if the file could not be read
+     */
+    public static String getFingerprint( File file )
+    {
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = new FileInputStream( file );
+            return getFingerprint( inputStream, file.length( ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+        finally
+        {
+            IOUtils.closeQuietly( inputStream );
+        }
+    }
+
+    /**
+     * Get the fingerprint of a file item. The fingerprint is computed from the size and the whole content of the file, since an import is resumed from the
+     * byte offset of its last committed row and any change of the file would move this offset.
+     * 
+     * @param fileItem
+     *            The file item
+     * @return The fingerprint of the file item, or null if the file item could not be read
+     */
+    public static String getFingerprint( FileItem fileItem )
+    {
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = fileItem.getInputStream( );
+            return getFingerprint( inputStream, fileItem.getSize( ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return null;
+        }
+        finally
+        {
+            IOUtils.closeQuietly( inputStream );
+        }
+    }
+
+    /**
+     * Get the fingerprint of the content of a file
+     * 
+     * @param inputStream
+     *            The input stream to read the content of the file from. The stream is not closed by this method
+     * @param lSize
+     *            The size of the file
+     * @return The fingerprint
+     * @throws IOException
+     *             If an error occurs while reading the file
+     */
+    private static String getFingerprint( InputStream inputStream, long lSize ) throws IOException
+    {
+        MessageDigest messageDigest;
+        try
+        {
+            messageDigest = MessageDigest.getInstance( CONSTANT_FINGERPRINT_ALGORITHM );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            throw new IOException( e );
+        }
+        messageDigest.update( Long.toString( lSize ).getBytes( ) );
+        byte [ ] buffer = new byte [ 8192];
+        int nRead;
+        while ( ( nRead = inputStream.read( buffer ) ) >= 0 )
+        {
+            messageDigest.update( buffer, 0, nRead );
+        }
+        return Hex.encodeHexString( messageDigest.digest( ) );
+    }
+
+    /**
+     * Get the DAO of import journals
+     * 
+     * @return The DAO of import journals
+     */
+    private static IImportJournalDAO getImportJournalDAO( )
+    {
+        if ( _importJournalDAO == null )
+        {
+            _importJournalDAO = SpringContextService.getBean( BEAN_NAME_IMPORT_JOURNAL_DAO );
+        }
+        return _importJournalDAO;
+    }
+
+    /**
+     * Creates the result of an import from the counters of the DAO of its workers. Every processed item that has been neither created nor updated is
+     * considered as ignored.
+     * 
+     * @param listWorkers
+     *            The workers of the import
+     * @param nItemNumber
+     *            The number of items read from the import source by this execution of the import
+     * @param errorSink
+     *            The sink of messages of the import
+     * @param mapPhaseDurations
+     *            The map of durations of the phases of the import, by name of phase
+     * @return The result of the import
+     */
+    private static ImportResult createImportResult( List<ImportWorker> listWorkers, int nItemNumber, ImportErrorSink errorSink,
+            Map<String, Long> mapPhaseDurations )
+    {
+        int nCreatedElements = 0;
+        int nUpdatedElements = 0;
+        for ( ImportWorker worker : listWorkers )
+        {
+            nCreatedElements += worker.getImportDataDAO( ).getCreatedElements( );
+            nUpdatedElements += worker.getImportDataDAO( ).getUpdatedElements( );
+        }
+        ImportResult importResult = new ImportResult( nCreatedElements, nUpdatedElements, nItemNumber - nCreatedElements - nUpdatedElements,
+                errorSink.getMessages( ) );
+        // Summaries are shared with the sink, so that messages added by the end of the import are counted
+        importResult.setListMessageSummaries( errorSink.getSummaries( ) );
+        importResult.setRejectFile( errorSink.close( ) );
+        importResult.setPhaseDurations( mapPhaseDurations );
+        return importResult;
     }
 
     /**
@@ -286,17 +1151,61 @@ public final class ImportManager
      *            True to empty the table before importing data, false otherwise
      * @param admin
      *            The admin user that started the import, or null if the import was started by a daemon
+     * @return The id of the import job, or null if the import was started by a daemon
      */
-    public static void doProcessAsynchronousImport( IImportSource importSource, String strTableName, Plugin plugin, Locale locale, boolean bUpdateExistingRows,
-            boolean bStopOnErrors, boolean bEmptyTable, AdminUser admin )
+    public static String doProcessAsynchronousImport( IImportSource importSource, String strTableName, Plugin plugin, Locale locale,
+            boolean bUpdateExistingRows, boolean bStopOnErrors, boolean bEmptyTable, AdminUser admin )
     {
-        RunnableImportService runnableImportService = new RunnableImportService( importSource, strTableName, plugin, locale, bUpdateExistingRows, bStopOnErrors,
-                bEmptyTable );
+        ImportConfig config = createImportConfig( strTableName, bUpdateExistingRows, bStopOnErrors, bEmptyTable, plugin, locale );
+        return doProcessAsynchronousImport( importSource, config, admin );
+    }
+
+    /**
+     * Do process an asynchronous import of data from an import source to a given table in the database. An admin user can have several imports processing at
+     * the same time, each of them is identified by its job id.
+     * 
+     * @param importSource
+     *            The import source to get data from
+     * @param config
+     *            The configuration of the import
+     * @param admin
+     *            The admin user that started the import, or null if the import was started by a daemon
+     * @return The id of the import job, or null if the import was started by a daemon
+     */
+    public static String doProcessAsynchronousImport( IImportSource importSource, ImportConfig config, AdminUser admin )
+    {
+        RunnableImportService runnableImportService = new RunnableImportService( importSource, config );
+        String strJobId = null;
+        int nPriority = JobExecutorService.PRIORITY_DAEMON;
         if ( admin != null )
         {
-            _mapWorkingRunnableImportServices.put( admin.getUserId( ), runnableImportService );
+            strJobId = _importJobRegistry.register( admin.getUserId( ), runnableImportService );
+            nPriority = JobExecutorService.PRIORITY_INTERACTIVE;
+        }
+        JobExecutorService.getInstance( ).submit( runnableImportService, config.getTableName( ), nPriority, getParallelism( config ) );
+        return strJobId;
+    }
+
+    /**
+     * Do process an asynchronous import of an uploaded file started by an admin user. In cluster mode, the file is stored in the queue of cluster jobs, so
+     * that the import can be run and monitored by any node. Otherwise the import is run by this node.
+     * 
+     * @param fileItem
+     *            The uploaded file
+     * @param config
+     *            The configuration of the import
+     * @param admin
+     *            The admin user that started the import
+     * @return The id of the import job, or null if the file is not a valid import source
+     */
+    public static String doProcessAsynchronousImport( FileItem fileItem, ImportConfig config, AdminUser admin )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).queue( ClusterImportJob.createClusterJob( fileItem, config, admin.getUserId( ) ) );
         }
-        ThreadLauncherDaemon.addItemToQueue( runnableImportService, strTableName, ImportExportPlugin.getPlugin( ) );
+        IImportSource importSource = getImportSource( fileItem );
+        return importSource == null ? null : doProcessAsynchronousImport( importSource, config, admin );
     }
 
     /**
@@ -308,36 +1217,159 @@ public final class ImportManager
      */
     public static boolean hasImportInProcess( int nAdminId )
     {
-        if ( nAdminId > 0 )
+        return nAdminId > 0 && _importJobRegistry.hasRunningJob( nAdminId );
+    }
+
+    /**
+     * Check if an import of an admin user is processing
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the import job
+     * @return True if the import is processing, false otherwise
+     */
+    public static boolean isImportInProcess( int nAdminId, String strJobId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
         {
-            RunnableImportService runnableImportService = _mapWorkingRunnableImportServices.get( nAdminId );
-            if ( runnableImportService != null )
-            {
-                return runnableImportService.getServiceStatus( ) != RunnableImportService.STATUS_FINISHED;
-            }
+            return ClusterJobService.getInstance( ).isJobInProcess( nAdminId, strJobId, ClusterJob.TYPE_IMPORT );
+        }
+        RunnableImportService runnableImportService = _importJobRegistry.getJob( nAdminId, strJobId );
+        return runnableImportService != null && runnableImportService.getServiceStatus( ) != RunnableImportService.STATUS_FINISHED;
+    }
+
+    /**
+     * Get the id of the last asynchronous import started by an admin user
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @return The id of the import job, or null if the admin user has no asynchronous import
+     */
+    public static String getLastImportJobId( int nAdminId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).getLastJobId( nAdminId, ClusterJob.TYPE_IMPORT );
+        }
+        return _importJobRegistry.getLastJobId( nAdminId );
+    }
+
+    /**
+     * Request an asynchronous import of an admin user to be cancelled. The import stops before writing its next chunk of rows, and its connections are
+     * released once its pending rows are rolled back or committed.
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the import job
+     * @return True if the import was processing and has been requested to be cancelled, false otherwise
+     */
+    public static boolean cancelAsynchronousImport( int nAdminId, String strJobId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).cancel( nAdminId, strJobId, ClusterJob.TYPE_IMPORT );
+        }
+        RunnableImportService runnableImportService = _importJobRegistry.getJob( nAdminId, strJobId );
+        if ( runnableImportService != null && runnableImportService.getServiceStatus( ) != RunnableImportService.STATUS_FINISHED )
+        {
+            runnableImportService.getProgress( ).cancel( );
+            return true;
         }
         return false;
     }
 
+    /**
+     * Get the progress of an asynchronous import of an admin user
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     * @param strJobId
+     *            The id of the import job
+     * @return The progress of the import, or null if the admin user has no import with this id
+     */
+    public static JobProgress getAsynchronousImportProgress( int nAdminId, String strJobId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            return ClusterJobService.getInstance( ).getProgress( nAdminId, strJobId, ClusterJob.TYPE_IMPORT );
+        }
+        RunnableImportService runnableImportService = _importJobRegistry.getJob( nAdminId, strJobId );
+        return runnableImportService == null ? null : runnableImportService.getProgress( );
+    }
+
     /**
      * Get the result of an asynchronous import. The import service is then removed from the list of current imports
      * 
      * @param nAdminId
      *            The id of the user that started the import
+     * @param strJobId
+     *            The id of the import job
      * @return The result of the import, or null if no result were found
      */
-    public static ImportResult getAsynchronousImportResult( int nAdminId )
+    public static ImportResult getAsynchronousImportResult( int nAdminId, String strJobId )
     {
-        RunnableImportService runnableImportService = _mapWorkingRunnableImportServices.get( nAdminId );
-        if ( runnableImportService != null && runnableImportService.getServiceStatus( ) == RunnableImportService.STATUS_FINISHED )
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
         {
-            ImportResult result = runnableImportService.getImportResult( );
-            _mapWorkingRunnableImportServices.remove( nAdminId );
-            return result;
+            ClusterJob clusterJob = ClusterJobService.getInstance( ).removeFinishedJob( nAdminId, strJobId, ClusterJob.TYPE_IMPORT );
+            return clusterJob == null ? null : ClusterImportJob.readResult( clusterJob.getResult( ) );
+        }
+        RunnableImportService runnableImportService = _importJobRegistry.getJob( nAdminId, strJobId );
+        if ( runnableImportService != null && runnableImportService.getServiceStatus( ) == RunnableImportService.STATUS_FINISHED
+                && _importJobRegistry.remove( nAdminId, strJobId ) != null )
+        {
+            return runnableImportService.getImportResult( );
         }
         return null;
     }
 
+    /**
+     * Discard the results of the finished asynchronous imports of an admin user that have not been read
+     * 
+     * @param nAdminId
+     *            The id of the admin user
+     */
+    public static void discardAsynchronousImportResults( int nAdminId )
+    {
+        if ( ClusterJobService.getInstance( ).isEnabled( ) )
+        {
+            ClusterJobService.getInstance( ).discardFinishedJobs( nAdminId, ClusterJob.TYPE_IMPORT );
+            return;
+        }
+        _importJobRegistry.removeFinishedJobs( nAdminId );
+    }
+
+    /**
+     * Creates the configuration of an import that is processed by a single worker in a single transaction
+     * 
+     * @param strTableName
+     *            The name of the table in the database to import data to
+     * @param bUpdateExistingRows
+     *            True to update existing rows, false to ignore them
+     * @param bStopOnErrors
+     *            True to stop when an error occurred, false to skip the item and continue
+     * @param bEmptyTable
+     *            True to empty the table before importing data, false otherwise
+     * @param plugin
+     *            The plugin to get the pool from
+     * @param locale
+     *            The locale
+     * @return The configuration of the import
+     */
+    private static ImportConfig createImportConfig( String strTableName, boolean bUpdateExistingRows, boolean bStopOnErrors, boolean bEmptyTable,
+            Plugin plugin, Locale locale )
+    {
+        ImportConfig config = new ImportConfig( );
+        config.setTableName( strTableName );
+        config.setUpdateExistingRows( bUpdateExistingRows );
+        config.setStopOnErrors( bStopOnErrors );
+        config.setEmptyTable( bEmptyTable );
+        config.setPlugin( plugin );
+        config.setLocale( locale );
+        return config;
+    }
+
     /**
      * Creates a new import result from a throwable. The import result has one error message, which contain the message of the throwable.
      * 
@@ -352,6 +1384,19 @@ public final class ImportManager
         List<ImportMessage> listMessages = new ArrayList<ImportMessage>( );
         listMessages.add( message );
         result.setListImportMessage( listMessages );
+        result.setListMessageSummaries( summarizeMessages( listMessages ) );
         return result;
     }
+
+    /**
+     * Group identical messages of an import, so that an import source with many invalid rows is reported with one message per kind of error
+     * 
+     * @param listMessages
+     *            The list of messages of the import
+     * @return The list of summaries of the messages
+     */
+    private static List<ImportMessageSummary> summarizeMessages( List<ImportMessage> listMessages )
+    {
+        return ImportMessageSummary.summarize( listMessages, AppPropertiesService.getPropertyInt( PROPERTY_MESSAGE_SAMPLES, DEFAULT_MESSAGE_SAMPLES ) );
+    }
 }
@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.importdata;
+
+import fr.paris.lutece.plugins.importexport.business.ImportExportElement;
+import fr.paris.lutece.plugins.importexport.business.ImportRowBlock;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportDataDAO;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportRow;
+import fr.paris.lutece.plugins.importexport.service.JobExecutorService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipeline that reads and converts rows of an import while they are written into the database. The import is processed by three stages :
+ * <ul>
+ * <li>a reader thread reads chunks of rows from the import source,</li>
+ * <li>a pool of converter threads converts the values of every chunk into the Java types of the columns of the table,</li>
+ * <li>the thread that processes the import takes converted chunks with {@link #take()} and writes them into the database.</li>
+ * </ul>
+ * Chunks are queued in the order they were read into a bounded queue, so that the reader is blocked when the writer cannot keep up with it, and the number
+ * of rows held in memory is limited. If the import source is an {@link IImportBatchSource}, rows are read into a fixed set of blocks that are reused once
+ * they have been converted.
+ */
+public class ImportPipeline
+{
+    private static final String PROPERTY_CONVERTERS = "importexport.importdata.pipeline.converters";
+    private static final String PROPERTY_QUEUE_SIZE = "importexport.importdata.pipeline.queueSize";
+    private static final String CONSTANT_READER_THREAD_NAME = "importexport-reader-";
+    private static final String CONSTANT_CONVERTER_THREAD_NAME = "importexport-converter-";
+    private static final String CONSTANT_THREAD_NAME_SEPARATOR = "-";
+
+    private IImportSource _importSource;
+    private ImportDataDAO _importDataDAO;
+    private String _strTableName;
+    private int _nChunkSize;
+    private int _nFirstItemNumber;
+    private BlockingQueue<Future<List<ImportRow>>> _queueChunks;
+    private BlockingQueue<ImportRowBlock> _queueFreeBlocks;
+    private ExecutorService _converterExecutor;
+    private Thread _readerThread;
+    private boolean _bEndOfInput;
+    private AtomicLong _lReaderBlockedTime = new AtomicLong( );
+    private AtomicLong _lWriterStarvedTime = new AtomicLong( );
+
+    /**
+     * Creates a new import pipeline. The pipeline must be started with {@link #start()}, and <b>must</b> be stopped with {@link #stop()} before the import
+     * source is closed
+     * 
+     * @param importSource
+     *            The import source to read rows from
+     * @param importDataDAO
+     *            The DAO to convert rows with
+     * @param strTableName
+     *            The name of the table rows are imported in
+     * @param nChunkSize
+     *            The maximum number of rows of every chunk
+     * @param nFirstItemNumber
+     *            The number of the last item that was read from the import source before the pipeline is started
+     */
+    public ImportPipeline( IImportSource importSource, ImportDataDAO importDataDAO, String strTableName, int nChunkSize, int nFirstItemNumber )
+    {
+        _importSource = importSource;
+        _importDataDAO = importDataDAO;
+        _strTableName = strTableName;
+        _nChunkSize = nChunkSize;
+        _nFirstItemNumber = nFirstItemNumber;
+        int nConverters = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_CONVERTERS, Runtime.getRuntime( ).availableProcessors( ) ) );
+        int nQueueSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, 2 * nConverters ) );
+        _queueChunks = new ArrayBlockingQueue<Future<List<ImportRow>>>( nQueueSize );
+        if ( importSource instanceof IImportBatchSource )
+        {
+            // Every queued chunk may hold a block, and one more block is filled by the reader
+            _queueFreeBlocks = new ArrayBlockingQueue<ImportRowBlock>( nQueueSize + 1 );
+            for ( int i = 0; i <= nQueueSize; i++ )
+            {
+                _queueFreeBlocks.add( new ImportRowBlock( importSource.getColumnsName( ), nChunkSize ) );
+            }
+        }
+        _converterExecutor = Executors.newFixedThreadPool( nConverters,
+                JobExecutorService.getInstance( ).createThreadFactory( CONSTANT_CONVERTER_THREAD_NAME + strTableName + CONSTANT_THREAD_NAME_SEPARATOR ) );
+        _readerThread = new Thread( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                read( );
+            }
+        }, CONSTANT_READER_THREAD_NAME + strTableName );
+        _readerThread.setDaemon( true );
+    }
+
+    /**
+     * Start reading and converting rows
+     */
+    public void start( )
+    {
+        _readerThread.start( );
+    }
+
+    /**
+     * Stop reading and converting rows, and wait for the reader thread to terminate. Chunks that have not been taken yet are discarded.
+     */
+    public void stop( )
+    {
+        _readerThread.interrupt( );
+        _converterExecutor.shutdownNow( );
+        try
+        {
+            _readerThread.join( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        _queueChunks.clear( );
+    }
+
+    /**
+     * Take the next converted chunk of rows, waiting for it to be read and converted if necessary. Chunks are returned in the order they were read from the
+     * import source.
+     * 
+     * @return The next chunk of rows, or an empty list if every row of the import source has been taken
+     * @throws SQLException
+     *             If an error occurred with the database while reading rows
+     * @throws AppException
+     *             If an error occurred while reading rows
+     */
+    public List<ImportRow> take( ) throws SQLException, AppException
+    {
+        if ( _bEndOfInput )
+        {
+            return Collections.emptyList( );
+        }
+        long lStart = System.nanoTime( );
+        try
+        {
+            List<ImportRow> listRows = _queueChunks.take( ).get( );
+            _bEndOfInput = listRows.isEmpty( );
+            return listRows;
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( e.getMessage( ), e );
+        }
+        catch( ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof SQLException )
+            {
+                throw (SQLException) e.getCause( );
+            }
+            if ( e.getCause( ) instanceof AppException )
+            {
+                throw (AppException) e.getCause( );
+            }
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            _lWriterStarvedTime.addAndGet( System.nanoTime( ) - lStart );
+        }
+    }
+
+    /**
+     * Read rows from the import source until its end is reached, or until the reader thread is interrupted. The end of the import source, or the error that
+     * stopped the reader, is always queued, so that the writer never waits for chunks that will not come.
+     */
+    private void read( )
+    {
+        boolean bStopped = false;
+        Throwable error = null;
+        try
+        {
+            bStopped = _queueFreeBlocks != null ? !readBlocks( ) : !readChunks( );
+        }
+        catch( InterruptedException e )
+        {
+            bStopped = true;
+        }
+        catch( Throwable e )
+        {
+            error = e;
+        }
+        finally
+        {
+            if ( bStopped )
+            {
+                // The pipeline has been stopped
+                AppLogService.debug( "Import pipeline of table " + _strTableName + " stopped" );
+            }
+            else
+            {
+                putEnd( error );
+            }
+        }
+    }
+
+    /**
+     * Read chunks of rows from the import source and submit them to converters until the end of the import source is reached, or until the reader thread is
+     * interrupted
+     * 
+     * @return True if the end of the import source was reached, false if the reader thread was interrupted
+     * @throws InterruptedException
+     *             If the reader thread was interrupted while waiting
+     */
+    private boolean readChunks( ) throws InterruptedException
+    {
+        int nItemNumber = _nFirstItemNumber;
+        List<List<ImportExportElement>> listRows = new ArrayList<List<ImportExportElement>>( _nChunkSize );
+        while ( !Thread.currentThread( ).isInterrupted( ) )
+        {
+            List<ImportExportElement> listElements = _importSource.getNextValues( );
+            if ( listElements == null )
+            {
+                if ( !listRows.isEmpty( ) )
+                {
+                    putChunk( _converterExecutor.submit( new ConvertChunk( listRows, nItemNumber, getRowOffset( ) ) ) );
+                }
+                return true;
+            }
+            listRows.add( listElements );
+            if ( listRows.size( ) >= _nChunkSize )
+            {
+                putChunk( _converterExecutor.submit( new ConvertChunk( listRows, nItemNumber, getRowOffset( ) ) ) );
+                nItemNumber += listRows.size( );
+                listRows = new ArrayList<List<ImportExportElement>>( _nChunkSize );
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read blocks of rows from the import source and submit them to converters until the end of the import source is reached, or until the reader thread is
+     * interrupted. Blocks are given back to the pool of free blocks once they have been converted.
+     * 
+     * @return True if the end of the import source was reached, false if the reader thread was interrupted
+     * @throws InterruptedException
+     *             If the reader thread was interrupted while waiting
+     */
+    private boolean readBlocks( ) throws InterruptedException
+    {
+        IImportBatchSource importSource = (IImportBatchSource) _importSource;
+        int nItemNumber = _nFirstItemNumber;
+        while ( !Thread.currentThread( ).isInterrupted( ) )
+        {
+            ImportRowBlock block = _queueFreeBlocks.take( );
+            if ( !importSource.getNextBlock( block ) )
+            {
+                _queueFreeBlocks.add( block );
+                return true;
+            }
+            putChunk( _converterExecutor.submit( new ConvertBlock( block, nItemNumber, getRowOffset( ) ) ) );
+            nItemNumber += block.getRowCount( );
+        }
+        return false;
+    }
+
+    /**
+     * Get the byte offset of the end of the last row read from the import source
+     * 
+     * @return The byte offset, or -1 if the import source cannot be read from an offset
+     */
+    private long getRowOffset( )
+    {
+        return _importSource instanceof IResumableImportSource ? ( (IResumableImportSource) _importSource ).getRowOffset( ) : -1;
+    }
+
+    /**
+     * Set the byte offset of the end of a chunk on its last row, so that the offset of the last committed row is known
+     * 
+     * @param listRows
+     *            The converted rows of the chunk
+     * @param lOffset
+     *            The byte offset of the end of the chunk
+     * @return The converted rows
+     */
+    private static List<ImportRow> setChunkOffset( List<ImportRow> listRows, long lOffset )
+    {
+        if ( !listRows.isEmpty( ) )
+        {
+            listRows.get( listRows.size( ) - 1 ).setSourceOffset( lOffset );
+        }
+        return listRows;
+    }
+
+    /**
+     * Queue the end of the import source, or the error that stopped the reader so that it is reported to the writer when it takes the chunk
+     * 
+     * @param error
+     *            The error, or null if the end of the import source was reached
+     */
+    private void putEnd( final Throwable error )
+    {
+        try
+        {
+            putChunk( completedChunk( new Callable<List<ImportRow>>( )
+            {
+                @Override
+                public List<ImportRow> call( ) throws Exception
+                {
+                    if ( error instanceof Error )
+                    {
+                        throw (Error) error;
+                    }
+                    if ( error != null )
+                    {
+                        throw (Exception) error;
+                    }
+                    // An empty chunk marks the end of the import source
+                    return new ArrayList<ImportRow>( );
+                }
+            } ) );
+        }
+        catch( InterruptedException e )
+        {
+            if ( error != null )
+            {
+                AppLogService.error( error.getMessage( ), error );
+            }
+        }
+    }
+
+    /**
+     * Queue a chunk, waiting for the writer to take a chunk if the queue is full
+     * 
+     * @param future
+     *            The future of the converted chunk
+     * @throws InterruptedException
+     *             If the reader thread was interrupted while waiting
+     */
+    private void putChunk( Future<List<ImportRow>> future ) throws InterruptedException
+    {
+        if ( !_queueChunks.offer( future ) )
+        {
+            long lStart = System.nanoTime( );
+            _queueChunks.put( future );
+            _lReaderBlockedTime.addAndGet( System.nanoTime( ) - lStart );
+        }
+    }
+
+    /**
+     * Run a task in the current thread and get its completed future
+     * 
+     * @param task
+     *            The task to run
+     * @return The completed future of the task
+     */
+    private static Future<List<ImportRow>> completedChunk( Callable<List<ImportRow>> task )
+    {
+        FutureTask<List<ImportRow>> future = new FutureTask<List<ImportRow>>( task );
+        future.run( );
+        return future;
+    }
+
+    /**
+     * Get the name of the table rows are imported in
+     * 
+     * @return The name of the table
+     */
+    public String getTableName( )
+    {
+        return _strTableName;
+    }
+
+    /**
+     * Get the number of chunks that have been read but not converted yet
+     * 
+     * @return The number of chunks waiting for or being converted
+     */
+    public int getConversionQueueDepth( )
+    {
+        int nDepth = 0;
+        for ( Future<List<ImportRow>> future : _queueChunks )
+        {
+            if ( !future.isDone( ) )
+            {
+                nDepth++;
+            }
+        }
+        return nDepth;
+    }
+
+    /**
+     * Get the number of chunks that have been converted but not taken by the writer yet
+     * 
+     * @return The number of chunks waiting to be written
+     */
+    public int getWriteQueueDepth( )
+    {
+        int nDepth = 0;
+        for ( Future<List<ImportRow>> future : _queueChunks )
+        {
+            if ( future.isDone( ) )
+            {
+                nDepth++;
+            }
+        }
+        return nDepth;
+    }
+
+    /**
+     * Get the total time the reader spent waiting for the writer because the queue was full
+     * 
+     * @return The time in milliseconds
+     */
+    public long getReaderBlockedTime( )
+    {
+        return _lReaderBlockedTime.get( ) / 1000000L;
+    }
+
+    /**
+     * Get the total time the writer spent waiting for chunks to be read and converted
+     * 
+     * @return The time in milliseconds
+     */
+    public long getWriterStarvedTime( )
+    {
+        return _lWriterStarvedTime.get( ) / 1000000L;
+    }
+
+    /**
+     * Task that converts a chunk of rows
+     */
+    private class ConvertChunk implements Callable<List<ImportRow>>
+    {
+        private List<List<ImportExportElement>> _listRows;
+        private int _nLastItemNumber;
+        private long _lOffset;
+
+        /**
+         * Creates a new conversion task
+         * 
+         * @param listRows
+         *            The rows to convert
+         * @param nLastItemNumber
+         *            The number of the item that was read before the first row of the chunk
+         * @param lOffset
+         *            The byte offset of the end of the chunk in the import source, or -1 if it is unknown
+         */
+        ConvertChunk( List<List<ImportExportElement>> listRows, int nLastItemNumber, long lOffset )
+        {
+            _listRows = listRows;
+            _nLastItemNumber = nLastItemNumber;
+            _lOffset = lOffset;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<ImportRow> call( )
+        {
+            List<ImportRow> listConvertedRows = new ArrayList<ImportRow>( _listRows.size( ) );
+            int nItemNumber = _nLastItemNumber;
+            for ( List<ImportExportElement> listElements : _listRows )
+            {
+                listConvertedRows.add( _importDataDAO.convertRow( listElements, ++nItemNumber ) );
+            }
+            return setChunkOffset( listConvertedRows, _lOffset );
+        }
+    }
+
+    /**
+     * Task that converts a block of rows, and gives the block back to the pool of free blocks
+     */
+    private class ConvertBlock implements Callable<List<ImportRow>>
+    {
+        private ImportRowBlock _block;
+        private int _nLastItemNumber;
+        private long _lOffset;
+
+        /**
+         * Creates a new conversion task
+         * 
+         * @param block
+         *            The block of rows to convert
+         * @param nLastItemNumber
+         *            The number of the item that was read before the first row of the block
+         * @param lOffset
+         *            The byte offset of the end of the block in the import source, or -1 if it is unknown
+         */
+        ConvertBlock( ImportRowBlock block, int nLastItemNumber, long lOffset )
+        {
+            _block = block;
+            _nLastItemNumber = nLastItemNumber;
+            _lOffset = lOffset;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<ImportRow> call( )
+        {
+            try
+            {
+                return setChunkOffset( _importDataDAO.convertRows( _block, _nLastItemNumber ), _lOffset );
+            }
+            finally
+            {
+                _block.clear( );
+                _queueFreeBlocks.add( _block );
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.importdata;
+
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportDataDAO;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessage;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportRow;
+import fr.paris.lutece.portal.service.util.AppException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Worker that writes rows of an import into the database. Every worker owns its own import DAO, and therefore its own transaction. Rows are given to the
+ * worker by chunks with {@link #addRow(ImportRow)}, and are written when the worker is called. The worker returns true if the import can continue,
+ * or false if an error occurred and the import must be stopped.
+ */
+public class ImportWorker implements Callable<Boolean>
+{
+    private ImportDataDAO _importElementDAO;
+    private boolean _bUpdateExistingRows;
+    private boolean _bStopOnErrors;
+    private boolean _bTableEmptied;
+    private boolean _bUpsert;
+    private List<ImportRow> _listRows = new ArrayList<ImportRow>( );
+    private List<ImportMessage> _listErrors = new ArrayList<ImportMessage>( );
+    private int _nStopItemNumber;
+
+    /**
+     * Creates a new import worker
+     * 
+     * @param importElementDAO
+     *            The DAO to write rows with
+     * @param bUpdateExistingRows
+     *            True to update existing rows, false to ignore them
+     * @param bStopOnErrors
+     *            True to stop when an error occurred, false to skip the item and continue
+     * @param bTableEmptied
+     *            True if the table has been emptied before importing data, so that the existence of rows does not need to be checked
+     */
+    public ImportWorker( ImportDataDAO importElementDAO, boolean bUpdateExistingRows, boolean bStopOnErrors, boolean bTableEmptied )
+    {
+        _importElementDAO = importElementDAO;
+        _bUpdateExistingRows = bUpdateExistingRows;
+        _bStopOnErrors = bStopOnErrors;
+        _bTableEmptied = bTableEmptied;
+        // Existing rows are written with a single native statement when the database supports it, so that no concurrent writer can insert a row
+        // between the check of its existence and its insertion
+        _bUpsert = bUpdateExistingRows && !bTableEmptied && importElementDAO.isUpsertSupported( );
+    }
+
+    /**
+     * Add a row to the chunk of rows to write when this worker is next called
+     * 
+     * @param row
+     *            The row, as converted by {@link ImportDataDAO#convertRow(java.util.List, int)}
+     */
+    public void addRow( ImportRow row )
+    {
+        _listRows.add( row );
+    }
+
+    /**
+     * Write the current chunk of rows into the database. Rows are sent to the database when this method returns, but the transaction is NOT committed.
+     * 
+     * @return True if the import can continue, false if an error occurred and the import must be stopped
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    @Override
+    public Boolean call( ) throws SQLException
+    {
+        try
+        {
+            return processRows( );
+        }
+        finally
+        {
+            _listRows.clear( );
+        }
+    }
+
+    /**
+     * Write the current chunk of rows into the database
+     * 
+     * @return True if the import can continue, false if an error occurred and the import must be stopped
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private boolean processRows( ) throws SQLException
+    {
+        if ( _listRows.isEmpty( ) )
+        {
+            return true;
+        }
+        // The existence of every row of the chunk is checked with a single query
+        Set<List<String>> setExistingKeys;
+        if ( _bTableEmptied )
+        {
+            setExistingKeys = new HashSet<List<String>>( );
+        }
+        else
+        {
+            setExistingKeys = _importElementDAO.findExistingKeys( _listRows );
+        }
+        for ( int i = 0; i < _listRows.size( ); i++ )
+        {
+            ImportRow row = _listRows.get( i );
+            int nItemNumber = row.getItemNumber( );
+            if ( row.getError( ) != null )
+            {
+                // Rows that could not be converted are rejected without raising an exception, whose creation would log its stack trace
+                addError( row.getError( ), row );
+                if ( _bStopOnErrors )
+                {
+                    _nStopItemNumber = nItemNumber;
+                    return false;
+                }
+                continue;
+            }
+            try
+            {
+                List<String> listKey = _bTableEmptied ? null : row.getKey( );
+                if ( _bUpsert )
+                {
+                    // The existence of the row is only used to count created and updated rows
+                    _importElementDAO.upsertRow( row, listKey != null && !setExistingKeys.add( listKey ) );
+                }
+                else
+                    // If the row already exists
+                    if ( listKey != null && setExistingKeys.contains( listKey ) )
+                    {
+                        // If we must update existing rows
+                        if ( _bUpdateExistingRows )
+                        {
+                            _importElementDAO.updateRow( row );
+                        }
+                    }
+                    else
+                    {
+                        // If it doesn't exist, we insert a new one
+                        _importElementDAO.insertRow( row );
+                        // Following rows of the chunk with the same key must be considered as existing
+                        if ( listKey != null )
+                        {
+                            setExistingKeys.add( listKey );
+                        }
+                    }
+            }
+            catch( AppException e )
+            {
+                addError( e.getMessage( ), row );
+                if ( _bStopOnErrors )
+                {
+                    _nStopItemNumber = nItemNumber;
+                    return false;
+                }
+            }
+            catch( SQLException e )
+            {
+                addError( e.getMessage( ), row );
+                if ( _bStopOnErrors )
+                {
+                    _nStopItemNumber = nItemNumber;
+                    return false;
+                }
+            }
+            // Rows are sent to the database by batches to save round trips
+            if ( _importElementDAO.getPendingRows( ) >= _importElementDAO.getBatchSize( ) && !flushBatch( ) && _bStopOnErrors )
+            {
+                _nStopItemNumber = nItemNumber;
+                return false;
+            }
+        }
+        // Rows of this chunk must be written before the existence of rows of the next chunk is checked
+        if ( !flushBatch( ) && _bStopOnErrors )
+        {
+            _nStopItemNumber = _listRows.get( _listRows.size( ) - 1 ).getItemNumber( );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Send the pending batch of the DAO of this worker to the database
+     * 
+     * @return True if every row of the batch was written, false otherwise
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    private boolean flushBatch( ) throws SQLException
+    {
+        List<ImportMessage> listBatchErrors = _importElementDAO.flushBatch( );
+        if ( !listBatchErrors.isEmpty( ) )
+        {
+            // Rows of the batch are still in the current chunk, so that their source values can be reported
+            Map<Integer, ImportRow> mapRows = new HashMap<Integer, ImportRow>( );
+            for ( ImportRow row : _listRows )
+            {
+                mapRows.put( row.getItemNumber( ), row );
+            }
+            for ( ImportMessage message : listBatchErrors )
+            {
+                ImportRow row = mapRows.get( message.getItemNumber( ) );
+                if ( row != null )
+                {
+                    message.setSourceValues( row.getSourceValues( ) );
+                }
+            }
+            _listErrors.addAll( listBatchErrors );
+        }
+        return listBatchErrors.isEmpty( );
+    }
+
+    /**
+     * Add the error of a row that was not imported
+     * 
+     * @param strMessage
+     *            The error message
+     * @param row
+     *            The row
+     */
+    private void addError( String strMessage, ImportRow row )
+    {
+        ImportMessage message = new ImportMessage( strMessage, ImportMessage.STATUS_ERROR, row.getItemNumber( ) );
+        message.setSourceValues( row.getSourceValues( ) );
+        _listErrors.add( message );
+    }
+
+    /**
+     * Get the DAO of this worker
+     * 
+     * @return The DAO of this worker
+     */
+    public ImportDataDAO getImportDataDAO( )
+    {
+        return _importElementDAO;
+    }
+
+    /**
+     * Get the errors that occurred since the last call to this method
+     * 
+     * @param listErrors
+     *            The list to add errors into
+     */
+    public void drainErrors( List<ImportMessage> listErrors )
+    {
+        listErrors.addAll( _listErrors );
+        _listErrors.clear( );
+    }
+
+    /**
+     * Get the number of the item the worker stopped at
+     * 
+     * @return The number of the item the worker stopped at, or 0 if the worker did not stop
+     */
+    public int getStopItemNumber( )
+    {
+        return _nStopItemNumber;
+    }
+}
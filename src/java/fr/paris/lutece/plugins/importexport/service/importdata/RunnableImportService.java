@@ -33,29 +33,26 @@
  */
 package fr.paris.lutece.plugins.importexport.service.importdata;
 
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportConfig;
 import fr.paris.lutece.plugins.importexport.business.importdata.ImportResult;
-import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.plugins.importexport.service.IAsynchronousJob;
 import fr.paris.lutece.portal.service.util.AppLogService;
 
-import java.util.Locale;
+import java.io.File;
 
 /**
  * Service that allow to import data. This service implements the Runnable interface.
  */
-public class RunnableImportService implements Runnable
+public class RunnableImportService implements IAsynchronousJob
 {
     public static final int STATUS_QUEUED = 0;
     public static final int STATUS_WORKING = 1;
     public static final int STATUS_FINISHED = 2;
 
     private IImportSource _importSource;
-    private String _strTableName;
-    private Plugin _plugin;
-    private Locale _locale;
-    private boolean _bUpdateExistingRows;
-    private boolean _bStopOnErrors;
-    private boolean _bEmptyTable;
-    private int _nStatus = STATUS_QUEUED;
+    private ImportConfig _config;
+    private volatile int _nStatus = STATUS_QUEUED;
     private volatile ImportResult _importResult;
 
     /**
@@ -63,29 +60,13 @@ public class RunnableImportService implements Runnable
      * 
      * @param importSource
      *            The data source to get data from
-     * @param strTableName
-     *            The name of the table
-     * @param plugin
-     *            The plugin associated with the pool the table of the database is in.
-     * @param locale
-     *            The locale to display messages in
-     * @param bUpdateExistingRows
-     *            Indicates whether existing rows should be updated (true) or ignored (false)
-     * @param bStopOnErrors
-     *            True to stop when an error occurred, false to skip the item and continue
-     * @param bEmptyTable
-     *            True to empty the table before importing data, false otherwise
+     * @param config
+     *            The configuration of the import
      */
-    public RunnableImportService( IImportSource importSource, String strTableName, Plugin plugin, Locale locale, boolean bUpdateExistingRows,
-            boolean bStopOnErrors, boolean bEmptyTable )
+    public RunnableImportService( IImportSource importSource, ImportConfig config )
     {
         this._importSource = importSource;
-        this._strTableName = strTableName;
-        this._plugin = plugin;
-        this._bUpdateExistingRows = bUpdateExistingRows;
-        this._bStopOnErrors = bStopOnErrors;
-        this._bEmptyTable = bEmptyTable;
-        this._locale = locale;
+        this._config = config;
     }
 
     /**
@@ -97,7 +78,8 @@ public class RunnableImportService implements Runnable
         try
         {
             _nStatus = STATUS_WORKING;
-            _importResult = ImportManager.doProcessImport( _importSource, _strTableName, _bUpdateExistingRows, _bStopOnErrors, _bEmptyTable, _plugin, _locale );
+            _config.getProgress( ).start( );
+            _importResult = ImportManager.doProcessImport( _importSource, _config );
         }
         catch( Exception e )
         {
@@ -105,6 +87,7 @@ public class RunnableImportService implements Runnable
         }
         finally
         {
+            _config.getProgress( ).finish( );
             _nStatus = STATUS_FINISHED;
         }
     }
@@ -120,6 +103,15 @@ public class RunnableImportService implements Runnable
         return _nStatus;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobProgress getProgress( )
+    {
+        return _config.getProgress( );
+    }
+
     /**
      * Get the result of the importation of this service
      * 
@@ -129,4 +121,21 @@ public class RunnableImportService implements Runnable
     {
         return _importResult;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void discard( )
+    {
+        ImportResult importResult = _importResult;
+        if ( importResult != null && importResult.getRejectFile( ) != null )
+        {
+            File rejectFile = importResult.getRejectFile( );
+            if ( !rejectFile.delete( ) )
+            {
+                AppLogService.info( "Reject file " + rejectFile.getPath( ) + " could not be deleted" );
+            }
+        }
+    }
 }
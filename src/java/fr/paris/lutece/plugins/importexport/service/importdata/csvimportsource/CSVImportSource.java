@@ -34,16 +34,18 @@
 package fr.paris.lutece.plugins.importexport.service.importdata.csvimportsource;
 
 import fr.paris.lutece.plugins.importexport.business.ImportExportElement;
-import fr.paris.lutece.plugins.importexport.service.importdata.IImportSource;
+import fr.paris.lutece.plugins.importexport.business.ImportRowBlock;
+import fr.paris.lutece.plugins.importexport.service.importdata.IImportBatchSource;
+import fr.paris.lutece.plugins.importexport.service.importdata.IMeasurableImportSource;
+import fr.paris.lutece.plugins.importexport.service.importdata.IResumableImportSource;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.util.string.StringUtil;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,12 +58,14 @@ import au.com.bytecode.opencsv.CSVParser;
 /**
  * Source to import data from CSV files.
  */
-public class CSVImportSource implements IImportSource
+public class CSVImportSource implements IImportBatchSource, IMeasurableImportSource, IResumableImportSource
 {
     private static final char CONSTANT_BOM_UTF8 = 65279;
 
     private CSVReader _csvReader;
-    private Reader _reader;
+    private LineReader _reader;
+    private CountingInputStream _inputStream;
+    private long _lTotalBytes = -1;
     private List<String> _listColumnsName;
 
     /**
@@ -81,7 +85,11 @@ public class CSVImportSource implements IImportSource
 
             try
             {
-                _reader = new InputStreamReader( fileItem.getInputStream( ) );
+                // Bytes are counted before being decoded, so that the progress of the import can be compared with the size of the file
+                _inputStream = new CountingInputStream( fileItem.getInputStream( ) );
+                _lTotalBytes = fileItem.getSize( );
+                // Lines are decoded one by one, so that the offset of the last row read is known
+                _reader = new LineReader( _inputStream, Charset.defaultCharset( ) );
             }
             catch( IOException e )
             {
@@ -112,7 +120,9 @@ public class CSVImportSource implements IImportSource
         {
             try
             {
-                _reader = new FileReader( file );
+                _inputStream = new CountingInputStream( new FileInputStream( file ) );
+                _lTotalBytes = file.length( );
+                _reader = new LineReader( _inputStream, Charset.defaultCharset( ) );
                 Character cSeparator = StringUtils.isNotEmpty( strCSVSeparator ) ? strCSVSeparator.charAt( 0 ) : CSVParser.DEFAULT_SEPARATOR;
                 Character cQuoteChar = StringUtils.isNotEmpty( strCSVQuoteChar ) ? strCSVQuoteChar.charAt( 0 ) : CSVParser.DEFAULT_QUOTE_CHARACTER;
                 _csvReader = new CSVReader( _reader, cSeparator, cQuoteChar );
@@ -172,6 +182,33 @@ public class CSVImportSource implements IImportSource
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getNextBlock( ImportRowBlock block )
+    {
+        block.clear( );
+        // We check that the reader has been initialized
+        if ( _csvReader == null || getColumnsName( ) == null )
+        {
+            return false;
+        }
+        try
+        {
+            String [ ] strLine;
+            while ( !block.isFull( ) && ( strLine = _csvReader.readNext( ) ) != null )
+            {
+                block.addRow( strLine );
+            }
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        return block.getRowCount( ) > 0;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -255,6 +292,56 @@ public class CSVImportSource implements IImportSource
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesRead( )
+    {
+        CountingInputStream inputStream = _inputStream;
+        return inputStream == null ? 0 : inputStream.getBytesRead( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTotalBytes( )
+    {
+        return _lTotalBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRowOffset( )
+    {
+        return _csvReader == null ? -1 : _reader.getOffset( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean skipTo( long lOffset )
+    {
+        // The header is read first, so that the offset is reached from the end of a line
+        if ( _csvReader == null || getColumnsName( ) == null || lOffset < _reader.getOffset( ) )
+        {
+            return false;
+        }
+        try
+        {
+            return _reader.skipTo( lOffset );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            return false;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.importdata.csvimportsource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read from the underlying stream. The count is written by the reading thread only, and can be read by any thread
+ * without lock.
+ */
+public class CountingInputStream extends FilterInputStream
+{
+    private volatile long _lBytesRead;
+
+    /**
+     * Creates a new counting input stream
+     * 
+     * @param inputStream
+     *            The underlying stream
+     */
+    public CountingInputStream( InputStream inputStream )
+    {
+        super( inputStream );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read( ) throws IOException
+    {
+        int nByte = super.read( );
+        if ( nByte >= 0 )
+        {
+            _lBytesRead++;
+        }
+        return nByte;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read( byte [ ] buffer, int nOffset, int nLength ) throws IOException
+    {
+        int nRead = super.read( buffer, nOffset, nLength );
+        if ( nRead > 0 )
+        {
+            _lBytesRead += nRead;
+        }
+        return nRead;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip( long lLength ) throws IOException
+    {
+        long lSkipped = super.skip( lLength );
+        _lBytesRead += lSkipped;
+        return lSkipped;
+    }
+
+    /**
+     * Get the number of bytes read so far
+     * 
+     * @return The number of bytes read
+     */
+    public long getBytesRead( )
+    {
+        return _lBytesRead;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service.importdata.csvimportsource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reader that decodes its input stream line by line, and never gives more than the rest of the current line to a single read. A buffered reader that
+ * reads lines from this reader never holds characters of the next line, so the byte offset of the end of the last line read is known. Lines end with
+ * "\n", "\r\n" or "\r", and the charset must encode these characters as single bytes that are not part of other characters, as ASCII compatible charsets
+ * do.
+ */
+public class LineReader extends Reader
+{
+    private static final int CONSTANT_BUFFER_SIZE = 8192;
+    private static final byte CONSTANT_LF = '\n';
+    private static final byte CONSTANT_CR = '\r';
+
+    private final InputStream _inputStream;
+    private final Charset _charset;
+    private byte [ ] _buffer = new byte [ CONSTANT_BUFFER_SIZE];
+    private int _nBufferStart;
+    private int _nBufferEnd;
+    private boolean _bEndOfStream;
+    private char [ ] _line;
+    private int _nLinePosition;
+    private long _lLineEndOffset;
+    private long _lOffset;
+
+    /**
+     * Creates a new line reader
+     * 
+     * @param inputStream
+     *            The input stream to read bytes from
+     * @param charset
+     *            The charset to decode lines with
+     */
+    public LineReader( InputStream inputStream, Charset charset )
+    {
+        _inputStream = inputStream;
+        _charset = charset;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read( char [ ] buffer, int nOffset, int nLength ) throws IOException
+    {
+        if ( nLength == 0 )
+        {
+            return 0;
+        }
+        if ( ( _line == null || _nLinePosition >= _line.length ) && !readLine( ) )
+        {
+            return -1;
+        }
+        int nRead = Math.min( nLength, _line.length - _nLinePosition );
+        System.arraycopy( _line, _nLinePosition, buffer, nOffset, nRead );
+        _nLinePosition += nRead;
+        if ( _nLinePosition >= _line.length )
+        {
+            _lOffset = _lLineEndOffset;
+        }
+        return nRead;
+    }
+
+    /**
+     * Get the byte offset of the end of the last line whose characters have all been read
+     * 
+     * @return The byte offset of the end of the last line read
+     */
+    public long getOffset( )
+    {
+        return _lOffset;
+    }
+
+    /**
+     * Skip bytes until an offset. The characters of the current line must all have been read, so that the next line read starts at the offset.
+     * 
+     * @param lOffset
+     *            The byte offset to skip to. It must not be before the offset of the end of the last line read.
+     * @return True if the offset was reached, false if the end of the input stream was reached before
+     * @throws IOException
+     *             If an error occurs while reading the input stream
+     */
+    public boolean skipTo( long lOffset ) throws IOException
+    {
+        if ( lOffset < _lOffset || ( _line != null && _nLinePosition < _line.length ) )
+        {
+            throw new IllegalStateException( "Cannot skip to offset " + lOffset + " from offset " + _lOffset );
+        }
+        long lSkip = lOffset - _lOffset;
+        int nBuffered = _nBufferEnd - _nBufferStart;
+        if ( lSkip <= nBuffered )
+        {
+            _nBufferStart += (int) lSkip;
+        }
+        else
+        {
+            lSkip -= nBuffered;
+            _nBufferStart = 0;
+            _nBufferEnd = 0;
+            long lSkipped = IOUtils.skip( _inputStream, lSkip );
+            if ( lSkipped < lSkip )
+            {
+                _bEndOfStream = true;
+                _lOffset += nBuffered + lSkipped;
+                _lLineEndOffset = _lOffset;
+                return false;
+            }
+        }
+        _lOffset = lOffset;
+        _lLineEndOffset = lOffset;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        _inputStream.close( );
+    }
+
+    /**
+     * Decode the next line of the input stream, with its end of line characters
+     * 
+     * @return True if a line was decoded, false if the end of the input stream was reached
+     * @throws IOException
+     *             If an error occurs while reading the input stream
+     */
+    private boolean readLine( ) throws IOException
+    {
+        int nScan = _nBufferStart;
+        int nLineEnd = -1;
+        while ( nLineEnd < 0 )
+        {
+            while ( nScan < _nBufferEnd && _buffer [nScan] != CONSTANT_LF && _buffer [nScan] != CONSTANT_CR )
+            {
+                nScan++;
+            }
+            if ( nScan < _nBufferEnd && _buffer [nScan] == CONSTANT_LF )
+            {
+                nLineEnd = nScan + 1;
+            }
+            else
+                if ( nScan < _nBufferEnd - 1 || ( nScan < _nBufferEnd && _bEndOfStream ) )
+                {
+                    // A carriage return ends the line, with the line feed that follows it if any
+                    nLineEnd = ( nScan < _nBufferEnd - 1 && _buffer [nScan + 1] == CONSTANT_LF ) ? nScan + 2 : nScan + 1;
+                }
+                else
+                    if ( _bEndOfStream )
+                    {
+                        if ( _nBufferEnd == _nBufferStart )
+                        {
+                            return false;
+                        }
+                        nLineEnd = _nBufferEnd;
+                    }
+                    else
+                    {
+                        nScan -= _nBufferStart;
+                        fillBuffer( );
+                        nScan += _nBufferStart;
+                    }
+        }
+        int nLineLength = nLineEnd - _nBufferStart;
+        _line = new String( _buffer, _nBufferStart, nLineLength, _charset ).toCharArray( );
+        _nLinePosition = 0;
+        _nBufferStart = nLineEnd;
+        _lLineEndOffset += nLineLength;
+        return true;
+    }
+
+    /**
+     * Read more bytes of the input stream into the buffer. The unread bytes are moved to the start of the buffer, and the buffer grows if it is full of
+     * unread bytes.
+     * 
+     * @throws IOException
+     *             If an error occurs while reading the input stream
+     */
+    private void fillBuffer( ) throws IOException
+    {
+        int nBuffered = _nBufferEnd - _nBufferStart;
+        if ( nBuffered == _buffer.length )
+        {
+            byte [ ] buffer = new byte [ _buffer.length * 2];
+            System.arraycopy( _buffer, _nBufferStart, buffer, 0, nBuffered );
+            _buffer = buffer;
+        }
+        else
+            if ( _nBufferStart > 0 )
+            {
+                System.arraycopy( _buffer, _nBufferStart, _buffer, 0, nBuffered );
+            }
+        _nBufferStart = 0;
+        _nBufferEnd = nBuffered;
+        int nRead = _inputStream.read( _buffer, _nBufferEnd, _buffer.length - _nBufferEnd );
+        if ( nRead < 0 )
+        {
+            _bEndOfStream = true;
+        }
+        else
+        {
+            _nBufferEnd += nRead;
+        }
+    }
+}
@@ -33,8 +33,10 @@
  */
 package fr.paris.lutece.plugins.importexport.service.importdata.daemon;
 
-import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessage;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportConfig;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportMessageSummary;
 import fr.paris.lutece.plugins.importexport.business.importdata.ImportResult;
+import fr.paris.lutece.plugins.importexport.service.JobExecutorService;
 import fr.paris.lutece.plugins.importexport.service.importdata.IImportSource;
 import fr.paris.lutece.plugins.importexport.service.importdata.ImportManager;
 import fr.paris.lutece.portal.service.daemon.Daemon;
@@ -42,7 +44,12 @@ import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -56,10 +63,12 @@ public class ImportDaemon extends Daemon
     private static final String PROPERTY_DAEMON_UPDATE_EXISTING_ROWS = "importexport.daemon.importDaemon.updateExistingRows";
     private static final String PROPERTY_DAEMON_STOP_ON_ERRORS = "importexport.daemon.importDaemon.stopOnErrors";
     private static final String PROPERTY_DAEMON_EMPTY_TABLE_BEFORE_IMPORT = "importexport.daemon.importDaemon.emptyTableBeforeImporting";
+    private static final String PROPERTY_DAEMON_PARALLELISM = "importexport.daemon.importDaemon.parallelism";
 
     private static final String CONSTANT_SLASH = "/";
     private static final String CONSTANT_SEMICOLON = ";";
     private static final String CONSTANT_POINT = ".";
+    private static final String CONSTANT_NEW_LINE = "\n";
 
     /**
      * {@inheritDoc}
@@ -79,14 +88,17 @@ public class ImportDaemon extends Daemon
             if ( strFiles != null && strFiles.length > 0 )
             {
                 String strDatabaseTables = AppPropertiesService.getProperty( PROPERTY_DATABASE_TABLES );
-                boolean bUpdateExistingRows = Boolean.parseBoolean( AppPropertiesService.getProperty( PROPERTY_DAEMON_UPDATE_EXISTING_ROWS ) );
-                boolean bStopOnErrors = Boolean.parseBoolean( AppPropertiesService.getProperty( PROPERTY_DAEMON_STOP_ON_ERRORS ) );
-                boolean bEmptyTable = Boolean.parseBoolean( AppPropertiesService.getProperty( PROPERTY_DAEMON_EMPTY_TABLE_BEFORE_IMPORT ) );
+                final boolean bUpdateExistingRows = Boolean.parseBoolean( AppPropertiesService.getProperty( PROPERTY_DAEMON_UPDATE_EXISTING_ROWS ) );
+                final boolean bStopOnErrors = Boolean.parseBoolean( AppPropertiesService.getProperty( PROPERTY_DAEMON_STOP_ON_ERRORS ) );
+                final boolean bEmptyTable = Boolean.parseBoolean( AppPropertiesService.getProperty( PROPERTY_DAEMON_EMPTY_TABLE_BEFORE_IMPORT ) );
+                final int nParallelism = AppPropertiesService.getPropertyInt( PROPERTY_DAEMON_PARALLELISM, 1 );
+                // Every file is imported by its own job, so that files of different tables are imported in parallel
+                List<Future<String>> listImports = new ArrayList<Future<String>>( );
                 for ( String strFileName : strFiles )
                 {
-                    File file = new File( strSourcePath + strFileName );
+                    final File file = new File( strSourcePath + strFileName );
                     // The file name is the name of the database table plus an extension
-                    String strTableName;
+                    final String strTableName;
                     if ( StringUtils.contains( strFileName, CONSTANT_POINT ) )
                     {
                         strTableName = strFileName.substring( 0, strFileName.lastIndexOf( CONSTANT_POINT ) );
@@ -108,32 +120,44 @@ public class ImportDaemon extends Daemon
                         }
                         if ( bAuthorizedTable )
                         {
-                            IImportSource importSource = ImportManager.getImportSource( file );
-                            if ( importSource != null )
+                            // Imports of the daemon run in the executor of the plugin, after the imports and exports started by admin users
+                            listImports.add( JobExecutorService.getInstance( ).submit( new Callable<String>( )
                             {
-                                ImportResult result = ImportManager.doProcessImport( importSource, strTableName, bUpdateExistingRows, bStopOnErrors,
-                                        bEmptyTable, null, Locale.getDefault( ) );
-                                importSource.close( );
-                                // If we extracted some data from the file, we remove it
-                                String strLog = result.getCreatedElements( ) + " element(s) created, " + result.getUpdatedElements( )
-                                        + " element(s) updated and " + result.getIgnoredElements( ) + " element(s) ignored.";
-                                AppLogService.info( "ImportDaemon : " + strLog );
-                                setLastRunLogs( strLog );
-                                if ( AppLogService.isDebugEnabled( ) && result.getListImportMessage( ) != null )
+                                @Override
+                                public String call( )
                                 {
-                                    for ( ImportMessage message : result.getListImportMessage( ) )
-                                    {
-                                        AppLogService.debug( message.toString( ) );
-                                    }
+                                    return importFile( file, strTableName, bUpdateExistingRows, bStopOnErrors, bEmptyTable, nParallelism );
                                 }
-                                if ( result.getCreatedElements( ) > 0 || result.getUpdatedElements( ) > 0 || result.getIgnoredElements( ) > 0 )
-                                {
-                                    file.delete( );
-                                }
-                            }
+                            }, strTableName, JobExecutorService.PRIORITY_DAEMON, nParallelism ) );
                         }
                     }
                 }
+                StringBuilder sbLogs = new StringBuilder( );
+                for ( Future<String> future : listImports )
+                {
+                    try
+                    {
+                        String strLog = future.get( );
+                        if ( strLog != null )
+                        {
+                            sbLogs.append( strLog ).append( CONSTANT_NEW_LINE );
+                        }
+                    }
+                    catch( InterruptedException e )
+                    {
+                        Thread.currentThread( ).interrupt( );
+                        AppLogService.error( e.getMessage( ), e );
+                        break;
+                    }
+                    catch( ExecutionException e )
+                    {
+                        AppLogService.error( e.getMessage( ), e );
+                    }
+                }
+                if ( sbLogs.length( ) > 0 )
+                {
+                    setLastRunLogs( sbLogs.toString( ) );
+                }
             }
         }
         else
@@ -142,4 +166,64 @@ public class ImportDaemon extends Daemon
         }
     }
 
+    /**
+     * Import a file into a database table, and remove the file if some data were extracted from it
+     * 
+     * @param file
+     *            The file to import
+     * @param strTableName
+     *            The name of the table
+     * @param bUpdateExistingRows
+     *            True to update existing rows, false to ignore them
+     * @param bStopOnErrors
+     *            True to stop when an error occurred, false to skip the item and continue
+     * @param bEmptyTable
+     *            True to empty the table before importing data, false otherwise
+     * @param nParallelism
+     *            The number of workers of the import
+     * @return The logs of the import, or null if the file is not a valid import source
+     */
+    private String importFile( File file, String strTableName, boolean bUpdateExistingRows, boolean bStopOnErrors, boolean bEmptyTable, int nParallelism )
+    {
+        IImportSource importSource = ImportManager.getImportSource( file );
+        if ( importSource == null )
+        {
+            return null;
+        }
+        // An interrupted import of the same file is resumed after its last committed chunk
+        String strFingerprint = ImportManager.getFingerprint( file );
+        ImportConfig config = new ImportConfig( );
+        config.setTableName( strTableName );
+        config.setFingerprint( strFingerprint );
+        config.setUpdateExistingRows( bUpdateExistingRows );
+        config.setStopOnErrors( bStopOnErrors );
+        config.setEmptyTable( bEmptyTable );
+        config.setLocale( Locale.getDefault( ) );
+        config.setParallelism( nParallelism );
+        ImportResult result = ImportManager.doProcessImport( importSource, config );
+        importSource.close( );
+        // If we extracted some data from the file, we remove it
+        String strLog = result.getCreatedElements( ) + " element(s) created, " + result.getUpdatedElements( ) + " element(s) updated and "
+                + result.getIgnoredElements( ) + " element(s) ignored.";
+        AppLogService.info( "ImportDaemon : " + strLog );
+        if ( result.getRejectFile( ) != null )
+        {
+            AppLogService.info( "ImportDaemon : rejected rows written into " + result.getRejectFile( ).getPath( ) );
+        }
+        if ( AppLogService.isDebugEnabled( ) && result.getListMessageSummaries( ) != null )
+        {
+            // Identical messages are logged once with their number of occurrences
+            for ( ImportMessageSummary summary : result.getListMessageSummaries( ) )
+            {
+                AppLogService.debug( summary.getCount( ) + " x " + summary.getMessage( ) + ", items " + summary.getSampleItemNumbers( ) );
+            }
+        }
+        // Files of interrupted imports are kept to be resumed by the next run
+        if ( ( result.getCreatedElements( ) > 0 || result.getUpdatedElements( ) > 0 || result.getIgnoredElements( ) > 0 )
+                && !ImportManager.isImportInterrupted( strFingerprint, strTableName ) )
+        {
+            file.delete( );
+        }
+        return strLog;
+    }
 }
@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.importexport.web;
 
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
 import fr.paris.lutece.plugins.importexport.business.export.AutomaticExportConfig;
 import fr.paris.lutece.plugins.importexport.business.export.ExportDAO;
 import fr.paris.lutece.plugins.importexport.business.export.IAutomaticExportConfigDAO;
@@ -106,6 +107,7 @@ public class ExportDataJspBean extends AdminFeaturesPageJspBean
     private static final String MARK_DAEMON_INTERVAL = "daemon_interval";
     private static final String MARK_ID_CONFIG = "idConfig";
     private static final String MARK_CONF = "conf";
+    private static final String MARK_JOB_ID = "jobId";
 
     private static final String PARAMETER_TABLE_NAME = "databaseTable";
     private static final String PARAMETER_PLUGIN_NAME = "plugin";
@@ -115,6 +117,7 @@ public class ExportDataJspBean extends AdminFeaturesPageJspBean
     private static final String PARAMETER_PAGE_RELOAD = "pageReload";
     private static final String PARAMETER_SAVE_EXPORT_CONFIG = "saveExportConfig";
     private static final String PARAMETER_CANCEL = "cancel";
+    private static final String PARAMETER_JOB = "job";
 
     private static final String TEMPLATE_EXPORT_DATA = "admin/plugins/importexport/export_data.html";
     private static final String TEMPLATE_EXPORT_DATA_SELECT_COLUMNS = "admin/plugins/importexport/export_data_select_columns.html";
@@ -288,8 +291,8 @@ public class ExportDataJspBean extends AdminFeaturesPageJspBean
         {
             nXslExportId = Integer.parseInt( strXslExportId );
         }
-        ExportManager.registerAsynchronousExport( strTableName, listColumns, nXslExportId, plugin, AdminUserService.getAdminUser( request ) );
-        return AppPathService.getBaseUrl( request ) + JSP_URL_EXPORT_WAITING_PAGE;
+        String strJobId = ExportManager.registerAsynchronousExport( strTableName, listColumns, nXslExportId, plugin, AdminUserService.getAdminUser( request ) );
+        return getExportWaitingPageUrl( request, strJobId );
     }
 
     /**
@@ -304,15 +307,87 @@ public class ExportDataJspBean extends AdminFeaturesPageJspBean
     public String getExportProcessing( HttpServletRequest request, HttpServletResponse response )
     {
         AdminUser admin = AdminUserService.getAdminUser( request );
-        if ( ExportManager.hasExportInProcess( admin.getUserId( ) ) )
+        String strJobId = getJobId( request, admin );
+        if ( ExportManager.isExportInProcess( admin.getUserId( ), strJobId ) )
         {
-            HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_EXPORT_WAITING, AdminUserService.getLocale( request ) );
+            Map<String, Object> model = new HashMap<String, Object>( );
+            model.put( MARK_JOB_ID, strJobId );
+            HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_EXPORT_WAITING, AdminUserService.getLocale( request ), model );
             return getAdminPage( template.getHtml( ) );
         }
 
         return getExportResult( request, response );
     }
 
+    /**
+     * Request an export of the user to be cancelled
+     * 
+     * @param request
+     *            The request
+     * @return The URL of the page that displays the export until it stops
+     */
+    public String doCancelExport( HttpServletRequest request )
+    {
+        AdminUser admin = AdminUserService.getAdminUser( request );
+        String strJobId = getJobId( request, admin );
+        ExportManager.cancelAsynchronousExport( admin.getUserId( ), strJobId );
+        return getExportWaitingPageUrl( request, strJobId );
+    }
+
+    /**
+     * Get a snapshot of the progress of an export of the user, as a JSON object. If the user has no such export processing, then the export is reported as
+     * finished so that the waiting page displays its result
+     * 
+     * @param request
+     *            The request
+     * @return The JSON object
+     */
+    public String getExportProgress( HttpServletRequest request )
+    {
+        AdminUser admin = AdminUserService.getAdminUser( request );
+        JobProgress progress = ExportManager.getAsynchronousExportProgress( admin.getUserId( ), getJobId( request, admin ) );
+        if ( progress == null )
+        {
+            progress = new JobProgress( );
+            progress.finish( );
+        }
+        return progress.toJson( );
+    }
+
+    /**
+     * Get the id of the export job a request is about. Requests without job id are about the last export of the user
+     * 
+     * @param request
+     *            The request
+     * @param admin
+     *            The admin user
+     * @return The id of the export job, or null if the user has no export
+     */
+    private String getJobId( HttpServletRequest request, AdminUser admin )
+    {
+        String strJobId = request.getParameter( PARAMETER_JOB );
+        return StringUtils.isNotEmpty( strJobId ) ? strJobId : ExportManager.getLastExportJobId( admin.getUserId( ) );
+    }
+
+    /**
+     * Get the URL of the waiting page of an export job
+     * 
+     * @param request
+     *            The request
+     * @param strJobId
+     *            The id of the export job
+     * @return The URL of the waiting page
+     */
+    private String getExportWaitingPageUrl( HttpServletRequest request, String strJobId )
+    {
+        UrlItem urlItem = new UrlItem( AppPathService.getBaseUrl( request ) + JSP_URL_EXPORT_WAITING_PAGE );
+        if ( strJobId != null )
+        {
+            urlItem.addParameter( PARAMETER_JOB, strJobId );
+        }
+        return urlItem.getUrl( );
+    }
+
     /**
      * Get the page that display the result of an import, or the export data main page if no export result is available for the given user
      * 
@@ -324,7 +399,8 @@ public class ExportDataJspBean extends AdminFeaturesPageJspBean
      */
     public String getExportResult( HttpServletRequest request, HttpServletResponse response )
     {
-        String strFileURl = ExportManager.getExportResult( AdminUserService.getAdminUser( request ) );
+        AdminUser admin = AdminUserService.getAdminUser( request );
+        String strFileURl = ExportManager.getExportResult( admin, getJobId( request, admin ) );
         if ( StringUtils.isNotBlank( strFileURl ) )
         {
             try
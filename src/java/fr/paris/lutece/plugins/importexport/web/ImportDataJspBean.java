@@ -33,8 +33,11 @@
  */
 package fr.paris.lutece.plugins.importexport.web;
 
+import fr.paris.lutece.plugins.importexport.business.JobProgress;
+import fr.paris.lutece.plugins.importexport.business.importdata.ImportConfig;
 import fr.paris.lutece.plugins.importexport.business.importdata.ImportResult;
 import fr.paris.lutece.plugins.importexport.service.ImportExportPlugin;
+import fr.paris.lutece.plugins.importexport.service.JobExecutorService;
 import fr.paris.lutece.plugins.importexport.service.importdata.IImportSource;
 import fr.paris.lutece.plugins.importexport.service.importdata.ImportManager;
 import fr.paris.lutece.portal.business.user.AdminUser;
@@ -45,6 +48,7 @@ import fr.paris.lutece.portal.service.message.AdminMessageService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.web.admin.AdminFeaturesPageJspBean;
@@ -52,15 +56,23 @@ import fr.paris.lutece.portal.web.upload.MultipartHttpServletRequest;
 import fr.paris.lutece.util.ReferenceItem;
 import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.html.HtmlTemplate;
+import fr.paris.lutece.util.url.UrlItem;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -88,7 +100,9 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
     private static final String MARK_DATABASE_TABLES = "databaseTables";
     private static final String MARK_LIST_PLUGIN = "listPlugin";
     private static final String MARK_SESSION_IMPORT_RESULT = "importexport.session_import_result";
+    private static final String MARK_SESSION_REJECT_FILE = "importexport.session_reject_file";
     private static final String MARK_RESULT = "result";
+    private static final String MARK_JOB_ID = "jobId";
 
     // Parameters
     private static final String PARAMETER_FILE = "file";
@@ -97,6 +111,8 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
     private static final String PARAMETER_UPDATE_EXISTING_ROWS = "update";
     private static final String PARAMETER_STOP_ON_ERRORS = "stopOnErrors";
     private static final String PARAMETER_EMPTY_TABLE = "emptyTable";
+    private static final String PARAMETER_PARALLELISM = "parallelism";
+    private static final String PARAMETER_JOB = "job";
 
     // Templates
     private static final String TEMPLATE_IMPORT_DATA = "admin/plugins/importexport/import_data.html";
@@ -108,6 +124,9 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
     private static final String JSP_URL_IMPORT_RESULT = "jsp/admin/plugins/importexport/GetImportResult.jsp";
 
     private static final String CONSTANT_SEMICOLON = ";";
+    private static final String CONSTANT_CONTENT_TYPE_CSV = "text/csv; charset=UTF-8";
+    private static final String CONSTANT_HEADER_CONTENT_DISPOSITION = "Content-Disposition";
+    private static final String CONSTANT_REJECT_FILE_DISPOSITION = "attachment; filename=\"import_rejects.csv\"";
 
     /**
      * Creates a new ImportDataJspBean object.
@@ -127,9 +146,10 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
     {
         // We remove any previous import result generated synchronously or asynchronously
         request.getSession( ).removeAttribute( MARK_SESSION_IMPORT_RESULT );
+        setRejectFile( request, null );
         // We remove the data table manager from the session
         request.getSession( ).removeAttribute( ExportDataJspBean.PROPERTY_SESSION_AUTOMATIC_EXPORT_TABLE_MANAGER );
-        ImportManager.getAsynchronousImportResult( AdminUserService.getAdminUser( request ).getUserId( ) );
+        ImportManager.discardAsynchronousImportResults( AdminUserService.getAdminUser( request ).getUserId( ) );
 
         String strDatabaseTables = AppPropertiesService.getProperty( PROPERTY_DATABASE_TABLES );
         ReferenceList refList = new ReferenceList( );
@@ -184,11 +204,6 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
     public String doImportData( HttpServletRequest request ) throws AccessDeniedException
     {
         AdminUser admin = AdminUserService.getAdminUser( request );
-        if ( ImportManager.hasImportInProcess( admin.getUserId( ) ) )
-        {
-            return AppPathService.getBaseUrl( request ) + JSP_URL_IMPORT_PROCESSING;
-        }
-
         if ( request instanceof MultipartHttpServletRequest )
         {
             FileItem fileItem = ( (MultipartHttpServletRequest) request ).getFile( PARAMETER_FILE );
@@ -198,6 +213,8 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
             boolean bUpdateExistingRows = Boolean.parseBoolean( request.getParameter( PARAMETER_UPDATE_EXISTING_ROWS ) );
             boolean bStopOnErrors = Boolean.parseBoolean( request.getParameter( PARAMETER_STOP_ON_ERRORS ) );
             boolean bEmptyTable = Boolean.parseBoolean( request.getParameter( PARAMETER_EMPTY_TABLE ) );
+            String strParallelism = request.getParameter( PARAMETER_PARALLELISM );
+            int nParallelism = StringUtils.isNumeric( strParallelism ) ? Integer.parseInt( strParallelism ) : 1;
             if ( fileItem == null || StringUtils.isEmpty( strTableName ) )
             {
                 return AdminMessageService.getMessageUrl( request, MESSAGE_MANDATORY_FIELDS, AdminMessage.TYPE_ERROR );
@@ -223,15 +240,27 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
             {
                 long lThresholdSize = AppPropertiesService.getPropertyLong( PROPERTY_ASYNCHRONOUS_IMPORT_FILE_SIZE, 1048576l );
                 Locale locale = AdminUserService.getLocale( request );
-                if ( fileItem.getSize( ) < lThresholdSize )
+                ImportConfig config = new ImportConfig( );
+                config.setTableName( strTableName );
+                // An interrupted import of the same file is resumed after its last committed chunk
+                config.setFingerprint( ImportManager.getFingerprint( fileItem ) );
+                config.setUpdateExistingRows( bUpdateExistingRows );
+                config.setStopOnErrors( bStopOnErrors );
+                config.setEmptyTable( bEmptyTable );
+                config.setPlugin( plugin );
+                config.setLocale( locale );
+                config.setParallelism( nParallelism );
+                // Small files are imported in the request, unless a job of the executor is writing into the same table
+                if ( fileItem.getSize( ) < lThresholdSize && !JobExecutorService.getInstance( ).isTableBusy( strTableName ) )
                 {
-                    ImportResult result = ImportManager.doProcessImport( importSource, strTableName, bUpdateExistingRows, bStopOnErrors, bEmptyTable, plugin,
-                            locale );
+                    ImportResult result = ImportManager.doProcessImport( importSource, config );
                     request.getSession( ).setAttribute( MARK_SESSION_IMPORT_RESULT, result );
                     return AppPathService.getBaseUrl( request ) + JSP_URL_IMPORT_RESULT;
                 }
-                ImportManager.doProcessAsynchronousImport( importSource, strTableName, plugin, locale, bUpdateExistingRows, bStopOnErrors, bEmptyTable, admin );
-                return AppPathService.getBaseUrl( request ) + JSP_URL_IMPORT_PROCESSING;
+                // The import source of an asynchronous import is opened again by the node that runs the import
+                importSource.close( );
+                String strJobId = ImportManager.doProcessAsynchronousImport( fileItem, config, admin );
+                return getImportProcessingUrl( request, strJobId );
 
             }
             return AdminMessageService.getMessageUrl( request, MESSAGE_FILE_NOT_VALIDE, AdminMessage.TYPE_ERROR );
@@ -250,14 +279,86 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
     public String getImportProcessing( HttpServletRequest request )
     {
         AdminUser admin = AdminUserService.getAdminUser( request );
-        if ( ImportManager.hasImportInProcess( admin.getUserId( ) ) )
+        String strJobId = getJobId( request, admin );
+        if ( ImportManager.isImportInProcess( admin.getUserId( ), strJobId ) )
         {
-            HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_IMPORT_WAITING, AdminUserService.getLocale( request ) );
+            Map<String, Object> model = new HashMap<String, Object>( );
+            model.put( MARK_JOB_ID, strJobId );
+            HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_IMPORT_WAITING, AdminUserService.getLocale( request ), model );
             return getAdminPage( template.getHtml( ) );
         }
         return getImportResult( request );
     }
 
+    /**
+     * Request an asynchronous import of the user to be cancelled
+     * 
+     * @param request
+     *            The request
+     * @return The URL of the page that displays the import until it stops
+     */
+    public String doCancelImport( HttpServletRequest request )
+    {
+        AdminUser admin = AdminUserService.getAdminUser( request );
+        String strJobId = getJobId( request, admin );
+        ImportManager.cancelAsynchronousImport( admin.getUserId( ), strJobId );
+        return getImportProcessingUrl( request, strJobId );
+    }
+
+    /**
+     * Get a snapshot of the progress of an asynchronous import of the user, as a JSON object. If the user has no such import processing, then the import is
+     * reported as finished so that the waiting page displays its result
+     * 
+     * @param request
+     *            The request
+     * @return The JSON object
+     */
+    public String getImportProgress( HttpServletRequest request )
+    {
+        AdminUser admin = AdminUserService.getAdminUser( request );
+        JobProgress progress = ImportManager.getAsynchronousImportProgress( admin.getUserId( ), getJobId( request, admin ) );
+        if ( progress == null )
+        {
+            progress = new JobProgress( );
+            progress.finish( );
+        }
+        return progress.toJson( );
+    }
+
+    /**
+     * Get the id of the import job a request is about. Requests without job id are about the last asynchronous import of the user
+     * 
+     * @param request
+     *            The request
+     * @param admin
+     *            The admin user
+     * @return The id of the import job, or null if the user has no asynchronous import
+     */
+    private String getJobId( HttpServletRequest request, AdminUser admin )
+    {
+        String strJobId = request.getParameter( PARAMETER_JOB );
+        return StringUtils.isNotEmpty( strJobId ) ? strJobId : ImportManager.getLastImportJobId( admin.getUserId( ) );
+    }
+
+    /**
+     * Get the URL of the waiting page of an import job
+     * 
+     * @param request
+     *            The request
+     * @param strJobId
+     *            The id of the import job
+     * @return The URL of the waiting page
+     */
+    private String getImportProcessingUrl( HttpServletRequest request, String strJobId )
+    {
+        UrlItem urlItem = new UrlItem( AppPathService.getBaseUrl( request ) + JSP_URL_IMPORT_PROCESSING );
+        if ( strJobId != null )
+        {
+            urlItem.addParameter( PARAMETER_JOB, strJobId );
+        }
+        return urlItem.getUrl( );
+    }
+
     /**
      * Get the import result page. If the user has already displayed results of imports, or if he has not started any import then page to create import is
      * displayed instead
@@ -272,7 +373,7 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
         ImportResult result = (ImportResult) request.getSession( ).getAttribute( MARK_SESSION_IMPORT_RESULT );
         if ( result == null )
         {
-            result = ImportManager.getAsynchronousImportResult( admin.getUserId( ) );
+            result = ImportManager.getAsynchronousImportResult( admin.getUserId( ), getJobId( request, admin ) );
             if ( result == null )
             {
                 return getImportData( request );
@@ -283,6 +384,9 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
             request.getSession( ).removeAttribute( MARK_SESSION_IMPORT_RESULT );
         }
 
+        // Only the reject file is kept in the session, to be downloaded once the result has been displayed
+        setRejectFile( request, result.getRejectFile( ) );
+
         Map<String, Object> model = new HashMap<String, Object>( );
         model.put( MARK_RESULT, result );
         HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_IMPORT_RESULT, AdminUserService.getLocale( request ), model );
@@ -290,6 +394,68 @@ public class ImportDataJspBean extends AdminFeaturesPageJspBean
         return getAdminPage( template.getHtml( ) );
     }
 
+    /**
+     * Download the reject file of the last import result displayed to the user
+     * 
+     * @param request
+     *            The request
+     * @param response
+     *            The response
+     * @return The URL to redirect to, or null if the file has been written into the response
+     */
+    public String doDownloadRejectFile( HttpServletRequest request, HttpServletResponse response )
+    {
+        File rejectFile = (File) request.getSession( ).getAttribute( MARK_SESSION_REJECT_FILE );
+        if ( rejectFile == null || !rejectFile.isFile( ) )
+        {
+            return AppPathService.getBaseUrl( request ) + JSP_URL_MANAGE_IMPORT;
+        }
+        response.setContentType( CONSTANT_CONTENT_TYPE_CSV );
+        response.setHeader( CONSTANT_HEADER_CONTENT_DISPOSITION, CONSTANT_REJECT_FILE_DISPOSITION );
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = new FileInputStream( rejectFile );
+            OutputStream outputStream = response.getOutputStream( );
+            IOUtils.copy( inputStream, outputStream );
+            outputStream.flush( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( inputStream );
+        }
+        return null;
+    }
+
+    /**
+     * Set the reject file of the session. The previous reject file of the session is deleted.
+     * 
+     * @param request
+     *            The request
+     * @param rejectFile
+     *            The reject file, or null to remove the reject file of the session
+     */
+    private static void setRejectFile( HttpServletRequest request, File rejectFile )
+    {
+        File previousRejectFile = (File) request.getSession( ).getAttribute( MARK_SESSION_REJECT_FILE );
+        if ( previousRejectFile != null && !previousRejectFile.equals( rejectFile ) && !previousRejectFile.delete( ) )
+        {
+            AppLogService.info( "Reject file " + previousRejectFile.getPath( ) + " could not be deleted" );
+        }
+        if ( rejectFile == null )
+        {
+            request.getSession( ).removeAttribute( MARK_SESSION_REJECT_FILE );
+        }
+        else
+        {
+            request.getSession( ).setAttribute( MARK_SESSION_REJECT_FILE, rejectFile );
+        }
+    }
+
     /**
      * Return the plugin
      * 
@@ -15,4 +15,42 @@ CREATE TABLE importexport_export_config_columns
     id_config INT NOT NULL,
 	column_name VARCHAR(255),
 	PRIMARY KEY (id_config,column_name)
-);
\ No newline at end of file
+);
+
+DROP TABLE IF EXISTS importexport_import_journal;
+CREATE TABLE importexport_import_journal
+(
+	fingerprint VARCHAR(64) NOT NULL,
+	table_name VARCHAR(255) NOT NULL,
+	last_row_number INT DEFAULT 0 NOT NULL,
+	last_row_offset BIGINT DEFAULT -1 NOT NULL,
+	date_update TIMESTAMP NULL,
+	PRIMARY KEY (fingerprint,table_name)
+);
+
+DROP TABLE IF EXISTS importexport_cluster_job;
+CREATE TABLE importexport_cluster_job
+(
+	id_job VARCHAR(36) NOT NULL,
+	job_type VARCHAR(10) NOT NULL,
+	id_admin INT DEFAULT 0 NOT NULL,
+	table_name VARCHAR(255) NOT NULL,
+	parameters LONG VARCHAR,
+	content LONG VARBINARY,
+	status VARCHAR(10) NOT NULL,
+	node_name VARCHAR(255),
+	lease_expiration TIMESTAMP NULL,
+	attempts INT DEFAULT 0 NOT NULL,
+	cancel_requested SMALLINT DEFAULT 0 NOT NULL,
+	phase VARCHAR(50),
+	rows_processed BIGINT DEFAULT 0 NOT NULL,
+	bytes_read BIGINT DEFAULT 0 NOT NULL,
+	total_bytes BIGINT DEFAULT -1 NOT NULL,
+	date_creation TIMESTAMP NULL,
+	date_start TIMESTAMP NULL,
+	date_end TIMESTAMP NULL,
+	result LONG VARBINARY,
+	PRIMARY KEY (id_job)
+);
+
+CREATE INDEX idx_importexport_cluster_job_status ON importexport_cluster_job (status, date_creation);
\ No newline at end of file
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.binder;
+
+import fr.paris.lutece.plugins.importexport.business.ColumnType;
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Tests of the conversion of imported values by column binders
+ */
+public class ColumnBinderTest extends LuteceTestCase
+{
+    private static final String TABLE_NAME = "item";
+
+    /**
+     * Values of columns whose type is not supported are bound as strings
+     */
+    public void testGetBinderOfUnknownType( )
+    {
+        assertTrue( ColumnBinder.getBinder( (ColumnType) null ) instanceof StringColumnBinder );
+        assertTrue( ColumnBinder.getBinder( TABLE_NAME, new TableColumn( "geometry", false, null ) ) instanceof StringColumnBinder );
+    }
+
+    /**
+     * Date and timestamp columns get a binder of their own, other columns share the binder of their type
+     */
+    public void testGetBinderOfColumn( )
+    {
+        assertTrue( ColumnBinder.getBinder( TABLE_NAME, new TableColumn( "date_creation", false, ColumnType.TYPE_DATE ) ) instanceof DateColumnBinder );
+        assertTrue( ColumnBinder.getBinder( TABLE_NAME, new TableColumn( "date_update", false, ColumnType.TYPE_TIMESTAMP ) ) instanceof TimestampColumnBinder );
+        TableColumn tableColumn = new TableColumn( "id_item", true, ColumnType.TYPE_INT );
+        assertSame( ColumnBinder.getBinder( ColumnType.TYPE_INT ), ColumnBinder.getBinder( TABLE_NAME, tableColumn ) );
+    }
+
+    /**
+     * Empty values and the string null are converted into null values
+     * 
+     * @throws SQLException
+     *             If a value is not valid
+     */
+    public void testConvertEmptyValues( ) throws SQLException
+    {
+        ColumnBinder binder = ColumnBinder.getBinder( ColumnType.TYPE_INT );
+        assertNull( binder.convert( null ) );
+        assertNull( binder.convert( "" ) );
+        assertNull( binder.convert( "  " ) );
+        assertNull( binder.convert( "NULL" ) );
+        assertEquals( Integer.valueOf( 42 ), binder.convert( "42" ) );
+    }
+
+    /**
+     * Invalid values are reported with an exception of the invalid value, so that they are rejected with their row
+     */
+    public void testConvertInvalidValues( )
+    {
+        for ( ColumnType columnType : Arrays.asList( ColumnType.TYPE_INT, ColumnType.TYPE_LONG, ColumnType.TYPE_DOUBLE, ColumnType.TYPE_DECIMAL,
+                ColumnType.TYPE_BOOLEAN, ColumnType.TYPE_BYTE, ColumnType.TYPE_DATE ) )
+        {
+            try
+            {
+                ColumnBinder.getBinder( columnType ).convert( "invalid" );
+                fail( "An invalid value of type " + columnType + " was converted" );
+            }
+            catch( InvalidValueException e )
+            {
+                // Expected
+            }
+            catch( SQLException e )
+            {
+                fail( "An invalid value of type " + columnType + " raised " + e );
+            }
+        }
+    }
+
+    /**
+     * Booleans can be written 1/0 as well as true/false
+     * 
+     * @throws SQLException
+     *             If a value is not valid
+     */
+    public void testConvertBoolean( ) throws SQLException
+    {
+        ColumnBinder binder = ColumnBinder.getBinder( ColumnType.TYPE_BOOLEAN );
+        assertEquals( Boolean.TRUE, binder.convert( "1" ) );
+        assertEquals( Boolean.FALSE, binder.convert( "0" ) );
+        assertEquals( Boolean.TRUE, binder.convert( " true " ) );
+        assertEquals( Boolean.FALSE, binder.convert( "no" ) );
+    }
+
+    /**
+     * Binary values are hexadecimal strings, optionally prefixed with 0x
+     * 
+     * @throws SQLException
+     *             If a value is not valid
+     */
+    public void testConvertBytes( ) throws SQLException
+    {
+        ColumnBinder binder = ColumnBinder.getBinder( ColumnType.TYPE_BYTE );
+        byte [ ] expected = new byte [ ] {
+                0x0A, (byte) 0xFF
+        };
+        assertTrue( Arrays.equals( expected, (byte [ ]) binder.convert( "0x0aff" ) ) );
+        assertTrue( Arrays.equals( expected, (byte [ ]) binder.convert( "0AFF" ) ) );
+        assertEquals( "0aff", binder.getKeyValue( expected ) );
+    }
+
+    /**
+     * Decimal keys read from a file match the same keys read from the database, whatever their trailing zeros
+     * 
+     * @throws SQLException
+     *             If a value is not valid
+     */
+    public void testDecimalKeyValue( ) throws SQLException
+    {
+        ColumnBinder binder = ColumnBinder.getBinder( ColumnType.TYPE_DECIMAL );
+        assertEquals( "1.5", binder.getKeyValue( binder.convert( "1.50" ) ) );
+        assertEquals( "100", binder.getKeyValue( new BigDecimal( "1E+2" ) ) );
+        assertNull( binder.getKeyValue( null ) );
+    }
+}
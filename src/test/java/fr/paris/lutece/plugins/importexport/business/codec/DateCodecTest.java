@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.codec;
+
+import java.sql.Date;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of the codec of date columns
+ */
+public class DateCodecTest
+{
+    private static final LocalDate DATE = LocalDate.of( 2021, 3, 14 );
+    private static final String ISO_DATE = "2021-03-14";
+
+    private final DateTimeFormatter _legacyFormatter = new DateTimeFormatterBuilder( ).parseCaseInsensitive( ).parseLenient( )
+            .appendLocalized( FormatStyle.MEDIUM, null ).toFormatter( Locale.FRANCE );
+    private final DateCodec _codec = new DateCodec( DateTimeFormatter.ISO_LOCAL_DATE, _legacyFormatter );
+
+    /**
+     * Dates are formatted with the pattern of the codec, whatever the locale of the server
+     */
+    @Test
+    public void testFormat( )
+    {
+        Assert.assertEquals( ISO_DATE, _codec.format( Date.valueOf( DATE ) ) );
+    }
+
+    /**
+     * Dates are parsed with the pattern of the codec, or with the legacy format of files exported by previous versions
+     * 
+     * @throws ParseException
+     *             If a date is not valid
+     */
+    @Test
+    public void testParseLegacyDates( ) throws ParseException
+    {
+        String strLegacyDate = DATE.format( _legacyFormatter );
+        Assert.assertEquals( Date.valueOf( DATE ), _codec.parse( ISO_DATE ) );
+        Assert.assertEquals( Date.valueOf( DATE ), _codec.parse( strLegacyDate ) );
+        // The format of the last parsed value is tried first, the other one must still be tried
+        Assert.assertEquals( Date.valueOf( DATE ), _codec.parse( ISO_DATE ) );
+    }
+
+    /**
+     * Values that match no format are rejected
+     * 
+     * @throws ParseException
+     *             Always
+     */
+    @Test( expected = ParseException.class )
+    public void testParseInvalidDate( ) throws ParseException
+    {
+        _codec.parse( "14/03/2021 12:00" );
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.codec;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of the codec of timestamp columns
+ */
+public class TimestampCodecTest
+{
+    private static final Timestamp TIMESTAMP = Timestamp.valueOf( "2021-03-14 15:09:26" );
+
+    /**
+     * Timestamps are written as milliseconds when no pattern is set, and parsed from milliseconds or from the JDBC format
+     * 
+     * @throws ParseException
+     *             If a timestamp is not valid
+     */
+    @Test
+    public void testDefaultCodec( ) throws ParseException
+    {
+        TimestampCodec codec = new TimestampCodec( null );
+        String strTimestamp = codec.format( TIMESTAMP );
+        Assert.assertEquals( Long.toString( TIMESTAMP.getTime( ) ), strTimestamp );
+        Assert.assertEquals( TIMESTAMP, codec.parse( strTimestamp ) );
+        Assert.assertEquals( TIMESTAMP, codec.parse( "2021-03-14 15:09:26" ) );
+    }
+
+    /**
+     * Timestamps are written with the pattern of the codec, and values that do not match it are still parsed from the JDBC format
+     * 
+     * @throws ParseException
+     *             If a timestamp is not valid
+     */
+    @Test
+    public void testCodecWithPattern( ) throws ParseException
+    {
+        TimestampCodec codec = new TimestampCodec( DateTimeFormatter.ofPattern( "dd/MM/yyyy HH:mm:ss" ) );
+        Assert.assertEquals( "14/03/2021 15:09:26", codec.format( TIMESTAMP ) );
+        Assert.assertEquals( TIMESTAMP, codec.parse( "14/03/2021 15:09:26" ) );
+        Assert.assertEquals( TIMESTAMP, codec.parse( "2021-03-14 15:09:26" ) );
+    }
+}
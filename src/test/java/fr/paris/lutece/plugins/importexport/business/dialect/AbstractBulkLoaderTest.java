@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.ColumnType;
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of the encoding of rows in the text format of bulk loads
+ */
+public class AbstractBulkLoaderTest
+{
+    /**
+     * Special characters of strings are escaped, null values are written \N, and booleans and decimals are written so that both databases read them
+     * 
+     * @throws IOException
+     *             If the encoded rows could not be read
+     */
+    @Test
+    public void testGetRowsStream( ) throws IOException
+    {
+        List<Object [ ]> listRows = new ArrayList<Object [ ]>( );
+        listRows.add( new Object [ ] {
+                1, "tab\there", null, Boolean.TRUE, new BigDecimal( "1E+3" )
+        } );
+        listRows.add( new Object [ ] {
+                2, "line\r\nbreak \\N", "\u00e9t\u00e9", Boolean.FALSE, new BigDecimal( "0.50" )
+        } );
+        String strRows = IOUtils.toString( AbstractBulkLoader.getRowsStream( listRows ), StandardCharsets.UTF_8 );
+        Assert.assertEquals( "1\ttab\\there\t\\N\t1\t1000\n2\tline\\r\\nbreak \\\\N\t\u00e9t\u00e9\t0\t0.50\n", strRows );
+    }
+
+    /**
+     * An empty list of rows is an empty stream
+     * 
+     * @throws IOException
+     *             If the encoded rows could not be read
+     */
+    @Test
+    public void testGetRowsStreamWithoutRows( ) throws IOException
+    {
+        Assert.assertEquals( -1, AbstractBulkLoader.getRowsStream( new ArrayList<Object [ ]>( ) ).read( ) );
+    }
+
+    /**
+     * Binary columns and columns whose type is not supported cannot be bulk loaded
+     */
+    @Test
+    public void testIsSupported( )
+    {
+        IBulkLoader bulkLoader = new PostgreSqlBulkLoader( );
+        TableColumn idColumn = new TableColumn( "id_item", true, ColumnType.TYPE_INT );
+        Assert.assertTrue( bulkLoader.isSupported( Arrays.asList( idColumn, new TableColumn( "label", false, ColumnType.TYPE_STRING ) ) ) );
+        Assert.assertFalse( bulkLoader.isSupported( Arrays.asList( idColumn, new TableColumn( "content", false, ColumnType.TYPE_BYTE ) ) ) );
+        Assert.assertFalse( bulkLoader.isSupported( Arrays.asList( idColumn, new TableColumn( "geometry", false, null ) ) ) );
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.dialect;
+
+import fr.paris.lutece.plugins.importexport.business.ColumnType;
+import fr.paris.lutece.plugins.importexport.business.TableColumn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of the SQL statements generated by the PostgreSQL dialect
+ */
+public class PostgreSqlDialectTest
+{
+    private static final String TABLE_NAME = "item";
+    private static final String STAGING_TABLE_NAME = "item_imp_stg";
+    private static final String OLD_TABLE_NAME = "item_imp_old";
+    private static final String TEMP_TABLE_NAME = "item_imp_tmp";
+
+    private final PostgreSqlDialect _dialect = new PostgreSqlDialect( );
+
+    /**
+     * Existing rows are updated from the excluded row of the conflict on the primary key
+     */
+    @Test
+    public void testGetSqlUpsert( )
+    {
+        Assert.assertEquals( "INSERT INTO item ( id_item, label, amount ) VALUES ( ?, ?, ? ) ON CONFLICT ( id_item ) DO UPDATE SET label = EXCLUDED.label,"
+                + " amount = EXCLUDED.amount", normalize( _dialect.getSqlUpsert( TABLE_NAME, getColumns( ) ) ) );
+    }
+
+    /**
+     * Rows that only have primary key columns have nothing to update
+     */
+    @Test
+    public void testGetSqlUpsertWithoutValueColumns( )
+    {
+        List<TableColumn> listColumns = new ArrayList<TableColumn>( );
+        listColumns.add( new TableColumn( "id_item", true, ColumnType.TYPE_INT ) );
+        Assert.assertNull( _dialect.getSqlUpsert( TABLE_NAME, listColumns ) );
+    }
+
+    /**
+     * The staging table gets every attribute of the table that LIKE can copy
+     */
+    @Test
+    public void testGetSqlCreateStagingTable( )
+    {
+        List<String> listSql = _dialect.getSqlCreateStagingTable( TABLE_NAME, STAGING_TABLE_NAME );
+        Assert.assertEquals( 1, listSql.size( ) );
+        Assert.assertEquals( "CREATE TABLE item_imp_stg ( LIKE item INCLUDING ALL )", normalize( listSql.get( 0 ) ) );
+    }
+
+    /**
+     * The sequences of the table are given to the staging table before both tables are renamed
+     */
+    @Test
+    public void testGetSqlSwapTables( )
+    {
+        List<String> listSql = _dialect.getSqlSwapTables( TABLE_NAME, STAGING_TABLE_NAME, OLD_TABLE_NAME );
+        Assert.assertEquals( 3, listSql.size( ) );
+        Assert.assertTrue( listSql.get( 0 ).contains( "t.oid = 'item'::regclass" ) );
+        Assert.assertTrue( listSql.get( 0 ).contains( "ALTER SEQUENCE %I OWNED BY item_imp_stg.%I" ) );
+        Assert.assertEquals( "ALTER TABLE item RENAME TO item_imp_old", normalize( listSql.get( 1 ) ) );
+        Assert.assertEquals( "ALTER TABLE item_imp_stg RENAME TO item", normalize( listSql.get( 2 ) ) );
+    }
+
+    /**
+     * The temporary table gets the keys of the table, so that rows with the same key are written into a single row
+     */
+    @Test
+    public void testGetSqlCreateTempTable( )
+    {
+        Assert.assertEquals( "CREATE TEMPORARY TABLE item_imp_tmp ( LIKE item INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES )",
+                normalize( _dialect.getSqlCreateTempTable( TABLE_NAME, TEMP_TABLE_NAME ) ) );
+    }
+
+    /**
+     * Rows of the table are updated from the rows of the temporary table with the same key
+     */
+    @Test
+    public void testGetSqlMergeUpdate( )
+    {
+        Assert.assertEquals( "UPDATE item SET label = item_imp_tmp.label, amount = item_imp_tmp.amount FROM item_imp_tmp"
+                + " WHERE item.id_item = item_imp_tmp.id_item",
+                normalize( _dialect.getSqlMergeUpdate( TABLE_NAME, TEMP_TABLE_NAME, getColumns( ) ) ) );
+        // PostgreSQL update statements return the number of rows they matched
+        Assert.assertNull( _dialect.getSqlCountMergeMatches( TABLE_NAME, TEMP_TABLE_NAME, getColumns( ) ) );
+    }
+
+    /**
+     * Rows of the temporary table are only inserted if no row of the table has their key
+     */
+    @Test
+    public void testGetSqlMergeInsert( )
+    {
+        Assert.assertEquals( "INSERT INTO item ( id_item, label, amount ) SELECT item_imp_tmp.id_item, item_imp_tmp.label, item_imp_tmp.amount"
+                + " FROM item_imp_tmp WHERE NOT EXISTS ( SELECT 1 FROM item WHERE item.id_item = item_imp_tmp.id_item )",
+                normalize( _dialect.getSqlMergeInsert( TABLE_NAME, TEMP_TABLE_NAME, getColumns( ) ) ) );
+    }
+
+    /**
+     * Get the columns of the tested table
+     * 
+     * @return The list of columns
+     */
+    private static List<TableColumn> getColumns( )
+    {
+        List<TableColumn> listColumns = new ArrayList<TableColumn>( );
+        listColumns.add( new TableColumn( "id_item", true, ColumnType.TYPE_INT ) );
+        listColumns.add( new TableColumn( "label", false, ColumnType.TYPE_STRING ) );
+        listColumns.add( new TableColumn( "amount", false, ColumnType.TYPE_DECIMAL ) );
+        return listColumns;
+    }
+
+    /**
+     * Normalize the white spaces of a SQL statement, so that statements are compared regardless of their layout
+     * 
+     * @param strSql
+     *            The SQL statement
+     * @return The normalized SQL statement
+     */
+    private static String normalize( String strSql )
+    {
+        return StringUtils.normalizeSpace( strSql );
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.business.importdata;
+
+import fr.paris.lutece.plugins.importexport.business.ImportExportElement;
+import fr.paris.lutece.plugins.importexport.service.ImportExportPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tests of the batches of rows written by the import DAO
+ */
+public class ImportDataDAOTest extends LuteceTestCase
+{
+    private static final String TABLE_NAME = "importexport_test_batch";
+    private static final String SQL_QUERY_CREATE_TABLE = "CREATE TABLE importexport_test_batch ( id_test INT NOT NULL, label VARCHAR(50) NOT NULL,"
+            + " PRIMARY KEY ( id_test ) )";
+    private static final String SQL_QUERY_DROP_TABLE = "DROP TABLE importexport_test_batch";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO importexport_test_batch ( id_test, label ) VALUES ( ?, ? )";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT(*) FROM importexport_test_batch";
+    private static final String COLUMN_ID = "id_test";
+    private static final String COLUMN_LABEL = "label";
+
+    private Plugin _plugin;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+        _plugin = ImportExportPlugin.getPlugin( );
+        executeUpdate( SQL_QUERY_CREATE_TABLE );
+        // Rows 3 and 5 of the batch conflict with existing rows
+        for ( int nId : new int [ ] {
+                3, 5
+        } )
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, _plugin );
+            daoUtil.setInt( 1, nId );
+            daoUtil.setString( 2, "existing" );
+            daoUtil.executeUpdate( );
+            daoUtil.free( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown( ) throws Exception
+    {
+        executeUpdate( SQL_QUERY_DROP_TABLE );
+        super.tearDown( );
+    }
+
+    /**
+     * Rows of a failed batch that could not be written are isolated and reported, and the other rows of the batch are still written
+     * 
+     * @throws SQLException
+     *             If an error occurred with the database
+     */
+    public void testFlushBatchIsolatesFailedRows( ) throws SQLException
+    {
+        ImportDataDAO importDataDAO = new ImportDataDAO( Arrays.asList( COLUMN_ID, COLUMN_LABEL ), TABLE_NAME, _plugin, Locale.FRENCH );
+        List<ImportMessage> listErrors;
+        try
+        {
+            for ( int nItemNumber = 1; nItemNumber <= 8; nItemNumber++ )
+            {
+                importDataDAO.insertRow( importDataDAO.convertRow( getElements( nItemNumber, "imported " + nItemNumber ), nItemNumber ) );
+            }
+            listErrors = importDataDAO.flushBatch( );
+            importDataDAO.commitTransaction( );
+        }
+        catch( SQLException e )
+        {
+            importDataDAO.rollbackTransaction( );
+            throw e;
+        }
+
+        assertEquals( 2, listErrors.size( ) );
+        assertEquals( 3, listErrors.get( 0 ).getItemNumber( ) );
+        assertEquals( ImportMessage.STATUS_ERROR, listErrors.get( 0 ).getStatus( ) );
+        assertEquals( 5, listErrors.get( 1 ).getItemNumber( ) );
+        assertEquals( 6, importDataDAO.getCreatedElements( ) );
+        assertEquals( 8, countRows( ) );
+    }
+
+    /**
+     * Get the elements of a row
+     * 
+     * @param nId
+     *            The id of the row
+     * @param strLabel
+     *            The label of the row
+     * @return The elements of the row
+     */
+    private static List<ImportExportElement> getElements( int nId, String strLabel )
+    {
+        List<ImportExportElement> listElements = new ArrayList<ImportExportElement>( );
+        ImportExportElement idElement = new ImportExportElement( );
+        idElement.setColumnName( COLUMN_ID );
+        idElement.setValue( Integer.toString( nId ) );
+        listElements.add( idElement );
+        ImportExportElement labelElement = new ImportExportElement( );
+        labelElement.setColumnName( COLUMN_LABEL );
+        labelElement.setValue( strLabel );
+        listElements.add( labelElement );
+        return listElements;
+    }
+
+    /**
+     * Count the rows of the tested table
+     * 
+     * @return The number of rows
+     */
+    private int countRows( )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, _plugin );
+        daoUtil.executeQuery( );
+        int nRows = daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        daoUtil.free( );
+        return nRows;
+    }
+
+    /**
+     * Execute an update statement
+     * 
+     * @param strSql
+     *            The SQL statement
+     */
+    private void executeUpdate( String strSql )
+    {
+        DAOUtil daoUtil = new DAOUtil( strSql, _plugin );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.importexport.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the executor of the imports and exports
+ */
+public class JobExecutorServiceTest extends LuteceTestCase
+{
+    private static final String TABLE_NAME = "importexport_test_job";
+    private static final String OTHER_TABLE_NAME = "importexport_test_other_job";
+    private static final long TIMEOUT = 10;
+
+    private final List<String> _listEvents = Collections.synchronizedList( new ArrayList<String>( ) );
+    private final CountDownLatch _latchStarted = new CountDownLatch( 1 );
+    private final CountDownLatch _latchReleased = new CountDownLatch( 1 );
+
+    /**
+     * Jobs of the same table run one after the other, whatever the case of the name of the table, while jobs of other tables run at once
+     * 
+     * @throws Exception
+     *             If a job failed or timed out
+     */
+    public void testJobsOfTableAreSerialized( ) throws Exception
+    {
+        JobExecutorService executor = JobExecutorService.getInstance( );
+        Future<Object> futureBlocking = executor.submit( getBlockingJob( "blocking" ), TABLE_NAME, JobExecutorService.PRIORITY_DAEMON );
+        assertTrue( _latchStarted.await( TIMEOUT, TimeUnit.SECONDS ) );
+        Future<Object> futureSameTable = executor.submit( getJob( "same table" ), TABLE_NAME.toUpperCase( ), JobExecutorService.PRIORITY_INTERACTIVE );
+        Future<Object> futureOtherTable = executor.submit( getJob( "other table" ), OTHER_TABLE_NAME, JobExecutorService.PRIORITY_DAEMON );
+        futureOtherTable.get( TIMEOUT, TimeUnit.SECONDS );
+        assertTrue( executor.isTableBusy( TABLE_NAME ) );
+        assertFalse( futureSameTable.isDone( ) );
+
+        _latchReleased.countDown( );
+        futureBlocking.get( TIMEOUT, TimeUnit.SECONDS );
+        futureSameTable.get( TIMEOUT, TimeUnit.SECONDS );
+        assertEquals( Arrays.asList( "blocking started", "other table", "blocking finished", "same table" ), _listEvents );
+    }
+
+    /**
+     * Queued jobs of a table are started by order of priority, and then by order of submission
+     * 
+     * @throws Exception
+     *             If a job failed or timed out
+     */
+    public void testQueuedJobsAreStartedByPriority( ) throws Exception
+    {
+        JobExecutorService executor = JobExecutorService.getInstance( );
+        Future<Object> futureBlocking = executor.submit( getBlockingJob( "blocking" ), TABLE_NAME, JobExecutorService.PRIORITY_DAEMON );
+        assertTrue( _latchStarted.await( TIMEOUT, TimeUnit.SECONDS ) );
+        List<Future<Object>> listFutures = new ArrayList<Future<Object>>( );
+        listFutures.add( executor.submit( getJob( "first daemon" ), TABLE_NAME, JobExecutorService.PRIORITY_DAEMON ) );
+        listFutures.add( executor.submit( getJob( "first interactive" ), TABLE_NAME, JobExecutorService.PRIORITY_INTERACTIVE ) );
+        listFutures.add( executor.submit( getJob( "second daemon" ), TABLE_NAME, JobExecutorService.PRIORITY_DAEMON ) );
+        listFutures.add( executor.submit( getJob( "second interactive" ), TABLE_NAME, JobExecutorService.PRIORITY_INTERACTIVE ) );
+
+        _latchReleased.countDown( );
+        futureBlocking.get( TIMEOUT, TimeUnit.SECONDS );
+        for ( Future<Object> future : listFutures )
+        {
+            future.get( TIMEOUT, TimeUnit.SECONDS );
+        }
+        assertEquals( Arrays.asList( "blocking started", "blocking finished", "first interactive", "second interactive", "first daemon", "second daemon" ),
+                _listEvents );
+    }
+
+    /**
+     * Get a job that records its run
+     * 
+     * @param strName
+     *            The name of the job
+     * @return The job
+     */
+    private Runnable getJob( final String strName )
+    {
+        return new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                _listEvents.add( strName );
+            }
+        };
+    }
+
+    /**
+     * Get a job that records its start, and then waits to be released before it records its end
+     * 
+     * @param strName
+     *            The name of the job
+     * @return The job
+     */
+    private Runnable getBlockingJob( final String strName )
+    {
+        return new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                _listEvents.add( strName + " started" );
+                _latchStarted.countDown( );
+                try
+                {
+                    _latchReleased.await( TIMEOUT, TimeUnit.SECONDS );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+                _listEvents.add( strName + " finished" );
+            }
+        };
+    }
+}
@@ -0,0 +1,5 @@
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:useBean id="exportData" scope="session" class="fr.paris.lutece.plugins.importexport.web.ExportDataJspBean" />
+
+<% exportData.init( request, exportData.RIGHT_IMPORT_DATA ); %>
+<% response.sendRedirect( exportData.doCancelExport( request ) ); %>
@@ -0,0 +1,8 @@
+<%@ page errorPage="../../ErrorPage.jsp" %><jsp:useBean id="importData" scope="session" class="fr.paris.lutece.plugins.importexport.web.ImportDataJspBean" /><%
+	importData.init( request, importData.RIGHT_IMPORT_DATA );
+	String strUrl = importData.doDownloadRejectFile( request, response );
+	if ( strUrl != null )
+	{
+		response.sendRedirect( strUrl );
+	}
+%>
\ No newline at end of file
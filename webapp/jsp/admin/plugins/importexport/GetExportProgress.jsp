@@ -0,0 +1,4 @@
+<%@ page errorPage="../../ErrorPage.jsp" contentType="application/json; charset=UTF-8" %><jsp:useBean id="exportData" scope="session" class="fr.paris.lutece.plugins.importexport.web.ExportDataJspBean" /><%
+	exportData.init( request, exportData.RIGHT_IMPORT_DATA );
+	out.print( exportData.getExportProgress( request ) );
+%>
\ No newline at end of file
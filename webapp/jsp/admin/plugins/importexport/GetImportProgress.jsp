@@ -0,0 +1,4 @@
+<%@ page errorPage="../../ErrorPage.jsp" contentType="application/json; charset=UTF-8" %><jsp:useBean id="importData" scope="session" class="fr.paris.lutece.plugins.importexport.web.ImportDataJspBean" /><%
+	importData.init( request, importData.RIGHT_IMPORT_DATA );
+	out.print( importData.getImportProgress( request ) );
+%>
\ No newline at end of file